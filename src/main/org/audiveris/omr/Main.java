@@ -88,6 +88,19 @@ public class Main
         return cli;
     }
 
+    //--------------------------//
+    // getSheetStepQueueTimeOut //
+    //--------------------------//
+    /**
+     * Report the maximum time a step on a sheet may wait for a pool worker.
+     *
+     * @return the timeout value (in seconds)
+     */
+    public static int getSheetStepQueueTimeOut ()
+    {
+        return constants.sheetStepQueueTimeOut.getValue();
+    }
+
     //---------------------//
     // getSheetStepTimeOut //
     //---------------------//
@@ -191,6 +204,20 @@ public class Main
         }
     }
 
+    //-----------------------------//
+    // processPartitionsInParallel //
+    //-----------------------------//
+    /**
+     * Tell whether we should process in parallel the staff, segment or system partitions
+     * within GRID, CURVES and RHYTHMS steps.
+     *
+     * @return true if so
+     */
+    public static boolean processPartitionsInParallel ()
+    {
+        return constants.processPartitionsInParallel.isSet();
+    }
+
     //--------------------------//
     // processSystemsInParallel //
     //--------------------------//
@@ -376,9 +403,18 @@ public class Main
                 false,
                 "Should we process all systems in parallel in a sheet?");
 
+        private final Constant.Boolean processPartitionsInParallel = new Constant.Boolean(
+                false,
+                "Should we process staves, segments or systems in parallel within sheet steps?");
+
         private final Constant.Integer sheetStepTimeOut = new Constant.Integer(
                 "Seconds",
                 120,
                 "Time-out for one step on a sheet, specified in seconds");
+
+        private final Constant.Integer sheetStepQueueTimeOut = new Constant.Integer(
+                "Seconds",
+                600,
+                "Time-out for one step on a sheet waiting for a worker, specified in seconds");
     }
 }
@@ -121,6 +121,10 @@ public abstract class AbstractClassifier<M extends Object>
     /** The glyph checker for additional specific checks. */
     protected ShapeChecker glyphChecker = ShapeChecker.getInstance();
 
+    /** Natural evaluations of recent glyphs, to be cleared whenever model changes. */
+    protected final EvaluationCache evaluationCache = new EvaluationCache(
+            constants.maxCachedEvaluations.getValue());
+
     //----------//
     // evaluate //
     //----------//
@@ -136,6 +140,33 @@ public abstract class AbstractClassifier<M extends Object>
         return evaluate(glyph, system, count, minGrade, conditions, interline);
     }
 
+    //----------//
+    // evaluate //
+    //----------//
+    @Override
+    public Evaluation[][] evaluate (List<Glyph> glyphs,
+                                    SystemInfo system,
+                                    int count,
+                                    double minGrade,
+                                    EnumSet<Condition> conditions)
+    {
+        final int interline = system.getSheet().getInterline();
+        final Evaluation[][] sortedEvals = getSortedEvaluations(glyphs, interline);
+        final Evaluation[][] results = new Evaluation[glyphs.size()][];
+
+        for (int i = 0; i < results.length; i++) {
+            results[i] = selectEvaluations(
+                    glyphs.get(i),
+                    system,
+                    sortedEvals[i],
+                    count,
+                    minGrade,
+                    conditions);
+        }
+
+        return results;
+    }
+
     //----------//
     // evaluate //
     //----------//
@@ -158,6 +189,19 @@ public abstract class AbstractClassifier<M extends Object>
         return descriptor;
     }
 
+    //--------------------//
+    // getEvaluationCache //
+    //--------------------//
+    /**
+     * Report the cache of natural evaluations, with its hit and miss counts.
+     *
+     * @return the evaluation cache
+     */
+    public EvaluationCache getEvaluationCache ()
+    {
+        return evaluationCache;
+    }
+
     //---------------//
     // getRawDataSet //
     //---------------//
@@ -230,6 +274,8 @@ public abstract class AbstractClassifier<M extends Object>
     /**
      * Run the classifier with the specified glyph, and return a sequence of all
      * interpretations (ordered from best to worst) with no additional check.
+     * <p>
+     * Natural evaluations are looked up in, or else recorded into, the evaluation cache.
      *
      * @param glyph     the glyph to be examined
      * @param interline the global sheet interline
@@ -242,13 +288,107 @@ public abstract class AbstractClassifier<M extends Object>
         if (!isBigEnough(glyph, interline)) {
             return noiseEvaluations;
         } else {
-            Evaluation[] evals = getNaturalEvaluations(glyph, interline);
+            final boolean useCache = constants.useEvaluationCache.isSet();
+            Evaluation[] evals = useCache ? evaluationCache.get(glyph, interline) : null;
+
+            if (evals == null) {
+                evals = getNaturalEvaluations(glyph, interline);
+
+                if (useCache) {
+                    evaluationCache.put(glyph, interline, evals);
+                }
+            }
+
             Arrays.sort(evals, Evaluation.byReverseGrade); // Order the evals from best to worst
 
             return evals;
         }
     }
 
+    //----------------------//
+    // getSortedEvaluations //
+    //----------------------//
+    /**
+     * Run the classifier on a batch of glyphs, and return for each glyph a sequence of all
+     * interpretations (ordered from best to worst) with no additional check.
+     * <p>
+     * Glyphs not found in the evaluation cache are submitted together to
+     * {@link #getNaturalEvaluations(List, int)}.
+     *
+     * @param glyphs    the glyphs to be examined
+     * @param interline the global sheet interline
+     * @return the ordered best evaluations, one array per glyph
+     */
+    protected Evaluation[][] getSortedEvaluations (List<Glyph> glyphs,
+                                                   int interline)
+    {
+        final boolean useCache = constants.useEvaluationCache.isSet();
+        final Evaluation[][] results = new Evaluation[glyphs.size()][];
+        final List<Glyph> missed = new ArrayList<>();
+        final int[] missedIndices = new int[results.length];
+
+        for (int i = 0; i < results.length; i++) {
+            final Glyph glyph = glyphs.get(i);
+
+            // If too small, it's just NOISE
+            if (!isBigEnough(glyph, interline)) {
+                results[i] = noiseEvaluations;
+            } else {
+                results[i] = useCache ? evaluationCache.get(glyph, interline) : null;
+
+                if (results[i] == null) {
+                    missedIndices[missed.size()] = i;
+                    missed.add(glyph);
+                }
+            }
+        }
+
+        if (!missed.isEmpty()) {
+            final Evaluation[][] naturals = getNaturalEvaluations(missed, interline);
+
+            for (int k = 0; k < naturals.length; k++) {
+                results[missedIndices[k]] = naturals[k];
+
+                if (useCache) {
+                    evaluationCache.put(missed.get(k), interline, naturals[k]);
+                }
+            }
+        }
+
+        for (Evaluation[] evals : results) {
+            if (evals != noiseEvaluations) {
+                Arrays.sort(evals, Evaluation.byReverseGrade); // Order from best to worst
+            }
+        }
+
+        return results;
+    }
+
+    //-----------------------//
+    // getNaturalEvaluations //
+    //-----------------------//
+    /**
+     * Run the classifier on a batch of glyphs, and return for each glyph the natural
+     * sequence of all interpretations (ordered by Shape ordinal) with no additional check.
+     * <p>
+     * This default implementation processes glyphs one after the other.
+     *
+     * @param glyphs    the glyphs to be examined
+     * @param interline the relevant scaling interline
+     * @return all shape-ordered evaluations, one array per glyph
+     */
+    protected Evaluation[][] getNaturalEvaluations (List<Glyph> glyphs,
+                                                    int interline)
+    {
+        final Evaluation[][] results = new Evaluation[glyphs.size()][];
+
+        for (int i = 0; i < results.length; i++) {
+            results[i] = getNaturalEvaluations(glyphs.get(i), interline);
+        }
+
+        return results;
+    }
+
     //--------------//
     // isCompatible //
     //--------------//
@@ -495,9 +635,38 @@ public abstract class AbstractClassifier<M extends Object>
                                    double minGrade,
                                    EnumSet<Classifier.Condition> conditions,
                                    int interline)
+    {
+        return selectEvaluations(
+                glyph,
+                system,
+                getSortedEvaluations(glyph, interline),
+                count,
+                minGrade,
+                conditions);
+    }
+
+    //-------------------//
+    // selectEvaluations //
+    //-------------------//
+    /**
+     * Select the best acceptable evaluations among the sorted ones.
+     *
+     * @param glyph      the evaluated glyph
+     * @param system     the containing system, if any
+     * @param evals      all evaluations, ordered from best to worst
+     * @param count      the desired maximum sequence length
+     * @param minGrade   the minimum evaluation grade to be acceptable
+     * @param conditions optional conditions, perhaps null or empty
+     * @return the sequence of selected evaluations, perhaps empty but not null
+     */
+    private Evaluation[] selectEvaluations (Glyph glyph,
+                                            SystemInfo system,
+                                            Evaluation[] evals,
+                                            int count,
+                                            double minGrade,
+                                            EnumSet<Classifier.Condition> conditions)
     {
         List<Evaluation> bests = new ArrayList<>();
-        Evaluation[] evals = getSortedEvaluations(glyph, interline);
 
         EvalsLoop:
         for (Evaluation eval : evals) {
@@ -546,6 +715,9 @@ public abstract class AbstractClassifier<M extends Object>
         /** Features standard deviations. */
         final INDArray stds;
 
+        /** Plain copies of means and stds, built on first normalization. */
+        private volatile double[][] values;
+
         /**
          * Creates a new {@code Norms} object.
          *
@@ -558,6 +730,40 @@ public abstract class AbstractClassifier<M extends Object>
             this.means = means;
             this.stds = stds;
         }
+
+        /**
+         * Apply these norms on the provided (raw) features, using plain double arrays.
+         * <p>
+         * Computation is done in double precision, without any allocation, whereas an INDArray
+         * normalization uses ND4J default data type (float): results may thus differ in the
+         * least significant digits.
+         * Means and stds must no longer be modified once this method has been called.
+         *
+         * @param ins raw features, to be normalized in situ
+         */
+        void normalize (double[] ins)
+        {
+            double[][] vals = values;
+
+            if (vals == null) {
+                final int length = means.columns();
+                vals = new double[2][length];
+
+                for (int i = 0; i < length; i++) {
+                    vals[0][i] = means.getDouble(i);
+                    vals[1][i] = stds.getDouble(i);
+                }
+
+                values = vals;
+            }
+
+            final double[] m = vals[0];
+            final double[] s = vals[1];
+
+            for (int i = ins.length - 1; i >= 0; i--) {
+                ins[i] = (ins[i] - m[i]) / s[i];
+            }
+        }
     }
 
     //-----------//
@@ -574,5 +780,14 @@ public abstract class AbstractClassifier<M extends Object>
         private final Scale.AreaFraction minWeight = new Scale.AreaFraction(
                 0.04,
                 "Minimum normalized weight to be considered not a noise");
+
+        private final Constant.Boolean useEvaluationCache = new Constant.Boolean(
+                true,
+                "Should we reuse evaluations of glyphs with identical pixels?");
+
+        private final Constant.Integer maxCachedEvaluations = new Constant.Integer(
+                "glyphs",
+                2000,
+                "Maximum number of glyphs kept in evaluation cache");
     }
 }
@@ -51,6 +51,7 @@ import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.List;
+import java.util.Random;
 
 import javax.xml.bind.JAXBContext;
 import javax.xml.bind.Unmarshaller;
@@ -85,6 +86,16 @@ public class BasicClassifier
     /** Training listener, if any. */
     private TrainingMonitor listener;
 
+    /** Per-thread network buffers, for inference. */
+    private final ThreadLocal<Scratch> scratches = new ThreadLocal<Scratch>()
+    {
+        @Override
+        protected Scratch initialValue ()
+        {
+            return new Scratch();
+        }
+    };
+
     /**
      * Private constructor, to create a glyph neural network.
      */
@@ -154,25 +165,51 @@ public class BasicClassifier
     public Evaluation[] getNaturalEvaluations (Glyph glyph,
                                                int interline)
     {
-        double[] ins = descriptor.getFeatures(glyph, interline);
-        final INDArray features = Nd4j.create(ins);
-        normalize(features);
+        final double[] ins = descriptor.getFeatures(glyph, interline);
+        norms.normalize(ins);
 
-        Shape[] values = Shape.values();
-        Evaluation[] evals = new Evaluation[SHAPE_COUNT];
+        final NeuralNetwork network = model;
+        final Scratch scratch = scratches.get();
+        final double[][] hiddens = scratch.getHiddens(1, network.getHiddenSize());
+        final double[][] outs = scratch.getOutputs(1, SHAPE_COUNT);
+        network.run(ins, hiddens[0], outs[0]);
+
+        return getEvaluations(outs[0]);
+    }
+
+    //-----------------------//
+    // getNaturalEvaluations //
+    //-----------------------//
+    /**
+     * {@inheritDoc}
+     * <p>
+     * All glyphs features are normalized, then run through the network as one batch.
+     */
+    @Override
+    protected Evaluation[][] getNaturalEvaluations (List<Glyph> glyphs,
+                                                    int interline)
+    {
+        final int count = glyphs.size();
+        final double[][] inputs = new double[count][];
 
-        for (int i = 0; i < ins.length; i++) {
-            ins[i] = features.getDouble(i);
+        for (int i = 0; i < count; i++) {
+            inputs[i] = descriptor.getFeatures(glyphs.get(i), interline);
+            norms.normalize(inputs[i]);
         }
 
-        double[] outs = new double[SHAPE_COUNT];
-        model.run(ins, null, outs);
+        final NeuralNetwork network = model;
+        final Scratch scratch = scratches.get();
+        final double[][] outs = network.run(
+                inputs,
+                scratch.getHiddens(count, network.getHiddenSize()),
+                scratch.getOutputs(count, SHAPE_COUNT));
+        final Evaluation[][] results = new Evaluation[count][];
 
-        for (int s = 0; s < SHAPE_COUNT; s++) {
-            evals[s] = new Evaluation(values[s], outs[s]);
+        for (int i = 0; i < count; i++) {
+            results[i] = getEvaluations(outs[i]);
         }
 
-        return evals;
+        return results;
     }
 
     //-------//
@@ -182,6 +219,7 @@ public class BasicClassifier
     public void reset ()
     {
         model = createNetwork();
+        evaluationCache.clear();
     }
 
     //------//
@@ -196,9 +234,27 @@ public class BasicClassifier
     //-------//
     // train //
     //-------//
-    @SuppressWarnings("unchecked")
     @Override
     public void train (Collection<Sample> samples)
+    {
+        train(samples, null);
+    }
+
+    //-------//
+    // train //
+    //-------//
+    /**
+     * {@inheritDoc}
+     * <p>
+     * Unless legacy per-pattern training is selected, the network is trained by mini-batches,
+     * with early stopping on validation samples if any.
+     * Samples shuffling and mini-batches are driven by a fixed seed, so that training the same
+     * model on the same samples gives the same result.
+     */
+    @SuppressWarnings("unchecked")
+    @Override
+    public void train (Collection<Sample> samples,
+                       Collection<Sample> validations)
     {
         logger.info("Training on {} samples", samples.size());
 
@@ -212,8 +268,9 @@ public class BasicClassifier
         watch.start("shuffle");
 
         // Shuffle the collection of samples
+        final Random random = new Random(constants.trainingSeed.getValue());
         final List<Sample> newSamples = new ArrayList<>(samples);
-        Collections.shuffle(newSamples);
+        Collections.shuffle(newSamples, random);
 
         // Build raw dataset
         watch.start("getRawDataSet");
@@ -264,7 +321,40 @@ public class BasicClassifier
         }
 
         // Train
-        model.train(inputs, desiredOutputs, listener, listener.getIterationPeriod());
+        if (constants.useMiniBatch.isSet()) {
+            // Validation data, normalized with the same norms
+            double[][] testInputs = null;
+            double[][] testOutputs = null;
+
+            if ((validations != null) && !validations.isEmpty()) {
+                testInputs = new double[validations.size()][];
+                testOutputs = new double[validations.size()][SHAPE_COUNT];
+
+                int it = 0;
+
+                for (Sample sample : validations) {
+                    testInputs[it] = descriptor.getFeatures(sample, sample.getInterline());
+                    norms.normalize(testInputs[it]);
+                    testOutputs[it][sample.getShape().getPhysicalShape().ordinal()] = 1;
+                    it++;
+                }
+            }
+
+            model.trainMiniBatch(
+                    inputs,
+                    desiredOutputs,
+                    testInputs,
+                    testOutputs,
+                    constants.batchSize.getValue(),
+                    constants.batchLearningRate.getValue(),
+                    constants.patience.getValue(),
+                    random.nextLong(),
+                    listener,
+                    listener.getIterationPeriod());
+        } else {
+            model.train(inputs, desiredOutputs, listener, listener.getIterationPeriod());
+        }
+        evaluationCache.clear(); // Cached evaluations are now obsolete
 
         // Store
         store(FILE_NAME);
@@ -430,6 +520,7 @@ public class BasicClassifier
                 SHAPE_COUNT,
                 SHAPE_COUNT,
                 constants.amplitude.getValue(),
+                constants.trainingSeed.getValue(), // Seed for initial weights
                 descriptor.getFeatureLabels(), // Input labels
                 ShapeSet.getPhysicalShapeNames(), // Output labels
                 constants.learningRate.getValue(),
@@ -437,6 +528,27 @@ public class BasicClassifier
                 getMaxEpochs());
     }
 
+    //----------------//
+    // getEvaluations //
+    //----------------//
+    /**
+     * Convert network outputs into shape-ordered evaluations.
+     *
+     * @param outs network output values
+     * @return the natural evaluations
+     */
+    private Evaluation[] getEvaluations (double[] outs)
+    {
+        final Shape[] values = Shape.values();
+        final Evaluation[] evals = new Evaluation[SHAPE_COUNT];
+
+        for (int s = 0; s < SHAPE_COUNT; s++) {
+            evals[s] = new Evaluation(values[s], outs[s]);
+        }
+
+        return evals;
+    }
+
     //-----------//
     // normalize //
     //-----------//
@@ -473,6 +585,43 @@ public class BasicClassifier
         static final BasicClassifier INSTANCE = new BasicClassifier();
     }
 
+    //---------//
+    // Scratch //
+    //---------//
+    /**
+     * Network buffers of one thread, grown as needed and reused from one call to the other.
+     */
+    private static class Scratch
+    {
+
+        private double[][] hiddens = new double[0][];
+
+        private double[][] outputs = new double[0][];
+
+        double[][] getHiddens (int rows,
+                               int cols)
+        {
+            return hiddens = ensure(hiddens, rows, cols);
+        }
+
+        double[][] getOutputs (int rows,
+                               int cols)
+        {
+            return outputs = ensure(outputs, rows, cols);
+        }
+
+        private static double[][] ensure (double[][] buffer,
+                                          int rows,
+                                          int cols)
+        {
+            if ((buffer.length >= rows) && ((buffer.length == 0) || (buffer[0].length == cols))) {
+                return buffer;
+            }
+
+            return new double[Math.max(rows, buffer.length)][cols];
+        }
+    }
+
     //-----------//
     // Constants //
     //-----------//
@@ -496,6 +645,29 @@ public class BasicClassifier
                 "Maximum number of epochs in training");
 
         private final Constant.Ratio momentum = new Constant.Ratio(0.2, "Training momentum");
+
+        private final Constant.Boolean useMiniBatch = new Constant.Boolean(
+                true,
+                "Should we train by parallel mini-batches?");
+
+        private final Constant.Integer batchSize = new Constant.Integer(
+                "samples",
+                64,
+                "Number of samples per training mini-batch");
+
+        private final Constant.Ratio batchLearningRate = new Constant.Ratio(
+                0.8,
+                "Learning Rate on mini-batch mean gradient (about learningRate * sqrt(batchSize))");
+
+        private final Constant.Integer patience = new Constant.Integer(
+                "Epochs",
+                20,
+                "Number of epochs without validation improvement before stopping training");
+
+        private final Constant.Integer trainingSeed = new Constant.Integer(
+                "seed",
+                12345,
+                "Seed for reproducible shuffling of training samples");
     }
 
     //----------//
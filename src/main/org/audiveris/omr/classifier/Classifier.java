@@ -30,6 +30,7 @@ import org.audiveris.omr.sheet.SystemInfo;
 //
 import java.util.Collection;
 import java.util.EnumSet;
+import java.util.List;
 
 /**
  * Interface {@code Classifier} defines the features of a glyph shape classifier.
@@ -80,6 +81,26 @@ public interface Classifier
                            double minGrade,
                            EnumSet<Condition> conditions);
 
+    /**
+     * Report, for each glyph of the provided batch, the sorted sequence of best
+     * evaluation(s) found by the classifier.
+     * <p>
+     * This is equivalent to calling {@link #evaluate(Glyph, SystemInfo, int, double, EnumSet)}
+     * on each glyph, but lets the classifier process all glyphs at once.
+     *
+     * @param glyphs     the glyphs to evaluate
+     * @param system     the system containing the glyphs to evaluate
+     * @param count      the desired maximum sequence length, min 1 and max SHAPE_COUNT
+     * @param minGrade   the minimum evaluation grade to be acceptable
+     * @param conditions optional conditions, perhaps null or empty
+     * @return the sequences of evaluations, in glyphs order
+     */
+    Evaluation[][] evaluate (List<Glyph> glyphs,
+                             SystemInfo system,
+                             int count,
+                             double minGrade,
+                             EnumSet<Condition> conditions);
+
     /**
      * Report the sorted sequence of best evaluation(s) found by the classifier on the
      * provided glyph, with no system but an interline value.
@@ -179,4 +200,14 @@ public interface Classifier
      * @param samples the provided collection of shapes samples
      */
     void train (Collection<Sample> samples);
+
+    /**
+     * Train the network using the provided collection of shape samples, and check
+     * progress against the provided validation samples.
+     *
+     * @param samples     the provided collection of shapes samples
+     * @param validations samples for validation (typically the test samples), perhaps null
+     */
+    void train (Collection<Sample> samples,
+                Collection<Sample> validations);
 }
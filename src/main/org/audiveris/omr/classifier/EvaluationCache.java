@@ -0,0 +1,299 @@
+//------------------------------------------------------------------------------------------------//
+//                                                                                                //
+//                                 E v a l u a t i o n C a c h e                                  //
+//                                                                                                //
+//------------------------------------------------------------------------------------------------//
+// <editor-fold defaultstate="collapsed" desc="hdr">
+//
+//  Copyright © Audiveris 2018. All rights reserved.
+//
+//  This program is free software: you can redistribute it and/or modify it under the terms of the
+//  GNU Affero General Public License as published by the Free Software Foundation, either version
+//  3 of the License, or (at your option) any later version.
+//
+//  This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+//  without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+//  See the GNU Affero General Public License for more details.
+//
+//  You should have received a copy of the GNU Affero General Public License along with this
+//  program.  If not, see <http://www.gnu.org/licenses/>.
+//------------------------------------------------------------------------------------------------//
+// </editor-fold>
+package org.audiveris.omr.classifier;
+
+import org.audiveris.omr.glyph.Glyph;
+import org.audiveris.omr.glyph.Shape;
+import org.audiveris.omr.run.Run;
+import org.audiveris.omr.run.RunTable;
+
+import net.jcip.annotations.ThreadSafe;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Class {@code EvaluationCache} keeps the natural evaluations of recently classified
+ * glyphs, so that the same pixel content (at the same interline) is not evaluated twice.
+ * <p>
+ * Glyph compounds are often re-evaluated, within a cluster decomposition, from one system to the
+ * other and from one sheet to the other. An entry is keyed by the glyph run table and the
+ * interline value, regardless of the glyph location.
+ * <p>
+ * The cache is bounded, with least-recently-used eviction. Since evaluations are modified by
+ * their consumers (shape checks), the cache stores only shapes and grades, and provides fresh
+ * Evaluation instances on each hit.
+ * <p>
+ * Hits and misses are counted, and reported by {@link #toString()}.
+ *
+ * @author Hervé Bitteur
+ */
+@ThreadSafe
+public class EvaluationCache
+{
+
+    private static final Logger logger = LoggerFactory.getLogger(EvaluationCache.class);
+
+    /** Cached evaluations, in least recently used order. */
+    private final LinkedHashMap<Key, Entry> map;
+
+    /** Number of successful lookups. */
+    private final AtomicLong hits = new AtomicLong();
+
+    /** Number of failed lookups. */
+    private final AtomicLong misses = new AtomicLong();
+
+    /**
+     * Creates a new {@code EvaluationCache} object.
+     *
+     * @param maxSize maximum number of glyphs kept in cache
+     */
+    public EvaluationCache (final int maxSize)
+    {
+        map = new LinkedHashMap<Key, Entry>(16, 0.75f, true)
+        {
+            @Override
+            protected boolean removeEldestEntry (Map.Entry<Key, Entry> eldest)
+            {
+                return size() > maxSize;
+            }
+        };
+    }
+
+    //-------//
+    // clear //
+    //-------//
+    /**
+     * Forget all cached evaluations, typically because the classifier model has changed.
+     */
+    public synchronized void clear ()
+    {
+        logger.debug("Clearing {}", this);
+        map.clear();
+        hits.set(0);
+        misses.set(0);
+    }
+
+    //-----//
+    // get //
+    //-----//
+    /**
+     * Report the cached natural evaluations for the provided glyph, if any.
+     *
+     * @param glyph     the glyph to look up
+     * @param interline the interline value used for evaluation
+     * @return a fresh copy of cached evaluations, or null if not found
+     */
+    public Evaluation[] get (Glyph glyph,
+                             int interline)
+    {
+        final Key key = new Key(glyph.getRunTable(), interline);
+        final Entry entry;
+
+        synchronized (this) {
+            entry = map.get(key);
+        }
+
+        if (entry == null) {
+            misses.incrementAndGet();
+
+            return null;
+        }
+
+        hits.incrementAndGet();
+
+        return entry.getEvaluations();
+    }
+
+    //---------//
+    // getHits //
+    //---------//
+    /**
+     * @return the number of successful lookups since creation or last clear
+     */
+    public long getHits ()
+    {
+        return hits.get();
+    }
+
+    //-----------//
+    // getMisses //
+    //-----------//
+    /**
+     * @return the number of failed lookups since creation or last clear
+     */
+    public long getMisses ()
+    {
+        return misses.get();
+    }
+
+    //-----//
+    // put //
+    //-----//
+    /**
+     * Record the natural evaluations of the provided glyph.
+     *
+     * @param glyph     the evaluated glyph
+     * @param interline the interline value used for evaluation
+     * @param evals     the natural evaluations
+     */
+    public void put (Glyph glyph,
+                     int interline,
+                     Evaluation[] evals)
+    {
+        final Key key = new Key(glyph.getRunTable(), interline);
+        final Entry entry = new Entry(evals);
+
+        synchronized (this) {
+            map.put(key, entry);
+        }
+    }
+
+    //------//
+    // size //
+    //------//
+    /**
+     * @return the current number of cached glyphs
+     */
+    public synchronized int size ()
+    {
+        return map.size();
+    }
+
+    //----------//
+    // toString //
+    //----------//
+    @Override
+    public synchronized String toString ()
+    {
+        StringBuilder sb = new StringBuilder(getClass().getSimpleName());
+        sb.append("{");
+        sb.append("size:").append(map.size());
+        sb.append(" hits:").append(hits.get());
+        sb.append(" misses:").append(misses.get());
+        sb.append("}");
+
+        return sb.toString();
+    }
+
+    //-------//
+    // Entry //
+    //-------//
+    /**
+     * Shapes and grades of natural evaluations.
+     */
+    private static class Entry
+    {
+
+        private final Shape[] shapes;
+
+        private final double[] grades;
+
+        Entry (Evaluation[] evals)
+        {
+            shapes = new Shape[evals.length];
+            grades = new double[evals.length];
+
+            for (int i = 0; i < evals.length; i++) {
+                shapes[i] = evals[i].shape;
+                grades[i] = evals[i].grade;
+            }
+        }
+
+        Evaluation[] getEvaluations ()
+        {
+            final Evaluation[] evals = new Evaluation[shapes.length];
+
+            for (int i = 0; i < evals.length; i++) {
+                evals[i] = new Evaluation(shapes[i], grades[i]);
+            }
+
+            return evals;
+        }
+    }
+
+    //-----//
+    // Key //
+    //-----//
+    /**
+     * Canonical glyph signature: the run table content, plus interline value.
+     * <p>
+     * The hash code is computed once on the whole table content; equality is checked run by run.
+     */
+    private static class Key
+    {
+
+        private final RunTable table;
+
+        private final int interline;
+
+        private final int hash;
+
+        Key (RunTable table,
+             int interline)
+        {
+            this.table = table;
+            this.interline = interline;
+
+            int h = (31 * table.hashCode()) + interline;
+
+            for (int i = 0, size = table.getSize(); i < size; i++) {
+                h = 31 * h;
+
+                for (Iterator<Run> it = table.iterator(i); it.hasNext();) {
+                    final Run run = it.next();
+                    h = (31 * ((31 * h) + run.getStart())) + run.getLength();
+                }
+            }
+
+            hash = h;
+        }
+
+        @Override
+        public boolean equals (Object obj)
+        {
+            if (this == obj) {
+                return true;
+            }
+
+            if (!(obj instanceof Key)) {
+                return false;
+            }
+
+            final Key that = (Key) obj;
+
+            return (hash == that.hash) && (interline == that.interline)
+                   && table.equals(that.table);
+        }
+
+        @Override
+        public int hashCode ()
+        {
+            return hash;
+        }
+    }
+}
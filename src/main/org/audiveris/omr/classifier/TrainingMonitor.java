@@ -31,6 +31,15 @@ public interface TrainingMonitor //        extends IterationListener
 
 {
 
+    /**
+     * Call-back when training stops because validation error no longer improves.
+     *
+     * @param epoch     epoch number
+     * @param bestScore best validation error, whose weights are kept
+     */
+    public void earlyStopped (int epoch,
+                              double bestScore);
+
     /**
      * Call-back at epoch start.
      *
@@ -53,4 +62,13 @@ public interface TrainingMonitor //        extends IterationListener
      */
     public void iterationPeriodDone (int iteration,
                                      double score);
+
+    /**
+     * Call-back at end of epoch, when validation error has been measured.
+     *
+     * @param epoch epoch number
+     * @param score validation error
+     */
+    public void validationDone (int epoch,
+                                double score);
 }
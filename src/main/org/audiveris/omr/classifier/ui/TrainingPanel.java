@@ -152,6 +152,13 @@ class TrainingPanel
         inputParams();
     }
 
+    @Override
+    public void earlyStopped (int epoch,
+                              double bestScore)
+    {
+        logger.info(String.format("early stop epoch:%4d best validation: %.5f", epoch, bestScore));
+    }
+
     @Override
     public void epochStarted (int epoch)
     {
@@ -205,6 +212,13 @@ class TrainingPanel
         display(epoch, iter, score);
     }
 
+    @Override
+    public void validationDone (int epoch,
+                                double score)
+    {
+        logger.info(String.format("epoch:%4d validation: %.5f", epoch, score));
+    }
+
     //--------//
     // update //
     //--------//
@@ -468,8 +482,8 @@ class TrainingPanel
                     // And fill up to quorum count on each shape
                     samples = checkPopulation(samples);
 
-                    // Train on the data set
-                    task.classifier.train(samples);
+                    // Train on the data set, with test samples for validation
+                    task.classifier.train(samples, selectionPanel.getTestSamples());
 
                     task.setActivity(INACTIVE);
                 }
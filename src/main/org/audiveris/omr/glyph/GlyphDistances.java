@@ -62,6 +62,10 @@ public class GlyphDistances
     //------------//
     /**
      * Report the distance (from this glyph) to the provided other glyph.
+     * <p>
+     * The same distance table can be used for any number of other glyphs.
+     * Each run of the other glyph is clipped to the table bounds, and the measurement stops as
+     * soon as a contact (zero distance) is found.
      *
      * @param other the other glyph
      * @return the minimum distance measured between the two glyph instances
@@ -69,67 +73,34 @@ public class GlyphDistances
     public double distanceTo (Glyph other)
     {
         final RunTable otherTable = other.getRunTable();
-        final int xOffset = other.getLeft();
-        final int yOffset = other.getTop();
+        final boolean vertical = otherTable.getOrientation().isVertical();
+
+        // Sequence and coordinate ranges of the table, relative to other glyph
+        final int seqOffset = vertical ? other.getLeft() : other.getTop();
+        final int coordOffset = vertical ? other.getTop() : other.getLeft();
+        final int seqMin = (vertical ? tableBox.x : tableBox.y) - seqOffset;
+        final int seqMax = (seqMin + (vertical ? tableBox.width : tableBox.height)) - 1;
+        final int coordMin = (vertical ? tableBox.y : tableBox.x) - coordOffset;
+        final int coordMax = (coordMin + (vertical ? tableBox.height : tableBox.width)) - 1;
         int bestDist = Integer.MAX_VALUE;
 
-        if (otherTable.getOrientation().isVertical()) {
-            // Vertical runs
-            for (int iSeq = 0, iBreak = otherTable.getSize(); iSeq < iBreak; iSeq++) {
-                final int x = xOffset + iSeq;
+        for (int iSeq = Math.max(0, seqMin), iBreak = Math.min(otherTable.getSize() - 1, seqMax);
+                iSeq <= iBreak; iSeq++) {
+            for (Iterator<Run> it = otherTable.iterator(iSeq); it.hasNext();) {
+                final Run run = it.next();
+                final int cStart = Math.max(run.getStart(), coordMin);
+                final int cStop = Math.min(run.getStop(), coordMax);
 
-                if (x < tableBox.x) {
-                    continue;
-                }
-
-                if (x >= (tableBox.x + tableBox.width)) {
-                    break;
-                }
-
-                for (Iterator<Run> it = otherTable.iterator(iSeq); it.hasNext();) {
-                    final Run run = it.next();
-                    final int runStart = yOffset + run.getStart();
-
-                    for (int ic = run.getLength() - 1; ic >= 0; ic--) {
-                        final int y = runStart + ic;
+                for (int c = cStart; c <= cStop; c++) {
+                    final int dist = vertical ? distTable.getValue(iSeq - seqMin, c - coordMin)
+                            : distTable.getValue(c - coordMin, iSeq - seqMin);
 
-                        if (tableBox.contains(x, y)) {
-                            final int dist = distTable.getValue(x - tableBox.x, y - tableBox.y);
-
-                            if (dist < bestDist) {
-                                bestDist = dist;
-                            }
+                    if (dist < bestDist) {
+                        if (dist == 0) {
+                            return 0; // Contact, no need to go any further
                         }
-                    }
-                }
-            }
-        } else {
-            // Horizontal runs
-            for (int iSeq = 0, iBreak = otherTable.getSize(); iSeq < iBreak; iSeq++) {
-                final int y = yOffset + iSeq;
 
-                if (y < tableBox.y) {
-                    continue;
-                }
-
-                if (y >= (tableBox.y + tableBox.height)) {
-                    break;
-                }
-
-                for (Iterator<Run> it = otherTable.iterator(iSeq); it.hasNext();) {
-                    final Run run = it.next();
-                    final int runStart = xOffset + run.getStart();
-
-                    for (int ic = run.getLength() - 1; ic >= 0; ic--) {
-                        final int x = runStart + ic;
-
-                        if (tableBox.contains(x, y)) {
-                            final int dist = distTable.getValue(x - tableBox.x, y - tableBox.y);
-
-                            if (dist < bestDist) {
-                                bestDist = dist;
-                            }
-                        }
+                        bestDist = dist;
                     }
                 }
             }
@@ -23,11 +23,14 @@ package org.audiveris.omr.glyph;
 
 import ij.process.ByteProcessor;
 
+import org.audiveris.omr.constant.Constant;
+import org.audiveris.omr.constant.ConstantSet;
 import org.audiveris.omr.run.MarkedRun;
 import static org.audiveris.omr.run.Orientation.VERTICAL;
 import org.audiveris.omr.run.Run;
 import org.audiveris.omr.run.RunTable;
 import org.audiveris.omr.run.RunTableFactory;
+import org.audiveris.omr.run.RunsLabeler;
 import org.audiveris.omr.util.ByteUtil;
 
 import org.slf4j.Logger;
@@ -52,6 +55,9 @@ import java.util.Map.Entry;
  * <p>
  * Comments refer to 'sequences', which are synonymous of columns for vertical runs, and of rows
  * for horizontal runs.
+ * <p>
+ * By default, connected components are retrieved by a {@link RunsLabeler}, the legacy marking of
+ * runs being kept as a fallback.
  *
  * @author Hervé Bitteur
  */
@@ -60,6 +66,8 @@ public class GlyphFactory
 
     private static final Logger logger = LoggerFactory.getLogger(GlyphFactory.class);
 
+    private static final Constants constants = new Constants();
+
     /** Source runs. */
     private final RunTable runTable;
 
@@ -72,10 +80,13 @@ public class GlyphFactory
     /** Global list of all glyphs created. */
     private final List<Glyph> created = new ArrayList<>();
 
+    /** Should we use a RunsLabeler rather than legacy run marking? */
+    private final boolean useLabeler;
+
     /** Global id to assign glyph marks. */
     private int globalMark;
 
-    /** Specific run table implementation, meant for marking runs. */
+    /** Specific run table implementation, meant for marking runs. (legacy) */
     private final List<List<MarkedRun>> markedTable;
 
     /** Merges (child => parent). (numerical invariant: child > parent) */
@@ -86,17 +97,23 @@ public class GlyphFactory
 
     private GlyphFactory (RunTable runTable,
                           Point offset,
-                          GlyphGroup group)
+                          GlyphGroup group,
+                          boolean useLabeler)
     {
         this.runTable = runTable;
         this.offset = (offset != null) ? offset : new Point(0, 0);
         this.group = group;
+        this.useLabeler = useLabeler;
 
-        // Allocate & initialize markedTable
-        markedTable = new ArrayList<>(runTable.getSize());
+        if (useLabeler) {
+            markedTable = null;
+        } else {
+            // Allocate & initialize markedTable
+            markedTable = new ArrayList<>(runTable.getSize());
 
-        for (int iseq = 0, size = runTable.getSize(); iseq < size; iseq++) {
-            markedTable.add(new ArrayList<MarkedRun>());
+            for (int iseq = 0, size = runTable.getSize(); iseq < size; iseq++) {
+                markedTable.add(new ArrayList<MarkedRun>());
+            }
         }
     }
 
@@ -247,6 +264,10 @@ public class GlyphFactory
      */
     private List<Glyph> process ()
     {
+        if (useLabeler) {
+            return processComponents();
+        }
+
         //        StopWatch watch = new StopWatch("GlyphFactory");
         //
         //        try {
@@ -266,6 +287,25 @@ public class GlyphFactory
         //        }
     }
 
+    /**
+     * Retrieve all glyphs, one per connected component of runs.
+     *
+     * @return the list of created glyphs
+     */
+    private List<Glyph> processComponents ()
+    {
+        for (RunsLabeler.Component comp : new RunsLabeler(runTable).getComponents()) {
+            final Glyph glyph = new Glyph(
+                    offset.x + comp.getLeft(),
+                    offset.y + comp.getTop(),
+                    comp.getTable());
+            glyph.addGroup(group);
+            created.add(glyph);
+        }
+
+        return created;
+    }
+
     /**
      * Populate the 'markedTable', a temporary representation of runs with their
      * connectivity recorded in 'merges'.
@@ -362,7 +402,7 @@ public class GlyphFactory
     public static List<Glyph> buildGlyphs (RunTable runTable,
                                            Point offset)
     {
-        return new GlyphFactory(runTable, offset, null).process();
+        return buildGlyphs(runTable, offset, null, constants.useRunsLabeler.isSet());
     }
 
     //-------------//
@@ -380,7 +420,40 @@ public class GlyphFactory
                                            Point offset,
                                            GlyphGroup group)
     {
-        return new GlyphFactory(runTable, offset, group).process();
+        return buildGlyphs(runTable, offset, group, constants.useRunsLabeler.isSet());
+    }
+
+    //-------------//
+    // buildGlyphs //
+    //-------------//
+    /**
+     * (package private) Create a collection of glyphs out of the provided RunTable,
+     * with the provided labeling policy.
+     *
+     * @param runTable   the source table of runs
+     * @param offset     offset of runTable WRT absolute origin
+     * @param group      targeted group, if any
+     * @param useLabeler true for RunsLabeler, false for legacy run marking
+     * @return the list of glyphs created
+     */
+    static List<Glyph> buildGlyphs (RunTable runTable,
+                                    Point offset,
+                                    GlyphGroup group,
+                                    boolean useLabeler)
+    {
+        return new GlyphFactory(runTable, offset, group, useLabeler).process();
+    }
+
+    //-----------//
+    // Constants //
+    //-----------//
+    private static class Constants
+            extends ConstantSet
+    {
+
+        private final Constant.Boolean useRunsLabeler = new Constant.Boolean(
+                true,
+                "Should we retrieve glyphs by union-find labeling of runs?");
     }
 
     //----------//
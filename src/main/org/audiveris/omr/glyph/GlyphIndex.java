@@ -32,7 +32,7 @@ import org.audiveris.omr.ui.selection.MouseMovement;
 import org.audiveris.omr.ui.selection.SelectionHint;
 import org.audiveris.omr.ui.selection.SelectionService;
 import org.audiveris.omr.util.BasicIndex;
-import org.audiveris.omr.util.Entities;
+import org.audiveris.omr.util.EntityGrid;
 import org.audiveris.omr.util.EntityIndex;
 import org.audiveris.omr.util.IntUtil;
 
@@ -96,6 +96,9 @@ public class GlyphIndex
      */
     public GlyphIndex ()
     {
+        if (constants.useGrid.isSet()) {
+            weakIndex.setGrid(new EntityGrid<WeakGlyph>(constants.gridCellSize.getValue()));
+        }
     }
 
     //----------------------//
@@ -104,7 +107,7 @@ public class GlyphIndex
     @Override
     public List<Glyph> getContainedEntities (Rectangle rectangle)
     {
-        return Entities.containedEntities(iterator(), rectangle);
+        return glyphsOf(weakIndex.getContainedEntities(rectangle));
     }
 
     //-----------------------//
@@ -113,7 +116,7 @@ public class GlyphIndex
     @Override
     public List<Glyph> getContainingEntities (Point point)
     {
-        return Entities.containingEntities(iterator(), point);
+        return glyphsOf(weakIndex.getContainingEntities(point));
     }
 
     //-------------//
@@ -405,6 +408,34 @@ public class GlyphIndex
         originals.clear();
     }
 
+    //----------//
+    // glyphsOf //
+    //----------//
+    /**
+     * Report the concrete glyphs still referenced by the provided weak glyphs.
+     *
+     * @param weaks the weak glyphs
+     * @return the list of concrete glyphs, perhaps empty but not null
+     */
+    private static List<Glyph> glyphsOf (List<WeakGlyph> weaks)
+    {
+        if (weaks.isEmpty()) {
+            return Collections.emptyList();
+        }
+
+        final List<Glyph> glyphs = new ArrayList<>(weaks.size());
+
+        for (WeakGlyph weak : weaks) {
+            final Glyph glyph = weak.get();
+
+            if (glyph != null) {
+                glyphs.add(glyph);
+            }
+        }
+
+        return glyphs;
+    }
+
     //-----------------//
     // privateRegister //
     //-----------------//
@@ -441,6 +472,15 @@ public class GlyphIndex
         private final Constant.String vipGlyphs = new Constant.String(
                 "",
                 "(Debug) Comma-separated values of VIP glyphs IDs");
+
+        private final Constant.Boolean useGrid = new Constant.Boolean(
+                true,
+                "Should we use a spatial grid for glyph region queries?");
+
+        private final Constant.Integer gridCellSize = new Constant.Integer(
+                "Pixels",
+                64,
+                "Cell size of spatial grid for glyph region queries");
     }
 
     //------------------//
@@ -200,6 +200,10 @@ public abstract class Glyphs
     //------------//
     /**
      * Build the graph of acceptable links within the provided collection of glyphs.
+     * <p>
+     * Glyphs are swept by increasing abscissa: the candidates for a glyph are the following
+     * glyphs that start before the right side of its fat box, and only those whose bounds
+     * intersect the fat box need a precise distance measurement.
      *
      * @param glyphs the provided glyphs
      * @param maxGap maximum acceptable gap between glyphs
@@ -215,33 +219,51 @@ public abstract class Glyphs
         /** Graph of glyph instances, linked by their distance. */
         SimpleGraph<Glyph, GlyphLink> graph = new SimpleGraph<>(GlyphLink.class);
 
-        // Populate graph with all glyphs as vertices
-        for (Glyph glyph : sortedGlyphs) {
+        // Populate graph with all glyphs as vertices, and cache their bounds
+        final int count = sortedGlyphs.size();
+        final int[] lefts = new int[count];
+        final int[] tops = new int[count];
+        final int[] rights = new int[count]; // Exclusive
+        final int[] bottoms = new int[count]; // Exclusive
+
+        for (int i = 0; i < count; i++) {
+            final Glyph glyph = sortedGlyphs.get(i);
             graph.addVertex(glyph);
+
+            final Rectangle box = glyph.getBounds();
+            lefts[i] = box.x;
+            tops[i] = box.y;
+            rights[i] = box.x + box.width;
+            bottoms[i] = box.y + box.height;
         }
 
         // Populate edges (glyph to glyph distances) when applicable
-        for (int i = 0; i < sortedGlyphs.size(); i++) {
+        for (int i = 0; i < count; i++) {
             final Glyph glyph = sortedGlyphs.get(i);
-            final Rectangle fatBox = glyph.getBounds();
-            fatBox.grow(gapInt, gapInt);
-
-            final int xBreak = fatBox.x + fatBox.width; // Glyphs are sorted by abscissa
+            final int fatLeft = lefts[i] - gapInt;
+            final int fatTop = tops[i] - gapInt;
+            final int fatRight = rights[i] + gapInt;
+            final int fatBottom = bottoms[i] + gapInt;
             GlyphDistances glyphDistances = null; // Glyph-centered distance table
 
-            for (Glyph other : sortedGlyphs.subList(i + 1, sortedGlyphs.size())) {
-                Rectangle otherBox = other.getBounds();
+            for (int j = i + 1; j < count; j++) {
+                // Glyphs are sorted by abscissa, so no further glyph can intersect fat box
+                if (lefts[j] >= fatRight) {
+                    break;
+                }
 
                 // Rough filtering, using fat box intersection
-                if (!fatBox.intersects(otherBox)) {
+                if ((rights[j] <= fatLeft) || (bottoms[j] <= fatTop) || (tops[j] >= fatBottom)) {
                     continue;
-                } else if (otherBox.x > xBreak) {
-                    break;
                 }
 
+                final Glyph other = sortedGlyphs.get(j);
+
                 // We now need the glyph distance table, if not yet computed
                 if (glyphDistances == null) {
-                    glyphDistances = new GlyphDistances(glyph, fatBox);
+                    glyphDistances = new GlyphDistances(
+                            glyph,
+                            new Rectangle(fatLeft, fatTop, fatRight - fatLeft, fatBottom - fatTop));
                 }
 
                 // Precise distance from glyph to other
@@ -97,7 +97,7 @@ public class FilamentFactory<F extends Filament>
     /** Related scale. */
     private final Scale scale;
 
-    /** Where filaments are to be stored. */
+    /** Where filaments are to be stored, if any. */
     private final FilamentIndex index;
 
     /** Factory orientation. */
@@ -119,7 +119,7 @@ public class FilamentFactory<F extends Filament>
      * Create a factory of filaments.
      *
      * @param scale         the related scale
-     * @param index         the index to host created filaments
+     * @param index         the index to host created filaments, or null for no registration
      * @param orientation   the target orientation
      * @param filamentClass precise class to be used for filament creation,
      *                      typically {@link StraightFilament} (for straight lines)
@@ -717,7 +717,9 @@ public class FilamentFactory<F extends Filament>
                 fil.addSection(section);
                 setProcessed(section);
 
-                index.register(fil);
+                if (index != null) {
+                    index.register(fil);
+                }
             }
 
             return fil;
@@ -765,8 +767,8 @@ public class FilamentFactory<F extends Filament>
             F fil = createFilament(section);
             filaments.add(fil);
 
-            if (logger.isDebugEnabled() || section.isVip() || index.isVipId(fil.getId())) {
-                if (section.isVip() || index.isVipId(fil.getId())) {
+            if (logger.isDebugEnabled() || section.isVip() || isVipId(fil.getId())) {
+                if (section.isVip() || isVipId(fil.getId())) {
                     fil.setVip(true);
                 }
             }
@@ -809,7 +811,7 @@ public class FilamentFactory<F extends Filament>
                 Filament sectionFil = createFilament(section);
                 sectionGlyphs.add(sectionFil);
 
-                if (section.isVip() || index.isVipId(sectionFil.getId())) {
+                if (section.isVip() || isVipId(sectionFil.getId())) {
                     logger.info("VIP created {} from {}", sectionFil, section);
                     sectionFil.setVip(true);
                 }
@@ -874,6 +876,14 @@ public class FilamentFactory<F extends Filament>
         return processedSections.contains(section);
     }
 
+    //---------//
+    // isVipId //
+    //---------//
+    private boolean isVipId (int id)
+    {
+        return (index != null) && index.isVipId(id);
+    }
+
     //------------------------//
     // maxConsistentThickness //
     //------------------------//
@@ -23,19 +23,34 @@ package org.audiveris.omr.image;
 
 import ij.process.ByteProcessor;
 
+import org.audiveris.omr.constant.Constant;
+import org.audiveris.omr.constant.ConstantSet;
+import org.audiveris.omr.step.ProcessingCancellationException;
+import org.audiveris.omr.util.OmrExecutors;
 import org.audiveris.omr.util.StopWatch;
 
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
 import java.awt.image.BufferedImage;
+import java.util.concurrent.RecursiveAction;
 
 /**
  * Class {@code AbstractGrayFilter} is the basis for filters operating on gray-level
  * images.
+ * <p>
+ * It provides subclasses with {@link #processRows(int, RowsProcessor)} to process image rows
+ * in bands, handled in parallel when parallelism is allowed.
  *
  * @author Hervé Bitteur
  */
 public abstract class AbstractGrayFilter
 {
 
+    private static final Constants constants = new Constants();
+
+    private static final Logger logger = LoggerFactory.getLogger(AbstractGrayFilter.class);
+
     //--------//
     // filter //
     //--------//
@@ -98,4 +113,113 @@ public abstract class AbstractGrayFilter
         ///watch.print();
         return output;
     }
+
+    //-------------//
+    // processRows //
+    //-------------//
+    /**
+     * Process all rows [0..height-1] by bands of rows, in parallel if allowed and
+     * worthwhile.
+     *
+     * @param height    total number of rows
+     * @param processor the processing to apply on each band of rows
+     */
+    protected static void processRows (int height,
+                                       RowsProcessor processor)
+    {
+        final int bandSize = constants.bandSize.getValue();
+        final BandTask task = new BandTask(processor, 0, height - 1, bandSize);
+
+        if (!OmrExecutors.defaultParallelism.getValue() || (height <= bandSize)) {
+            task.processBand();
+        } else {
+            try {
+                OmrExecutors.getForkJoinPool().invoke(task);
+            } catch (ProcessingCancellationException pce) {
+                throw pce;
+            } catch (Throwable ex) {
+                logger.warn("Exception raised in gray filter", ex);
+                throw new RuntimeException(ex);
+            }
+        }
+    }
+
+    //---------------//
+    // RowsProcessor //
+    //---------------//
+    /**
+     * Processing of a band of rows.
+     * Bands may be processed concurrently, hence an implementation must write only into
+     * its own rows.
+     */
+    protected static interface RowsProcessor
+    {
+
+        /**
+         * Process the rows [yMin..yMax].
+         *
+         * @param yMin first row
+         * @param yMax last row
+         */
+        void processRows (int yMin,
+                          int yMax);
+    }
+
+    //----------//
+    // BandTask //
+    //----------//
+    private static class BandTask
+            extends RecursiveAction
+    {
+
+        private final RowsProcessor processor;
+
+        private final int yMin;
+
+        private final int yMax;
+
+        private final int bandSize;
+
+        BandTask (RowsProcessor processor,
+                  int yMin,
+                  int yMax,
+                  int bandSize)
+        {
+            this.processor = processor;
+            this.yMin = yMin;
+            this.yMax = yMax;
+            this.bandSize = bandSize;
+        }
+
+        @Override
+        protected void compute ()
+        {
+            if ((yMax - yMin + 1) <= bandSize) {
+                processBand();
+            } else {
+                final int yMid = (yMin + yMax) >>> 1;
+                invokeAll(
+                        new BandTask(processor, yMin, yMid, bandSize),
+                        new BandTask(processor, yMid + 1, yMax, bandSize));
+            }
+        }
+
+        void processBand ()
+        {
+            processor.processRows(yMin, yMax);
+        }
+    }
+
+    //-----------//
+    // Constants //
+    //-----------//
+    private static class Constants
+            extends ConstantSet
+    {
+
+        private final Constant.Integer bandSize = new Constant.Integer(
+                "rows",
+                64,
+                "Number of rows processed by one band task");
+    }
 }
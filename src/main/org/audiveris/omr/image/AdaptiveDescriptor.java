@@ -83,7 +83,11 @@ public class AdaptiveDescriptor
     @Override
     public PixelFilter getFilter (ByteProcessor source)
     {
-        return new VerticalFilter(source, meanCoeff, stdDevCoeff);
+        if (constants.useIntegralFilter.isSet()) {
+            return new IntegralFilter(source, meanCoeff, stdDevCoeff);
+        } else {
+            return new VerticalFilter(source, meanCoeff, stdDevCoeff);
+        }
     }
 
     //
@@ -222,5 +226,9 @@ public class AdaptiveDescriptor
         private final Constant.Ratio stdDevCoeff = new Constant.Ratio(
                 0.9,
                 "Threshold formula coefficient for pixel standard deviation");
+
+        private final Constant.Boolean useIntegralFilter = new Constant.Boolean(
+                true,
+                "Should we use whole integral images (faster, but 16 bytes per pixel)?");
     }
 }
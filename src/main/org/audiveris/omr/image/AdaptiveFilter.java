@@ -25,7 +25,6 @@ import ij.process.ByteProcessor;
 
 import org.audiveris.omr.constant.Constant;
 import org.audiveris.omr.constant.ConstantSet;
-import org.audiveris.omr.math.Population;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -144,37 +143,36 @@ public abstract class AdaptiveFilter
     //------------//
     // getContext //
     //------------//
+    /**
+     * {@inheritDoc}
+     * <p>
+     * Since tiles may not be able to move backward, this implementation uses a local integral
+     * limited to the window around the provided location.
+     * The window, the integer sums and the formulas are the same as those of tiles, so that
+     * the reported context is exactly the one used by {@link #isFore(int, int)}.
+     */
     @Override
     public Context getContext (int x,
                                int y)
     {
-        final int imageWidth = source.getWidth();
-        final int imageHeight = source.getHeight();
-
-        int xMin = Math.max(0, x - HALF_WINDOW_SIZE);
-        int xMax = Math.min(imageWidth - 1, x + HALF_WINDOW_SIZE);
-
-        int yMin = Math.max(0, y - HALF_WINDOW_SIZE);
-        int yMax = Math.min(imageHeight - 1, y + HALF_WINDOW_SIZE);
-
-        // Brute force retrieval
-        Population pop = new Population();
-
-        for (int ix = xMin; ix <= xMax; ix++) {
-            for (int iy = yMin; iy <= yMax; iy++) {
-                pop.includeValue(source.get(ix, iy));
+        final int x1 = Math.max(-1, x - HALF_WINDOW_SIZE - 1);
+        final int x2 = Math.min(source.getWidth() - 1, x + HALF_WINDOW_SIZE);
+        final int y1 = Math.max(-1, y - HALF_WINDOW_SIZE - 1);
+        final int y2 = Math.min(source.getHeight() - 1, y + HALF_WINDOW_SIZE);
+        long sum = 0;
+        long sqrSum = 0;
+
+        for (int ix = x1 + 1; ix <= x2; ix++) {
+            for (int iy = y1 + 1; iy <= y2; iy++) {
+                final long pix = source.get(ix, iy);
+                sum += pix;
+                sqrSum += (pix * pix);
             }
         }
 
-        if (pop.getCardinality() > 0) {
-            double mean = pop.getMeanValue();
-            double stdDev = pop.getStandardDeviation();
-            double threshold = getThreshold(mean, stdDev);
+        final int area = (y2 - y1) * (x2 - x1);
 
-            return new AdaptiveContext(mean, stdDev, threshold);
-        } else {
-            return null;
-        }
+        return createContext((double) sum / area, (double) sqrSum / area);
     }
 
     // -------//
@@ -197,11 +195,29 @@ public abstract class AdaptiveFilter
         return isFore;
     }
 
+    //---------------//
+    // createContext //
+    //---------------//
+    /**
+     * Build the context that corresponds to the provided window statistics.
+     *
+     * @param mean    mean pixel value in window
+     * @param sqrMean mean squared pixel value in window
+     * @return the adaptive context
+     */
+    protected AdaptiveContext createContext (double mean,
+                                             double sqrMean)
+    {
+        final double stdDev = Math.sqrt(Math.abs(sqrMean - (mean * mean)));
+
+        return new AdaptiveContext(mean, stdDev, getThreshold(mean, stdDev));
+    }
+
     //--------------//
     // getThreshold //
     //--------------//
-    private double getThreshold (double mean,
-                                 double stdDev)
+    protected double getThreshold (double mean,
+                                   double stdDev)
     {
         // This is the key formula
         return (MEAN_COEFF * mean) + (STD_DEV_COEFF * stdDev);
@@ -268,6 +268,19 @@ public interface DistanceTable
             return new Short(table.getView(roi), normalizer);
         }
 
+        //-----------//
+        // getValues //
+        //-----------//
+        /**
+         * Report the underlying array of values, row after row.
+         *
+         * @return the underlying array, or null if this table is a view
+         */
+        public short[] getValues ()
+        {
+            return table.isView() ? null : table.getValues();
+        }
+
         @Override
         protected final Table getTable ()
         {
@@ -0,0 +1,574 @@
+//------------------------------------------------------------------------------------------------//
+//                                                                                                //
+//                               E u c l i d e a n D i s t a n c e                                //
+//                                                                                                //
+//------------------------------------------------------------------------------------------------//
+// <editor-fold defaultstate="collapsed" desc="hdr">
+//
+//  Copyright © Audiveris 2018. All rights reserved.
+//
+//  This program is free software: you can redistribute it and/or modify it under the terms of the
+//  GNU Affero General Public License as published by the Free Software Foundation, either version
+//  3 of the License, or (at your option) any later version.
+//
+//  This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+//  without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+//  See the GNU Affero General Public License for more details.
+//
+//  You should have received a copy of the GNU Affero General Public License along with this
+//  program.  If not, see <http://www.gnu.org/licenses/>.
+//------------------------------------------------------------------------------------------------//
+// </editor-fold>
+package org.audiveris.omr.image;
+
+import ij.process.ByteProcessor;
+
+import net.jcip.annotations.ThreadSafe;
+
+import org.audiveris.omr.constant.Constant;
+import org.audiveris.omr.constant.ConstantSet;
+import org.audiveris.omr.run.Orientation;
+import org.audiveris.omr.run.Run;
+import org.audiveris.omr.run.RunTable;
+import org.audiveris.omr.step.ProcessingCancellationException;
+import org.audiveris.omr.util.OmrExecutors;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Iterator;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Class {@code EuclideanDistance} implements an exact Euclidean Distance Transform,
+ * as a drop-in replacement for chamfer-based {@link ChamferDistance} implementations.
+ * <p>
+ * The transform is separable (Felzenszwalb and Huttenlocher, "Distance Transforms of Sampled
+ * Functions"), and runs in linear time:
+ * <ol>
+ * <li>A column pass computes, for each pixel, the vertical distance to the nearest reference pixel
+ * in the same column.</li>
+ * <li>A row pass computes, for each pixel, the lower envelope of the parabolas rooted at each
+ * column of the same row.</li>
+ * </ol>
+ * Both passes work directly on the {@code short[]} backing store of the resulting
+ * {@link DistanceTable.Short}, in bands of columns then bands of rows that are handled in parallel
+ * when parallelism is allowed.
+ * <p>
+ * Resulting values follow the chamfer conventions: {@link ChamferDistance#VALUE_TARGET} on
+ * reference pixels, {@link ChamferDistance#VALUE_UNKNOWN} where no reference pixel exists at all,
+ * and the Euclidean distance multiplied by the normalizer (then rounded) elsewhere.
+ * Hence any non-reference pixel gets a strictly positive value.
+ * <p>
+ * The column pass can also be seeded directly from a vertical {@link RunTable}, with no need for
+ * a pixel buffer.
+ * <p>
+ * Image height and width are assumed to be less than {@link java.lang.Short#MAX_VALUE}.
+ *
+ * @author Hervé Bitteur
+ */
+@ThreadSafe
+public class EuclideanDistance
+        implements ChamferDistance
+{
+
+    private static final Constants constants = new Constants();
+
+    private static final Logger logger = LoggerFactory.getLogger(EuclideanDistance.class);
+
+    /** Default normalizer, the same as the chamfer3 mask. */
+    public static final int DEFAULT_NORMALIZER = chamfer3[0][2];
+
+    /** Marks a column distance not yet known (no reference pixel in column). */
+    private static final short INFINITE = java.lang.Short.MAX_VALUE;
+
+    /** Multiplier applied to Euclidean distances. */
+    private final int normalizer;
+
+    /**
+     * Creates a new {@code EuclideanDistance} object, with default normalizer.
+     */
+    public EuclideanDistance ()
+    {
+        this(DEFAULT_NORMALIZER);
+    }
+
+    /**
+     * Creates a new {@code EuclideanDistance} object, with provided normalizer.
+     *
+     * @param normalizer value for a distance of one pixel
+     */
+    public EuclideanDistance (int normalizer)
+    {
+        this.normalizer = normalizer;
+    }
+
+    //---------//
+    // compute //
+    //---------//
+    @Override
+    public DistanceTable compute (final boolean[][] input)
+    {
+        final int width = input.length;
+        final int height = input[0].length;
+
+        return compute(
+                width,
+                height,
+                new Source()
+        {
+            @Override
+            public void columns (short[] g,
+                                 int xMin,
+                                 int xMax)
+            {
+                for (int x = xMin; x <= xMax; x++) {
+                    final boolean[] column = input[x];
+                    int last = -1; // Ordinate of last reference pixel, if any
+
+                    for (int y = 0; y < height; y++) {
+                        if (column[y]) {
+                            fillGap(g, width, x, last, y);
+                            last = y;
+                        }
+                    }
+
+                    fillGap(g, width, x, last, height);
+                }
+            }
+        });
+    }
+
+    //---------------//
+    // computeToBack //
+    //---------------//
+    @Override
+    public DistanceTable computeToBack (ByteProcessor input)
+    {
+        return compute(input, false);
+    }
+
+    //---------------//
+    // computeToFore //
+    //---------------//
+    @Override
+    public DistanceTable computeToFore (ByteProcessor input)
+    {
+        return compute(input, true);
+    }
+
+    //---------------//
+    // computeToFore //
+    //---------------//
+    /**
+     * Compute the distance transform to foreground pixels of the provided run table.
+     * <p>
+     * A vertical table is used directly, a horizontal table is first rendered into a buffer.
+     *
+     * @param input the input table, where foreground pixels are taken as reference pixels
+     * @return the distance transform image
+     */
+    public DistanceTable computeToFore (final RunTable input)
+    {
+        if (input.getOrientation() != Orientation.VERTICAL) {
+            return computeToFore(input.getBuffer());
+        }
+
+        final int width = input.getWidth();
+        final int height = input.getHeight();
+
+        return compute(
+                width,
+                height,
+                new Source()
+        {
+            @Override
+            public void columns (short[] g,
+                                 int xMin,
+                                 int xMax)
+            {
+                for (int x = xMin; x <= xMax; x++) {
+                    int last = -1; // Ordinate of last foreground pixel, if any
+
+                    for (Iterator<Run> it = input.iterator(x); it.hasNext();) {
+                        final Run run = it.next();
+                        final int start = run.getStart();
+                        fillGap(g, width, x, last, start);
+
+                        for (int y = start, i = (start * width) + x; y <= run.getStop();
+                                y++, i += width) {
+                            g[i] = VALUE_TARGET;
+                        }
+
+                        last = run.getStop();
+                    }
+
+                    fillGap(g, width, x, last, height);
+                }
+            }
+        });
+    }
+
+    //---------------//
+    // getNormalizer //
+    //---------------//
+    /**
+     * Report the value used for a distance of one pixel.
+     *
+     * @return the normalizer
+     */
+    public int getNormalizer ()
+    {
+        return normalizer;
+    }
+
+    //---------//
+    // compute //
+    //---------//
+    /**
+     * Compute the distance transform of a pixel buffer.
+     *
+     * @param input  the pixel buffer
+     * @param toFore true for distances to foreground (value 0), false to background
+     * @return the distance transform image
+     */
+    private DistanceTable compute (ByteProcessor input,
+                                   final boolean toFore)
+    {
+        final int width = input.getWidth();
+        final int height = input.getHeight();
+        final byte[] pixels = (byte[]) input.getPixels();
+
+        return compute(
+                width,
+                height,
+                new Source()
+        {
+            @Override
+            public void columns (short[] g,
+                                 int xMin,
+                                 int xMax)
+            {
+                // Row-wise sweeps, to browse the buffer in memory order
+                // Downward: distance to nearest reference pixel above
+                for (int y = 0; y < height; y++) {
+                    final int row = y * width;
+
+                    for (int i = row + xMin, iMax = row + xMax; i <= iMax; i++) {
+                        if ((pixels[i] == 0) == toFore) {
+                            g[i] = VALUE_TARGET;
+                        } else if ((y == 0) || (g[i - width] == INFINITE)) {
+                            g[i] = INFINITE;
+                        } else {
+                            g[i] = (short) (g[i - width] + 1);
+                        }
+                    }
+                }
+
+                // Upward: distance to nearest reference pixel below, if closer
+                for (int y = height - 2; y >= 0; y--) {
+                    final int row = y * width;
+
+                    for (int i = row + xMin, iMax = row + xMax; i <= iMax; i++) {
+                        final short below = g[i + width];
+
+                        if ((below != INFINITE) && ((below + 1) < g[i])) {
+                            g[i] = (short) (below + 1);
+                        }
+                    }
+                }
+            }
+        });
+    }
+
+    //---------//
+    // compute //
+    //---------//
+    /**
+     * Run the column pass then the row pass.
+     *
+     * @param width  image width
+     * @param height image height
+     * @param source provider of column distances
+     * @return the distance transform image
+     */
+    private DistanceTable compute (int width,
+                                   int height,
+                                   Source source)
+    {
+        final DistanceTable.Short output = new DistanceTable.Short(width, height, normalizer);
+        final short[] values = output.getValues();
+        final int bandSize = constants.bandSize.getValue();
+
+        run(new ColumnTask(values, source, 0, width - 1, bandSize), width, bandSize);
+        run(new RowTask(values, width, 0, height - 1, bandSize), height, bandSize);
+
+        return output;
+    }
+
+    //---------//
+    // fillGap //
+    //---------//
+    /**
+     * Set column distances for the pixels located strictly between two reference pixels.
+     *
+     * @param g     column distances
+     * @param width image width
+     * @param x     column abscissa
+     * @param above ordinate of reference pixel above, or -1 if none
+     * @param below ordinate of reference pixel below, or image height if none
+     */
+    private static void fillGap (short[] g,
+                                 int width,
+                                 int x,
+                                 int above,
+                                 int below)
+    {
+        final boolean hasAbove = above >= 0;
+        final boolean hasBelow = below < (g.length / width);
+
+        for (int y = above + 1, i = (y * width) + x; y < below; y++, i += width) {
+            if (hasAbove) {
+                g[i] = (short) (hasBelow ? Math.min(y - above, below - y) : (y - above));
+            } else {
+                g[i] = hasBelow ? (short) (below - y) : INFINITE;
+            }
+        }
+    }
+
+    //-----//
+    // run //
+    //-----//
+    /**
+     * Run the provided band task, in parallel if allowed and worthwhile.
+     */
+    private static void run (BandTask task,
+                             int count,
+                             int bandSize)
+    {
+        if (!OmrExecutors.defaultParallelism.getValue() || (count <= bandSize)) {
+            task.processBand();
+        } else {
+            try {
+                OmrExecutors.getForkJoinPool().invoke(task);
+            } catch (ProcessingCancellationException pce) {
+                throw pce;
+            } catch (Throwable ex) {
+                logger.warn("Exception raised in EuclideanDistance", ex);
+                throw new RuntimeException(ex);
+            }
+        }
+    }
+
+    //--------//
+    // Source //
+    //--------//
+    /**
+     * Provider of column distances, according to the kind of input.
+     */
+    private static interface Source
+    {
+
+        /**
+         * Populate the column distances for the provided range of columns.
+         * Each value is the vertical distance to the nearest reference pixel in the same column,
+         * {@code INFINITE} if column has no reference pixel.
+         *
+         * @param g    the row-major table to populate
+         * @param xMin first column
+         * @param xMax last column
+         */
+        void columns (short[] g,
+                      int xMin,
+                      int xMax);
+    }
+
+    //----------//
+    // BandTask //
+    //----------//
+    private abstract static class BandTask
+            extends RecursiveAction
+    {
+
+        protected final int min;
+
+        protected final int max;
+
+        protected final int bandSize;
+
+        BandTask (int min,
+                  int max,
+                  int bandSize)
+        {
+            this.min = min;
+            this.max = max;
+            this.bandSize = bandSize;
+        }
+
+        @Override
+        protected void compute ()
+        {
+            if ((max - min + 1) <= bandSize) {
+                processBand();
+            } else {
+                final int mid = (min + max) >>> 1;
+                invokeAll(create(min, mid), create(mid + 1, max));
+            }
+        }
+
+        protected abstract BandTask create (int min,
+                                            int max);
+
+        protected abstract void processBand ();
+    }
+
+    //------------//
+    // ColumnTask //
+    //------------//
+    private static class ColumnTask
+            extends BandTask
+    {
+
+        private final short[] values;
+
+        private final Source source;
+
+        ColumnTask (short[] values,
+                    Source source,
+                    int xMin,
+                    int xMax,
+                    int bandSize)
+        {
+            super(xMin, xMax, bandSize);
+            this.values = values;
+            this.source = source;
+        }
+
+        @Override
+        protected BandTask create (int min,
+                                   int max)
+        {
+            return new ColumnTask(values, source, min, max, bandSize);
+        }
+
+        @Override
+        protected void processBand ()
+        {
+            source.columns(values, min, max);
+        }
+    }
+
+    //---------//
+    // RowTask //
+    //---------//
+    /**
+     * Row pass, on a band of rows.
+     * For each row, column distances are read, then replaced by final distances.
+     */
+    private class RowTask
+            extends BandTask
+    {
+
+        private final short[] values;
+
+        private final int width;
+
+        RowTask (short[] values,
+                 int width,
+                 int yMin,
+                 int yMax,
+                 int bandSize)
+        {
+            super(yMin, yMax, bandSize);
+            this.values = values;
+            this.width = width;
+        }
+
+        @Override
+        protected BandTask create (int min,
+                                   int max)
+        {
+            return new RowTask(values, width, min, max, bandSize);
+        }
+
+        @Override
+        protected void processBand ()
+        {
+            final int[] f = new int[width]; // Squared column distances
+            final int[] v = new int[width]; // Abscissae of parabolas in lower envelope
+            final double[] z = new double[width + 1]; // Boundaries between parabolas
+
+            for (int y = min; y <= max; y++) {
+                final int row = y * width;
+                int k = -1; // Index of rightmost parabola in lower envelope
+
+                // Build lower envelope
+                for (int q = 0; q < width; q++) {
+                    final int g = values[row + q];
+
+                    if (g == INFINITE) {
+                        continue;
+                    }
+
+                    f[q] = g * g;
+
+                    double s = Double.NEGATIVE_INFINITY;
+
+                    while (k >= 0) {
+                        final int p = v[k];
+                        s = ((f[q] + ((double) q * q)) - (f[p] + ((double) p * p))) / (2 * (q - p));
+
+                        if (s <= z[k]) {
+                            k--;
+                            s = Double.NEGATIVE_INFINITY;
+                        } else {
+                            break;
+                        }
+                    }
+
+                    k++;
+                    v[k] = q;
+                    z[k] = s;
+                }
+
+                if (k < 0) {
+                    // No reference pixel at all in image
+                    for (int x = 0; x < width; x++) {
+                        values[row + x] = VALUE_UNKNOWN;
+                    }
+
+                    continue;
+                }
+
+                z[k + 1] = Double.POSITIVE_INFINITY;
+
+                // Read lower envelope
+                for (int x = 0, j = 0; x < width; x++) {
+                    while (z[j + 1] < x) {
+                        j++;
+                    }
+
+                    final int dx = x - v[j];
+                    final int d2 = (dx * dx) + f[v[j]];
+                    values[row + x] = (d2 == 0) ? VALUE_TARGET
+                            : (short) Math.min(
+                                    INFINITE,
+                                    Math.round(normalizer * Math.sqrt(d2)));
+                }
+            }
+        }
+    }
+
+    //-----------//
+    // Constants //
+    //-----------//
+    private static class Constants
+            extends ConstantSet
+    {
+
+        private final Constant.Integer bandSize = new Constant.Integer(
+                "pixels",
+                64,
+                "Number of columns or rows processed by one band task");
+    }
+}
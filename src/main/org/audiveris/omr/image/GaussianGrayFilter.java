@@ -24,6 +24,7 @@ package org.audiveris.omr.image;
 import ij.process.ByteProcessor;
 
 import java.awt.image.Kernel;
+import java.util.Arrays;
 
 /**
  * Class {@code GaussianGrayFilter} allows to run a Gaussian filter on an input image,
@@ -31,6 +32,9 @@ import java.awt.image.Kernel;
  * <p>
  * This implementation is derived from Jerry Huxtable more general filter but limited to
  * BufferedImage class.
+ * <p>
+ * The kernel is separable: a horizontal pass is followed by a vertical pass, each pass working
+ * directly on byte pixels, by bands of rows processed in parallel when allowed.
  *
  * @author Hervé Bitteur
  */
@@ -72,29 +76,42 @@ public class GaussianGrayFilter
     {
         final int width = input.getWidth();
         final int height = input.getHeight();
-        final byte[] inPixels = new byte[width * height];
-        final byte[] outPixels = new byte[width * height];
-
-        // Read pixels
-        for (int y = 0; y < height; y++) {
-            final int offset = y * width;
-
-            for (int x = 0; x < width; x++) {
-                inPixels[offset + x] = (byte) input.get(x, y);
+        final byte[] inPixels = (byte[]) input.getPixels();
+        final byte[] tmpPixels = new byte[width * height];
+        final byte[] outPixels = (byte[]) output.getPixels();
+        final float[] matrix = kernel.getKernelData(null);
+
+        // Horizontal pass
+        processRows(
+                height,
+                new RowsProcessor()
+        {
+            @Override
+            public void processRows (int yMin,
+                                     int yMax)
+            {
+                for (int y = yMin; y <= yMax; y++) {
+                    convolveRow(matrix, inPixels, tmpPixels, y * width, width);
+                }
             }
-        }
-
-        convolveAndTranspose(inPixels, outPixels, width, height);
-        convolveAndTranspose(outPixels, inPixels, height, width);
-
-        // Write pixels
-        for (int y = 0; y < height; y++) {
-            final int offset = y * width;
-
-            for (int x = 0; x < width; x++) {
-                output.set(x, y, inPixels[offset + x] & 0xff);
+        });
+
+        // Vertical pass
+        processRows(
+                height,
+                new RowsProcessor()
+        {
+            @Override
+            public void processRows (int yMin,
+                                     int yMax)
+            {
+                final float[] sums = new float[width];
+
+                for (int y = yMin; y <= yMax; y++) {
+                    convolveColumns(matrix, tmpPixels, outPixels, sums, y, width, height);
+                }
             }
-        }
+        });
     }
 
     //-----------//
@@ -110,47 +127,95 @@ public class GaussianGrayFilter
         return radius;
     }
 
-    //----------------------//
-    // convolveAndTranspose //
-    //----------------------//
-    private void convolveAndTranspose (byte[] inPixels,
-                                       byte[] outPixels,
-                                       int width,
-                                       int height)
+    //-----------------//
+    // convolveColumns //
+    //-----------------//
+    /**
+     * Vertical convolution, for one output row.
+     * For each pixel, products are summed in kernel order, as in the horizontal pass.
+     *
+     * @param matrix    kernel data
+     * @param inPixels  input pixels
+     * @param outPixels output pixels
+     * @param sums      buffer for row sums
+     * @param y         output row
+     * @param width     image width
+     * @param height    image height
+     */
+    private static void convolveColumns (float[] matrix,
+                                         byte[] inPixels,
+                                         byte[] outPixels,
+                                         float[] sums,
+                                         int y,
+                                         int width,
+                                         int height)
     {
-        float[] matrix = kernel.getKernelData(null);
-        int cols = kernel.getWidth();
-        int cols2 = cols / 2;
+        final int cols2 = matrix.length / 2;
+        Arrays.fill(sums, 0);
 
-        for (int y = 0; y < height; y++) {
-            int index = y;
-            int ioffset = y * width;
+        for (int row = -cols2; row <= cols2; row++) {
+            final float f = matrix[cols2 + row];
 
-            for (int x = 0; x < width; x++) {
-                float p = 0;
-                int moffset = cols2;
+            if (f != 0) {
+                final int iy = Math.max(0, Math.min(height - 1, y + row));
+                final int ioffset = iy * width;
 
-                for (int col = -cols2; col <= cols2; col++) {
-                    float f = matrix[moffset + col];
+                for (int x = 0; x < width; x++) {
+                    sums[x] += (f * (inPixels[ioffset + x] & 0xff));
+                }
+            }
+        }
 
-                    if (f != 0) {
-                        int ix = x + col;
+        final int offset = y * width;
 
+        for (int x = 0; x < width; x++) {
+            outPixels[offset + x] = (byte) clamp((int) (sums[x] + 0.5));
+        }
+    }
+
+    //-------------//
+    // convolveRow //
+    //-------------//
+    /**
+     * Horizontal convolution, for one row.
+     *
+     * @param matrix    kernel data
+     * @param inPixels  input pixels
+     * @param outPixels output pixels
+     * @param offset    index of row start
+     * @param width     image width
+     */
+    private static void convolveRow (float[] matrix,
+                                     byte[] inPixels,
+                                     byte[] outPixels,
+                                     int offset,
+                                     int width)
+    {
+        final int cols2 = matrix.length / 2;
+
+        for (int x = 0; x < width; x++) {
+            final boolean inside = (x >= cols2) && (x < (width - cols2));
+            float p = 0;
+
+            for (int col = -cols2; col <= cols2; col++) {
+                final float f = matrix[cols2 + col];
+
+                if (f != 0) {
+                    int ix = x + col;
+
+                    if (!inside) {
                         if (ix < 0) {
                             ix = 0;
                         } else if (ix >= width) {
                             ix = width - 1;
                         }
-
-                        int pix = inPixels[ioffset + ix] & 0xff;
-                        p += (f * pix);
                     }
-                }
 
-                int ip = clamp((int) (p + 0.5));
-                outPixels[index] = (byte) ip;
-                index += height;
+                    p += (f * (inPixels[offset + ix] & 0xff));
+                }
             }
+
+            outPixels[offset + x] = (byte) clamp((int) (p + 0.5));
         }
     }
 
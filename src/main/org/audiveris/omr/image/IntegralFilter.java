@@ -0,0 +1,327 @@
+//------------------------------------------------------------------------------------------------//
+//                                                                                                //
+//                                  I n t e g r a l F i l t e r                                   //
+//                                                                                                //
+//------------------------------------------------------------------------------------------------//
+// <editor-fold defaultstate="collapsed" desc="hdr">
+//
+//  Copyright © Audiveris 2018. All rights reserved.
+//
+//  This program is free software: you can redistribute it and/or modify it under the terms of the
+//  GNU Affero General Public License as published by the Free Software Foundation, either version
+//  3 of the License, or (at your option) any later version.
+//
+//  This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+//  without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+//  See the GNU Affero General Public License for more details.
+//
+//  You should have received a copy of the GNU Affero General Public License along with this
+//  program.  If not, see <http://www.gnu.org/licenses/>.
+//------------------------------------------------------------------------------------------------//
+// </editor-fold>
+package org.audiveris.omr.image;
+
+import ij.process.ByteProcessor;
+
+import net.jcip.annotations.ThreadSafe;
+
+import org.audiveris.omr.constant.Constant;
+import org.audiveris.omr.constant.ConstantSet;
+import org.audiveris.omr.step.ProcessingCancellationException;
+import org.audiveris.omr.util.OmrExecutors;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Class {@code IntegralFilter} is a specialization of {@link AdaptiveFilter} which
+ * computes mean and standard deviation values based on whole integral images, computed once
+ * at construction time.
+ * <p>
+ * This implementation is ThreadSafe and provides fast random access to any location in constant
+ * time.
+ * Its {@link #filteredImage()} method processes the image row by row, in bands of rows that are
+ * handled in parallel when parallelism is allowed, and writes directly into a byte array with no
+ * per-pixel allocation nor virtual call.
+ * <p>
+ * Integrals are stored in long arrays (8 bytes per image pixel for each of the two tables), so
+ * that they cannot overflow, whatever the image and window sizes.
+ *
+ * @author Hervé Bitteur
+ */
+@ThreadSafe
+public class IntegralFilter
+        extends AdaptiveFilter
+{
+
+    private static final Constants constants = new Constants();
+
+    private static final Logger logger = LoggerFactory.getLogger(IntegralFilter.class);
+
+    /** Image width. */
+    private final int width;
+
+    /** Image height. */
+    private final int height;
+
+    /** Row length in integral tables (one more than image width). */
+    private final int stride;
+
+    /** Source pixels. */
+    private final byte[] pixels;
+
+    /** Integrals of plain values, with an additional top row and left column of zeros. */
+    private final long[] sums;
+
+    /** Integrals of squared values, with an additional top row and left column of zeros. */
+    private final long[] sqrSums;
+
+    /** For each abscissa, the (excluded) left column of its window, in integral table. */
+    private final int[] xLefts;
+
+    /** For each abscissa, the (included) right column of its window, in integral table. */
+    private final int[] xRights;
+
+    /**
+     * Create an adaptive wrapper on a raw pixel source.
+     *
+     * @param source      the underlying source of raw pixels
+     * @param meanCoeff   the coefficient for mean value
+     * @param stdDevCoeff the coefficient for standard deviation value
+     */
+    public IntegralFilter (ByteProcessor source,
+                           double meanCoeff,
+                           double stdDevCoeff)
+    {
+        super(source, meanCoeff, stdDevCoeff);
+
+        width = source.getWidth();
+        height = source.getHeight();
+        stride = width + 1;
+        pixels = (byte[]) source.getPixels();
+        sums = new long[stride * (height + 1)];
+        sqrSums = new long[stride * (height + 1)];
+        populateIntegrals();
+
+        xLefts = new int[width];
+        xRights = new int[width];
+
+        for (int x = 0; x < width; x++) {
+            xLefts[x] = Math.max(-1, x - HALF_WINDOW_SIZE - 1) + 1;
+            xRights[x] = Math.min(width - 1, x + HALF_WINDOW_SIZE) + 1;
+        }
+    }
+
+    //---------------//
+    // filteredImage //
+    //---------------//
+    @Override
+    public ByteProcessor filteredImage ()
+    {
+        return filteredImage(null);
+    }
+
+    //---------------//
+    // filteredImage //
+    //---------------//
+    /**
+     * Run the filter on source image and report the filtered image, using the provided
+     * buffer if any.
+     *
+     * @param buffer a byte array to be reused, or null. If its length does not match the image
+     *               size, a new array is allocated.
+     * @return the filtered image (which uses the provided buffer if it was suitable)
+     */
+    public ByteProcessor filteredImage (byte[] buffer)
+    {
+        final byte[] output = ((buffer != null) && (buffer.length == (width * height))) ? buffer
+                : new byte[width * height];
+        final int bandSize = constants.bandSize.getValue();
+        final BandTask task = new BandTask(output, 0, height - 1, bandSize);
+
+        if (!OmrExecutors.defaultParallelism.getValue() || (height <= bandSize)) {
+            task.processBand();
+        } else {
+            try {
+                OmrExecutors.getForkJoinPool().invoke(task);
+            } catch (ProcessingCancellationException pce) {
+                throw pce;
+            } catch (Throwable ex) {
+                logger.warn("Exception raised in IntegralFilter", ex);
+                throw new RuntimeException(ex);
+            }
+        }
+
+        return new ByteProcessor(width, height, output, null);
+    }
+
+    //------------//
+    // getContext //
+    //------------//
+    @Override
+    public Context getContext (int x,
+                               int y)
+    {
+        final int yTop = Math.max(-1, y - HALF_WINDOW_SIZE - 1) + 1;
+        final int yBottom = Math.min(height - 1, y + HALF_WINDOW_SIZE) + 1;
+        final int area = (yBottom - yTop) * (xRights[x] - xLefts[x]);
+        final double mean = (double) windowSum(sums, x, yTop, yBottom) / area;
+        final double sqrMean = (double) windowSum(sqrSums, x, yTop, yBottom) / area;
+
+        return createContext(mean, sqrMean);
+    }
+
+    //--------//
+    // isFore //
+    //--------//
+    @Override
+    public boolean isFore (int x,
+                           int y)
+    {
+        final int yTop = Math.max(-1, y - HALF_WINDOW_SIZE - 1) + 1;
+        final int yBottom = Math.min(height - 1, y + HALF_WINDOW_SIZE) + 1;
+
+        return isFore(x, y, yTop, yBottom);
+    }
+
+    //--------//
+    // isFore //
+    //--------//
+    /**
+     * Core of the filter, once window ordinates are known.
+     *
+     * @param x       pixel abscissa
+     * @param y       pixel ordinate
+     * @param yTop    (excluded) top row of window, in integral table
+     * @param yBottom (included) bottom row of window, in integral table
+     * @return true if pixel is foreground
+     */
+    private boolean isFore (int x,
+                            int y,
+                            int yTop,
+                            int yBottom)
+    {
+        final int area = (yBottom - yTop) * (xRights[x] - xLefts[x]);
+        final double mean = (double) windowSum(sums, x, yTop, yBottom) / area;
+        final double sqrMean = (double) windowSum(sqrSums, x, yTop, yBottom) / area;
+        final double stdDev = Math.sqrt(Math.abs(sqrMean - (mean * mean)));
+
+        return (pixels[(y * width) + x] & 0xFF) <= getThreshold(mean, stdDev);
+    }
+
+    //-------------------//
+    // populateIntegrals //
+    //-------------------//
+    /**
+     * Populate both integral tables in one pass over the source pixels.
+     */
+    private void populateIntegrals ()
+    {
+        for (int y = 0; y < height; y++) {
+            final int row = y * width;
+            final int above = y * stride;
+            final int current = above + stride;
+            long rowSum = 0;
+            long rowSqrSum = 0;
+
+            for (int x = 0; x < width; x++) {
+                final int pix = pixels[row + x] & 0xFF;
+                rowSum += pix;
+                rowSqrSum += (pix * pix);
+                sums[current + x + 1] = sums[above + x + 1] + rowSum;
+                sqrSums[current + x + 1] = sqrSums[above + x + 1] + rowSqrSum;
+            }
+        }
+    }
+
+    //-----------//
+    // windowSum //
+    //-----------//
+    private long windowSum (long[] table,
+                            int x,
+                            int yTop,
+                            int yBottom)
+    {
+        final int top = yTop * stride;
+        final int bottom = yBottom * stride;
+        final int left = xLefts[x];
+        final int right = xRights[x];
+
+        return (table[top + left] + table[bottom + right]) - table[top + right]
+               - table[bottom + left];
+    }
+
+    //----------//
+    // BandTask //
+    //----------//
+    /**
+     * Fork/join task to binarize a range of rows, recursively split into bands.
+     */
+    private class BandTask
+            extends RecursiveAction
+    {
+
+        private final byte[] output;
+
+        private final int yMin;
+
+        private final int yMax;
+
+        private final int bandSize;
+
+        BandTask (byte[] output,
+                  int yMin,
+                  int yMax,
+                  int bandSize)
+        {
+            this.output = output;
+            this.yMin = yMin;
+            this.yMax = yMax;
+            this.bandSize = bandSize;
+        }
+
+        @Override
+        protected void compute ()
+        {
+            if ((yMax - yMin + 1) <= bandSize) {
+                processBand();
+            } else {
+                final int yMid = (yMin + yMax) >>> 1;
+                invokeAll(
+                        new BandTask(output, yMin, yMid, bandSize),
+                        new BandTask(output, yMid + 1, yMax, bandSize));
+            }
+        }
+
+        void processBand ()
+        {
+            final byte fore = (byte) FOREGROUND;
+            final byte back = (byte) BACKGROUND;
+
+            for (int y = yMin; y <= yMax; y++) {
+                final int yTop = Math.max(-1, y - HALF_WINDOW_SIZE - 1) + 1;
+                final int yBottom = Math.min(height - 1, y + HALF_WINDOW_SIZE) + 1;
+                final int row = y * width;
+
+                for (int x = 0; x < width; x++) {
+                    output[row + x] = isFore(x, y, yTop, yBottom) ? fore : back;
+                }
+            }
+        }
+    }
+
+    //-----------//
+    // Constants //
+    //-----------//
+    private static class Constants
+            extends ConstantSet
+    {
+
+        private final Constant.Integer bandSize = new Constant.Integer(
+                "rows",
+                64,
+                "Number of rows processed by one band task");
+    }
+}
@@ -0,0 +1,471 @@
+//------------------------------------------------------------------------------------------------//
+//                                                                                                //
+//                                   L o a d e r S e s s i o n                                    //
+//                                                                                                //
+//------------------------------------------------------------------------------------------------//
+// <editor-fold defaultstate="collapsed" desc="hdr">
+//
+//  Copyright © Audiveris 2018. All rights reserved.
+//
+//  This program is free software: you can redistribute it and/or modify it under the terms of the
+//  GNU Affero General Public License as published by the Free Software Foundation, either version
+//  3 of the License, or (at your option) any later version.
+//
+//  This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+//  without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+//  See the GNU Affero General Public License for more details.
+//
+//  You should have received a copy of the GNU Affero General Public License along with this
+//  program.  If not, see <http://www.gnu.org/licenses/>.
+//------------------------------------------------------------------------------------------------//
+// </editor-fold>
+package org.audiveris.omr.image;
+
+import org.audiveris.omr.OMR;
+import org.audiveris.omr.constant.Constant;
+import org.audiveris.omr.constant.ConstantSet;
+import org.audiveris.omr.util.OmrExecutors;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+import net.jcip.annotations.ThreadSafe;
+
+/**
+ * Class {@code LoaderSession} keeps an {@link ImageLoading.Loader} open across several
+ * image loadings out of the same input file.
+ * <p>
+ * Opening a multi-image input file, such as a PDF document or a multi-page TIFF, means parsing
+ * the whole file structure.
+ * Rather than doing so for every sheet, the session opens the underlying loader on first need and
+ * keeps it until it has been left unused for a while (see constant {@code idleSeconds}) or until
+ * the session is explicitly disposed of.
+ * <p>
+ * When asked to, and only in batch mode, the session also prefetches the next image in
+ * background, so that its loading overlaps the processing of the current image.
+ * <p>
+ * Underlying loaders are not thread-safe, hence all image decodings are serialized on the loader
+ * itself, while the session state is protected by the session monitor.
+ * This way, a long decoding never blocks the session, and a loader is disposed of only when no
+ * decoding is using it.
+ *
+ * @author Hervé Bitteur
+ */
+@ThreadSafe
+public class LoaderSession
+{
+
+    private static final Constants constants = new Constants();
+
+    private static final Logger logger = LoggerFactory.getLogger(LoaderSession.class);
+
+    /** Single daemon thread, in charge of disposing of idle loaders. */
+    private static final ScheduledExecutorService janitor = Executors
+            .newSingleThreadScheduledExecutor(
+                    new ThreadFactory()
+            {
+                @Override
+                public Thread newThread (Runnable r)
+                {
+                    Thread t = new Thread(r, "loader-janitor");
+                    t.setDaemon(true);
+
+                    return t;
+                }
+            });
+
+    /** Path to input file. */
+    private final Path path;
+
+    /** Underlying loader, if currently open. */
+    private ImageLoading.Loader loader;
+
+    /** Count of images in input file, as read when loader was opened. */
+    private int imageCount;
+
+    /** Set when no loader could be found for input file, until session is disposed of. */
+    private boolean unsupported;
+
+    /** Time of last loader use, in milliseconds. */
+    private long lastUse;
+
+    /** Pending idle check, if any. */
+    private Future<?> idleCheck;
+
+    /** Id of image being prefetched, if any. */
+    private int prefetchId;
+
+    /** Image being prefetched, if any. */
+    private Future<BufferedImage> prefetch;
+
+    /**
+     * Creates a new {@code LoaderSession} object on the provided input file.
+     *
+     * @param path path to input file
+     */
+    public LoaderSession (Path path)
+    {
+        this.path = path;
+    }
+
+    //---------//
+    // dispose //
+    //---------//
+    /**
+     * Release the underlying loader and any prefetched image.
+     * <p>
+     * The session remains usable, a later call would simply re-open the input file, and retry
+     * it if it was previously found unsupported.
+     * If the loader is still busy decoding an image, it is disposed of in background once the
+     * decoding is over.
+     */
+    public void dispose ()
+    {
+        final ImageLoading.Loader ldr;
+
+        synchronized (this) {
+            if (idleCheck != null) {
+                idleCheck.cancel(false);
+                idleCheck = null;
+            }
+
+            unsupported = false;
+            ldr = detachLoader();
+        }
+
+        if (ldr != null) {
+            janitor.execute(
+                    new Runnable()
+            {
+                @Override
+                public void run ()
+                {
+                    disposeLoader(ldr);
+                }
+            });
+        }
+    }
+
+    //----------//
+    // getImage //
+    //----------//
+    /**
+     * Report the image with the specified id, and perhaps launch the background loading
+     * of the image expected next.
+     *
+     * @param id     the specified image id (1-based)
+     * @param nextId id of the image expected next, 0 for none
+     * @return the loaded image, or null if input file could not be handled
+     * @throws IOException if image could not be loaded
+     */
+    public BufferedImage getImage (int id,
+                                   int nextId)
+            throws IOException
+    {
+        BufferedImage img = claimPrefetch(id);
+
+        if (img == null) {
+            img = load(id, false);
+        }
+
+        if ((img != null)
+            && (nextId > 0)
+            && (OMR.gui == null)
+            && constants.prefetchNextImage.isSet()) {
+            launchPrefetch(nextId);
+        }
+
+        return img;
+    }
+
+    //---------------//
+    // getImageCount //
+    //---------------//
+    /**
+     * Report the count of images available in input file.
+     * <p>
+     * The count is read once when the loader is opened, so this never waits for an image
+     * decoding.
+     *
+     * @return the count of images, 0 if input file could not be handled
+     */
+    public synchronized int getImageCount ()
+    {
+        return (getLoader() != null) ? imageCount : 0;
+    }
+
+    //------------//
+    // openLoader //
+    //------------//
+    /**
+     * Open a loader on input file.
+     *
+     * @return the loader opened, or null if input file could not be handled
+     */
+    protected ImageLoading.Loader openLoader ()
+    {
+        return ImageLoading.getLoader(path);
+    }
+
+    //---------------//
+    // claimPrefetch //
+    //---------------//
+    /**
+     * Retrieve the prefetched image, if it corresponds to the provided id.
+     * This may wait for the end of the background loading.
+     *
+     * @param id the desired image id
+     * @return the prefetched image, or null
+     */
+    private BufferedImage claimPrefetch (int id)
+    {
+        final Future<BufferedImage> future;
+
+        synchronized (this) {
+            if ((prefetch == null) || (prefetchId != id)) {
+                return null;
+            }
+
+            future = prefetch;
+            prefetch = null;
+        }
+
+        try {
+            return future.get();
+        } catch (InterruptedException | CancellationException ex) {
+            return null;
+        } catch (ExecutionException ex) {
+            // Image will be loaded again synchronously, with proper error report if any
+            logger.debug("Error prefetching image {} from {}", id, path, ex);
+
+            return null;
+        }
+    }
+
+    //-----------//
+    // checkIdle //
+    //-----------//
+    /**
+     * Dispose of the loader if it has been left unused long enough, otherwise check again
+     * later.
+     */
+    private void checkIdle ()
+    {
+        final ImageLoading.Loader ldr;
+
+        synchronized (this) {
+            idleCheck = null;
+
+            if (loader == null) {
+                return;
+            }
+
+            final long delay = (lastUse + idleMillis()) - System.currentTimeMillis();
+
+            if (delay > 0) {
+                scheduleIdleCheck(delay);
+
+                return;
+            }
+
+            logger.debug("Disposing idle loader on {}", path);
+            ldr = detachLoader();
+        }
+
+        disposeLoader(ldr);
+    }
+
+    //--------------//
+    // detachLoader //
+    //--------------//
+    /**
+     * Cancel any prefetch and detach the current loader from the session.
+     * Must be called with session monitor held.
+     *
+     * @return the detached loader, or null
+     */
+    private ImageLoading.Loader detachLoader ()
+    {
+        if (prefetch != null) {
+            prefetch.cancel(false);
+            prefetch = null;
+        }
+
+        final ImageLoading.Loader ldr = loader;
+        loader = null;
+
+        return ldr;
+    }
+
+    //---------------//
+    // disposeLoader //
+    //---------------//
+    /**
+     * Dispose of a detached loader, once any ongoing decoding on it is over.
+     * Must be called without session monitor held.
+     *
+     * @param ldr the detached loader
+     */
+    private void disposeLoader (ImageLoading.Loader ldr)
+    {
+        synchronized (ldr) {
+            ldr.dispose();
+        }
+    }
+
+    //-----------//
+    // getLoader //
+    //-----------//
+    /**
+     * Report the underlying loader, opened if needed.
+     *
+     * @return the loader, or null if input file could not be handled
+     */
+    private ImageLoading.Loader getLoader ()
+    {
+        if ((loader == null) && !unsupported) {
+            loader = openLoader();
+            unsupported = loader == null;
+            imageCount = (loader != null) ? loader.getImageCount() : 0;
+        }
+
+        if (loader != null) {
+            lastUse = System.currentTimeMillis();
+
+            if (idleCheck == null) {
+                scheduleIdleCheck(idleMillis());
+            }
+        }
+
+        return loader;
+    }
+
+    //------------//
+    // idleMillis //
+    //------------//
+    private static long idleMillis ()
+    {
+        return TimeUnit.SECONDS.toMillis(constants.idleSeconds.getValue());
+    }
+
+    //----------------//
+    // launchPrefetch //
+    //----------------//
+    private synchronized void launchPrefetch (final int nextId)
+    {
+        if ((prefetch != null) && (prefetchId == nextId)) {
+            return; // Already on it
+        }
+
+        if (prefetch != null) {
+            prefetch.cancel(false);
+        }
+
+        logger.debug("Prefetching image {} from {}", nextId, path);
+        prefetchId = nextId;
+        prefetch = OmrExecutors.getCachedLowExecutor().submit(
+                new Callable<BufferedImage>()
+        {
+            @Override
+            public BufferedImage call ()
+                    throws Exception
+            {
+                return load(nextId, true);
+            }
+        });
+    }
+
+    //------//
+    // load //
+    //------//
+    /**
+     * Load the specified image, without holding the session monitor while decoding.
+     *
+     * @param id          the specified image id
+     * @param prefetching true when called for a prefetch, which never re-opens the input file
+     * @return the loaded image, or null
+     * @throws IOException if image could not be loaded
+     */
+    private BufferedImage load (int id,
+                                boolean prefetching)
+            throws IOException
+    {
+        while (true) {
+            final ImageLoading.Loader ldr;
+
+            synchronized (this) {
+                if (prefetching && (loader == null)) {
+                    return null; // Session disposed of meanwhile
+                }
+
+                ldr = getLoader();
+            }
+
+            if (ldr == null) {
+                return null;
+            }
+
+            synchronized (ldr) {
+                final boolean current;
+
+                synchronized (this) {
+                    current = ldr == loader;
+                }
+
+                // A detached loader cannot get disposed of while we hold its lock
+                if (current) {
+                    return ldr.getImage(id);
+                }
+            }
+
+            // Loader was detached meanwhile, try again with a fresh one
+        }
+    }
+
+    //-------------------//
+    // scheduleIdleCheck //
+    //-------------------//
+    private void scheduleIdleCheck (long delay)
+    {
+        idleCheck = janitor.schedule(
+                new Runnable()
+        {
+            @Override
+            public void run ()
+            {
+                checkIdle();
+            }
+        },
+                delay,
+                TimeUnit.MILLISECONDS);
+    }
+
+    //-----------//
+    // Constants //
+    //-----------//
+    private static class Constants
+            extends ConstantSet
+    {
+
+        private final Constant.Integer idleSeconds = new Constant.Integer(
+                "Seconds",
+                30,
+                "Delay after which an unused image loader is disposed of");
+
+        private final Constant.Boolean prefetchNextImage = new Constant.Boolean(
+                true,
+                "Should we load the next sheet image in background?");
+    }
+}
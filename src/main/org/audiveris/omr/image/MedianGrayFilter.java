@@ -28,6 +28,16 @@ import java.util.Arrays;
 /**
  * Class {@code MedianGrayFilter} allows to run a median filter on an input image,
  * assumed to contain only gray values [0..255].
+ * <p>
+ * The window is a square of side (2*radius + 1) centered on the current pixel.
+ * Near image boundaries, the radius is reduced so that the window does not use pixels outside the
+ * image.
+ * <p>
+ * Within each row, the full-size window slides from one pixel to the next (Huang algorithm):
+ * the histogram is updated by removing the left column and adding the right column, and the
+ * median is moved incrementally from its previous value.
+ * Rows are processed by bands, in parallel when allowed.
+ * Reduced windows near boundaries are processed from scratch.
  *
  * @author Hervé Bitteur
  */
@@ -57,52 +67,150 @@ public class MedianGrayFilter
     {
         final int width = input.getWidth();
         final int height = input.getHeight();
-        final int[] histogram = new int[256];
-        Arrays.fill(histogram, 0);
+        final byte[] inPixels = (byte[]) input.getPixels();
+        final byte[] outPixels = (byte[]) output.getPixels();
+
+        processRows(
+                height,
+                new RowsProcessor()
+        {
+            @Override
+            public void processRows (int yMin,
+                                     int yMax)
+            {
+                final int[] histogram = new int[256];
+
+                for (int y = yMin; y <= yMax; y++) {
+                    final boolean fullRow = (y >= radius) && (y < (height - radius));
+                    final int xMin = fullRow ? radius : width; // First full-window abscissa
+                    final int xMax = fullRow ? (width - 1 - radius) : (width - 1); // Last one
+
+                    // Reduced windows on left side (or on the whole row)
+                    for (int x = 0; x < Math.min(xMin, width); x++) {
+                        outPixels[(y * width) + x] = (byte) reducedMedian(
+                                inPixels, width, height, x, y, histogram);
+                    }
 
-        for (int y = 0; y < height; y++) {
-            for (int x = 0; x < width; x++) {
-                // To address specific behavior at image boundaries,
-                // reduce radius to not use pixels outside the image.
-                int rad = radius;
+                    if (xMin <= xMax) {
+                        slideRow(inPixels, outPixels, width, y, xMin, xMax, histogram);
+                    }
 
-                if ((x - rad) < 0) {
-                    rad = x;
+                    // Reduced windows on right side
+                    for (int x = Math.max(xMin, xMax + 1); x < width; x++) {
+                        outPixels[(y * width) + x] = (byte) reducedMedian(
+                                inPixels, width, height, x, y, histogram);
+                    }
                 }
+            }
+        });
+    }
 
-                if ((y - rad) < 0) {
-                    rad = y;
-                }
+    //---------------//
+    // reducedMedian //
+    //---------------//
+    /**
+     * Compute from scratch the median value around (x,y), using a radius reduced so
+     * that the window does not use pixels outside the image.
+     */
+    private int reducedMedian (byte[] pixels,
+                               int width,
+                               int height,
+                               int x,
+                               int y,
+                               int[] histogram)
+    {
+        final int rad = Math.min(
+                Math.min(radius, Math.min(x, y)),
+                Math.min(width - 1 - x, height - 1 - y));
+        Arrays.fill(histogram, 0);
 
-                if ((x + rad) >= width) {
-                    rad = width - 1 - x;
-                }
+        for (int j = y - rad; j <= (y + rad); j++) {
+            for (int i = (j * width) + x - rad, iMax = (j * width) + x + rad; i <= iMax; i++) {
+                histogram[pixels[i] & 0xFF]++;
+            }
+        }
 
-                if ((y + rad) >= height) {
-                    rad = height - 1 - y;
-                }
+        // Pick up the median value
+        final int side = (2 * rad) + 1;
+        final int medianCount = ((side * side) + 1) / 2;
+        int median = 255;
+        int sum = 0;
 
-                Arrays.fill(histogram, 0); // Brute force!
+        while (sum < medianCount) {
+            sum += histogram[median];
+            median--;
+        }
 
-                for (int i = x - rad; i <= (x + rad); i++) {
-                    for (int j = y - rad; j <= (y + rad); j++) {
-                        int val = input.get(i, j);
-                        histogram[val]++;
-                    }
-                }
+        return median + 1;
+    }
 
-                // Pick up the median value
-                final int side = (2 * rad) + 1;
-                final int medianCount = ((side * side) + 1) / 2;
-                int median = 255;
-                int sum = 0;
+    //----------//
+    // slideRow //
+    //----------//
+    /**
+     * Process full-size windows of row y, for abscissae [xMin..xMax].
+     * <p>
+     * The median is the highest value v such that at least medianCount window pixels are
+     * &ge; v. It is tracked together with 'ge', the count of window pixels &ge; v.
+     */
+    private void slideRow (byte[] inPixels,
+                           byte[] outPixels,
+                           int width,
+                           int y,
+                           int xMin,
+                           int xMax,
+                           int[] histogram)
+    {
+        final int side = (2 * radius) + 1;
+        final int medianCount = ((side * side) + 1) / 2;
+        final int top = (y - radius) * width;
+
+        // Initial window, centered on xMin
+        Arrays.fill(histogram, 0);
 
-                while (sum < medianCount) {
-                    sum += histogram[median];
-                    median--;
+        for (int j = 0; j < side; j++) {
+            for (int i = top + (j * width), iMax = i + side; i < iMax; i++) {
+                histogram[inPixels[i] & 0xFF]++;
+            }
+        }
+
+        int median = 256;
+        int ge = 0;
+
+        for (int x = xMin;; x++) {
+            // Move median down while too few pixels are >= median
+            while (ge < medianCount) {
+                ge += histogram[--median];
+            }
+
+            // Move median up while enough pixels are > median
+            while ((ge - histogram[median]) >= medianCount) {
+                ge -= histogram[median++];
+            }
+
+            outPixels[(y * width) + x] = (byte) median;
+
+            if (x == xMax) {
+                return;
+            }
+
+            // Slide window one pixel to the right
+            final int out = (top + x) - radius;
+            final int in = (top + x) + radius + 1;
+
+            for (int j = 0; j < side; j++) {
+                final int vOut = inPixels[out + (j * width)] & 0xFF;
+                final int vIn = inPixels[in + (j * width)] & 0xFF;
+                histogram[vOut]--;
+                histogram[vIn]++;
+
+                if (vOut >= median) {
+                    ge--;
                 }
 
-                output.set(x, y, median + 1);
+                if (vIn >= median) {
+                    ge++;
+                }
             }
         }
     }
@@ -66,6 +66,16 @@ public class RandomFilter
                 true);
     }
 
+    //------------//
+    // getContext //
+    //------------//
+    @Override
+    public Context getContext (int x,
+                               int y)
+    {
+        return createContext(tile.getMean(x, y), sqrTile.getMean(x, y));
+    }
+
     //--------//
     // MyTile //
     //--------//
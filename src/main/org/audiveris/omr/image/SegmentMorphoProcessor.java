@@ -0,0 +1,478 @@
+//------------------------------------------------------------------------------------------------//
+//                                                                                                //
+//                          S e g m e n t M o r p h o P r o c e s s o r                           //
+//                                                                                                //
+//------------------------------------------------------------------------------------------------//
+// <editor-fold defaultstate="collapsed" desc="hdr">
+//
+//  Copyright © Audiveris 2018. All rights reserved.
+//
+//  This program is free software: you can redistribute it and/or modify it under the terms of the
+//  GNU Affero General Public License as published by the Free Software Foundation, either version
+//  3 of the License, or (at your option) any later version.
+//
+//  This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+//  without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+//  See the GNU Affero General Public License for more details.
+//
+//  You should have received a copy of the GNU Affero General Public License along with this
+//  program.  If not, see <http://www.gnu.org/licenses/>.
+//------------------------------------------------------------------------------------------------//
+// </editor-fold>
+package org.audiveris.omr.image;
+
+import ij.process.ByteProcessor;
+
+import net.jcip.annotations.ThreadSafe;
+
+import org.audiveris.omr.run.RunTable;
+import org.audiveris.omr.run.RunTableFactory;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.SortedMap;
+import java.util.SortedSet;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+/**
+ * Class {@code SegmentMorphoProcessor} performs gray-level morphology with a flat
+ * structuring element, giving the same results as {@link MorphoProcessor}.
+ * <p>
+ * The structuring element is decomposed into horizontal line segments, one or several per
+ * element row.
+ * For each source row and each distinct segment length, the running minimum or maximum over
+ * every window of that length is computed by the van Herk / Gil-Werman algorithm, with about
+ * three comparisons per pixel whatever the length.
+ * Each output pixel then combines one value per segment, instead of one value per element
+ * pixel.
+ * <p>
+ * As in MorphoProcessor, locations outside the image are ignored (they are taken as 0 for
+ * dilation and as 255 for erosion), and erosion uses the element as is, without reflection.
+ * <p>
+ * Rows are processed by bands, in parallel when allowed.
+ *
+ * @author Hervé Bitteur
+ */
+@ThreadSafe
+public class SegmentMorphoProcessor
+{
+
+    /** Segments composing the structuring element. */
+    private final Segment[] segments;
+
+    /** Distinct segment lengths. */
+    private final int[] lengths;
+
+    /** Minimum ordinate offset of element. */
+    private final int dyMin;
+
+    /** Maximum ordinate offset of element. */
+    private final int dyMax;
+
+    /** Padding needed on each side of a row, so that no window exits the padded row. */
+    private final int pad;
+
+    /**
+     * Creates a new {@code SegmentMorphoProcessor} object.
+     *
+     * @param se the (flat) structuring element for processing
+     * @throws IllegalArgumentException if structuring element is empty or not flat
+     */
+    public SegmentMorphoProcessor (StructureElement se)
+    {
+        // Element offsets, per element row
+        final SortedMap<Integer, SortedSet<Integer>> rows = new TreeMap<>();
+
+        for (int[] vect : se.getVect()) {
+            if (vect[2] != 255) {
+                throw new IllegalArgumentException("Structure element is not flat");
+            }
+
+            SortedSet<Integer> dxs = rows.get(vect[0]);
+
+            if (dxs == null) {
+                dxs = new TreeSet<>();
+                rows.put(vect[0], dxs);
+            }
+
+            dxs.add(vect[1]);
+        }
+
+        if (rows.isEmpty()) {
+            throw new IllegalArgumentException("Structure element is empty");
+        }
+
+        // Maximal segments of consecutive offsets
+        final List<Segment> segs = new ArrayList<>();
+        final SortedSet<Integer> lengthSet = new TreeSet<>();
+
+        for (int dy : rows.keySet()) {
+            Segment seg = null;
+
+            for (int dx : rows.get(dy)) {
+                if ((seg != null) && (dx == (seg.dx + seg.length))) {
+                    seg.length++;
+                } else {
+                    segs.add(seg = new Segment(dy, dx));
+                }
+            }
+        }
+
+        int maxPad = 0;
+
+        for (Segment seg : segs) {
+            lengthSet.add(seg.length);
+            maxPad = Math.max(maxPad, Math.max(-seg.dx, (seg.dx + seg.length) - 1));
+        }
+
+        lengths = new int[lengthSet.size()];
+
+        int i = 0;
+
+        for (int length : lengthSet) {
+            lengths[i++] = length;
+        }
+
+        for (Segment seg : segs) {
+            seg.lengthIndex = Arrays.binarySearch(lengths, seg.length);
+        }
+
+        segments = segs.toArray(new Segment[segs.size()]);
+        dyMin = rows.firstKey();
+        dyMax = rows.lastKey();
+        pad = maxPad;
+    }
+
+    //-------//
+    // close //
+    //-------//
+    /**
+     * Performs gray level dilation followed by gray level erosion.
+     *
+     * @param ip the image to process in place
+     */
+    public void close (ByteProcessor ip)
+    {
+        final byte[] pixels = (byte[]) ip.getPixels();
+        final byte[] tmp = new byte[pixels.length];
+        process(pixels, tmp, ip.getWidth(), ip.getHeight(), true);
+        process(tmp, pixels, ip.getWidth(), ip.getHeight(), false);
+    }
+
+    //-------//
+    // close //
+    //-------//
+    /**
+     * Performs binary closing of the provided table.
+     *
+     * @param table the input table
+     * @return a new table, with same orientation
+     */
+    public RunTable close (RunTable table)
+    {
+        final ByteProcessor buffer = table.getBuffer();
+        close(buffer);
+
+        return new RunTableFactory(table.getOrientation()).createTable(buffer);
+    }
+
+    //--------//
+    // dilate //
+    //--------//
+    /**
+     * Performs gray level dilation.
+     *
+     * @param ip the image to process in place
+     */
+    public void dilate (ByteProcessor ip)
+    {
+        final byte[] pixels = (byte[]) ip.getPixels();
+        process(pixels.clone(), pixels, ip.getWidth(), ip.getHeight(), true);
+    }
+
+    //--------//
+    // dilate //
+    //--------//
+    /**
+     * Performs binary dilation of the provided table.
+     * <p>
+     * Since foreground pixels are 0, this actually shrinks the foreground.
+     *
+     * @param table the input table
+     * @return a new table, with same orientation
+     */
+    public RunTable dilate (RunTable table)
+    {
+        final ByteProcessor buffer = table.getBuffer();
+        dilate(buffer);
+
+        return new RunTableFactory(table.getOrientation()).createTable(buffer);
+    }
+
+    //-------//
+    // erode //
+    //-------//
+    /**
+     * Performs gray level erosion.
+     *
+     * @param ip the image to process in place
+     */
+    public void erode (ByteProcessor ip)
+    {
+        final byte[] pixels = (byte[]) ip.getPixels();
+        process(pixels.clone(), pixels, ip.getWidth(), ip.getHeight(), false);
+    }
+
+    //-------//
+    // erode //
+    //-------//
+    /**
+     * Performs binary erosion of the provided table.
+     * <p>
+     * Since foreground pixels are 0, this actually grows the foreground.
+     *
+     * @param table the input table
+     * @return a new table, with same orientation
+     */
+    public RunTable erode (RunTable table)
+    {
+        final ByteProcessor buffer = table.getBuffer();
+        erode(buffer);
+
+        return new RunTableFactory(table.getOrientation()).createTable(buffer);
+    }
+
+    //------//
+    // open //
+    //------//
+    /**
+     * Performs gray level erosion followed by gray level dilation.
+     *
+     * @param ip the image to process in place
+     */
+    public void open (ByteProcessor ip)
+    {
+        final byte[] pixels = (byte[]) ip.getPixels();
+        final byte[] tmp = new byte[pixels.length];
+        process(pixels, tmp, ip.getWidth(), ip.getHeight(), false);
+        process(tmp, pixels, ip.getWidth(), ip.getHeight(), true);
+    }
+
+    //------//
+    // open //
+    //------//
+    /**
+     * Performs binary opening of the provided table.
+     *
+     * @param table the input table
+     * @return a new table, with same orientation
+     */
+    public RunTable open (RunTable table)
+    {
+        final ByteProcessor buffer = table.getBuffer();
+        open(buffer);
+
+        return new RunTableFactory(table.getOrientation()).createTable(buffer);
+    }
+
+    //---------//
+    // process //
+    //---------//
+    /**
+     * Perform dilation or erosion of source pixels into distinct destination pixels.
+     *
+     * @param src    source pixels
+     * @param dst    destination pixels
+     * @param width  image width
+     * @param height image height
+     * @param max    true for dilation (maximum), false for erosion (minimum)
+     */
+    private void process (final byte[] src,
+                          final byte[] dst,
+                          final int width,
+                          final int height,
+                          final boolean max)
+    {
+        AbstractGrayFilter.processRows(
+                height,
+                new AbstractGrayFilter.RowsProcessor()
+        {
+            @Override
+            public void processRows (int yMin,
+                                     int yMax)
+            {
+                processBand(src, dst, width, height, max, yMin, yMax);
+            }
+        });
+    }
+
+    //-------------//
+    // processBand //
+    //-------------//
+    /**
+     * Process the output rows [yMin..yMax].
+     * Each source row that impacts these output rows is read once, and its windows computed
+     * once per distinct segment length.
+     */
+    private void processBand (byte[] src,
+                              byte[] dst,
+                              int width,
+                              int height,
+                              boolean max,
+                              int yMin,
+                              int yMax)
+    {
+        final int neutral = max ? 0 : 255;
+        final int n = width + (2 * pad);
+        final int[] row = new int[n];
+        final int[] prefix = new int[n];
+        final int[] suffix = new int[n];
+        final int[][] windows = new int[lengths.length][n];
+        final int[][] acc = new int[yMax - yMin + 1][width];
+
+        for (int[] accRow : acc) {
+            Arrays.fill(accRow, neutral);
+        }
+
+        Arrays.fill(row, neutral);
+
+        for (int ys = Math.max(0, yMin + dyMin), ysMax = Math.min(height - 1, yMax + dyMax);
+                ys <= ysMax; ys++) {
+            // Padded source row
+            for (int x = 0, i = ys * width; x < width; x++, i++) {
+                row[pad + x] = src[i] & 0xFF;
+            }
+
+            for (int k = 0; k < lengths.length; k++) {
+                runningExtremum(row, lengths[k], prefix, suffix, windows[k], max);
+            }
+
+            // Combine into relevant output rows
+            for (Segment seg : segments) {
+                final int y = ys - seg.dy;
+
+                if ((y < yMin) || (y > yMax)) {
+                    continue;
+                }
+
+                final int[] accRow = acc[y - yMin];
+                final int[] window = windows[seg.lengthIndex];
+                final int offset = pad + seg.dx;
+
+                if (max) {
+                    for (int x = 0; x < width; x++) {
+                        final int v = window[x + offset];
+
+                        if (v > accRow[x]) {
+                            accRow[x] = v;
+                        }
+                    }
+                } else {
+                    for (int x = 0; x < width; x++) {
+                        final int v = window[x + offset];
+
+                        if (v < accRow[x]) {
+                            accRow[x] = v;
+                        }
+                    }
+                }
+            }
+        }
+
+        for (int y = yMin; y <= yMax; y++) {
+            final int[] accRow = acc[y - yMin];
+
+            for (int x = 0, i = y * width; x < width; x++, i++) {
+                dst[i] = (byte) accRow[x];
+            }
+        }
+    }
+
+    //-----------------//
+    // runningExtremum //
+    //-----------------//
+    /**
+     * Van Herk / Gil-Werman running extremum.
+     * The row is cut into blocks of length L, in which prefix and suffix extrema are computed.
+     * Window [s..s+L-1] spans at most two consecutive blocks, hence its extremum is the
+     * extremum of suffix[s] and prefix[s+L-1].
+     *
+     * @param row    input values
+     * @param length window length L
+     * @param prefix buffer for block prefix extrema
+     * @param suffix buffer for block suffix extrema
+     * @param window output, extremum of window starting at each index (up to n - L)
+     * @param max    true for maximum, false for minimum
+     */
+    private static void runningExtremum (int[] row,
+                                         int length,
+                                         int[] prefix,
+                                         int[] suffix,
+                                         int[] window,
+                                         boolean max)
+    {
+        final int n = row.length;
+
+        if (length == 1) {
+            System.arraycopy(row, 0, window, 0, n);
+
+            return;
+        }
+
+        for (int i = 0; i < n; i++) {
+            final int v = row[i];
+
+            if ((i % length) == 0) {
+                prefix[i] = v;
+            } else {
+                prefix[i] = max ? Math.max(prefix[i - 1], v) : Math.min(prefix[i - 1], v);
+            }
+        }
+
+        for (int i = n - 1; i >= 0; i--) {
+            final int v = row[i];
+
+            if ((i == (n - 1)) || ((i % length) == (length - 1))) {
+                suffix[i] = v;
+            } else {
+                suffix[i] = max ? Math.max(suffix[i + 1], v) : Math.min(suffix[i + 1], v);
+            }
+        }
+
+        for (int s = 0, sMax = n - length; s <= sMax; s++) {
+            final int e = (s + length) - 1;
+            window[s] = max ? Math.max(suffix[s], prefix[e]) : Math.min(suffix[s], prefix[e]);
+        }
+    }
+
+    //---------//
+    // Segment //
+    //---------//
+    /**
+     * Horizontal segment of the structuring element.
+     */
+    private static class Segment
+    {
+
+        /** Ordinate offset. */
+        final int dy;
+
+        /** Abscissa offset of segment start. */
+        final int dx;
+
+        /** Number of pixels. */
+        int length = 1;
+
+        /** Index in distinct lengths. */
+        int lengthIndex;
+
+        Segment (int dy,
+                 int dx)
+        {
+            this.dy = dy;
+            this.dx = dx;
+        }
+    }
+}
@@ -137,6 +137,27 @@ public class ShapeDescriptor
         return template.evaluate(x, y, anchor, distances);
     }
 
+    /**
+     * Try the relevant templates at specified location, abandoning as soon as the
+     * distance is known to reach the provided limit.
+     *
+     * @param x         location abscissa
+     * @param y         location ordinate
+     * @param anchor    location WRT template
+     * @param distances table of distances
+     * @param limit     distance value beyond which evaluation can be abandoned
+     * @return the best distance found, or a value not lower than limit if abandoned
+     * @see Template#evaluate(int, int, Anchor, DistanceTable, double)
+     */
+    public double evaluate (int x,
+                            int y,
+                            Anchor anchor,
+                            DistanceTable distances,
+                            double limit)
+    {
+        return template.evaluate(x, y, anchor, distances, limit);
+    }
+
     //--------------//
     // evaluateHole //
     //--------------//
@@ -186,6 +186,16 @@ public interface Table
             }
         }
 
+        /**
+         * Report whether this table is a view on a larger table.
+         *
+         * @return true for a view
+         */
+        public boolean isView ()
+        {
+            return roi != null;
+        }
+
         protected final void checkRoi (Rectangle roi)
         {
             if ((roi.x < 0) || ((roi.x + roi.width) > width)) {
@@ -96,6 +96,15 @@ public class Template
     /** Collection of key points defined for this template. */
     private final List<PixelDistance> keyPoints;
 
+    /** Key points compiled by expected class: foreground, then hole, then background. */
+    private final PointSet[] pointSets;
+
+    /** Compiled hole key points. */
+    private final PointSet holeSet;
+
+    /** Total weight of all key points. */
+    private final double totalWeight;
+
     /** Template width. (perhaps larger than the symbol width) */
     private final int width;
 
@@ -138,6 +147,21 @@ public class Template
         this.width = width;
         this.height = height;
         this.symbolBounds = symbolBounds;
+
+        // Compile key points
+        final PointSet foreSet = new PointSet(this.keyPoints, 0, constants.foreWeight.getValue());
+        holeSet = new PointSet(this.keyPoints, -1, constants.holeWeight.getValue());
+
+        final PointSet backSet = new PointSet(this.keyPoints, 1, constants.backWeight.getValue());
+        pointSets = new PointSet[]{foreSet, holeSet, backSet};
+
+        double total = 0;
+
+        for (PointSet set : pointSets) {
+            total += (set.weight * set.xs.length);
+        }
+
+        totalWeight = total;
     }
 
     //-----------//
@@ -311,41 +335,97 @@ public class Template
                             Anchor anchor,
                             DistanceTable distances)
     {
-        final Point ul = upperLeft(x, y, anchor);
+        return evaluate(x, y, anchor, distances, Double.MAX_VALUE);
+    }
 
-        // Loop through template key positions and read related distance.
-        // Compute the mean value on all distances read
+    //----------//
+    // evaluate //
+    //----------//
+    /**
+     * Evaluate this template at location (x,y) in provided distances table,
+     * abandoning as soon as the resulting distance is known to reach the provided limit.
+     * <p>
+     * Key points are browsed class after class (foreground, hole, background).
+     * Since every key point contributes either 0 or its weight, the final distance is at least
+     * the current weighted sum of mismatches divided by the weight of all key points still
+     * relevant. When this lower bound reaches the limit, the evaluation stops and reports it.
+     *
+     * @param x         location abscissa
+     * @param y         location ordinate
+     * @param anchor    the anchor kind to use for (x,y), null for upper left
+     * @param distances the distance table to search
+     * @param limit     distance value beyond which evaluation can be abandoned
+     * @return the weighted average distance computed on all key positions, or a lower bound of
+     *         this distance, not lower than limit, if abandoned
+     */
+    public double evaluate (int x,
+                            int y,
+                            Anchor anchor,
+                            DistanceTable distances,
+                            double limit)
+    {
+        final Point ul = upperLeft(x, y, anchor);
         final int imgWidth = distances.getWidth();
         final int imgHeight = distances.getHeight();
-        final double foreWeight = constants.foreWeight.getValue();
-        final double backWeight = constants.backWeight.getValue();
-        final double holeWeight = constants.holeWeight.getValue();
+
+        // Direct access to distance values, when template is fully located within image
+        final short[] values = ((ul.x >= 0) && ((ul.x + width) <= imgWidth) && (ul.y >= 0)
+                                && ((ul.y + height) <= imgHeight)) ? valuesOf(distances) : null;
+        final int base = (ul.y * imgWidth) + ul.x;
+        double maxWeights = totalWeight; // Sum of weights, minus weights of ignored positions
         double weights = 0; // Sum of weights
         double total = 0; // Sum of weighted distances
 
-        for (PixelDistance pix : keyPoints) {
-            int nx = ul.x + pix.x;
-            int ny = ul.y + pix.y;
+        for (PointSet set : pointSets) {
+            final boolean fore = set.fore;
+            final double weight = set.weight;
+            final int[] xs = set.xs;
+            final int[] ys = set.ys;
+            int valids = 0; // Number of relevant positions
+            int misses = 0; // Number of positions with unexpected color
 
-            // Ignore tested point if located out of image
-            if ((nx >= 0) && (nx < imgWidth) && (ny >= 0) && (ny < imgHeight)) {
-                int actualDist = distances.getValue(nx, ny);
+            for (int i = 0; i < xs.length; i++) {
+                final int actualDist;
+
+                if (values != null) {
+                    actualDist = values[base + (ys[i] * imgWidth) + xs[i]];
+                } else {
+                    final int nx = ul.x + xs[i];
+                    final int ny = ul.y + ys[i];
+
+                    // Ignore tested point if located out of image
+                    if ((nx < 0) || (nx >= imgWidth) || (ny < 0) || (ny >= imgHeight)) {
+                        maxWeights -= weight;
+
+                        continue;
+                    }
+
+                    actualDist = distances.getValue(nx, ny);
+                }
 
                 // Ignore neutralized locations in distance table
-                if (actualDist != ChamferDistance.VALUE_UNKNOWN) {
-                    // pix.d < 0 for expected hole, expected negative distance to nearest foreground
-                    // pix.d == 0 for expected foreground, 0 distance
-                    // pix.d > 0 for expected background, expected distance to nearest foreground
-                    double weight = (pix.d == 0) ? foreWeight
-                            : ((pix.d > 0) ? backWeight : holeWeight);
-                    double expected = (pix.d == 0) ? 0 : 1;
-                    double actual = (actualDist == 0) ? 0 : 1;
-                    double dist = Math.abs(actual - expected);
-
-                    total += (weight * dist);
-                    weights += weight;
+                if (actualDist == ChamferDistance.VALUE_UNKNOWN) {
+                    maxWeights -= weight;
+
+                    continue;
+                }
+
+                valids++;
+
+                if ((actualDist == 0) != fore) {
+                    misses++;
+
+                    // Early abandon?
+                    final double bound = total + (misses * weight);
+
+                    if (bound >= (limit * maxWeights)) {
+                        return bound / maxWeights;
+                    }
                 }
             }
+
+            total += (misses * weight);
+            weights += (valids * weight);
         }
 
         if (weights == 0) {
@@ -374,16 +454,17 @@ public class Template
     {
         final Point ul = upperLeft(x, y, anchor);
 
-        // Loop through template key positions and read related distance.
-        // Compute the mean value on all distances read
+        // Loop through template hole positions and read related distance.
         final int imgWidth = distances.getWidth();
         final int imgHeight = distances.getHeight();
+        final int[] xs = holeSet.xs;
+        final int[] ys = holeSet.ys;
         int expectedHoles = 0; // Expected number of white pixels in hole
         int actualHoles = 0; // Actual number of white pixels in hole
 
-        for (PixelDistance pix : keyPoints) {
-            int nx = ul.x + pix.x;
-            int ny = ul.y + pix.y;
+        for (int i = 0; i < xs.length; i++) {
+            int nx = ul.x + xs[i];
+            int ny = ul.y + ys[i];
 
             // Ignore tested point if located out of image
             if ((nx >= 0) && (nx < imgWidth) && (ny >= 0) && (ny < imgHeight)) {
@@ -391,13 +472,10 @@ public class Template
 
                 // Ignore neutralized locations in distance table
                 if (actualDist != ChamferDistance.VALUE_UNKNOWN) {
-                    // pix.d < 0 for expected hole, expected negative distance to nearest foreground
-                    if (pix.d < 0) {
-                        expectedHoles++;
+                    expectedHoles++;
 
-                        if (actualDist != 0) {
-                            actualHoles++;
-                        }
+                    if (actualDist != 0) {
+                        actualHoles++;
                     }
                 }
             }
@@ -697,6 +775,24 @@ public class Template
         return new Point(x, y);
     }
 
+    //----------//
+    // valuesOf //
+    //----------//
+    /**
+     * Report the underlying array of distance values, if directly accessible.
+     *
+     * @param distances the distance table
+     * @return the values array, or null
+     */
+    private static short[] valuesOf (DistanceTable distances)
+    {
+        if (distances instanceof DistanceTable.Short) {
+            return ((DistanceTable.Short) distances).getValues();
+        }
+
+        return null;
+    }
+
     //----------//
     // impactOf //
     //----------//
@@ -752,6 +848,60 @@ public class Template
         return constants.reallyBadDistance.getValue();
     }
 
+    //----------//
+    // PointSet //
+    //----------//
+    /**
+     * Flat compiled form of the template key points of one class.
+     */
+    private static class PointSet
+    {
+
+        /** True for expected foreground, false for expected background (hole or exterior). */
+        final boolean fore;
+
+        /** Weight of each point. */
+        final double weight;
+
+        /** Point abscissae, relative to template upper left corner. */
+        final int[] xs;
+
+        /** Point ordinates, relative to template upper left corner. */
+        final int[] ys;
+
+        /**
+         * Compile the key points of a given class.
+         *
+         * @param keyPoints all template key points
+         * @param sign      class as sign of key point distance: 0 for foreground, -1 for hole,
+         *                  1 for exterior background
+         * @param weight    weight assigned to the class
+         */
+        PointSet (List<PixelDistance> keyPoints,
+                  int sign,
+                  double weight)
+        {
+            this.fore = sign == 0;
+            this.weight = weight;
+
+            final List<PixelDistance> kept = new ArrayList<>();
+
+            for (PixelDistance pix : keyPoints) {
+                if ((int) Math.signum(pix.d) == sign) {
+                    kept.add(pix);
+                }
+            }
+
+            xs = new int[kept.size()];
+            ys = new int[kept.size()];
+
+            for (int i = 0; i < xs.length; i++) {
+                xs[i] = kept.get(i).x;
+                ys[i] = kept.get(i).y;
+            }
+        }
+    }
+
     //-----------//
     // Constants //
     //-----------//
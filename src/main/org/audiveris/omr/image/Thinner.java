@@ -0,0 +1,662 @@
+//------------------------------------------------------------------------------------------------//
+//                                                                                                //
+//                                         T h i n n e r                                          //
+//                                                                                                //
+//------------------------------------------------------------------------------------------------//
+// <editor-fold defaultstate="collapsed" desc="hdr">
+//
+//  Copyright © Audiveris 2018. All rights reserved.
+//
+//  This program is free software: you can redistribute it and/or modify it under the terms of the
+//  GNU Affero General Public License as published by the Free Software Foundation, either version
+//  3 of the License, or (at your option) any later version.
+//
+//  This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+//  without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+//  See the GNU Affero General Public License for more details.
+//
+//  You should have received a copy of the GNU Affero General Public License along with this
+//  program.  If not, see <http://www.gnu.org/licenses/>.
+//------------------------------------------------------------------------------------------------//
+// </editor-fold>
+package org.audiveris.omr.image;
+
+import ij.process.ByteProcessor;
+
+import org.audiveris.omr.constant.Constant;
+import org.audiveris.omr.constant.ConstantSet;
+import org.audiveris.omr.step.ProcessingCancellationException;
+import org.audiveris.omr.util.OmrExecutors;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.awt.Rectangle;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Class {@code Thinner} reduces the foreground (black) shapes of a binary image to
+ * one-pixel wide skeletons.
+ * <p>
+ * Thinning is performed in two phases, each made of passes that remove boundary pixels:
+ * <ol>
+ * <li>Main phase, based on Guo and Hall parallel algorithm, alternating passes that remove
+ * pixels mainly from the left edges of objects, and passes that remove pixels mainly from
+ * their right edges, while preserving connectivity and end points.</li>
+ * <li>Final phase, that removes the "stuck" pixels still connected to two orthogonal neighbors,
+ * provided their removal does not modify topology.
+ * Each pass processes just one of the 4 sub-fields (x and y parities) of the image.</li>
+ * </ol>
+ * The decision on every pixel is taken from the state of its 3x3 neighborhood at the end of the
+ * previous pass.
+ * Hence the image can be processed in tiles, in parallel when parallelism is allowed, with no
+ * seam effect: the result does not depend on tile size nor on the number of threads.
+ * A tile is no longer processed once neither it nor its neighbors have changed during a whole
+ * cycle of passes.
+ * <p>
+ * Processing can be limited to some areas of the image, pixels outside these areas being
+ * considered as background.
+ *
+ * @author Hervé Bitteur
+ */
+public class Thinner
+{
+
+    private static final Constants constants = new Constants();
+
+    private static final Logger logger = LoggerFactory.getLogger(Thinner.class);
+
+    // Neighbor bits in a neighborhood index
+    //
+    // +-----+-----+-----+
+    // |     |     |     |
+    // | 128 |  1  |  2  |
+    // |     |     |     |
+    // +-----+-----+-----+
+    // |     |     |     |
+    // | 64  |  .  |  4  |
+    // |     |     |     |
+    // +-----+-----+-----+
+    // |     |     |     |
+    // | 32  | 16  |  8  |
+    // |     |     |     |
+    // +-----+-----+-----+
+    //
+    private static final int N = 1;
+
+    private static final int NE = 2;
+
+    private static final int E = 4;
+
+    private static final int SE = 8;
+
+    private static final int S = 16;
+
+    private static final int SW = 32;
+
+    private static final int W = 64;
+
+    private static final int NW = 128;
+
+    /** Delta abscissa, per neighbor bit rank. */
+    private static final int[] DXS = new int[]{0, 1, 1, 1, 0, -1, -1, -1};
+
+    /** Delta ordinate, per neighbor bit rank. */
+    private static final int[] DYS = new int[]{-1, -1, 0, 1, 1, 1, 0, -1};
+
+    /** Main phase: deletion codes per neighborhood (1: odd passes, 2: even passes). */
+    private static final byte[] THIN_TABLE = new byte[256];
+
+    /** Final phase: deletion flags per neighborhood. */
+    private static final boolean[] STUCK_TABLE = new boolean[256];
+
+    static {
+        initTables();
+    }
+
+    /** Image width. */
+    private final int width;
+
+    /** Image height. */
+    private final int height;
+
+    /** Row stride in pixels array, which has a 1-pixel background border. */
+    private final int stride;
+
+    /** Pixels, 1 for foreground, 0 for background. */
+    private final byte[] pixels;
+
+    /** Tiles, row by row. */
+    private final Tile[] tiles;
+
+    /** Number of tiles per row. */
+    private final int tilesPerRow;
+
+    /** True for parallel processing of tiles. */
+    private final boolean parallel;
+
+    /**
+     * Creates a new {@code Thinner} object.
+     *
+     * @param source binary source image, foreground being 0
+     * @param areas  areas to process, or null for the whole image
+     */
+    public Thinner (ByteProcessor source,
+                    List<Rectangle> areas)
+    {
+        this(
+                source,
+                areas,
+                constants.tileSize.getValue(),
+                OmrExecutors.defaultParallelism.getValue());
+    }
+
+    /**
+     * Creates a new {@code Thinner} object, with specific tile size and parallelism.
+     *
+     * @param source   binary source image, foreground being 0
+     * @param areas    areas to process, or null for the whole image
+     * @param tileSize tile side length
+     * @param parallel true to process tiles in parallel
+     */
+    Thinner (ByteProcessor source,
+             List<Rectangle> areas,
+             int tileSize,
+             boolean parallel)
+    {
+        width = source.getWidth();
+        height = source.getHeight();
+        stride = width + 2;
+        pixels = new byte[stride * (height + 2)];
+        this.parallel = parallel;
+
+        // Tiles
+        final Rectangle imageBox = new Rectangle(0, 0, width, height);
+        final int tilesPerColumn = ((height + tileSize) - 1) / tileSize;
+        tilesPerRow = ((width + tileSize) - 1) / tileSize;
+        tiles = new Tile[tilesPerRow * tilesPerColumn];
+
+        for (int ty = 0, t = 0; ty < tilesPerColumn; ty++) {
+            for (int tx = 0; tx < tilesPerRow; tx++, t++) {
+                final Rectangle box = new Rectangle(
+                        tx * tileSize,
+                        ty * tileSize,
+                        tileSize,
+                        tileSize);
+                tiles[t] = new Tile(tx, ty, box.intersection(imageBox));
+            }
+        }
+
+        // Pixels
+
+        if (areas == null) {
+            load(source, imageBox);
+        } else {
+            for (Rectangle area : areas) {
+                load(source, area);
+            }
+        }
+    }
+
+    //------//
+    // thin //
+    //------//
+    /**
+     * Thin the foreground of source image.
+     *
+     * @return the skeleton image, foreground being 0 and background 255
+     */
+    public ByteProcessor thin ()
+    {
+        final int mainPasses = runPhase(false);
+        final int stuckPasses = runPhase(true);
+        logger.debug("Thinner passes main:{} stuck:{}", mainPasses, stuckPasses);
+
+        final ByteProcessor skeleton = new ByteProcessor(width, height);
+        final byte[] out = (byte[]) skeleton.getPixels();
+
+        for (int y = 0, o = 0; y < height; y++) {
+            for (int x = 0, i = ((y + 1) * stride) + 1; x < width; x++, i++, o++) {
+                out[o] = (pixels[i] != 0) ? 0 : (byte) 255;
+            }
+        }
+
+        return skeleton;
+    }
+
+    //-------//
+    // apply //
+    //-------//
+    /**
+     * Apply the deletions found in a tile and record the change in tile neighborhood.
+     *
+     * @param tile the tile to process
+     * @param pass current pass number
+     */
+    private void apply (Tile tile,
+                        int pass)
+    {
+        for (int k = 0; k < tile.count; k++) {
+            pixels[tile.deletions[k]] = 0;
+        }
+
+        tile.count = 0;
+
+        for (int ty = Math.max(0, tile.ty - 1); ty <= (tile.ty + 1); ty++) {
+            for (int tx = Math.max(0, tile.tx - 1); tx <= Math.min(tilesPerRow - 1, tile.tx + 1);
+                    tx++) {
+                final int t = (ty * tilesPerRow) + tx;
+
+                if (t < tiles.length) {
+                    tiles[t].lastChange = pass;
+                }
+            }
+        }
+    }
+
+    //----------//
+    // evaluate //
+    //----------//
+    /**
+     * Record in tile the pixels to delete in current pass, without modifying any pixel.
+     *
+     * @param tile  the tile to process
+     * @param pass  current pass number
+     * @param stuck true for final phase, false for main phase
+     */
+    private void evaluate (Tile tile,
+                           int pass,
+                           boolean stuck)
+    {
+        final Rectangle box = tile.box;
+        final int passCode = ((pass & 1) == 1) ? 1 : 2;
+        final int subField = (pass - 1) & 3;
+
+        for (int y = box.y, yMax = (box.y + box.height) - 1; y <= yMax; y++) {
+            int xMin = box.x;
+            int xStep = 1;
+
+            if (stuck) {
+                if ((y & 1) != (subField >> 1)) {
+                    continue;
+                }
+
+                // Align on proper abscissa parity
+                xMin += ((xMin & 1) ^ (subField & 1));
+                xStep = 2;
+            }
+
+            for (int x = xMin, xMax = (box.x + box.width) - 1, i = ((y + 1) * stride) + x + 1;
+                    x <= xMax; x += xStep, i += xStep) {
+                if (pixels[i] != 0) {
+                    final int index = indexOf(i);
+                    final boolean deletable = stuck ? STUCK_TABLE[index]
+                            : ((THIN_TABLE[index] & passCode) != 0);
+
+                    if (deletable) {
+                        tile.add(i);
+                    }
+                }
+            }
+        }
+    }
+
+    //----------//
+    // evaluate //
+    //----------//
+    /**
+     * Evaluate the provided tiles, in parallel if allowed and worthwhile.
+     *
+     * @param active the tiles to evaluate
+     * @param pass   current pass number
+     * @param stuck  true for final phase, false for main phase
+     */
+    private void evaluate (final List<Tile> active,
+                           final int pass,
+                           final boolean stuck)
+    {
+        if (!parallel || (active.size() <= 1)) {
+            for (Tile tile : active) {
+                evaluate(tile, pass, stuck);
+            }
+        } else {
+            try {
+                OmrExecutors.getForkJoinPool().invoke(
+                        new TilesTask(active, 0, active.size() - 1, pass, stuck));
+            } catch (ProcessingCancellationException pce) {
+                throw pce;
+            } catch (Throwable ex) {
+                logger.warn("Exception raised in Thinner", ex);
+                throw new RuntimeException(ex);
+            }
+        }
+    }
+
+    //---------//
+    // indexOf //
+    //---------//
+    /**
+     * Report the neighborhood index of pixel at provided position.
+     *
+     * @param i pixel position in pixels array
+     * @return the index in [0..255]
+     */
+    private int indexOf (int i)
+    {
+        return pixels[i - stride] | (pixels[(i - stride) + 1] << 1) | (pixels[i + 1] << 2)
+                       | (pixels[i + stride + 1] << 3) | (pixels[i + stride] << 4)
+                       | (pixels[(i + stride) - 1] << 5) | (pixels[i - 1] << 6)
+                       | (pixels[i - stride - 1] << 7);
+    }
+
+    //------//
+    // load //
+    //------//
+    /**
+     * Load the foreground pixels of source image within provided area.
+     *
+     * @param source binary source image
+     * @param area   area to load
+     */
+    private void load (ByteProcessor source,
+                       Rectangle area)
+    {
+        final Rectangle box = area.intersection(new Rectangle(0, 0, width, height));
+
+        if (box.isEmpty()) {
+            return;
+        }
+
+        final byte[] in = (byte[]) source.getPixels();
+
+        for (int y = box.y, yMax = (box.y + box.height) - 1; y <= yMax; y++) {
+            for (int x = box.x, xMax = (box.x + box.width) - 1, o = (y * width) + x,
+                    i = ((y + 1) * stride) + x + 1; x <= xMax; x++, o++, i++) {
+                if (in[o] == 0) {
+                    pixels[i] = 1;
+                }
+            }
+        }
+    }
+
+    //----------//
+    // runPhase //
+    //----------//
+    /**
+     * Run the passes of a phase until a whole cycle of passes brings no change.
+     *
+     * @param stuck true for final phase, false for main phase
+     * @return the number of passes run
+     */
+    private int runPhase (boolean stuck)
+    {
+        final int cycle = stuck ? 4 : 2; // Passes for a whole cycle
+        final List<Tile> active = new ArrayList<>(tiles.length);
+        int lastChange = 0;
+        int pass = 1;
+
+        for (Tile tile : tiles) {
+            tile.lastChange = 0;
+        }
+
+        for (; pass <= (lastChange + cycle); pass++) {
+            active.clear();
+
+            for (Tile tile : tiles) {
+                if (pass <= (tile.lastChange + cycle)) {
+                    active.add(tile);
+                }
+            }
+
+            evaluate(active, pass, stuck);
+
+            for (Tile tile : active) {
+                if (tile.count > 0) {
+                    apply(tile, pass);
+                    lastChange = pass;
+                }
+            }
+        }
+
+        return pass - 1;
+    }
+
+    //------------//
+    // initTables //
+    //------------//
+    /**
+     * Build the tables of deletion decisions, for every possible neighborhood.
+     */
+    private static void initTables ()
+    {
+        for (int index = 0; index < 256; index++) {
+            final boolean n = (index & N) != 0;
+            final boolean ne = (index & NE) != 0;
+            final boolean e = (index & E) != 0;
+            final boolean se = (index & SE) != 0;
+            final boolean s = (index & S) != 0;
+            final boolean sw = (index & SW) != 0;
+            final boolean w = (index & W) != 0;
+            final boolean nw = (index & NW) != 0;
+
+            // Number of 8-connected foreground components around the pixel
+            final int c = ((!n && (ne || e)) ? 1 : 0) + ((!e && (se || s)) ? 1 : 0)
+                          + ((!s && (sw || w)) ? 1 : 0) + ((!w && (nw || n)) ? 1 : 0);
+            final int n1 = ((nw || n) ? 1 : 0) + ((ne || e) ? 1 : 0) + ((se || s) ? 1 : 0)
+                           + ((sw || w) ? 1 : 0);
+            final int n2 = ((n || ne) ? 1 : 0) + ((e || se) ? 1 : 0) + ((s || sw) ? 1 : 0)
+                           + ((w || nw) ? 1 : 0);
+            final int nn = Math.min(n1, n2); // 1 for an end point
+
+            if ((c == 1) && (nn >= 2) && (nn <= 3)) {
+                int code = 0;
+
+                if (!((s || sw || !nw) && w)) {
+                    code |= 1; // Mainly left edges
+                }
+
+                if (!((n || ne || !se) && e)) {
+                    code |= 2; // Mainly right edges
+                }
+
+                THIN_TABLE[index] = (byte) code;
+            }
+
+            STUCK_TABLE[index] = isSimple(index) && ((n && e) || (e && s) || (s && w) || (w && n));
+        }
+    }
+
+    //----------//
+    // isSimple //
+    //----------//
+    /**
+     * Tell whether a foreground pixel with provided neighborhood can be removed without
+     * modifying topology: its foreground neighbors form one 8-connected component, and its
+     * background neighbors form one 4-connected component adjacent to the pixel.
+     *
+     * @param index neighborhood index
+     * @return true if pixel is simple
+     */
+    private static boolean isSimple (int index)
+    {
+        final int[] fore = new int[8];
+        final int[] back = new int[8];
+
+        for (int k = 0; k < 8; k++) {
+            fore[k] = back[k] = k;
+        }
+
+        for (int j = 0; j < 8; j++) {
+            for (int k = j + 1; k < 8; k++) {
+                final int dx = Math.abs(DXS[j] - DXS[k]);
+                final int dy = Math.abs(DYS[j] - DYS[k]);
+                final boolean jFore = ((index >> j) & 1) == 1;
+                final boolean kFore = ((index >> k) & 1) == 1;
+
+                if (jFore && kFore && (dx <= 1) && (dy <= 1)) {
+                    union(fore, j, k);
+                } else if (!jFore && !kFore && ((dx + dy) == 1)) {
+                    union(back, j, k);
+                }
+            }
+        }
+
+        final boolean[] foreRoots = new boolean[8];
+        final boolean[] backRoots = new boolean[8];
+        int foreCount = 0;
+        int backCount = 0;
+
+        for (int k = 0; k < 8; k++) {
+            if (((index >> k) & 1) == 1) {
+                final int root = find(fore, k);
+
+                if (!foreRoots[root]) {
+                    foreRoots[root] = true;
+                    foreCount++;
+                }
+            } else if ((k & 1) == 0) {
+                // Background side neighbor
+                final int root = find(back, k);
+
+                if (!backRoots[root]) {
+                    backRoots[root] = true;
+                    backCount++;
+                }
+            }
+        }
+
+        return (foreCount == 1) && (backCount == 1);
+    }
+
+    //------//
+    // find //
+    //------//
+    private static int find (int[] parents,
+                             int k)
+    {
+        while (parents[k] != k) {
+            k = parents[k];
+        }
+
+        return k;
+    }
+
+    //-------//
+    // union //
+    //-------//
+    private static void union (int[] parents,
+                               int j,
+                               int k)
+    {
+        parents[find(parents, j)] = find(parents, k);
+    }
+
+    //-----------//
+    // Constants //
+    //-----------//
+    private static class Constants
+            extends ConstantSet
+    {
+
+        private final Constant.Integer tileSize = new Constant.Integer(
+                "pixels",
+                128,
+                "Side length of tiles thinned in parallel");
+    }
+
+    //------//
+    // Tile //
+    //------//
+    /**
+     * A rectangular part of the image, with its pending deletions.
+     */
+    private static class Tile
+    {
+
+        /** Tile abscissa in tiles grid. */
+        final int tx;
+
+        /** Tile ordinate in tiles grid. */
+        final int ty;
+
+        /** Tile pixels. */
+        final Rectangle box;
+
+        /** Last pass that modified tile or its neighbors. */
+        int lastChange;
+
+        /** Positions of pixels to delete. */
+        int[] deletions = new int[16];
+
+        /** Number of pixels to delete. */
+        int count;
+
+        Tile (int tx,
+              int ty,
+              Rectangle box)
+        {
+            this.tx = tx;
+            this.ty = ty;
+            this.box = box;
+        }
+
+        void add (int i)
+        {
+            if (count == deletions.length) {
+                deletions = Arrays.copyOf(deletions, 2 * count);
+            }
+
+            deletions[count++] = i;
+        }
+    }
+
+    //-----------//
+    // TilesTask //
+    //-----------//
+    /**
+     * Evaluation of a range of tiles, split recursively.
+     */
+    private class TilesTask
+            extends RecursiveAction
+    {
+
+        private final List<Tile> active;
+
+        private final int min;
+
+        private final int max;
+
+        private final int pass;
+
+        private final boolean stuck;
+
+        TilesTask (List<Tile> active,
+                   int min,
+                   int max,
+                   int pass,
+                   boolean stuck)
+        {
+            this.active = active;
+            this.min = min;
+            this.max = max;
+            this.pass = pass;
+            this.stuck = stuck;
+        }
+
+        @Override
+        protected void compute ()
+        {
+            if (min == max) {
+                evaluate(active.get(min), pass, stuck);
+            } else {
+                final int mid = (min + max) >>> 1;
+                invokeAll(
+                        new TilesTask(active, min, mid, pass, stuck),
+                        new TilesTask(active, mid + 1, max, pass, stuck));
+            }
+        }
+    }
+}
@@ -22,7 +22,9 @@
 package org.audiveris.omr.math;
 
 import org.audiveris.omr.classifier.TrainingMonitor;
+import org.audiveris.omr.step.ProcessingCancellationException;
 import org.audiveris.omr.util.Jaxb;
+import org.audiveris.omr.util.OmrExecutors;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -30,7 +32,10 @@ import org.slf4j.LoggerFactory;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.util.Arrays;
 import java.util.Objects;
+import java.util.Random;
+import java.util.concurrent.RecursiveAction;
 
 import javax.xml.bind.JAXBContext;
 import javax.xml.bind.JAXBException;
@@ -70,6 +75,9 @@ public class NeuralNetwork
     /** Un/marshalling context for use with JAXB. */
     private static volatile JAXBContext jaxbContext;
 
+    /** Number of patterns per gradient shard, in mini-batch training. */
+    private static final int SHARD_SIZE = 16;
+
     /** Size of input layer. */
     @XmlAttribute(name = "input-size")
     private final int inputSize;
@@ -120,6 +128,7 @@ public class NeuralNetwork
      * @param hiddenSize   number of cells in hidden layer
      * @param outputSize   number of cells in output layer
      * @param amplitude    amplitude (less than or = 1.0) for initial random values
+     * @param seed         seed for initial random values
      * @param inputLabels  array of labels for input cells, perhaps empty
      * @param outputLabels array of labels for output cells, perhaps empty
      */
@@ -127,6 +136,7 @@ public class NeuralNetwork
                           int hiddenSize,
                           int outputSize,
                           double amplitude,
+                          long seed,
                           String[] inputLabels,
                           String[] outputLabels)
     {
@@ -135,13 +145,16 @@ public class NeuralNetwork
         this.hiddenSize = hiddenSize;
         this.outputSize = outputSize;
 
+        // Initial weights depend only on seed, for reproducible training
+        final Random random = new Random(seed);
+
         // Allocate weights (from input) to hidden layer
         // +1 for bias
-        hiddenWeights = createMatrix(hiddenSize, inputSize + 1, amplitude);
+        hiddenWeights = createMatrix(hiddenSize, inputSize + 1, amplitude, random);
 
         // Allocate weights (from hidden) to output layer
         // +1 for bias
-        outputWeights = createMatrix(outputSize, hiddenSize + 1, amplitude);
+        outputWeights = createMatrix(outputSize, hiddenSize + 1, amplitude, random);
 
         // Labels for input, if any
         this.inputLabels = new StringArray(inputLabels);
@@ -170,6 +183,7 @@ public class NeuralNetwork
      * @param hiddenSize   number of cells in hidden layer
      * @param outputSize   number of cells in output layer
      * @param amplitude    amplitude (less than or = 1.0) for initial random values
+     * @param seed         seed for initial random values
      * @param inputLabels  array of labels for input cells, perhaps empty
      * @param outputLabels array of labels for output cells, perhaps empty
      * @param learningRate learning rate factor
@@ -180,13 +194,14 @@ public class NeuralNetwork
                           int hiddenSize,
                           int outputSize,
                           double amplitude,
+                          long seed,
                           String[] inputLabels,
                           String[] outputLabels,
                           double learningRate,
                           double momentum,
                           int epochs)
     {
-        this(inputSize, hiddenSize, outputSize, amplitude, inputLabels, outputLabels);
+        this(inputSize, hiddenSize, outputSize, amplitude, seed, inputLabels, outputLabels);
 
         // Cache parameters
         this.learningRate = learningRate;
@@ -416,6 +431,48 @@ public class NeuralNetwork
         return outputs;
     }
 
+    //-----//
+    // run //
+    //-----//
+    /**
+     * Run the neural network on a batch of input vectors, and return the computed
+     * output vectors.
+     * <p>
+     * Each layer is computed as a matrix-matrix product, every row of weights being applied to
+     * all vectors of the batch before moving to the next row.
+     * Results are identical to those of {@link #run(double[], double[], double[])} on each vector.
+     * Provided buffers may have more rows than inputs, the extra rows being left untouched.
+     *
+     * @param inputs  the provided input vectors
+     * @param hiddens provided buffer for hidden vectors, or null
+     * @param outputs preallocated buffer for the computed output vectors, or null
+     * @return the computed output vectors
+     */
+    public double[][] run (double[][] inputs,
+                           double[][] hiddens,
+                           double[][] outputs)
+    {
+        final int count = inputs.length;
+
+        // Allocate the hiddens if not provided
+        if (hiddens == null) {
+            hiddens = new double[count][hiddenSize];
+        }
+
+        // Compute the hidden values
+        forward(inputs, count, hiddenWeights, hiddens);
+
+        // Allocate the outputs if not done yet
+        if (outputs == null) {
+            outputs = new double[count][outputSize];
+        }
+
+        // Then, compute the output values
+        forward(hiddens, count, outputWeights, outputs);
+
+        return outputs;
+    }
+
     //-----------//
     // setEpochs //
     //-----------//
@@ -496,8 +553,8 @@ public class NeuralNetwork
         final double[] gottenOutputs = new double[outputSize];
         final double[] hiddenGrads = new double[hiddenSize];
         final double[] outputGrads = new double[outputSize];
-        final double[][] hiddenDeltas = createMatrix(hiddenSize, inputSize + 1, 0);
-        final double[][] outputDeltas = createMatrix(outputSize, hiddenSize + 1, 0);
+        final double[][] hiddenDeltas = new double[hiddenSize][inputSize + 1];
+        final double[][] outputDeltas = new double[outputSize][hiddenSize + 1];
         final double[] hiddens = new double[hiddenSize];
         int iter = 0;
 
@@ -603,6 +660,195 @@ public class NeuralNetwork
         stopping = false;
     }
 
+    //----------------//
+    // trainMiniBatch //
+    //----------------//
+    /**
+     * Train the neural network on a collection of input patterns, by mini-batches.
+     * <p>
+     * Patterns are shuffled at each epoch, by a random generator initialized with the provided
+     * seed. Each mini-batch is split into shards of fixed size, whose gradients are computed in
+     * parallel (when parallelism is allowed) and then summed in shard order, so that resulting
+     * weights depend on seed but not on thread scheduling.
+     * Weights are then updated with the mean gradient of the mini-batch, plus momentum.
+     * <p>
+     * Since there is one weight update per mini-batch rather than per pattern, the learning rate
+     * of per-pattern {@link #train} does not apply here: a specific rate is provided, to be tuned
+     * with the batch size.
+     * <p>
+     * If validation patterns are provided, their mean squared error is measured at the end of each
+     * epoch and reported to listener: training stops when it has not improved during 'patience'
+     * epochs, and the best weights are restored.
+     *
+     * @param inputs         the provided patterns of values for input cells
+     * @param desiredOutputs the corresponding desired values for output cells
+     * @param testInputs     validation patterns, or null
+     * @param testOutputs    the corresponding desired values, or null
+     * @param batchSize      number of patterns per mini-batch
+     * @param batchRate      learning rate applied to the mean gradient of each mini-batch
+     * @param patience       number of epochs without validation improvement before stopping
+     * @param seed           seed for patterns shuffling
+     * @param listener       listener to be kept informed, or null
+     * @param iterPeriod     period for iteration notification
+     */
+    public void trainMiniBatch (double[][] inputs,
+                                double[][] desiredOutputs,
+                                double[][] testInputs,
+                                double[][] testOutputs,
+                                int batchSize,
+                                double batchRate,
+                                int patience,
+                                long seed,
+                                TrainingMonitor listener,
+                                int iterPeriod)
+    {
+        stopping = false;
+
+        Objects.requireNonNull(inputs, "inputs array is null");
+        Objects.requireNonNull(desiredOutputs, "desiredOutputs array is null");
+        logger.info(
+                "Network is being trained on {} epochs, by batches of {}...",
+                epochs,
+                batchSize);
+
+        final int patterns = inputs.length;
+        final long startTime = System.currentTimeMillis();
+        final Random random = new Random(seed);
+        final int[] order = new int[patterns];
+
+        for (int ip = 0; ip < patterns; ip++) {
+            order[ip] = ip;
+        }
+
+        // Allocate needed arrays
+        final Shard[] shards = new Shard[(batchSize + SHARD_SIZE - 1) / SHARD_SIZE];
+
+        for (int is = 0; is < shards.length; is++) {
+            shards[is] = new Shard(inputs, desiredOutputs, order);
+        }
+
+        final double[][] hiddenDeltas = new double[hiddenSize][inputSize + 1];
+        final double[][] outputDeltas = new double[outputSize][hiddenSize + 1];
+        final boolean parallel = OmrExecutors.defaultParallelism.getValue() && (shards.length > 1);
+        Backup bestBackup = null;
+        double bestScore = Double.MAX_VALUE;
+        int staleEpochs = 0;
+        int iter = 0;
+
+        for (int ie = 1; ie <= epochs; ie++) {
+            iter++; // For this old engine, iter = epoch
+
+            if (listener != null) {
+                listener.epochStarted(ie);
+            }
+
+            // Fisher-Yates shuffle of patterns order
+            for (int ip = patterns - 1; ip > 0; ip--) {
+                final int j = random.nextInt(ip + 1);
+                final int tmp = order[ip];
+                order[ip] = order[j];
+                order[j] = tmp;
+            }
+
+            // Loop on all mini-batches
+            for (int first = 0; first < patterns; first += batchSize) {
+                final int end = Math.min(patterns, first + batchSize);
+                int shardCount = 0;
+
+                for (int start = first; start < end; start += SHARD_SIZE) {
+                    shards[shardCount++].setRange(start, Math.min(end, start + SHARD_SIZE));
+                }
+
+                computeGradients(shards, shardCount, parallel);
+                updateWeights(
+                        shards,
+                        shardCount,
+                        batchRate / (end - first),
+                        hiddenDeltas,
+                        outputDeltas);
+            }
+
+            // Validation
+            final double score = (testInputs != null) ? getMeanSquaredError(testInputs, testOutputs)
+                    : Double.NaN;
+
+            if (listener != null) {
+                if ((iter % iterPeriod) == 0) {
+                    // Listener gets training error, as with per-pattern training
+                    listener.iterationPeriodDone(iter, getMeanSquaredError(inputs, desiredOutputs));
+                }
+            }
+
+            if (testInputs != null) {
+                logger.debug("Epoch {} validation error {}", ie, score);
+
+                if (listener != null) {
+                    listener.validationDone(ie, score);
+                }
+
+                if (score < bestScore) {
+                    bestScore = score;
+                    bestBackup = backup();
+                    staleEpochs = 0;
+                } else if (++staleEpochs >= patience) {
+                    logger.info("Early stop at epoch {}, best validation error {}", ie, bestScore);
+
+                    if (listener != null) {
+                        listener.earlyStopped(ie, bestScore);
+                    }
+
+                    break;
+                }
+            }
+
+            // Stop required?
+            if (stopping) {
+                logger.info("Stopping.");
+
+                break;
+            }
+        }
+
+        if (bestBackup != null) {
+            restore(bestBackup);
+        }
+
+        final long dur = System.currentTimeMillis() - startTime;
+        logger.info(String.format("Duration %,d seconds, %d iterations on %d patterns", dur / 1_000,
+                                  iter, patterns));
+        stopping = false;
+    }
+
+    //------------------//
+    // computeGradients //
+    //------------------//
+    /**
+     * Compute the gradients of each shard, perhaps in parallel.
+     *
+     * @param shards     the shards at hand
+     * @param shardCount number of shards actually used
+     * @param parallel   true for parallel processing
+     */
+    private void computeGradients (Shard[] shards,
+                                   int shardCount,
+                                   boolean parallel)
+    {
+        if (!parallel || (shardCount == 1)) {
+            for (int is = 0; is < shardCount; is++) {
+                shards[is].computeGradients();
+            }
+        } else {
+            try {
+                OmrExecutors.getForkJoinPool().invoke(new ShardsTask(shards, 0, shardCount - 1));
+            } catch (ProcessingCancellationException pce) {
+                throw pce;
+            } catch (Throwable ex) {
+                logger.warn("Exception raised in ShardsTask", ex);
+                throw new RuntimeException(ex);
+            }
+        }
+    }
+
     //------------//
     // dumpMatrix //
     //------------//
@@ -670,6 +916,73 @@ public class NeuralNetwork
         }
     }
 
+    //---------//
+    // forward //
+    //---------//
+    /**
+     * Re-entrant method, for a batch of vectors.
+     * <p>
+     * Summation order is the same as for a single vector.
+     *
+     * @param ins     input vectors
+     * @param count   number of vectors to process
+     * @param weights applied weights
+     * @param outs    output vectors
+     */
+    private void forward (double[][] ins,
+                          int count,
+                          double[][] weights,
+                          double[][] outs)
+    {
+        for (int o = weights.length - 1; o >= 0; o--) {
+            final double[] ws = weights[o];
+
+            for (int r = 0; r < count; r++) {
+                final double[] in = ins[r];
+                double sum = 0;
+
+                for (int i = ws.length - 2; i >= 0; i--) {
+                    sum += (ws[i + 1] * in[i]);
+                }
+
+                // Bias
+                sum += ws[0];
+
+                outs[r][o] = sigmoid(sum);
+            }
+        }
+    }
+
+    //---------------------//
+    // getMeanSquaredError //
+    //---------------------//
+    /**
+     * Report the mean squared error of the network on the provided patterns.
+     *
+     * @param inputs         the patterns of values for input cells
+     * @param desiredOutputs the corresponding desired values for output cells
+     * @return the mean squared error
+     */
+    private double getMeanSquaredError (double[][] inputs,
+                                        double[][] desiredOutputs)
+    {
+        final double[] hiddens = new double[hiddenSize];
+        final double[] gottenOutputs = new double[outputSize];
+        double mse = 0d;
+
+        for (int ip = 0; ip < inputs.length; ip++) {
+            final double[] patternDesiredOutputs = desiredOutputs[ip];
+            run(inputs[ip], hiddens, gottenOutputs);
+
+            for (int o = outputSize - 1; o >= 0; o--) {
+                double dif = patternDesiredOutputs[o] - gottenOutputs[o];
+                mse += (dif * dif);
+            }
+        }
+
+        return mse / inputs.length;
+    }
+
     private double relu (double val)
     {
         return Math.max(0, val);
@@ -699,6 +1012,53 @@ public class NeuralNetwork
         return val * (1 - val);
     }
 
+    //---------------//
+    // updateWeights //
+    //---------------//
+    /**
+     * Update all weights with the mean gradient of the mini-batch, summed in shard order.
+     *
+     * @param shards       the shards of the mini-batch
+     * @param shardCount   number of shards actually used
+     * @param rate         batch learning rate, divided by number of patterns in the mini-batch
+     * @param hiddenDeltas last updates of hidden weights
+     * @param outputDeltas last updates of output weights
+     */
+    private void updateWeights (Shard[] shards,
+                                int shardCount,
+                                double rate,
+                                double[][] hiddenDeltas,
+                                double[][] outputDeltas)
+    {
+        for (int io = outputSize - 1; io >= 0; io--) {
+            for (int ih = hiddenSize; ih >= 0; ih--) { // Including bias at index 0
+                double grad = 0;
+
+                for (int is = 0; is < shardCount; is++) {
+                    grad += shards[is].outputGrads[io][ih];
+                }
+
+                double dw = (rate * grad) + (momentum * outputDeltas[io][ih]);
+                outputWeights[io][ih] += dw;
+                outputDeltas[io][ih] = dw;
+            }
+        }
+
+        for (int ih = hiddenSize - 1; ih >= 0; ih--) {
+            for (int i = inputSize; i >= 0; i--) { // Including bias at index 0
+                double grad = 0;
+
+                for (int is = 0; is < shardCount; is++) {
+                    grad += shards[is].hiddenGrads[ih][i];
+                }
+
+                double dw = (rate * grad) + (momentum * hiddenDeltas[ih][i]);
+                hiddenWeights[ih][i] += dw;
+                hiddenDeltas[ih][i] = dw;
+            }
+        }
+    }
+
     //-----------//
     // unmarshal //
     //-----------//
@@ -751,13 +1111,16 @@ public class NeuralNetwork
      * Create and initialize a matrix, with random values.
      * Random values are between -amplitude and +amplitude
      *
-     * @param rowNb number of rows
-     * @param colNb number of columns
+     * @param rowNb     number of rows
+     * @param colNb     number of columns
+     * @param amplitude amplitude of random values
+     * @param random    the random generator
      * @return the properly initialized matrix
      */
     private static double[][] createMatrix (int rowNb,
                                             int colNb,
-                                            double amplitude)
+                                            double amplitude,
+                                            Random random)
     {
         double[][] matrix = new double[rowNb][];
 
@@ -766,7 +1129,7 @@ public class NeuralNetwork
             matrix[row] = vector;
 
             for (int col = colNb - 1; col >= 0; col--) {
-                vector[col] = amplitude * (1.0 - (2 * Math.random()));
+                vector[col] = amplitude * (1.0 - (2 * random.nextDouble()));
             }
         }
 
@@ -813,6 +1176,160 @@ public class NeuralNetwork
         }
     }
 
+    //-------//
+    // Shard //
+    //-------//
+    /**
+     * A range of patterns within a mini-batch, with its own buffers to sum up the
+     * gradients of all its patterns.
+     */
+    private class Shard
+    {
+
+        private final double[][] inputs;
+
+        private final double[][] desiredOutputs;
+
+        private final int[] order;
+
+        /** Gradient sums for hidden weights (bias at index 0). */
+        private final double[][] hiddenGrads = new double[hiddenSize][inputSize + 1];
+
+        /** Gradient sums for output weights (bias at index 0). */
+        private final double[][] outputGrads = new double[outputSize][hiddenSize + 1];
+
+        private final double[] hiddens = new double[hiddenSize];
+
+        private final double[] gottenOutputs = new double[outputSize];
+
+        private final double[] hiddenErrors = new double[hiddenSize];
+
+        private final double[] outputErrors = new double[outputSize];
+
+        /** Index of first pattern in order. */
+        private int start;
+
+        /** Index past last pattern in order. */
+        private int stop;
+
+        Shard (double[][] inputs,
+               double[][] desiredOutputs,
+               int[] order)
+        {
+            this.inputs = inputs;
+            this.desiredOutputs = desiredOutputs;
+            this.order = order;
+        }
+
+        void setRange (int start,
+                       int stop)
+        {
+            this.start = start;
+            this.stop = stop;
+        }
+
+        /**
+         * Sum up the gradients of all patterns in shard, using current weights.
+         */
+        void computeGradients ()
+        {
+            for (double[] row : hiddenGrads) {
+                Arrays.fill(row, 0);
+            }
+
+            for (double[] row : outputGrads) {
+                Arrays.fill(row, 0);
+            }
+
+            for (int k = start; k < stop; k++) {
+                final int ip = order[k];
+                final double[] ins = inputs[ip];
+                run(ins, hiddens, gottenOutputs);
+
+                // Compute the output layer error terms
+                for (int io = outputSize - 1; io >= 0; io--) {
+                    double out = gottenOutputs[io];
+                    double dif = desiredOutputs[ip][io] - out;
+                    outputErrors[io] = dif * sigmoidDif(out); // Sigmoid'
+                }
+
+                // Compute the hidden layer error terms
+                for (int ih = hiddenSize - 1; ih >= 0; ih--) {
+                    double sum = 0;
+
+                    for (int o = outputSize - 1; o >= 0; o--) {
+                        sum += (outputErrors[o] * outputWeights[o][ih + 1]);
+                    }
+
+                    hiddenErrors[ih] = sum * sigmoidDif(hiddens[ih]); // Sigmoid'
+                }
+
+                // Accumulate the output gradients
+                for (int io = outputSize - 1; io >= 0; io--) {
+                    final double[] grads = outputGrads[io];
+                    final double err = outputErrors[io];
+
+                    for (int ih = hiddenSize - 1; ih >= 0; ih--) {
+                        grads[ih + 1] += (err * hiddens[ih]);
+                    }
+
+                    grads[0] += err; // Bias
+                }
+
+                // Accumulate the hidden gradients
+                for (int ih = hiddenSize - 1; ih >= 0; ih--) {
+                    final double[] grads = hiddenGrads[ih];
+                    final double err = hiddenErrors[ih];
+
+                    for (int i = inputSize - 1; i >= 0; i--) {
+                        grads[i + 1] += (err * ins[i]);
+                    }
+
+                    grads[0] += err; // Bias
+                }
+            }
+        }
+    }
+
+    //------------//
+    // ShardsTask //
+    //------------//
+    /**
+     * Fork/join task to compute the gradients of a range of shards.
+     */
+    private static class ShardsTask
+            extends RecursiveAction
+    {
+
+        private final Shard[] shards;
+
+        private final int sMin;
+
+        private final int sMax;
+
+        ShardsTask (Shard[] shards,
+                    int sMin,
+                    int sMax)
+        {
+            this.shards = shards;
+            this.sMin = sMin;
+            this.sMax = sMax;
+        }
+
+        @Override
+        protected void compute ()
+        {
+            if (sMin == sMax) {
+                shards[sMin].computeGradients();
+            } else {
+                final int sMid = (sMin + sMax) >>> 1;
+                invokeAll(
+                        new ShardsTask(shards, sMin, sMid),
+                        new ShardsTask(shards, sMid + 1, sMax));
+            }
+        }
+    }
+
     //-------------//
     // StringArray //
     //-------------//
@@ -23,15 +23,27 @@ package org.audiveris.omr.moments;
 
 import org.audiveris.omr.constant.Constant;
 import org.audiveris.omr.constant.ConstantSet;
+import org.audiveris.omr.math.PointsCollector;
 import static org.audiveris.omr.moments.ARTMoments.*;
+import org.audiveris.omr.run.Run;
+import org.audiveris.omr.run.RunTable;
 import org.audiveris.omr.util.StopWatch;
 
+import java.awt.geom.Point2D;
 import java.awt.image.WritableRaster;
+import java.util.Iterator;
 
 /**
  * Class {@code BasicARTExtractor} implements extraction of ART Moments.
  * <p>
  * See MPEG-7 Experimentation Model for the original C++ code
+ * <p>
+ * Basis function values are precomputed on a (2*LUT_RADIUS+1)² grid, in two contiguous float
+ * arrays where all functions of a grid point are adjacent.
+ * Moments can be extracted from foreground points (one bilinear interpolation per point) or
+ * directly from a {@link RunTable}: bilinear weights of each sequence are then summed in
+ * fixed-point on a single grid line, flushed once per sequence into a grid of weights, and
+ * basis functions are finally summed once per weighted grid point.
  *
  * @author Hervé Bitteur
  */
@@ -44,14 +56,45 @@ public class BasicARTExtractor
     // Zernike basis function radius
     private static final int LUT_RADIUS = 50;
 
-    /** Real values of ARTMoments basis function */
-    private static final LUT[][] realLuts = new LUT[ANGULAR][RADIAL];
+    /** Grid size, to cover [-LUT_RADIUS, +LUT_RADIUS]. */
+    private static final int LUT_SIZE = 1 + (2 * LUT_RADIUS);
+
+    /** Number of basis functions, function (p,r) being at index p * RADIAL + r. */
+    private static final int FUNCTIONS = ANGULAR * RADIAL;
+
+    /** Number of fractional bits for fixed-point grid coordinates. */
+    private static final int FRACTION_BITS = 16;
+
+    /** Fixed-point value of 1. */
+    private static final long ONE = 1L << FRACTION_BITS;
+
+    /** Mask for fractional part. */
+    private static final long FRACTION_MASK = ONE - 1;
+
+    /** Fixed-point value of max grid coordinate. */
+    private static final long MAX_FIXED = (LUT_SIZE - 1) * ONE;
+
+    /** Real values of basis functions, at [(x * LUT_SIZE + y) * FUNCTIONS + function]. */
+    private static final float[] realBasis = new float[LUT_SIZE * LUT_SIZE * FUNCTIONS];
+
+    /** Imaginary values of basis functions, at [(x * LUT_SIZE + y) * FUNCTIONS + function]. */
+    private static final float[] imagBasis = new float[LUT_SIZE * LUT_SIZE * FUNCTIONS];
 
-    /** Imaginary values of ARTMoments basis function */
-    private static final LUT[][] imagLuts = new LUT[ANGULAR][RADIAL];
+    /** Which grid points lie within unit circle (basis functions are 0 elsewhere). */
+    private static final boolean[] inCircle = new boolean[LUT_SIZE * LUT_SIZE];
+
+    /** Per-thread accumulation buffers, for run-based extraction. */
+    private static final ThreadLocal<Scratch> scratches = new ThreadLocal<Scratch>()
+    {
+        @Override
+        protected Scratch initialValue ()
+        {
+            return new Scratch();
+        }
+    };
 
     static {
-        initLUT();
+        initBasis();
     }
 
     /**
@@ -61,6 +104,44 @@ public class BasicARTExtractor
     {
     }
 
+    //---------//
+    // extract //
+    //---------//
+    /**
+     * Extract moments from the foreground runs of provided table.
+     * <p>
+     * Coordinates are relative to table, since moments are translation invariant.
+     *
+     * @param table the (non-empty) glyph run table
+     */
+    public void extract (RunTable table)
+    {
+        if (!constants.useRuns.isSet()) {
+            final PointsCollector collector = new PointsCollector(null, table.getWeight());
+            table.cumulate(collector, null);
+            extract(collector.getXValues(), collector.getYValues(), collector.getSize());
+
+            return;
+        }
+
+        if (descriptor == null) {
+            throw new IllegalArgumentException(
+                    getClass().getSimpleName() + " has no target descriptor");
+        }
+
+        if (table.getWeight() == 0) {
+            throw new IllegalArgumentException(
+                    getClass().getSimpleName() + " on inconsistent input");
+        }
+
+        xx = null;
+        yy = null;
+        mass = table.getWeight();
+
+        measureRuns(table);
+        extractRuns(table);
+    }
+
     @Override
     public void reconstruct (WritableRaster raster)
     {
@@ -73,94 +154,191 @@ public class BasicARTExtractor
     @Override
     protected void extractMoments ()
     {
-        final LUT anyLut = realLuts[0][0]; // Just for LUT dimensions
-        final int lutRadius = anyLut.getRadius();
+        final int max = LUT_SIZE - 1;
         final double centerX = center.getX();
         final double centerY = center.getY();
 
         // Coefficients, real part & imaginary part
-        final double[][] coeffReal = new double[ANGULAR][RADIAL];
-        final double[][] coeffImag = new double[ANGULAR][RADIAL];
+        final double[] coeffReal = new double[FUNCTIONS];
+        final double[] coeffImag = new double[FUNCTIONS];
 
         for (int i = 0; i < mass; i++) {
-            // Map image coordinates to LUT coordinates
+            // Map image coordinates to grid coordinates
             double x = xx[i] - centerX;
             double y = yy[i] - centerY;
-            double lx = ((x * lutRadius) / radius) + lutRadius;
-            double ly = ((y * lutRadius) / radius) + lutRadius;
-
-            // Summation of basis function
-            if (anyLut.contains(lx, ly)) {
-                for (int p = 0; p < ANGULAR; p++) {
-                    for (int r = 0; r < RADIAL; r++) {
-                        coeffReal[p][r] += realLuts[p][r].interpolate(lx, ly);
-                        coeffImag[p][r] -= imagLuts[p][r].interpolate(lx, ly);
+            double lx = ((x * LUT_RADIUS) / radius) + LUT_RADIUS;
+            double ly = ((y * LUT_RADIUS) / radius) + LUT_RADIUS;
+
+            // Summation of basis functions, bilinearly interpolated
+            if ((lx >= 0) && (lx < LUT_SIZE) && (ly >= 0) && (ly < LUT_SIZE)) {
+                final int ix = (int) lx;
+                final int iy = (int) ly;
+
+                // Beware of point on grid border
+                final double dx = (ix == max) ? 0 : (lx - ix);
+                final double dy = (iy == max) ? 0 : (ly - iy);
+                final int cell = (ix * LUT_SIZE) + iy;
+
+                accumulate(coeffReal, coeffImag, cell, (1 - dx) * (1 - dy));
+
+                if (dy != 0) {
+                    accumulate(coeffReal, coeffImag, cell + 1, (1 - dx) * dy);
+                }
+
+                if (dx != 0) {
+                    accumulate(coeffReal, coeffImag, cell + LUT_SIZE, dx * (1 - dy));
+
+                    if (dy != 0) {
+                        accumulate(coeffReal, coeffImag, cell + LUT_SIZE + 1, dx * dy);
                     }
                 }
             }
         }
 
-        // Save to descriptor
-        for (int p = 0; p < ANGULAR; p++) {
-            for (int r = 0; r < RADIAL; r++) {
-                double real = coeffReal[p][r] / mass;
-                double imag = coeffImag[p][r] / mass;
-                descriptor.setMoment(p, r, Math.hypot(imag, real));
+        saveMoments(coeffReal, coeffImag);
+    }
 
-                //                descriptor.setArgument(p, r, Math.atan2(imag, real));
-                //                descriptor.setReal(p, r, real);
-                //                descriptor.setImag(p, r, imag);
-            }
+    //------------//
+    // accumulate //
+    //------------//
+    /**
+     * Add the weighted basis functions of a grid point to the coefficients.
+     */
+    private static void accumulate (double[] coeffReal,
+                                    double[] coeffImag,
+                                    int cell,
+                                    double weight)
+    {
+        if (!inCircle[cell]) {
+            return;
+        }
+
+        final int base = cell * FUNCTIONS;
+
+        for (int f = 0; f < FUNCTIONS; f++) {
+            coeffReal[f] += weight * realBasis[base + f];
+            coeffImag[f] -= weight * imagBasis[base + f];
         }
     }
 
-    //---------//
-    // initLUT //
-    //---------//
+    //-------------//
+    // extractRuns //
+    //-------------//
     /**
-     * Compute, once for all, the lookup table values.
+     * Run-based extraction core.
+     * <p>
+     * Along a sequence, the cross grid coordinate is constant, hence bilinear weights are first
+     * summed on the "along" grid line, then split once between the two cross grid lines.
      */
-    private static void initLUT ()
+    private void extractRuns (RunTable table)
     {
-        StopWatch watch = new StopWatch("LUT");
-        watch.start("initLUT");
+        final Scratch scratch = scratches.get();
+        final long[] cells = scratch.cells;
+        final long[] line = scratch.line;
+        final boolean vertical = table.getOrientation().isVertical();
+        final double centerAlong = vertical ? center.getY() : center.getX();
+        final double centerAcross = vertical ? center.getX() : center.getY();
+        final int alongStride = vertical ? 1 : LUT_SIZE;
+        final int acrossStride = vertical ? LUT_SIZE : 1;
 
-        // Allocate LUT's
-        for (int p = 0; p < ANGULAR; p++) {
-            for (int r = 0; r < RADIAL; r++) {
-                realLuts[p][r] = new BasicLUT(LUT_RADIUS);
-                imagLuts[p][r] = new BasicLUT(LUT_RADIUS);
+        for (int p = 0, pBreak = table.getSize(); p < pBreak; p++) {
+            if (table.isSequenceEmpty(p)) {
+                continue;
+            }
+
+            int lineMin = LUT_SIZE - 1;
+            int lineMax = 0;
+
+            for (Iterator<Run> it = table.iterator(p); it.hasNext();) {
+                final Run run = it.next();
+                final int start = run.getStart();
+                final int stop = run.getStop();
+                lineMin = Math.min(lineMin, (int) (toFixed(start, centerAlong) >> FRACTION_BITS));
+                lineMax = Math.max(lineMax, (int) (toFixed(stop, centerAlong) >> FRACTION_BITS));
+
+                for (int c = start; c <= stop; c++) {
+                    final long l = toFixed(c, centerAlong);
+                    final int index = (int) (l >> FRACTION_BITS);
+                    final long frac = l & FRACTION_MASK;
+                    line[index] += (ONE - frac);
+
+                    if (frac != 0) {
+                        line[index + 1] += frac;
+                    }
+                }
+            }
+
+            lineMax = Math.min(lineMax + 1, LUT_SIZE - 1);
+
+            // Flush line weights into grid weights
+            final long a = toFixed(p, centerAcross);
+            final int across = (int) (a >> FRACTION_BITS);
+            final long frac = a & FRACTION_MASK;
+
+            for (int k = lineMin; k <= lineMax; k++) {
+                final long w = line[k];
+
+                if (w != 0) {
+                    line[k] = 0;
+
+                    final int cell = (k * alongStride) + (across * acrossStride);
+                    cells[cell] += (w * (ONE - frac));
+
+                    if (frac != 0) {
+                        cells[cell + acrossStride] += (w * frac);
+                    }
+                }
+            }
+        }
+
+        // Summation of basis functions, once per weighted grid point
+        final double[] coeffReal = new double[FUNCTIONS];
+        final double[] coeffImag = new double[FUNCTIONS];
+        final double unit = 1.0 / (ONE * ONE);
+
+        for (int cell = 0; cell < cells.length; cell++) {
+            final long w = cells[cell];
+
+            if (w != 0) {
+                cells[cell] = 0;
+                accumulate(coeffReal, coeffImag, cell, w * unit);
             }
         }
 
-        final LUT anyLut = realLuts[0][0]; // Just for template
-        final int lutSize = anyLut.getSize();
-        final int lutRadius = anyLut.getRadius();
+        saveMoments(coeffReal, coeffImag);
+    }
+
+    //-----------//
+    // initBasis //
+    //-----------//
+    /**
+     * Compute, once for all, the basis function values.
+     */
+    private static void initBasis ()
+    {
+        StopWatch watch = new StopWatch("LUT");
+        watch.start("initBasis");
 
-        for (int x = 0; x < lutSize; x++) {
-            double tx = (x - lutRadius) / (double) lutRadius; // [-1..+1]
+        for (int x = 0; x < LUT_SIZE; x++) {
+            double tx = (x - LUT_RADIUS) / (double) LUT_RADIUS; // [-1..+1]
 
-            for (int y = 0; y < lutSize; y++) {
-                double ty = (y - lutRadius) / (double) lutRadius; // [-1..+1]
+            for (int y = 0; y < LUT_SIZE; y++) {
+                double ty = (y - LUT_RADIUS) / (double) LUT_RADIUS; // [-1..+1]
                 double rad = Math.hypot(tx, ty); // [0..sqrt(2)]
 
+                // On or outside unit circle, values are left to 0
                 if (rad < 1) {
                     // We are within unit circle
-                    double angle = Math.atan2(ty, tx);
+                    final int cell = (x * LUT_SIZE) + y;
+                    final double angle = Math.atan2(ty, tx);
+                    inCircle[cell] = true;
 
                     for (int p = 0; p < ANGULAR; p++) {
                         for (int r = 0; r < RADIAL; r++) {
+                            final int index = (cell * FUNCTIONS) + (p * RADIAL) + r;
                             double temp = Math.cos(rad * Math.PI * r);
-                            realLuts[p][r].assign(x, y, temp * Math.cos(angle * p));
-                            imagLuts[p][r].assign(x, y, temp * Math.sin(angle * p));
-                        }
-                    }
-                } else {
-                    // We are on or outside unit circle, so let's set value to 0
-                    for (int p = 0; p < ANGULAR; p++) {
-                        for (int r = 0; r < RADIAL; r++) {
-                            realLuts[p][r].assign(x, y, 0);
-                            imagLuts[p][r].assign(x, y, 0);
+                            realBasis[index] = (float) (temp * Math.cos(angle * p));
+                            imagBasis[index] = (float) (temp * Math.sin(angle * p));
                         }
                     }
                 }
@@ -172,6 +350,92 @@ public class BasicARTExtractor
         }
     }
 
+    //-------------//
+    // measureRuns //
+    //-------------//
+    /**
+     * Compute mass center and radius, using run ends only.
+     */
+    private void measureRuns (RunTable table)
+    {
+        long sumAlong = 0; // Twice the sum of along coordinates
+        long sumAcross = 0;
+        int minAlong = Integer.MAX_VALUE;
+        int maxAlong = Integer.MIN_VALUE;
+        int minAcross = Integer.MAX_VALUE;
+        int maxAcross = Integer.MIN_VALUE;
+
+        for (int p = 0, pBreak = table.getSize(); p < pBreak; p++) {
+            if (table.isSequenceEmpty(p)) {
+                continue;
+            }
+
+            minAcross = Math.min(minAcross, p);
+            maxAcross = Math.max(maxAcross, p);
+
+            for (Iterator<Run> it = table.iterator(p); it.hasNext();) {
+                final Run run = it.next();
+                final int length = run.getLength();
+                sumAlong += ((long) length * (run.getStart() + run.getStop()));
+                sumAcross += ((long) length * p);
+                minAlong = Math.min(minAlong, run.getStart());
+                maxAlong = Math.max(maxAlong, run.getStop());
+            }
+        }
+
+        final double centerAlong = sumAlong / (2.0 * mass);
+        final double centerAcross = sumAcross / (double) mass;
+        final double dAlong = Math.max(
+                Double.MIN_VALUE,
+                Math.max(centerAlong - minAlong, maxAlong - centerAlong));
+        final double dAcross = Math.max(
+                Double.MIN_VALUE,
+                Math.max(centerAcross - minAcross, maxAcross - centerAcross));
+
+        radius = Math.hypot(dAlong, dAcross);
+        center = table.getOrientation().isVertical()
+                ? new Point2D.Double(centerAcross, centerAlong)
+                : new Point2D.Double(centerAlong, centerAcross);
+    }
+
+    //-------------//
+    // saveMoments //
+    //-------------//
+    private void saveMoments (double[] coeffReal,
+                              double[] coeffImag)
+    {
+        for (int p = 0; p < ANGULAR; p++) {
+            for (int r = 0; r < RADIAL; r++) {
+                final int f = (p * RADIAL) + r;
+                double real = coeffReal[f] / mass;
+                double imag = coeffImag[f] / mass;
+                descriptor.setMoment(p, r, Math.hypot(imag, real));
+
+                //                descriptor.setArgument(p, r, Math.atan2(imag, real));
+                //                descriptor.setReal(p, r, real);
+                //                descriptor.setImag(p, r, imag);
+            }
+        }
+    }
+
+    //---------//
+    // toFixed //
+    //---------//
+    /**
+     * Map an image coordinate to a fixed-point grid coordinate.
+     *
+     * @param coord  image coordinate
+     * @param center image coordinate of mass center
+     * @return fixed-point grid coordinate, within [0, MAX_FIXED]
+     */
+    private long toFixed (int coord,
+                          double center)
+    {
+        final long l = (long) (((((coord - center) * LUT_RADIUS) / radius) + LUT_RADIUS) * ONE);
+
+        return Math.max(0, Math.min(l, MAX_FIXED));
+    }
+
     //-----------//
     // Constants //
     //-----------//
@@ -182,5 +446,25 @@ public class BasicARTExtractor
         private final Constant.Boolean printWatch = new Constant.Boolean(
                 false,
                 "Should we print out the stop watch?");
+
+        private final Constant.Boolean useRuns = new Constant.Boolean(
+                true,
+                "Should we extract moments directly from runs?");
+    }
+
+    //---------//
+    // Scratch //
+    //---------//
+    /**
+     * Accumulation buffers, always left zeroed after use.
+     */
+    private static class Scratch
+    {
+
+        /** Fixed-point weight (in ONE² units) per grid point. */
+        final long[] cells = new long[LUT_SIZE * LUT_SIZE];
+
+        /** Fixed-point weight (in ONE units) per along grid coordinate. */
+        final long[] line = new long[LUT_SIZE];
     }
 }
@@ -0,0 +1,139 @@
+//------------------------------------------------------------------------------------------------//
+//                                                                                                //
+//                                    L a z y R u n T a b l e                                     //
+//                                                                                                //
+//------------------------------------------------------------------------------------------------//
+// <editor-fold defaultstate="collapsed" desc="hdr">
+//
+//  Copyright © Audiveris 2018. All rights reserved.
+//
+//  This program is free software: you can redistribute it and/or modify it under the terms of the
+//  GNU Affero General Public License as published by the Free Software Foundation, either version
+//  3 of the License, or (at your option) any later version.
+//
+//  This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+//  without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+//  See the GNU Affero General Public License for more details.
+//
+//  You should have received a copy of the GNU Affero General Public License along with this
+//  program.  If not, see <http://www.gnu.org/licenses/>.
+//------------------------------------------------------------------------------------------------//
+// </editor-fold>
+package org.audiveris.omr.run;
+
+import org.audiveris.omr.constant.Constant;
+import org.audiveris.omr.constant.ConstantSet;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Class {@code LazyRunTable} is a read-only {@link RunTable} whose sequences are
+ * decoded on demand from the binary content of a stored table (see {@link RunTableCodec}).
+ * <p>
+ * Only the compact binary content is kept in memory, plus a bounded cache of the most recently
+ * decoded sequences.
+ * Hence, methods such as {@link #get(int, int)}, {@link #iterator(int)} or
+ * {@link #fillTable} can be used on a region of the table without materializing the whole table.
+ * <p>
+ * Any attempt to modify the table raises an {@link UnsupportedOperationException}.
+ * A modifiable table can always be obtained via {@link #copy()}.
+ *
+ * @author Hervé Bitteur
+ */
+public class LazyRunTable
+        extends RunTable
+{
+
+    private static final Constants constants = new Constants();
+
+    /** Marker for a decoded empty sequence. */
+    private static final RunSequence EMPTY = new RunSequence(new int[0]);
+
+    /** The reader on binary content. */
+    private final RunTableCodec.Reader reader;
+
+    /** Cache of decoded sequences, in access order. */
+    private final Map<Integer, RunSequence> cache;
+
+    /**
+     * Creates a new {@code LazyRunTable} object, with default cache size.
+     *
+     * @param reader the reader on binary content
+     */
+    public LazyRunTable (RunTableCodec.Reader reader)
+    {
+        this(reader, constants.maxCachedSequences.getValue());
+    }
+
+    /**
+     * Creates a new {@code LazyRunTable} object.
+     *
+     * @param reader    the reader on binary content
+     * @param cacheSize maximum number of decoded sequences kept in cache
+     */
+    public LazyRunTable (RunTableCodec.Reader reader,
+                         final int cacheSize)
+    {
+        super(reader.getOrientation(), reader.getWidth(), reader.getHeight());
+        this.reader = reader;
+
+        cache = new LinkedHashMap<Integer, RunSequence>(16, 0.75f, true)
+        {
+            @Override
+            protected boolean removeEldestEntry (Map.Entry<Integer, RunSequence> eldest)
+            {
+                return size() > cacheSize;
+            }
+        };
+    }
+
+    //-----------------//
+    // checkModifiable //
+    //-----------------//
+    @Override
+    void checkModifiable ()
+    {
+        throw new UnsupportedOperationException("Read-only " + this);
+    }
+
+    //-------------//
+    // getSequence //
+    //-------------//
+    @Override
+    RunSequence getSequence (int index)
+    {
+        RunSequence seq;
+
+        synchronized (cache) {
+            seq = cache.get(index);
+        }
+
+        if (seq == null) {
+            seq = reader.decode(index);
+
+            if (seq == null) {
+                seq = EMPTY;
+            }
+
+            synchronized (cache) {
+                cache.put(index, seq);
+            }
+        }
+
+        return (seq == EMPTY) ? null : seq;
+    }
+
+    //-----------//
+    // Constants //
+    //-----------//
+    private static class Constants
+            extends ConstantSet
+    {
+
+        private final Constant.Integer maxCachedSequences = new Constant.Integer(
+                "sequences",
+                512,
+                "Maximum number of decoded sequences cached by a lazy run table");
+    }
+}
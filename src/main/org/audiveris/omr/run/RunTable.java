@@ -204,6 +204,7 @@ public class RunTable
             throw new RuntimeException("Illegal run length " + length);
         }
 
+        checkModifiable();
         weight = null; // Invalidate chached data
 
         // Look for background where foreground run is to take place
@@ -307,7 +308,9 @@ public class RunTable
     // computeArtMoments //
     //-------------------//
     /**
-     * Compute the Angular Radial Transform moments for this runTable
+     * Compute the Angular Radial Transform moments for this runTable.
+     * <p>
+     * Moments are translation invariant, hence they are extracted directly from the table runs.
      *
      * @param left abscissa of topLeft corner (TODO: useful?)
      * @param top  ordinate of topLeft corner (TODO: useful?)
@@ -316,16 +319,12 @@ public class RunTable
     public ARTMoments computeArtMoments (int left,
                                          int top)
     {
-        // Retrieve glyph foreground points
-        final PointsCollector collector = new PointsCollector(null, getWeight());
-        cumulate(collector, new Point(left, top));
-
         ///ARTMoments artMoments = new QuantizedARTMoments();
         ARTMoments artMoments = new BasicARTMoments();
 
         BasicARTExtractor extractor = new BasicARTExtractor();
         extractor.setDescriptor(artMoments);
-        extractor.extract(collector.getXValues(), collector.getYValues(), collector.getSize());
+        extractor.extract(this);
 
         return artMoments;
     }
@@ -420,9 +419,9 @@ public class RunTable
         RunTable clone = new RunTable(orientation, width, height);
 
         for (int i = 0; i < sequences.length; i++) {
-            RunSequence seq = sequences[i];
+            RunSequence seq = getSequence(i);
 
-            if (seq != null) {
+            if ((seq != null) && (seq.rle != null)) {
                 int[] rle = new int[seq.rle.length];
                 System.arraycopy(seq.rle, 0, rle, 0, seq.rle.length);
                 clone.sequences[i] = new RunSequence(rle);
@@ -554,7 +553,7 @@ public class RunTable
         System.out.println(toString());
 
         for (int i = 0; i < sequences.length; i++) {
-            final RunSequence seq = sequences[i];
+            final RunSequence seq = getSequence(i);
             System.out.printf("%4d:%s%n", i, (seq != null) ? seq.toString() : "null");
         }
     }
@@ -573,7 +572,7 @@ public class RunTable
             return false;
         }
 
-        if (getClass() != obj.getClass()) {
+        if (!(obj instanceof RunTable)) {
             return false;
         }
 
@@ -591,7 +590,13 @@ public class RunTable
             return false;
         }
 
-        return Arrays.deepEquals(this.sequences, other.sequences);
+        for (int i = 0; i < sequences.length; i++) {
+            if (!Objects.equals(getSequence(i), other.getSequence(i))) {
+                return false;
+            }
+        }
+
+        return true;
     }
 
     //-----------//
@@ -927,7 +932,9 @@ public class RunTable
     {
         int total = 0;
 
-        for (RunSequence seq : sequences) {
+        for (int i = 0; i < sequences.length; i++) {
+            final RunSequence seq = getSequence(i);
+
             if (seq != null) {
                 total += seq.size();
             }
@@ -1167,7 +1174,7 @@ public class RunTable
      */
     public boolean isSequenceEmpty (int index)
     {
-        return sequences[index] == null;
+        return getSequence(index) == null;
     }
 
     //----------//
@@ -1412,6 +1419,7 @@ public class RunTable
     public void setSequence (int index,
                              List<? extends Run> list)
     {
+        checkModifiable();
         sequences[index] = encode(list);
     }
 
@@ -1633,7 +1641,7 @@ public class RunTable
      * @param index the desired index
      * @return the MODIFIABLE sequence of runs
      */
-    final RunSequence getSequence (int index)
+    RunSequence getSequence (int index)
     {
         return sequences[index];
     }
@@ -1650,9 +1658,23 @@ public class RunTable
     final void setSequence (int index,
                             RunSequence seq)
     {
+        checkModifiable();
         sequences[index] = seq;
     }
 
+    //-----------------//
+    // checkModifiable //
+    //-----------------//
+    /**
+     * (package private) Check that this table can be modified.
+     *
+     * @throws UnsupportedOperationException if table is read-only
+     */
+    void checkModifiable ()
+    {
+        // Void by default
+    }
+
     //--------------//
     // afterMarshal //
     //--------------//
@@ -1728,6 +1750,16 @@ public class RunTable
         {
         }
 
+        /**
+         * (package private) Report the underlying RLE array.
+         *
+         * @return the rle array, perhaps null
+         */
+        final int[] getRle ()
+        {
+            return rle;
+        }
+
         @Override
         public boolean equals (Object obj)
         {
@@ -1793,6 +1825,9 @@ public class RunTable
         /** The index of sequence being iterated upon. */
         private final int index;
 
+        /** The sequence being iterated upon. */
+        private RunSequence seq;
+
         /**
          * Current position in sequence array.
          * Always on an even position, pointing to the length of Foreground to be returned by
@@ -1812,9 +1847,9 @@ public class RunTable
         Itr (int index)
         {
             this.index = index;
+            seq = getSequence(index);
 
             // Check the case of an initial background run
-            final RunSequence seq = sequences[index];
 
             if (seq != null) {
                 final int[] rle = seq.rle;
@@ -1839,8 +1874,6 @@ public class RunTable
         @Override
         public final boolean hasNext ()
         {
-            final RunSequence seq = sequences[index];
-
             if (seq == null) {
                 return false;
             }
@@ -1867,7 +1900,7 @@ public class RunTable
                 throw new NoSuchElementException();
             }
 
-            final int[] rle = sequences[index].rle;
+            final int[] rle = seq.rle;
 
             // ...v.. cursor before next()
             // ...FBF
@@ -1894,13 +1927,15 @@ public class RunTable
         @Override
         public void remove ()
         {
-            final int[] rle = sequences[index].rle;
+            checkModifiable();
+
+            final int[] rle = seq.rle;
             int c = cursor - 2;
 
             if (c == 0) {
                 if (c == (rle.length - 1)) {
                     // F -> null
-                    sequences[index] = null;
+                    sequences[index] = seq = null;
                 } else {
                     // (FB)F... -> 0(B')F...
                     rle[1] = rle[0] + rle[1];
@@ -1920,9 +1955,9 @@ public class RunTable
                 }
 
                 if ((newRle.length == 1) && (newRle[0] == 0)) {
-                    sequences[index] = null;
+                    sequences[index] = seq = null;
                 } else {
-                    sequences[index] = new RunSequence(newRle);
+                    sequences[index] = seq = new RunSequence(newRle);
                 }
 
                 cursor = c;
@@ -0,0 +1,445 @@
+//------------------------------------------------------------------------------------------------//
+//                                                                                                //
+//                                   R u n T a b l e C o d e c                                    //
+//                                                                                                //
+//------------------------------------------------------------------------------------------------//
+// <editor-fold defaultstate="collapsed" desc="hdr">
+//
+//  Copyright © Audiveris 2018. All rights reserved.
+//
+//  This program is free software: you can redistribute it and/or modify it under the terms of the
+//  GNU Affero General Public License as published by the Free Software Foundation, either version
+//  3 of the License, or (at your option) any later version.
+//
+//  This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+//  without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+//  See the GNU Affero General Public License for more details.
+//
+//  You should have received a copy of the GNU Affero General Public License along with this
+//  program.  If not, see <http://www.gnu.org/licenses/>.
+//------------------------------------------------------------------------------------------------//
+// </editor-fold>
+package org.audiveris.omr.run;
+
+import org.audiveris.omr.run.RunTable.RunSequence;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Class {@code RunTableCodec} handles the compact binary on-disk format of a
+ * {@link RunTable}.
+ * <p>
+ * The format is meant to be read through a (memory-mapped when possible) {@link ByteBuffer}, each
+ * run sequence being decoded only when first accessed.
+ * All values are big-endian.
+ *
+ * <pre>
+ * header:  magic (int), version (int), orientation ordinal (int),
+ *          width (int), height (int), sequence count N (int)
+ * index:   N+1 offsets (int), relative to data start.
+ *          Sequence i occupies bytes [offset[i], offset[i+1]), an empty range for a null sequence
+ * data:    for each sequence, its RLE cells as unsigned varints (7 bits per byte, low bits first)
+ * </pre>
+ *
+ * Legacy XML tables remain readable through {@link RunTable#unmarshal(Path)}.
+ *
+ * @author Hervé Bitteur
+ */
+public class RunTableCodec
+{
+
+    private static final Logger logger = LoggerFactory.getLogger(RunTableCodec.class);
+
+    /** File extension for binary run tables. */
+    public static final String BINARY_EXTENSION = ".bin";
+
+    /** File extension for legacy XML run tables. */
+    public static final String XML_EXTENSION = ".xml";
+
+    /** Magic number: "OMRT". */
+    private static final int MAGIC = 0x4F4D5254;
+
+    /** Current format version. */
+    private static final int VERSION = 1;
+
+    /** Header size in bytes. */
+    private static final int HEADER_SIZE = 6 * 4;
+
+    /** Marker for a decoded empty sequence. */
+    private static final RunSequence EMPTY = new RunSequence(new int[0]);
+
+    /**
+     * Not meant to be instantiated.
+     */
+    private RunTableCodec ()
+    {
+    }
+
+    //-------//
+    // isXml //
+    //-------//
+    /**
+     * Tell whether the provided file is a legacy XML run table, according to its name.
+     *
+     * @param path the table file
+     * @return true for XML format
+     */
+    public static boolean isXml (Path path)
+    {
+        return path.getFileName().toString().endsWith(XML_EXTENSION);
+    }
+
+    //------//
+    // load //
+    //------//
+    /**
+     * Load a run table from the provided file, whatever its format (binary or legacy XML).
+     *
+     * @param path the table file
+     * @return the loaded table, or null if failed
+     */
+    public static RunTable load (Path path)
+    {
+        if (isXml(path)) {
+            return RunTable.unmarshal(path);
+        }
+
+        try {
+            return new Reader(open(path)).getTable();
+        } catch (IOException ex) {
+            logger.warn("RunTable. Error reading " + path + " " + ex, ex);
+
+            return null;
+        }
+    }
+
+    //------//
+    // open //
+    //------//
+    /**
+     * Open a binary run table file as a buffer.
+     * <p>
+     * A file from the default file system is memory-mapped, while a file from another file system
+     * (such as the zip file system of a book) is read in a heap buffer, which remains usable
+     * once the file system is closed.
+     *
+     * @param path the table file
+     * @return the read-only buffer on file content
+     * @throws IOException if file cannot be read
+     */
+    public static ByteBuffer open (Path path)
+            throws IOException
+    {
+        if (path.getFileSystem() == FileSystems.getDefault()) {
+            try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+                return channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            }
+        } else {
+            return ByteBuffer.wrap(Files.readAllBytes(path)).asReadOnlyBuffer();
+        }
+    }
+
+    //-------//
+    // write //
+    //-------//
+    /**
+     * Write the provided table in binary format to the provided path.
+     *
+     * @param table the table to write
+     * @param path  target file
+     * @throws IOException on IO error
+     */
+    public static void write (RunTable table,
+                              Path path)
+            throws IOException
+    {
+        try (OutputStream os = Files.newOutputStream(path)) {
+            write(table, os);
+        }
+    }
+
+    //-------//
+    // write //
+    //-------//
+    /**
+     * Write the provided table in binary format to the provided stream.
+     *
+     * @param table the table to write
+     * @param os    the output stream, which is not closed by this method
+     * @throws IOException on IO error
+     */
+    public static void write (RunTable table,
+                              OutputStream os)
+            throws IOException
+    {
+        final int count = table.getSize();
+        final int[] offsets = new int[count + 1];
+        byte[] data = new byte[Math.max(1024, count * 8)];
+        int pos = 0;
+
+        for (int i = 0; i < count; i++) {
+            offsets[i] = pos;
+
+            final RunSequence seq = table.getSequence(i);
+            final int[] rle = (seq != null) ? seq.getRle() : null;
+
+            if (rle != null) {
+                // Worst case: 5 bytes per cell
+                final int needed = pos + (5 * rle.length);
+
+                if (needed > data.length) {
+                    data = Arrays.copyOf(data, Math.max(2 * data.length, needed));
+                }
+
+                for (int val : rle) {
+                    while ((val & ~0x7F) != 0) {
+                        data[pos++] = (byte) ((val & 0x7F) | 0x80);
+                        val >>>= 7;
+                    }
+
+                    data[pos++] = (byte) val;
+                }
+            }
+        }
+
+        offsets[count] = pos;
+
+        final DataOutputStream dos = new DataOutputStream(os);
+        dos.writeInt(MAGIC);
+        dos.writeInt(VERSION);
+        dos.writeInt(table.getOrientation().ordinal());
+        dos.writeInt(table.getWidth());
+        dos.writeInt(table.getHeight());
+        dos.writeInt(count);
+
+        for (int offset : offsets) {
+            dos.writeInt(offset);
+        }
+
+        dos.write(data, 0, pos);
+        dos.flush();
+    }
+
+    //--------//
+    // Reader //
+    //--------//
+    /**
+     * Read access to a binary run table, with lazy decoding of each sequence.
+     * <p>
+     * The underlying buffer is only read via absolute methods, and a decoded sequence is a
+     * pure function of buffer content, so concurrent decoding of the same sequence by several
+     * threads is harmless.
+     */
+    public static class Reader
+    {
+
+        /** Buffer on binary content. */
+        private final ByteBuffer buffer;
+
+        /** Orientation of the table. */
+        private final Orientation orientation;
+
+        /** Table width. */
+        private final int width;
+
+        /** Table height. */
+        private final int height;
+
+        /** Number of sequences. */
+        private final int count;
+
+        /** Position of data start in buffer. */
+        private final int dataStart;
+
+        /** Sequences already decoded, if any (an empty sequence is cached as EMPTY). */
+        private final AtomicReferenceArray<RunSequence> decoded;
+
+        /**
+         * Create a reader on provided buffer.
+         *
+         * @param buffer the buffer on binary content
+         * @throws IOException if content is not a valid binary run table
+         */
+        public Reader (ByteBuffer buffer)
+                throws IOException
+        {
+            this.buffer = buffer;
+
+            if ((buffer.limit() < HEADER_SIZE) || (buffer.getInt(0) != MAGIC)) {
+                throw new IOException("Not a binary run table");
+            }
+
+            final int version = buffer.getInt(4);
+
+            if (version != VERSION) {
+                throw new IOException("Unsupported binary run table version " + version);
+            }
+
+            final int ordinal = buffer.getInt(8);
+
+            if ((ordinal < 0) || (ordinal >= Orientation.values().length)) {
+                throw new IOException("Invalid binary run table orientation " + ordinal);
+            }
+
+            orientation = Orientation.values()[ordinal];
+            width = buffer.getInt(12);
+            height = buffer.getInt(16);
+            count = buffer.getInt(20);
+
+            if ((width < 0) || (height < 0)
+                || (count != (orientation.isVertical() ? width : height))) {
+                throw new IOException(
+                        "Invalid binary run table dimension " + width + "x" + height + " count:"
+                        + count);
+            }
+
+            // Offsets table, then data up to last offset, must fit in buffer
+            final long offsetsEnd = HEADER_SIZE + (4L * (count + 1));
+
+            if (offsetsEnd > buffer.limit()) {
+                throw new IOException("Truncated binary run table offsets");
+            }
+
+            dataStart = (int) offsetsEnd;
+
+            final int dataSize = buffer.getInt(HEADER_SIZE + (4 * count));
+
+            if ((dataSize < 0) || ((offsetsEnd + dataSize) > buffer.limit())) {
+                throw new IOException("Truncated binary run table data");
+            }
+
+            decoded = new AtomicReferenceArray<>(count);
+        }
+
+        /**
+         * Report the table height.
+         *
+         * @return height
+         */
+        public int getHeight ()
+        {
+            return height;
+        }
+
+        /**
+         * Report the runs orientation.
+         *
+         * @return orientation
+         */
+        public Orientation getOrientation ()
+        {
+            return orientation;
+        }
+
+        /**
+         * Report the number of sequences.
+         *
+         * @return sequences count
+         */
+        public int getSize ()
+        {
+            return count;
+        }
+
+        /**
+         * Report the table with all its sequences decoded.
+         *
+         * @return the full table
+         */
+        public RunTable getTable ()
+        {
+            final RunTable table = new RunTable(orientation, width, height);
+
+            for (int i = 0; i < count; i++) {
+                table.setSequence(i, getSequence(i));
+            }
+
+            return table;
+        }
+
+        /**
+         * Report the table width.
+         *
+         * @return width
+         */
+        public int getWidth ()
+        {
+            return width;
+        }
+
+        /**
+         * (package private) Report the sequence at provided index, decoding it if needed.
+         *
+         * @param index sequence index
+         * @return the decoded sequence, perhaps null
+         */
+        RunSequence getSequence (int index)
+        {
+            RunSequence seq = decoded.get(index);
+
+            if (seq == null) {
+                seq = decode(index);
+                decoded.set(index, (seq != null) ? seq : EMPTY);
+            }
+
+            return (seq == EMPTY) ? null : seq;
+        }
+
+        /**
+         * (package private) Decode the sequence at provided index, with no caching.
+         *
+         * @param index sequence index
+         * @return the decoded sequence, perhaps null
+         */
+        RunSequence decode (int index)
+        {
+            final int start = dataStart + buffer.getInt(HEADER_SIZE + (4 * index));
+            final int stop = dataStart + buffer.getInt(HEADER_SIZE + (4 * (index + 1)));
+
+            if (start == stop) {
+                return null;
+            }
+
+            // Count cells: one per byte with no continuation bit
+            int cells = 0;
+
+            for (int p = start; p < stop; p++) {
+                if ((buffer.get(p) & 0x80) == 0) {
+                    cells++;
+                }
+            }
+
+            final int[] rle = new int[cells];
+            int p = start;
+
+            for (int c = 0; c < cells; c++) {
+                int val = 0;
+                int shift = 0;
+                byte b;
+
+                do {
+                    b = buffer.get(p++);
+                    val |= ((b & 0x7F) << shift);
+                    shift += 7;
+                } while ((b & 0x80) != 0);
+
+                rle[c] = val;
+            }
+
+            return new RunSequence(rle);
+        }
+    }
+}
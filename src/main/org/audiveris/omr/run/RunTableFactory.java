@@ -26,6 +26,9 @@ import ij.process.ByteProcessor;
 import net.jcip.annotations.NotThreadSafe;
 import net.jcip.annotations.ThreadSafe;
 
+import org.audiveris.omr.image.PixelFilter;
+import org.audiveris.omr.run.RunTable.RunSequence;
+
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -116,15 +119,39 @@ public class RunTableFactory
         return table;
     }
 
+    // ------------//
+    // createTable //
+    // ------------//
+    /**
+     * Report the RunTable created with the runs retrieved from the provided filter.
+     * <p>
+     * Binarization is streamed: foreground runs are directly emitted into the table, position
+     * after position, without any intermediate binary image.
+     * Positions are browsed in increasing order, so that a sliding filter (such as
+     * {@link org.audiveris.omr.image.VerticalFilter}) can be used, with VERTICAL orientation.
+     *
+     * @param filter the binarization filter to read runs from.
+     * @return a populated RunTable
+     */
+    public RunTable createTable (PixelFilter filter)
+    {
+        final Rectangle roi = new Rectangle(0, 0, filter.getWidth(), filter.getHeight());
+        RunTable table = new RunTable(orientation, roi.width, roi.height);
+        RunsRetriever retriever = new RunsRetriever(orientation, new FilterAdapter(filter, table));
+        retriever.retrieveRuns(roi);
+
+        return table;
+    }
+
     // ----------//
     // MyAdapter //
     // ----------//
     private abstract class MyAdapter
-            implements RunsRetriever.Adapter
+            implements RunsRetriever.RleAdapter
     {
 
-        /** The source to read runs of pixels from. */
-        protected final ByteProcessor source;
+        /** The provider of pixels (a ByteProcessor or a PixelFilter). */
+        private final Object provider;
 
         /** The created RunTable. */
         protected RunTable table;
@@ -132,11 +159,11 @@ public class RunTableFactory
         /** Table offset, if any, WRT source. */
         protected Point tableOffset;
 
-        MyAdapter (ByteProcessor source,
+        MyAdapter (Object provider,
                    RunTable table,
                    Point tableOffset)
         {
-            this.source = source;
+            this.provider = provider;
             this.table = table;
             this.tableOffset = tableOffset;
         }
@@ -157,14 +184,19 @@ public class RunTableFactory
         // isThreadSafe //
         //--------------//
         /**
-         * The concurrency aspects of the adapter depends on the underlying PixelFilter.
+         * The concurrency aspects of the adapter depends on the underlying pixel provider.
          *
          * @return true if safe, false otherwise
          */
         @Override
         public boolean isThreadSafe ()
         {
-            Class<?> classe = source.getClass();
+            Class<?> classe = provider.getClass();
+
+            // A plain ByteProcessor is only read, pixel by pixel
+            if (classe == ByteProcessor.class) {
+                return true;
+            }
 
             // Check for @ThreadSafe annotation
             ThreadSafe safe = classe.getAnnotation(ThreadSafe.class);
@@ -202,11 +234,15 @@ public class RunTableFactory
             extends MyAdapter
     {
 
+        /** The source to read runs of pixels from. */
+        private final ByteProcessor source;
+
         HorizontalAdapter (ByteProcessor source,
                            RunTable table,
                            Point tableOffset)
         {
             super(source, table, tableOffset);
+            this.source = source;
         }
 
         @Override
@@ -216,6 +252,13 @@ public class RunTableFactory
             table.setSequence(pos - tableOffset.y, RunTable.encode(runs));
         }
 
+        @Override
+        public void endPosition (int pos,
+                                 int[] rle)
+        {
+            table.setSequence(pos - tableOffset.y, (rle != null) ? new RunSequence(rle) : null);
+        }
+
         @Override
         public final boolean isFore (int coord,
                                      int pos)
@@ -242,11 +285,15 @@ public class RunTableFactory
             extends MyAdapter
     {
 
+        /** The source to read runs of pixels from. */
+        private final ByteProcessor source;
+
         VerticalAdapter (ByteProcessor source,
                          RunTable table,
                          Point tableOffset)
         {
             super(source, table, tableOffset);
+            this.source = source;
         }
 
         @Override
@@ -256,6 +303,13 @@ public class RunTableFactory
             table.setSequence(pos - tableOffset.x, RunTable.encode(runs));
         }
 
+        @Override
+        public void endPosition (int pos,
+                                 int[] rle)
+        {
+            table.setSequence(pos - tableOffset.x, (rle != null) ? new RunSequence(rle) : null);
+        }
+
         @Override
         public final boolean isFore (int coord,
                                      int pos)
@@ -272,6 +326,61 @@ public class RunTableFactory
         }
     }
 
+    //---------------//
+    // FilterAdapter //
+    //---------------//
+    /**
+     * Adapter for runs read from a binarization filter, whatever the orientation.
+     */
+    private class FilterAdapter
+            extends MyAdapter
+    {
+
+        /** The binarization filter to read runs of pixels from. */
+        private final PixelFilter pixelFilter;
+
+        /** Is orientation vertical?. */
+        private final boolean vertical;
+
+        FilterAdapter (PixelFilter pixelFilter,
+                       RunTable table)
+        {
+            super(pixelFilter, table, new Point(0, 0));
+            this.pixelFilter = pixelFilter;
+            vertical = orientation.isVertical();
+        }
+
+        @Override
+        public void endPosition (int pos,
+                                 List<Run> runs)
+        {
+            table.setSequence(pos, RunTable.encode(runs));
+        }
+
+        @Override
+        public void endPosition (int pos,
+                                 int[] rle)
+        {
+            table.setSequence(pos, (rle != null) ? new RunSequence(rle) : null);
+        }
+
+        @Override
+        public final boolean isFore (int coord,
+                                     int pos)
+        {
+            return vertical ? pixelFilter.isFore(pos, coord) : pixelFilter.isFore(coord, pos);
+        }
+
+        @Override
+        protected boolean checkFilter (int coord,
+                                       int pos,
+                                       int length)
+        {
+            return vertical ? filter.check(pos, coord - length, length)
+                    : filter.check(coord - length, pos, length);
+        }
+    }
+
     //--------//
     // Filter //
     //--------//
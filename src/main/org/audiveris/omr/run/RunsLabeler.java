@@ -0,0 +1,499 @@
+//------------------------------------------------------------------------------------------------//
+//                                                                                                //
+//                                     R u n s L a b e l e r                                      //
+//                                                                                                //
+//------------------------------------------------------------------------------------------------//
+// <editor-fold defaultstate="collapsed" desc="hdr">
+//
+//  Copyright © Audiveris 2018. All rights reserved.
+//
+//  This program is free software: you can redistribute it and/or modify it under the terms of the
+//  GNU Affero General Public License as published by the Free Software Foundation, either version
+//  3 of the License, or (at your option) any later version.
+//
+//  This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+//  without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+//  See the GNU Affero General Public License for more details.
+//
+//  You should have received a copy of the GNU Affero General Public License along with this
+//  program.  If not, see <http://www.gnu.org/licenses/>.
+//------------------------------------------------------------------------------------------------//
+// </editor-fold>
+package org.audiveris.omr.run;
+
+import org.audiveris.omr.constant.Constant;
+import org.audiveris.omr.constant.ConstantSet;
+import org.audiveris.omr.run.RunTable.RunSequence;
+import org.audiveris.omr.step.ProcessingCancellationException;
+import org.audiveris.omr.util.OmrExecutors;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Class {@code RunsLabeler} retrieves the connected components of a {@link RunTable},
+ * using a primitive union-find structure indexed by run.
+ * <p>
+ * All foreground runs are first decoded into flat int arrays (run start and stop, in sequence
+ * order), then each run is linked to the overlapping runs of the previous sequence.
+ * The union-find structure always keeps the smaller index as root, and uses path halving.
+ * <p>
+ * Sequences are processed in strips by a fork/join task (when parallelism is allowed): since a
+ * task only links runs within its own range of sequences, the two halves of a task can be labeled
+ * concurrently, the runs at their junction being linked once both halves are done.
+ * <p>
+ * Components are reported in the order of their first run in table scanning order, which is the
+ * order of glyphs produced by the legacy marking of runs.
+ *
+ * @author Hervé Bitteur
+ */
+public class RunsLabeler
+{
+
+    private static final Logger logger = LoggerFactory.getLogger(RunsLabeler.class);
+
+    private static final Constants constants = new Constants();
+
+    /** The source table of runs. */
+    private final RunTable table;
+
+    /** Index of first run for each sequence, plus total run count as last entry. */
+    private final int[] seqFirsts;
+
+    /** Start coordinate of each run. */
+    private final int[] starts;
+
+    /** Stop coordinate of each run. */
+    private final int[] stops;
+
+    /** Union-find parent of each run. (numerical invariant: parent <= child) */
+    private final int[] parents;
+
+    /**
+     * Creates a new {@code RunsLabeler} object.
+     *
+     * @param table the source table of runs
+     */
+    public RunsLabeler (RunTable table)
+    {
+        this.table = table;
+
+        final int size = table.getSize();
+        seqFirsts = new int[size + 1];
+
+        for (int iSeq = 0; iSeq < size; iSeq++) {
+            final RunSequence seq = table.getSequence(iSeq);
+            seqFirsts[iSeq + 1] = seqFirsts[iSeq] + ((seq != null) ? seq.size() : 0);
+        }
+
+        final int count = seqFirsts[size];
+        starts = new int[count];
+        stops = new int[count];
+        parents = new int[count];
+
+        for (int iSeq = 0; iSeq < size; iSeq++) {
+            final RunSequence seq = table.getSequence(iSeq);
+
+            if (seq != null) {
+                decode(seq.getRle(), seqFirsts[iSeq]);
+            }
+        }
+
+        for (int i = 0; i < count; i++) {
+            parents[i] = i;
+        }
+    }
+
+    //---------------//
+    // getComponents //
+    //---------------//
+    /**
+     * Label all runs and build one run table per connected component.
+     *
+     * @return the list of components, ordered by their first run in table scanning order
+     */
+    public List<Component> getComponents ()
+    {
+        labelRuns();
+
+        // Assign component number to each run, in scanning order of component root
+        final int count = starts.length;
+        final int[] labels = new int[count];
+        int compCount = 0;
+
+        for (int i = 0; i < count; i++) {
+            final int root = find(i);
+            labels[i] = (root == i) ? compCount++ : labels[root];
+        }
+
+        logger.debug("runs: {} components: {}", count, compCount);
+
+        // Counting sort of runs by component, keeping scanning order within each component
+        final int[] compFirsts = new int[compCount + 1];
+
+        for (int i = 0; i < count; i++) {
+            compFirsts[labels[i] + 1]++;
+        }
+
+        for (int c = 0; c < compCount; c++) {
+            compFirsts[c + 1] += compFirsts[c];
+        }
+
+        final int[] cursors = compFirsts.clone();
+        final int[] sortedRuns = new int[count];
+        final int[] sortedSeqs = new int[count];
+
+        for (int iSeq = 0, size = table.getSize(); iSeq < size; iSeq++) {
+            for (int i = seqFirsts[iSeq]; i < seqFirsts[iSeq + 1]; i++) {
+                final int pos = cursors[labels[i]]++;
+                sortedRuns[pos] = i;
+                sortedSeqs[pos] = iSeq;
+            }
+        }
+
+        // Build each component
+        final List<Component> components = new ArrayList<>(compCount);
+
+        for (int c = 0; c < compCount; c++) {
+            components.add(
+                    buildComponent(sortedRuns, sortedSeqs, compFirsts[c], compFirsts[c + 1]));
+        }
+
+        return components;
+    }
+
+    //----------------//
+    // buildComponent //
+    //----------------//
+    /**
+     * Build the component made of the provided range of sorted runs.
+     *
+     * @param sortedRuns runs sorted by component, then by scanning order
+     * @param sortedSeqs sequence index of each sorted run
+     * @param first      index of first sorted run in component
+     * @param end        index past last sorted run in component
+     * @return the component
+     */
+    private Component buildComponent (int[] sortedRuns,
+                                      int[] sortedSeqs,
+                                      int first,
+                                      int end)
+    {
+        // Determine component bounds
+        final int iSeqMin = sortedSeqs[first];
+        final int iSeqMax = sortedSeqs[end - 1];
+        int startMin = Integer.MAX_VALUE;
+        int stopMax = 0;
+
+        for (int k = first; k < end; k++) {
+            final int i = sortedRuns[k];
+            startMin = Math.min(startMin, starts[i]);
+            stopMax = Math.max(stopMax, stops[i]);
+        }
+
+        final Orientation orientation = table.getOrientation();
+        final boolean vertical = orientation.isVertical();
+        final int seqCount = iSeqMax - iSeqMin + 1;
+        final int coordCount = stopMax - startMin + 1;
+        final RunTable compTable = vertical ? new RunTable(orientation, seqCount, coordCount)
+                : new RunTable(orientation, coordCount, seqCount);
+
+        // Populate table with RLE sequences, one per sequence of component runs
+        for (int k = first; k < end;) {
+            final int iSeq = sortedSeqs[k];
+            int kEnd = k + 1;
+
+            while ((kEnd < end) && (sortedSeqs[kEnd] == iSeq)) {
+                kEnd++;
+            }
+
+            final int firstStart = starts[sortedRuns[k]] - startMin;
+            final int[] rle = new int[((2 * (kEnd - k)) - 1) + ((firstStart != 0) ? 2 : 0)];
+            int cursor = 0;
+            int length = 0;
+
+            if (firstStart != 0) {
+                rle[cursor++] = 0; // Empty initial foreground
+            }
+
+            for (int j = k; j < kEnd; j++) {
+                final int i = sortedRuns[j];
+                final int start = starts[i] - startMin;
+
+                if (cursor > 0) {
+                    rle[cursor++] = start - length; // Background
+                }
+
+                rle[cursor++] = stops[i] - starts[i] + 1; // Foreground
+                length = stops[i] - startMin + 1;
+            }
+
+            compTable.setSequence(iSeq - iSeqMin, new RunSequence(rle));
+            k = kEnd;
+        }
+
+        return vertical ? new Component(iSeqMin, startMin, compTable)
+                : new Component(startMin, iSeqMin, compTable);
+    }
+
+    //--------//
+    // decode //
+    //--------//
+    /**
+     * Decode the foreground runs of a RLE sequence into starts and stops arrays.
+     *
+     * @param rle   the RLE sequence
+     * @param first index of first run
+     */
+    private void decode (int[] rle,
+                         int first)
+    {
+        int i = first;
+        int pos = 0;
+
+        for (int k = 0; k < rle.length; k++) {
+            final int length = rle[k];
+
+            if (((k & 1) == 0) && (length > 0)) {
+                starts[i] = pos;
+                stops[i] = (pos + length) - 1;
+                i++;
+            }
+
+            pos += length;
+        }
+    }
+
+    //------//
+    // find //
+    //------//
+    /**
+     * Report the root of provided run, halving the path on the way.
+     *
+     * @param i run index
+     * @return index of root run
+     */
+    private int find (int i)
+    {
+        while (parents[i] != i) {
+            parents[i] = parents[parents[i]];
+            i = parents[i];
+        }
+
+        return i;
+    }
+
+    //------//
+    // link //
+    //------//
+    /**
+     * Union all overlapping runs between a sequence and the next one.
+     *
+     * @param iSeq index of the first sequence
+     */
+    private void link (int iSeq)
+    {
+        int i = seqFirsts[iSeq];
+        final int iEnd = seqFirsts[iSeq + 1];
+        int j = iEnd;
+        final int jEnd = seqFirsts[iSeq + 2];
+
+        while ((i < iEnd) && (j < jEnd)) {
+            if (stops[i] < starts[j]) {
+                i++;
+            } else if (stops[j] < starts[i]) {
+                j++;
+            } else {
+                union(i, j);
+
+                if (stops[i] < stops[j]) {
+                    i++;
+                } else {
+                    j++;
+                }
+            }
+        }
+    }
+
+    //-----------//
+    // labelRuns //
+    //-----------//
+    private void labelRuns ()
+    {
+        final int size = table.getSize();
+
+        if (size == 0) {
+            return;
+        }
+
+        final int stripSize = constants.stripSize.getValue();
+        final StripTask task = new StripTask(0, size - 1, stripSize);
+
+        if ((OmrExecutors.defaultParallelism.getValue() == false)
+            || (size <= stripSize)
+            || (starts.length < constants.minParallelRuns.getValue())) {
+            // Sequential
+            task.processStrip();
+        } else {
+            // Parallel
+            try {
+                OmrExecutors.getForkJoinPool().invoke(task);
+            } catch (ProcessingCancellationException pce) {
+                throw pce;
+            } catch (Throwable ex) {
+                logger.warn("Exception raised in StripTask", ex);
+                throw new RuntimeException(ex);
+            }
+        }
+    }
+
+    //-------//
+    // union //
+    //-------//
+    /**
+     * Merge the sets of the two provided runs, the smaller root becoming the parent.
+     *
+     * @param i a run
+     * @param j another run
+     */
+    private void union (int i,
+                        int j)
+    {
+        final int ri = find(i);
+        final int rj = find(j);
+
+        if (ri < rj) {
+            parents[rj] = ri;
+        } else if (rj < ri) {
+            parents[ri] = rj;
+        }
+    }
+
+    //-----------//
+    // Component //
+    //-----------//
+    /**
+     * A connected component, with its own table of runs.
+     */
+    public static class Component
+    {
+
+        /** Abscissa of component table, relative to source table. */
+        private final int left;
+
+        /** Ordinate of component table, relative to source table. */
+        private final int top;
+
+        /** Component runs. */
+        private final RunTable table;
+
+        Component (int left,
+                   int top,
+                   RunTable table)
+        {
+            this.left = left;
+            this.top = top;
+            this.table = table;
+        }
+
+        /**
+         * @return the left abscissa, relative to source table
+         */
+        public int getLeft ()
+        {
+            return left;
+        }
+
+        /**
+         * @return the component run table
+         */
+        public RunTable getTable ()
+        {
+            return table;
+        }
+
+        /**
+         * @return the top ordinate, relative to source table
+         */
+        public int getTop ()
+        {
+            return top;
+        }
+    }
+
+    //-----------//
+    // StripTask //
+    //-----------//
+    /**
+     * Fork/join task to label a range of sequences, recursively split into strips.
+     * <p>
+     * A task modifies the union-find structure only for the runs of its range of sequences.
+     */
+    private class StripTask
+            extends RecursiveAction
+    {
+
+        private final int sMin;
+
+        private final int sMax;
+
+        private final int stripSize;
+
+        StripTask (int sMin,
+                   int sMax,
+                   int stripSize)
+        {
+            this.sMin = sMin;
+            this.sMax = sMax;
+            this.stripSize = stripSize;
+        }
+
+        @Override
+        protected void compute ()
+        {
+            if ((sMax - sMin + 1) <= stripSize) {
+                processStrip();
+            } else {
+                final int sMid = (sMin + sMax) >>> 1;
+                invokeAll(
+                        new StripTask(sMin, sMid, stripSize),
+                        new StripTask(sMid + 1, sMax, stripSize));
+
+                // Merge at the junction of the two halves
+                link(sMid);
+            }
+        }
+
+        /**
+         * Label the whole strip sequentially.
+         */
+        void processStrip ()
+        {
+            for (int iSeq = sMin; iSeq < sMax; iSeq++) {
+                link(iSeq);
+            }
+        }
+    }
+
+    //-----------//
+    // Constants //
+    //-----------//
+    private static class Constants
+            extends ConstantSet
+    {
+
+        private final Constant.Integer stripSize = new Constant.Integer(
+                "sequences",
+                128,
+                "Maximum number of sequences labeled by one strip task");
+
+        private final Constant.Integer minParallelRuns = new Constant.Integer(
+                "runs",
+                20000,
+                "Minimum number of runs to label strips in parallel");
+    }
+}
@@ -21,6 +21,8 @@
 // </editor-fold>
 package org.audiveris.omr.run;
 
+import org.audiveris.omr.constant.Constant;
+import org.audiveris.omr.constant.ConstantSet;
 import org.audiveris.omr.step.ProcessingCancellationException;
 import org.audiveris.omr.util.Concurrency;
 import org.audiveris.omr.util.OmrExecutors;
@@ -30,14 +32,20 @@ import org.slf4j.LoggerFactory;
 
 import java.awt.Rectangle;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 import java.util.concurrent.Callable;
+import java.util.concurrent.RecursiveAction;
 
 /**
  * Class {@code RunsRetriever} is in charge of reading a source of pixels and
  * retrieving foreground runs and background runs from it.
  * <p>
  * What is done with the retrieved runs is essentially the purpose of the provided adapter.
+ * <p>
+ * If the adapter is an {@link RleAdapter}, runs are directly encoded as RLE int arrays, without
+ * any intermediate {@link Run} object, and the positions range is processed in bands of positions
+ * by a fork/join task (when parallelism is allowed).
  *
  * @author Hervé Bitteur
  */
@@ -46,6 +54,8 @@ public class RunsRetriever
 
     private static final Logger logger = LoggerFactory.getLogger(RunsRetriever.class);
 
+    private static final Constants constants = new Constants();
+
     /** The orientation of desired runs */
     private final Orientation orientation;
 
@@ -82,7 +92,63 @@ public class RunsRetriever
         final int pMin = rect.y;
         final int pMax = (rect.y + rect.height) - 1;
 
-        rowBasedRetrieval(pMin, pMax, cMin, cMax);
+        if (adapter instanceof RleAdapter) {
+            bandBasedRetrieval(pMin, pMax, cMin, cMax);
+        } else {
+            rowBasedRetrieval(pMin, pMax, cMin, cMax);
+        }
+    }
+
+    //--------------------//
+    // bandBasedRetrieval //
+    //--------------------//
+    /**
+     * Retrieve runs band by band, directly as RLE sequences.
+     * <p>
+     * Bands are processed via the fork/join pool when parallelism is allowed, otherwise the whole
+     * range is processed as a single band by the current thread.
+     */
+    private void bandBasedRetrieval (int pMin,
+                                     int pMax,
+                                     int cMin,
+                                     int cMax)
+    {
+        final int bandSize = getBandSize(cMax - cMin + 1);
+        final BandTask task = new BandTask(pMin, pMax, cMin, cMax, bandSize);
+
+        if ((OmrExecutors.defaultParallelism.getValue() == false)
+            || !adapter.isThreadSafe()
+            || ((pMax - pMin + 1) <= bandSize)) {
+            // Sequential
+            task.processBand();
+        } else {
+            // Parallel
+            try {
+                OmrExecutors.getForkJoinPool().invoke(task);
+            } catch (ProcessingCancellationException pce) {
+                throw pce;
+            } catch (Throwable ex) {
+                logger.warn("Exception raised in BandTask", ex);
+                throw new RuntimeException(ex);
+            }
+        }
+    }
+
+    //-------------//
+    // getBandSize //
+    //-------------//
+    /**
+     * Report the number of positions per band, so that the pixels of a band roughly fit
+     * in the targeted cache size.
+     *
+     * @param coordCount number of coordinates per position
+     * @return the number of positions per band
+     */
+    private static int getBandSize (int coordCount)
+    {
+        return Math.max(
+                constants.minBandSize.getValue(),
+                constants.bandCacheSize.getValue() / Math.max(1, coordCount));
     }
 
     //-----------------//
@@ -152,6 +218,60 @@ public class RunsRetriever
         adapter.endPosition(pos, posRuns);
     }
 
+    //-----------------//
+    // processPosition //
+    //-----------------//
+    /**
+     * Process the pixels in position 'p' between coordinates 'cMin' and 'cMax', and encode
+     * the accepted foreground runs directly into the provided RLE buffer.
+     *
+     * @param pos  the position in the pixels array (x for vertical)
+     * @param cMin the starting coordinate (y for vertical)
+     * @param cMax the ending coordinate
+     * @param buf  reusable RLE buffer, at least (cMax - cMin + 3) long
+     */
+    private void processPosition (int pos,
+                                  int cMin,
+                                  int cMax,
+                                  int[] buf)
+    {
+        final RleAdapter rleAdapter = (RleAdapter) adapter;
+        int count = 0; // Number of cells used in buf
+        int lastEnd = 0; // Relative coordinate past last accepted foreground run
+        int start = -1; // Relative start of foreground run in progress, if any
+
+        for (int c = cMin; c <= cMax + 1; c++) {
+            final boolean fore = (c <= cMax) && adapter.isFore(c, pos);
+
+            if (fore) {
+                if (start == -1) {
+                    start = c - cMin;
+                }
+            } else if (start != -1) {
+                final int length = c - cMin - start;
+
+                if (adapter.foreRun(c, pos, length)) {
+                    if (count == 0) {
+                        if (start > 0) {
+                            // Sequence begins with background
+                            buf[count++] = 0;
+                            buf[count++] = start;
+                        }
+                    } else {
+                        buf[count++] = start - lastEnd;
+                    }
+
+                    buf[count++] = length;
+                    lastEnd = start + length;
+                }
+
+                start = -1;
+            }
+        }
+
+        rleAdapter.endPosition(pos, (count == 0) ? null : Arrays.copyOf(buf, count));
+    }
+
     //-------------------//
     // rowBasedRetrieval //
     //-------------------//
@@ -206,6 +326,28 @@ public class RunsRetriever
         }
     }
 
+    //------------//
+    // RleAdapter //
+    //------------//
+    /**
+     * Interface {@code RleAdapter} is an adapter able to consume runs directly in their
+     * RLE form (see {@link RunTable} for RLE definition).
+     */
+    public static interface RleAdapter
+            extends Adapter
+    {
+
+        /**
+         * Called at end of position.
+         *
+         * @param pos position value
+         * @param rle the RLE-encoded sequence of runs for this position, or null if empty.
+         *            This array is owned by the callee.
+         */
+        void endPosition (int pos,
+                          int[] rle);
+    }
+
     //---------//
     // Adapter //
     //---------//
@@ -247,4 +389,81 @@ public class RunsRetriever
         boolean isFore (int coord,
                         int pos);
     }
+
+    //----------//
+    // BandTask //
+    //----------//
+    /**
+     * Fork/join task to process a range of positions, recursively split into bands.
+     */
+    private class BandTask
+            extends RecursiveAction
+    {
+
+        private final int pMin;
+
+        private final int pMax;
+
+        private final int cMin;
+
+        private final int cMax;
+
+        private final int bandSize;
+
+        BandTask (int pMin,
+                  int pMax,
+                  int cMin,
+                  int cMax,
+                  int bandSize)
+        {
+            this.pMin = pMin;
+            this.pMax = pMax;
+            this.cMin = cMin;
+            this.cMax = cMax;
+            this.bandSize = bandSize;
+        }
+
+        @Override
+        protected void compute ()
+        {
+            if ((pMax - pMin + 1) <= bandSize) {
+                processBand();
+            } else {
+                final int pMid = (pMin + pMax) >>> 1;
+                invokeAll(
+                        new BandTask(pMin, pMid, cMin, cMax, bandSize),
+                        new BandTask(pMid + 1, pMax, cMin, cMax, bandSize));
+            }
+        }
+
+        /**
+         * Process the whole band sequentially, using one RLE buffer for all its positions.
+         */
+        void processBand ()
+        {
+            final int[] buf = new int[cMax - cMin + 3];
+
+            for (int p = pMin; p <= pMax; p++) {
+                processPosition(p, cMin, cMax, buf);
+            }
+        }
+    }
+
+    //-----------//
+    // Constants //
+    //-----------//
+    private static class Constants
+            extends ConstantSet
+    {
+
+        private final Constant.Integer bandCacheSize = new Constant.Integer(
+                "bytes",
+                256 * 1024,
+                "Targeted number of pixels processed by one band task");
+
+        private final Constant.Integer minBandSize = new Constant.Integer(
+                "positions",
+                16,
+                "Minimum number of positions in one band task");
+    }
 }
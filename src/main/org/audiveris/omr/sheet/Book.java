@@ -24,13 +24,16 @@ package org.audiveris.omr.sheet;
 import org.audiveris.omr.OMR;
 import org.audiveris.omr.ProgramId;
 import org.audiveris.omr.WellKnowns;
+import org.audiveris.omr.classifier.AbstractClassifier;
 import org.audiveris.omr.classifier.Annotations;
+import org.audiveris.omr.classifier.Classifier;
 import org.audiveris.omr.classifier.SampleRepository;
+import org.audiveris.omr.classifier.ShapeClassifier;
 import org.audiveris.omr.constant.Constant;
 import org.audiveris.omr.constant.ConstantSet;
 import org.audiveris.omr.image.FilterDescriptor;
 import org.audiveris.omr.image.FilterParam;
-import org.audiveris.omr.image.ImageLoading;
+import org.audiveris.omr.image.LoaderSession;
 import org.audiveris.omr.log.LogUtil;
 import org.audiveris.omr.run.RunTable;
 import org.audiveris.omr.score.OpusExporter;
@@ -47,8 +50,10 @@ import org.audiveris.omr.sheet.ui.StubsController;
 import org.audiveris.omr.step.ProcessingCancellationException;
 import org.audiveris.omr.step.Step;
 import org.audiveris.omr.step.StepException;
+import org.audiveris.omr.step.StepScheduler;
 import org.audiveris.omr.step.ui.StepMonitoring;
 import org.audiveris.omr.text.Language;
+import org.audiveris.omr.text.OcrCache;
 import org.audiveris.omr.util.FileUtil;
 import org.audiveris.omr.util.Jaxb;
 import org.audiveris.omr.util.Memory;
@@ -83,7 +88,6 @@ import java.util.concurrent.Callable;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.Future;
 import java.util.concurrent.locks.Lock;
-import java.util.concurrent.locks.ReentrantLock;
 import java.util.zip.ZipOutputStream;
 
 import javax.swing.JFrame;
@@ -132,9 +136,13 @@ import javax.xml.bind.annotation.adapters.XmlJavaTypeAdapter;
  * <li>{@link #setModified}</li>
  * <li>{@link #close}</li>
  * <li>{@link #closeFileSystem}</li>
+ * <li>{@link #closeReadView}</li>
  * <li>{@link #isClosing}</li>
  * <li>{@link #setClosing}</li>
  * <li>{@link #getLock}</li>
+ * <li>{@link #getReadLock}</li>
+ * <li>{@link #getSheetFolder}</li>
+ * <li>{@link #getOcrCache}</li>
  * <li>{@link #openBookFile}</li>
  * <li>{@link #openSheetFolder}</li>
  * </ul>
@@ -290,8 +298,8 @@ public class Book
     // Transient data
     //---------------
     //
-    /** Project file lock. */
-    private final Lock lock = new ReentrantLock();
+    /** Project file accesses, shared by readers and exclusive for a writer. */
+    private final BookStorage storage = new BookStorage();
 
     /** The related file radix (file name without extension). */
     private String radix;
@@ -317,6 +325,12 @@ public class Book
     /** Book-level sample repository. */
     private SampleRepository repository;
 
+    /** Session on input images, kept open across sheets. */
+    private LoaderSession loaderSession;
+
+    /** Cache of OCR results, loaded lazily from book file. */
+    private volatile OcrCache ocrCache;
+
     /**
      * Create a Book with a path to an input images file.
      *
@@ -445,15 +459,51 @@ public class Book
             bookBrowser.close();
         }
 
+        // Release input file if still open
+        synchronized (this) {
+            if (loaderSession != null) {
+                loaderSession.dispose();
+            }
+        }
+
+        // Release project file if still open
+        storage.dispose();
+
         // Remove from OMR instances
         OMR.engine.removeBook(this);
 
         // Time for some cleanup...
         Memory.gc();
 
+        // Report usage of classifier evaluations cache (shared by all books)
+        if (logger.isDebugEnabled()) {
+            final Classifier classifier = ShapeClassifier.getInstance();
+
+            if (classifier instanceof AbstractClassifier) {
+                logger.debug(
+                        "{} {}",
+                        classifier.getName(),
+                        ((AbstractClassifier) classifier).getEvaluationCache());
+            }
+        }
+
         logger.debug("Book closed.");
     }
 
+    //---------------//
+    // closeReadView //
+    //---------------//
+    /**
+     * Close the read view shared by readers of book project file.
+     * <p>
+     * To be called by a writer, holding the {@link #getLock() exclusive lock}, just before
+     * the project file gets replaced.
+     */
+    public void closeReadView ()
+    {
+        storage.closeReadView();
+    }
+
     //-------------//
     // createStubs //
     //-------------//
@@ -465,11 +515,9 @@ public class Book
      */
     public void createStubs (SortedSet<Integer> sheetNumbers)
     {
-        ImageLoading.Loader loader = ImageLoading.getLoader(path);
+        final int imageCount = getLoaderSession().getImageCount();
 
-        if (loader != null) {
-            final int imageCount = loader.getImageCount();
-            loader.dispose();
+        if (imageCount > 0) {
             logger.info("{} sheet{} in {}", imageCount, ((imageCount > 1) ? "s" : ""), path);
 
             if (sheetNumbers == null) {
@@ -765,13 +813,52 @@ public class Book
     // getLock //
     //---------//
     /**
-     * Report the lock that protects book project file.
+     * Report the exclusive lock that protects book project file, for writing.
      *
      * @return book project lock
+     * @see #getReadLock()
      */
     public Lock getLock ()
     {
-        return lock;
+        return storage.getWriteLock();
+    }
+
+    //-------------//
+    // getOcrCache //
+    //-------------//
+    /**
+     * Report the cache of OCR results for this book, loaded from book file if needed.
+     * <p>
+     * Book file is read without holding the book monitor, since a writer holding the exclusive
+     * lock may need this monitor.
+     *
+     * @return the book OCR cache
+     */
+    public OcrCache getOcrCache ()
+    {
+        if (ocrCache == null) {
+            OcrCache cache = null;
+
+            if (bookPath != null) {
+                getReadLock().lock();
+
+                try {
+                    cache = OcrCache.unmarshal(storage.getReadRoot(bookPath));
+                } catch (IOException ex) {
+                    logger.warn("Error reading OCR cache of " + this + " " + ex, ex);
+                } finally {
+                    getReadLock().unlock();
+                }
+            }
+
+            synchronized (this) {
+                if (ocrCache == null) {
+                    ocrCache = (cache != null) ? cache : new OcrCache();
+                }
+            }
+        }
+
+        return ocrCache;
     }
 
     //-----------------//
@@ -876,6 +963,22 @@ public class Book
         return radix;
     }
 
+    //-------------//
+    // getReadLock //
+    //-------------//
+    /**
+     * Report the lock shared by readers of book project file.
+     * <p>
+     * Several readers can work concurrently, while a writer holding the {@link #getLock()
+     * exclusive lock} is excluded.
+     *
+     * @return book project read lock
+     */
+    public Lock getReadLock ()
+    {
+        return storage.getReadLock();
+    }
+
     //---------------------//
     // getSampleRepository //
     //---------------------//
@@ -931,6 +1034,26 @@ public class Book
         return Collections.unmodifiableList(scores);
     }
 
+    //----------------//
+    // getSheetFolder //
+    //----------------//
+    /**
+     * Report the folder for provided sheet number, within the read view shared by
+     * readers of book project file.
+     * <p>
+     * The caller must hold the {@link #getReadLock() read lock} (or the exclusive lock) and must
+     * not close the file system of returned folder.
+     *
+     * @param number sheet number (1-based) within the book
+     * @return the path to sheet folder
+     * @throws IOException if anything goes wrong
+     */
+    public Path getSheetFolder (int number)
+            throws IOException
+    {
+        return storage.getReadRoot(bookPath).resolve(INTERNALS_RADIX + number);
+    }
+
     //-----------------------------//
     // getSpecificSampleRepository //
     //-----------------------------//
@@ -1209,30 +1332,44 @@ public class Book
     //----------------//
     /**
      * Actually load the image that corresponds to the specified sheet id.
+     * <p>
+     * Input file is kept open across sheets, and the image of the next sheet still to be loaded
+     * may get prefetched in background.
+     * <p>
+     * Image reading is blocking, hence it is run as a managed block of the step pool.
      *
      * @param id specified sheet id
      * @return the loaded sheet image
      */
-    public BufferedImage loadSheetImage (int id)
+    public BufferedImage loadSheetImage (final int id)
     {
-        try {
-            final ImageLoading.Loader loader = ImageLoading.getLoader(path);
-
-            if (loader == null) {
-                return null;
-            }
+        return StepScheduler.managedBlock(new Callable<BufferedImage>()
+        {
+            @Override
+            public BufferedImage call ()
+            {
+                try {
+                    BufferedImage img = getLoaderSession().getImage(id, getNextToLoad(id));
 
-            BufferedImage img = loader.getImage(id);
-            logger.info("Loaded image {} {}x{} from {}", id, img.getWidth(), img.getHeight(), path);
+                    if (img == null) {
+                        return null;
+                    }
 
-            loader.dispose();
+                    logger.info(
+                            "Loaded image {} {}x{} from {}",
+                            id,
+                            img.getWidth(),
+                            img.getHeight(),
+                            path);
 
-            return img;
-        } catch (IOException ex) {
-            logger.warn("Error in book.loadSheetImage", ex);
+                    return img;
+                } catch (IOException ex) {
+                    logger.warn("Error in book.loadSheetImage", ex);
 
-            return null;
-        }
+                    return null;
+                }
+            }
+        });
     }
 
     //--------------//
@@ -1347,16 +1484,18 @@ public class Book
                                     throws StepException
                             {
                                 LogUtil.start(stub);
+                                boolean ok = false;
 
                                 try {
-                                    boolean ok = stub.reachStep(target, force);
-
-                                    if (ok && (OMR.gui == null)) {
-                                        stub.swapSheet(); // Save sheet & global book info to disk
-                                    }
+                                    ok = stub.reachStep(target, force);
 
                                     return ok;
                                 } finally {
+                                    // Release sheet memory before next sheet is admitted
+                                    if (OMR.gui == null) {
+                                        releaseSheet(stub, ok);
+                                    }
+
                                     LogUtil.stopStub();
                                 }
                             }
@@ -1364,8 +1503,11 @@ public class Book
                     }
 
                     try {
-                        List<Future<Boolean>> futures = OmrExecutors.getCachedLowExecutor()
-                                .invokeAll(tasks);
+                        // In batch, sheets resident at the same time are limited by memory budget
+                        // In interactive mode, sheets are kept in memory for display anyway
+                        List<Future<Boolean>> futures = (OMR.gui == null)
+                                ? StepScheduler.invokeSheets(tasks)
+                                : OmrExecutors.getCachedLowExecutor().invokeAll(tasks);
 
                         for (Future<Boolean> future : futures) {
                             try {
@@ -1412,6 +1554,7 @@ public class Book
             } finally {
                 LogUtil.stopStub();
                 StepMonitoring.notifyStop();
+                StepScheduler.printStatistics();
 
                 long stopTime = System.currentTimeMillis();
                 logger.debug("End of step set in {} ms.", (stopTime - startTime));
@@ -1573,6 +1716,12 @@ public class Book
                     }
                 }
 
+                // OCR cache
+                if ((ocrCache != null) && ocrCache.isModified()) {
+                    ocrCache.marshal(root);
+                    diskWritten = true;
+                }
+
                 // Separate repository
                 if ((repository != null) && repository.isModified()) {
                     repository.storeRepository();
@@ -1602,6 +1751,15 @@ public class Book
                     }
                 }
 
+                // OCR cache
+                final Path oldOcrCache = oldRoot.resolve(OcrCache.OCR_CACHE_ENTRY);
+
+                if (ocrCache != null) {
+                    ocrCache.marshal(root);
+                } else if (Files.exists(oldOcrCache)) {
+                    Files.copy(oldOcrCache, root.resolve(OcrCache.OCR_CACHE_ENTRY));
+                }
+
                 oldRoot.getFileSystem().close(); // Close old book file
             }
 
@@ -1617,6 +1775,7 @@ public class Book
         } finally {
             if (root != null) {
                 try {
+                    storage.closeReadView(); // Book file is about to be replaced
                     root.getFileSystem().close();
                 } catch (IOException ignored) {
                 }
@@ -2016,6 +2175,50 @@ public class Book
         return least;
     }
 
+    //------------------//
+    // getLoaderSession //
+    //------------------//
+    private synchronized LoaderSession getLoaderSession ()
+    {
+        if (loaderSession == null) {
+            loaderSession = new LoaderSession(path);
+        }
+
+        return loaderSession;
+    }
+
+    //---------------//
+    // getNextToLoad //
+    //---------------//
+    /**
+     * Report the id of the sheet likely to be loaded after the provided one.
+     *
+     * @param id the sheet id being loaded
+     * @return the next valid sheet id not yet loaded, or 0 if none or if stubs are processed in
+     *         parallel
+     */
+    private int getNextToLoad (int id)
+    {
+        if (constants.processAllStubsInParallel.isSet()
+                    && (OmrExecutors.defaultParallelism.getValue() == true)) {
+            return 0; // Sheets are loaded concurrently anyway
+        }
+
+        boolean found = false;
+
+        for (SheetStub stub : stubs) {
+            if (found) {
+                if (stub.isValid() && !stub.isDone(Step.LOAD)) {
+                    return stub.getNumber();
+                }
+            } else if (stub.getNumber() == id) {
+                found = true;
+            }
+        }
+
+        return 0;
+    }
+
     //----------//
     // getScore //
     //----------//
@@ -2164,6 +2367,32 @@ public class Book
         logger.debug("Inserted scores:{}", scores.subList(insertIndex, index));
     }
 
+    //--------------//
+    // releaseSheet //
+    //--------------//
+    /**
+     * Release the sheet material of a processed stub.
+     * A successful sheet is saved to disk (with global book info), while a failed one is
+     * discarded, so that partial results never get into book file.
+     * Any exception is logged, so as not to mask the processing outcome.
+     *
+     * @param stub the processed stub
+     * @param ok   true if processing succeeded
+     */
+    private void releaseSheet (SheetStub stub,
+                               boolean ok)
+    {
+        try {
+            if (ok) {
+                stub.swapSheet();
+            } else {
+                stub.discardSheet();
+            }
+        } catch (Exception ex) {
+            logger.warn("Error releasing sheet of {} {}", stub, ex.toString(), ex);
+        }
+    }
+
     //----------//
     // scoresOf //
     //----------//
@@ -0,0 +1,170 @@
+//------------------------------------------------------------------------------------------------//
+//                                                                                                //
+//                                     B o o k S t o r a g e                                      //
+//                                                                                                //
+//------------------------------------------------------------------------------------------------//
+// <editor-fold defaultstate="collapsed" desc="hdr">
+//
+//  Copyright © Audiveris 2018. All rights reserved.
+//
+//  This program is free software: you can redistribute it and/or modify it under the terms of the
+//  GNU Affero General Public License as published by the Free Software Foundation, either version
+//  3 of the License, or (at your option) any later version.
+//
+//  This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+//  without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+//  See the GNU Affero General Public License for more details.
+//
+//  You should have received a copy of the GNU Affero General Public License along with this
+//  program.  If not, see <http://www.gnu.org/licenses/>.
+//------------------------------------------------------------------------------------------------//
+// </editor-fold>
+package org.audiveris.omr.sheet;
+
+import org.audiveris.omr.util.ZipFileSystem;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import net.jcip.annotations.ThreadSafe;
+
+/**
+ * Class {@code BookStorage} arbitrates accesses to the (zipped) project file of a book.
+ * <p>
+ * Readers share one long-lived zip file system on the project file, opened on first need, so
+ * that sheet reloads neither wait for one another nor re-open the project file each time.
+ * They hold the {@link #getReadLock() read lock}, which does not exclude other readers, and
+ * must not close the shared file system.
+ * <p>
+ * A writer holds the {@link #getWriteLock() write lock}, which excludes any reader, and opens
+ * its own zip file system on the project file.
+ * Such file system builds its new content aside and replaces the project file only when it is
+ * closed (copy-on-commit), hence the writer must call {@link #closeReadView()} just before.
+ * The shared view is transparently re-opened by the next reader.
+ *
+ * @author Hervé Bitteur
+ */
+@ThreadSafe
+public class BookStorage
+{
+
+    private static final Logger logger = LoggerFactory.getLogger(BookStorage.class);
+
+    /** Shared by readers, exclusive for a writer. */
+    private final ReentrantReadWriteLock rwLock = new ReentrantReadWriteLock();
+
+    /** Path to the project file behind the shared view, if any. */
+    private Path readPath;
+
+    /** Root of the shared zip file system, if open. */
+    private Path readRoot;
+
+    /**
+     * Creates a new {@code BookStorage} object.
+     */
+    public BookStorage ()
+    {
+    }
+
+    //---------------//
+    // closeReadView //
+    //---------------//
+    /**
+     * Close the shared view, if open.
+     * <p>
+     * The caller must hold the write lock.
+     */
+    public synchronized void closeReadView ()
+    {
+        if (readRoot != null) {
+            try {
+                readRoot.getFileSystem().close();
+                logger.debug("Closed read view on {}", readPath);
+            } catch (IOException ex) {
+                logger.warn("Could not close read view on {} {}", readPath, ex.toString(), ex);
+            }
+
+            readRoot = null;
+            readPath = null;
+        }
+    }
+
+    //---------//
+    // dispose //
+    //---------//
+    /**
+     * Release the shared view, waiting for any pending reader or writer.
+     */
+    public void dispose ()
+    {
+        final Lock lock = getWriteLock();
+        lock.lock();
+
+        try {
+            closeReadView();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    //-------------//
+    // getReadLock //
+    //-------------//
+    /**
+     * Report the lock to be held by readers of the project file.
+     *
+     * @return the shared lock
+     */
+    public Lock getReadLock ()
+    {
+        return rwLock.readLock();
+    }
+
+    //-------------//
+    // getReadRoot //
+    //-------------//
+    /**
+     * Report the root of the shared view on provided project file, opened if needed.
+     * <p>
+     * The caller must hold the read lock (or the write lock), and must not close the returned
+     * file system.
+     *
+     * @param bookPath path to the project file
+     * @return the root path of the shared (zipped) file system
+     * @throws IOException if project file cannot be opened
+     */
+    public synchronized Path getReadRoot (Path bookPath)
+            throws IOException
+    {
+        // Discard a view on a former project file
+        if ((readRoot != null) && !bookPath.equals(readPath)) {
+            closeReadView();
+        }
+
+        if (readRoot == null) {
+            readRoot = ZipFileSystem.open(bookPath);
+            readPath = bookPath;
+            logger.debug("Opened read view on {}", bookPath);
+        }
+
+        return readRoot;
+    }
+
+    //--------------//
+    // getWriteLock //
+    //--------------//
+    /**
+     * Report the lock to be held by a writer of the project file.
+     *
+     * @return the exclusive lock
+     */
+    public Lock getWriteLock ()
+    {
+        return rwLock.writeLock();
+    }
+}
@@ -64,7 +64,7 @@ public class DataHolder<T>
     protected Class<T> classe;
 
     /** Direct access to data, if any. */
-    private T data;
+    private volatile T data;
 
     /** Path to data on disk. */
     @XmlAttribute(name = "path")
@@ -107,29 +107,32 @@ public class DataHolder<T>
             final Book book = sheet.getStub().getBook();
 
             try {
-                book.getLock().lock();
+                book.getReadLock().lock();
 
-                if (data == null) {
-                    JAXBContext jaxbContext = JAXBContext.newInstance(classe);
-                    Unmarshaller um = jaxbContext.createUnmarshaller();
+                synchronized (this) {
+                    if (data == null) {
+                        JAXBContext jaxbContext = JAXBContext.newInstance(classe);
+                        Unmarshaller um = jaxbContext.createUnmarshaller();
 
-                    // Open book file system
-                    Path dataFile = book.openSheetFolder(sheet.getStub().getNumber()).resolve(
-                            pathString);
-                    logger.debug("path: {}", dataFile);
+                        // Read from shared book file system
+                        Path dataFile = book.getSheetFolder(sheet.getStub().getNumber()).resolve(
+                                pathString);
+                        logger.debug("path: {}", dataFile);
 
-                    try (InputStream is = Files.newInputStream(dataFile, StandardOpenOption.READ)) {
-                        data = (T) um.unmarshal(is);
-                    }
+                        try (InputStream is = Files.newInputStream(
+                                dataFile,
+                                StandardOpenOption.READ)) {
+                            data = (T) um.unmarshal(is);
+                        }
 
-                    logger.info("Loaded {}", dataFile);
-                    dataFile.getFileSystem().close(); // Close book file system
+                        logger.info("Loaded {}", dataFile);
+                    }
                 }
             } catch (IOException |
                      JAXBException ex) {
                 logger.warn("Error unmarshalling from {}", pathString, ex);
             } finally {
-                book.getLock().unlock();
+                book.getReadLock().unlock();
             }
         }
 
@@ -66,13 +66,11 @@ import java.util.Map.Entry;
 import java.util.concurrent.ConcurrentSkipListMap;
 
 import javax.media.jai.JAI;
-import javax.xml.bind.JAXBException;
 import javax.xml.bind.annotation.XmlAccessType;
 import javax.xml.bind.annotation.XmlAccessorType;
 import javax.xml.bind.annotation.XmlAttribute;
 import javax.xml.bind.annotation.XmlElement;
 import javax.xml.bind.annotation.XmlRootElement;
-import javax.xml.stream.XMLStreamException;
 
 /**
  * Class {@code Picture} starts from the original BufferedImage to provide all {@link
@@ -582,6 +580,30 @@ public class Picture
         return table;
     }
 
+    //--------------//
+    // getTableView //
+    //--------------//
+    /**
+     * Report a read-only view on the desired table.
+     * <p>
+     * If the table is not yet loaded, it is not materialized in memory, its runs being
+     * decoded on demand from the book file.
+     * This is meant for processing that needs only a region of the table.
+     *
+     * @param key key of desired table
+     * @return the (read-only) table found, if any, null otherwise
+     */
+    public RunTable getTableView (TableKey key)
+    {
+        RunTableHolder tableHolder = tables.get(key);
+
+        if (tableHolder == null) {
+            return null;
+        }
+
+        return tableHolder.getView(sheet.getStub());
+    }
+
     //----------//
     // getWidth //
     //----------//
@@ -761,13 +783,13 @@ public class Picture
         for (Entry<TableKey, RunTableHolder> entry : tables.entrySet()) {
             final TableKey key = entry.getKey();
             final RunTableHolder holder = entry.getValue();
-            final Path tablepath = sheetFolder.resolve(key + ".xml");
 
             if (!holder.hasData()) {
                 if (oldSheetFolder != null) {
                     try {
-                        // Copy from old book file to new
-                        Path oldTablePath = oldSheetFolder.resolve(key + ".xml");
+                        // Copy from old book file to new, keeping the table format
+                        Path oldTablePath = holder.resolveDataFile(oldSheetFolder);
+                        Path tablepath = sheetFolder.resolve(oldTablePath.getFileName().toString());
                         Files.copy(oldTablePath, tablepath);
                         logger.info("Copied {}", tablepath);
                     } catch (IOException ex) {
@@ -776,15 +798,9 @@ public class Picture
                 }
             } else if (holder.isModified()) {
                 try {
-                    Files.deleteIfExists(tablepath);
-
-                    RunTable table = holder.getData(sheet.getStub());
-                    table.marshal(tablepath);
-                    holder.setModified(false);
+                    Path tablepath = holder.storeData(sheetFolder, sheet.getStub());
                     logger.info("Stored {}", tablepath);
-                } catch (IOException |
-                         JAXBException |
-                         XMLStreamException ex) {
+                } catch (IOException ex) {
                     logger.warn("Error in picture.store " + ex, ex);
                 }
             }
@@ -21,14 +21,18 @@
 // </editor-fold>
 package org.audiveris.omr.sheet;
 
+import org.audiveris.omr.run.LazyRunTable;
 import org.audiveris.omr.run.RunTable;
+import org.audiveris.omr.run.RunTableCodec;
 import org.audiveris.omr.sheet.Picture.TableKey;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.IOException;
+import java.nio.file.Files;
 import java.nio.file.Path;
+
 import javax.xml.bind.annotation.XmlAccessType;
 import javax.xml.bind.annotation.XmlAccessorType;
 import javax.xml.bind.annotation.XmlAttribute;
@@ -36,6 +40,9 @@ import javax.xml.bind.annotation.XmlAttribute;
 /**
  * Class {@code RunTableHolder} holds the reference to a run table, at least the path
  * to its marshalled data on disk, and (on demand) the unmarshalled run table itself.
+ * <p>
+ * Tables are stored in binary format (see {@link RunTableCodec}), but tables stored in legacy XML
+ * format by older releases are still readable.
  *
  * @author Hervé Bitteur
  */
@@ -46,11 +53,14 @@ public class RunTableHolder
     private static final Logger logger = LoggerFactory.getLogger(RunTableHolder.class);
 
     /** Direct access to data, if any. */
-    private RunTable data;
+    private volatile RunTable data;
+
+    /** Read-only lazy view on stored data, if any. */
+    private volatile LazyRunTable view;
 
     /** Path to data on disk. */
     @XmlAttribute(name = "path")
-    private final String pathString;
+    private String pathString;
 
     /** To avoid useless marshalling to disk. */
     private boolean modified = false;
@@ -62,7 +72,7 @@ public class RunTableHolder
      */
     public RunTableHolder (TableKey key)
     {
-        pathString = key + ".xml";
+        pathString = key + RunTableCodec.BINARY_EXTENSION;
     }
 
     /** No-arg constructor needed for JAXB. */
@@ -84,28 +94,85 @@ public class RunTableHolder
     {
         if (data == null) {
             try {
-                stub.getBook().getLock().lock();
-
-                if (data == null) {
-                    // Open book file system
-                    Path dataFolder = stub.getBook().openSheetFolder(stub.getNumber());
-                    Path dataFile = dataFolder.resolve(pathString);
-                    logger.debug("path to file: {}", dataFile);
-                    data = RunTable.unmarshal(dataFile);
-                    dataFile.getFileSystem().close(); // Close book file system
-                    modified = false;
-                    logger.debug("Loaded {}", dataFile);
+                stub.getBook().getReadLock().lock();
+
+                synchronized (this) {
+                    if (data == null) {
+                        // Read from shared book file system
+                        Path dataFolder = stub.getBook().getSheetFolder(stub.getNumber());
+                        Path dataFile = resolveDataFile(dataFolder);
+                        logger.debug("path to file: {}", dataFile);
+                        data = RunTableCodec.load(dataFile);
+                        view = null;
+                        modified = false;
+                        logger.debug("Loaded {}", dataFile);
+                    }
                 }
             } catch (IOException ex) {
                 logger.warn("Error unmarshalling from {}", pathString, ex);
             } finally {
-                stub.getBook().getLock().unlock();
+                stub.getBook().getReadLock().unlock();
             }
         }
 
         return data;
     }
 
+    //---------//
+    // getView //
+    //---------//
+    /**
+     * Return a read-only view on the handled data.
+     * <p>
+     * If data is already loaded, it is returned as is.
+     * Otherwise, a lazy table is returned, which decodes its sequences on demand from the stored
+     * binary content, without materializing the whole table in memory.
+     * (A table stored in legacy XML format is simply fully loaded).
+     *
+     * @param stub the related stub instance
+     * @return the (read-only) data view
+     */
+    public RunTable getView (SheetStub stub)
+    {
+        if (data != null) {
+            return data;
+        }
+
+        if (view == null) {
+            boolean legacy = false;
+
+            try {
+                stub.getBook().getReadLock().lock();
+
+                synchronized (this) {
+                    if ((data == null) && (view == null)) {
+                        // Read from shared book file system
+                        Path dataFolder = stub.getBook().getSheetFolder(stub.getNumber());
+                        Path dataFile = resolveDataFile(dataFolder);
+
+                        if (RunTableCodec.isXml(dataFile)) {
+                            legacy = true;
+                        } else {
+                            view = new LazyRunTable(
+                                    new RunTableCodec.Reader(RunTableCodec.open(dataFile)));
+                            logger.debug("Viewed {}", dataFile);
+                        }
+                    }
+                }
+            } catch (IOException ex) {
+                logger.warn("Error viewing {}", pathString, ex);
+            } finally {
+                stub.getBook().getReadLock().unlock();
+            }
+
+            if (legacy) {
+                return getData(stub);
+            }
+        }
+
+        return (data != null) ? data : view;
+    }
+
     //---------//
     // hasData //
     //---------//
@@ -145,6 +212,68 @@ public class RunTableHolder
         modified = bool;
     }
 
+    //-----------------//
+    // resolveDataFile //
+    //-----------------//
+    /**
+     * Report the path to the data file within the provided sheet folder.
+     * <p>
+     * If there is no file with the recorded name, the same table is looked up in the other
+     * format (binary or legacy XML), and if found its name is recorded.
+     *
+     * @param sheetFolder the sheet folder in book file
+     * @return the path to data file
+     */
+    public Path resolveDataFile (Path sheetFolder)
+    {
+        final Path path = sheetFolder.resolve(pathString);
+
+        if (!Files.exists(path)) {
+            final String radix = pathString.substring(0, pathString.lastIndexOf('.'));
+
+            for (String ext : new String[]{
+                RunTableCodec.BINARY_EXTENSION, RunTableCodec.XML_EXTENSION}) {
+                final Path alt = sheetFolder.resolve(radix + ext);
+
+                if (Files.exists(alt)) {
+                    pathString = radix + ext;
+
+                    return alt;
+                }
+            }
+        }
+
+        return path;
+    }
+
+    //-----------//
+    // storeData //
+    //-----------//
+    /**
+     * Store the table data in binary format into the provided sheet folder.
+     * Any legacy XML version of the same table is removed.
+     *
+     * @param sheetFolder the sheet folder in book file
+     * @param stub        the related stub instance
+     * @return the path to stored file
+     * @throws IOException on IO error
+     */
+    public Path storeData (Path sheetFolder,
+                           SheetStub stub)
+            throws IOException
+    {
+        final String radix = pathString.substring(0, pathString.lastIndexOf('.'));
+        final Path path = sheetFolder.resolve(radix + RunTableCodec.BINARY_EXTENSION);
+        Files.deleteIfExists(sheetFolder.resolve(radix + RunTableCodec.XML_EXTENSION));
+        Files.deleteIfExists(path);
+
+        RunTableCodec.write(getData(stub), path);
+        pathString = radix + RunTableCodec.BINARY_EXTENSION;
+        setModified(false);
+
+        return path;
+    }
+
     //---------//
     // setData //
     //---------//
@@ -158,6 +287,7 @@ public class RunTableHolder
                          boolean modified)
     {
         this.data = data;
+        view = null;
         setModified(modified);
     }
 
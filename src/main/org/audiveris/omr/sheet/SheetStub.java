@@ -38,12 +38,12 @@ import org.audiveris.omr.sheet.ui.StubsController;
 import org.audiveris.omr.step.ProcessingCancellationException;
 import org.audiveris.omr.step.Step;
 import org.audiveris.omr.step.StepException;
+import org.audiveris.omr.step.StepScheduler;
 import org.audiveris.omr.step.ui.StepMonitoring;
 import org.audiveris.omr.ui.Colors;
 import org.audiveris.omr.util.Jaxb;
 import org.audiveris.omr.util.Memory;
 import org.audiveris.omr.util.Navigable;
-import org.audiveris.omr.util.OmrExecutors;
 import org.audiveris.omr.util.StopWatch;
 import org.audiveris.omr.util.ZipFileSystem;
 import org.audiveris.omr.util.param.Param;
@@ -64,7 +64,6 @@ import java.util.EnumSet;
 import java.util.List;
 import java.util.concurrent.Callable;
 import java.util.concurrent.ExecutionException;
-import java.util.concurrent.Future;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
 import java.util.concurrent.locks.Lock;
@@ -326,6 +325,29 @@ public class SheetStub
         }
     }
 
+    //--------------//
+    // discardSheet //
+    //--------------//
+    /**
+     * Release sheet material from memory, without storing it.
+     * <p>
+     * This is meant for a sheet whose processing failed: its partial results are dropped and the
+     * stub gets back to its non-processed state (validity flag is kept), so that if needed the
+     * sheet would be processed again from the input image.
+     */
+    public void discardSheet ()
+    {
+        if (sheet != null) {
+            logger.info("{} discarded", sheet);
+        }
+
+        doneSteps.clear();
+        pageRefs.clear();
+        sheet = null;
+        setModified(true);
+        Memory.gc(); // Trigger a garbage collection...
+    }
+
     //------//
     // done //
     //------//
@@ -609,10 +631,10 @@ public class SheetStub
                             Path sheetFile = null;
                             watch.start("unmarshal");
 
-                            // Open the book file system
+                            // Read from the shared book file system
                             try {
-                                book.getLock().lock();
-                                sheetFile = book.openSheetFolder(number).resolve(
+                                book.getReadLock().lock();
+                                sheetFile = book.getSheetFolder(number).resolve(
                                         Sheet.getSheetFileName(number));
 
                                 try (InputStream is = Files.newInputStream(
@@ -620,10 +642,8 @@ public class SheetStub
                                         StandardOpenOption.READ)) {
                                     this.sheet = sh = Sheet.unmarshal(is);
                                 }
-
-                                sheetFile.getFileSystem().close();
                             } finally {
-                                book.getLock().unlock();
+                                book.getReadLock().unlock();
                             }
 
                             // Complete sheet reload
@@ -953,6 +973,7 @@ public class SheetStub
 
                 Path sheetFolder = root.resolve(INTERNALS_RADIX + getNumber());
                 sheet.store(sheetFolder, null);
+                book.closeReadView(); // Book file is about to be replaced
                 root.getFileSystem().close();
             } finally {
                 lock.unlock();
@@ -1068,6 +1089,8 @@ public class SheetStub
      * Do just one specified step, synchronously, with display of related UI if any.
      * <p>
      * Step duration is guarded by a timeout, so that processing cannot get blocked infinitely.
+     * The timeout applies to step run time, the time spent waiting for a pool worker being
+     * guarded by a separate timeout.
      *
      * @param step the step to perform
      * @throws Exception
@@ -1076,7 +1099,7 @@ public class SheetStub
             throws Exception
     {
         final int timeout = Main.getSheetStepTimeOut();
-        Future<Void> future = null;
+        final int queueTimeout = Main.getSheetStepQueueTimeOut();
 
         try {
             // Make sure sheet is available
@@ -1085,7 +1108,7 @@ public class SheetStub
             }
 
             // Implement a timeout for this step on the stub
-            future = OmrExecutors.getCachedLowExecutor().submit(new Callable<Void>()
+            final StepScheduler.StepFuture future = StepScheduler.submit(step, new Callable<Void>()
             {
                 @Override
                 public Void call ()
@@ -1108,7 +1131,7 @@ public class SheetStub
                 }
             });
 
-            future.get(timeout, TimeUnit.SECONDS);
+            future.awaitRun(queueTimeout, timeout, TimeUnit.SECONDS); // Step cancelled on timeout
 
             // At end of each step, save sheet to disk?
             if ((OMR.gui == null) && Main.getCli().isSave()) {
@@ -1116,12 +1139,12 @@ public class SheetStub
                 storeSheet();
             }
         } catch (TimeoutException tex) {
-            logger.warn("Timeout {} seconds for step {}", timeout, step, tex);
-
-            // Signal the on-going step processing to stop (if possible)
-            if (future != null) {
-                future.cancel(true);
-            }
+            logger.warn(
+                    "Timeout for step {} (queue:{}s run:{}s)",
+                    step,
+                    queueTimeout,
+                    timeout,
+                    tex);
 
             throw new ProcessingCancellationException(tex);
         } finally {
@@ -29,7 +29,7 @@ import org.audiveris.omr.glyph.Glyph;
 import org.audiveris.omr.glyph.GlyphFactory;
 import org.audiveris.omr.glyph.GlyphGroup;
 import org.audiveris.omr.glyph.Glyphs;
-import org.audiveris.omr.image.MorphoProcessor;
+import org.audiveris.omr.image.SegmentMorphoProcessor;
 import org.audiveris.omr.image.StructureElement;
 import org.audiveris.omr.math.Population;
 import org.audiveris.omr.run.RunTable;
@@ -98,7 +98,7 @@ public class BlackHeadSizer
 
         final int[] seOffset = {0, 0};
         final StructureElement se = new StructureElement(0, 1, radius, seOffset);
-        final MorphoProcessor mp = new MorphoProcessor(se);
+        final SegmentMorphoProcessor mp = new SegmentMorphoProcessor(se);
 
         // Filter the spots based on typical weight, width and height.
         // Then derive main width and main height.
@@ -175,7 +175,7 @@ public class BlackHeadSizer
      * @param spot raw beam-oriented spot
      * @return head-oriented glyph
      */
-    private Glyph closeBlackHead (MorphoProcessor mp,
+    private Glyph closeBlackHead (SegmentMorphoProcessor mp,
                                   Glyph spot)
     {
         ByteProcessor buffer = spot.getBuffer();
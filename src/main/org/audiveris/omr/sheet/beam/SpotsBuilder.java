@@ -31,7 +31,7 @@ import org.audiveris.omr.glyph.GlyphFactory;
 import org.audiveris.omr.glyph.GlyphGroup;
 import org.audiveris.omr.glyph.GlyphIndex;
 import org.audiveris.omr.image.ImageUtil;
-import org.audiveris.omr.image.MorphoProcessor;
+import org.audiveris.omr.image.SegmentMorphoProcessor;
 import org.audiveris.omr.image.StructureElement;
 import org.audiveris.omr.lag.Lag;
 import org.audiveris.omr.run.Orientation;
@@ -175,7 +175,7 @@ public class SpotsBuilder
         final int[] seOffset = {0, 0};
         StructureElement se = new StructureElement(0, 1, radius, seOffset);
         watch.start("close");
-        new MorphoProcessor(se).close(buffer);
+        new SegmentMorphoProcessor(se).close(buffer);
 
         // For visual check
         watch.start("visualCheck");
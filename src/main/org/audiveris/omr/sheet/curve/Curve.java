@@ -425,8 +425,8 @@ public abstract class Curve
     public Glyph retrieveGlyph (Sheet sheet,
                                 double maxRunDistance)
     {
-        // Sheet global vertical run table
-        RunTable sheetTable = sheet.getPicture().getTable(Picture.TableKey.BINARY);
+        // Sheet global vertical run table (only a few sequences are needed)
+        RunTable sheetTable = sheet.getPicture().getTableView(Picture.TableKey.BINARY);
 
         // Allocate a curve run table with proper dimension
         Rectangle fatBox = getBounds();
@@ -112,6 +112,13 @@ public class Curves
     //-------------//
     /**
      * Build all curves out of the image skeleton, by appending arcs.
+     * <p>
+     * Only endings evaluation can run in parallel (see {@link EndingsBuilder#buildEndings()}).
+     * Slurs and segments are built by extending arcs which, once assigned to a curve, are no
+     * longer available to the other curves.
+     * Wedges are built by greedy pairing of segments, each pair being removed from the candidates
+     * as soon as it is found.
+     * So these builders stay sequential, otherwise results would depend on tasks scheduling.
      */
     public void buildCurves ()
     {
@@ -27,6 +27,7 @@ import org.audiveris.omr.glyph.Glyph;
 import org.audiveris.omr.glyph.GlyphFactory;
 import org.audiveris.omr.glyph.dynamic.Filament;
 import org.audiveris.omr.glyph.dynamic.FilamentFactory;
+import org.audiveris.omr.glyph.dynamic.FilamentIndex;
 import org.audiveris.omr.glyph.dynamic.StraightFilament;
 import org.audiveris.omr.lag.Section;
 import org.audiveris.omr.lag.Sections;
@@ -50,6 +51,7 @@ import org.audiveris.omr.sig.inter.SentenceInter;
 import org.audiveris.omr.sig.inter.StaffBarlineInter;
 import org.audiveris.omr.sig.relation.EndingBarRelation;
 import org.audiveris.omr.sig.relation.EndingSentenceRelation;
+import org.audiveris.omr.step.StepScheduler;
 import org.audiveris.omr.util.Dumping;
 import static org.audiveris.omr.util.HorizontalSide.*;
 import org.audiveris.omr.util.Navigable;
@@ -66,6 +68,7 @@ import java.util.Collections;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Set;
+import java.util.concurrent.Callable;
 
 /**
  * Class {@code EndingsBuilder} retrieves the endings out of segments found in sheet
@@ -110,13 +113,33 @@ public class EndingsBuilder
      * Endings are long horizontal segments, with a downward leg on the left side and optionally
      * another leg on the right side.
      * Each side is related to a distinct bar line.
+     * <p>
+     * Segments are evaluated independently, perhaps in parallel, with no modification of sheet
+     * data: leg filaments are not registered at this point.
+     * Endings, with their leg filaments and glyphs, are then created in segments order, so that
+     * the result (including entity ids) does not depend on parallelism.
      */
     public void buildEndings ()
     {
-        List<SegmentInter> segments = curves.getSegments();
+        final List<SegmentInter> segments = curves.getSegments();
+        final List<Callable<List<Candidate>>> tasks = new ArrayList<>(segments.size());
+        createLegFactory().dump("EndingsBuilder factory");
+
+        for (final SegmentInter segment : segments) {
+            tasks.add(new Callable<List<Candidate>>()
+            {
+                @Override
+                public List<Candidate> call ()
+                {
+                    return evaluateSegment(segment);
+                }
+            });
+        }
 
-        for (SegmentInter segment : segments) {
-            processSegment(segment);
+        for (List<Candidate> candidates : StepScheduler.invokeForSheet(sheet.getStub(), tasks)) {
+            for (Candidate candidate : candidates) {
+                createEnding(candidate);
+            }
         }
     }
 
@@ -146,6 +169,214 @@ public class EndingsBuilder
         return sheet.getGlyphIndex().registerOriginal(GlyphFactory.buildGlyph(parts));
     }
 
+    //--------------//
+    // createEnding //
+    //--------------//
+    /**
+     * Create the ending inter for the provided candidate, with its bar relations.
+     *
+     * @param candidate the successful candidate
+     */
+    private void createEnding (Candidate candidate)
+    {
+        final SegmentInter segment = candidate.segment;
+        final SIGraph sig = candidate.system.getSig();
+        final Line2D leftLine = new Line2D.Double(
+                candidate.leftLeg.getStartPoint(),
+                candidate.leftLeg.getStopPoint());
+        final Line2D rightLine = (candidate.rightLeg == null) ? null
+                : new Line2D.Double(
+                        candidate.rightLeg.getStartPoint(),
+                        candidate.rightLeg.getStopPoint());
+        final EndingInter endingInter = new EndingInter(
+                segment,
+                candidate.line,
+                leftLine,
+                rightLine,
+                segment.getBounds(),
+                candidate.impacts);
+
+        // Leg filaments, and underlying glyph
+        final FilamentIndex filamentIndex = sheet.getFilamentIndex();
+        filamentIndex.register(candidate.leftLeg);
+
+        if (candidate.rightLeg != null) {
+            filamentIndex.register(candidate.rightLeg);
+        }
+
+        endingInter.setGlyph(buildGlyph(segment, candidate.leftLeg, candidate.rightLeg));
+
+        sig.addVertex(endingInter);
+
+        if (candidate.leftBar != null) {
+            sig.addEdge(endingInter, candidate.leftBar, candidate.leftRel);
+        }
+
+        sig.addEdge(endingInter, candidate.rightBar, candidate.rightRel);
+
+        // Ending text?
+        grabSentence(endingInter);
+    }
+
+    //------------------//
+    // createLegFactory //
+    //------------------//
+    /**
+     * Create a factory for leg filaments.
+     * <p>
+     * Filaments created by this factory are not registered in sheet filament index, so that
+     * segments can be evaluated concurrently.
+     *
+     * @return a new factory
+     */
+    private FilamentFactory<StraightFilament> createLegFactory ()
+    {
+        final FilamentFactory<StraightFilament> factory = new FilamentFactory<>(
+                sheet.getScale(),
+                null,
+                VERTICAL,
+                StraightFilament.class);
+
+        // Adjust factory parameters
+        factory.setMaxThickness(
+                (int) Math.ceil(sheet.getScale().getMaxStem() * constants.stemRatio.getValue()));
+        factory.setMaxOverlapDeltaPos(constants.maxOverlapDeltaPos);
+        factory.setMaxOverlapSpace(constants.maxOverlapSpace);
+        factory.setMaxCoordGap(constants.maxCoordGap);
+
+        return factory;
+    }
+
+    //-----------------//
+    // evaluateSegment //
+    //-----------------//
+    /**
+     * Check the horizontal segment for being an ending.
+     * <p>
+     * This method creates nothing in the systems SIGs, it just reports the successful candidates.
+     * <p>
+     * TODO: Grab text (such as '1.' or '1,2' etc) located in left corner of the ending.
+     * Perhaps force local OCR processing there (or symbol extraction/recognition)?
+     *
+     * @param segment the horizontal segment
+     * @return the ending candidates, one per relevant system, perhaps empty
+     */
+    private List<Candidate> evaluateSegment (SegmentInter segment)
+    {
+        final List<Candidate> candidates = new ArrayList<>();
+        final Scale scale = sheet.getScale();
+
+        // Check segment characteristics: length, slope, bar line alignments, legs.
+        SegmentInfo seg = segment.getInfo();
+        Point leftEnd = seg.getEnd(true);
+        Point rightEnd = seg.getEnd(false);
+
+        // Length
+        double length = seg.getXLength();
+
+        if (length < params.minLengthLow) {
+            return candidates;
+        }
+
+        // Slope
+        Line2D line = new Line2D.Double(leftEnd, rightEnd);
+        double slope = Math.abs(LineUtil.getSlope(line) - sheet.getSkew().getSlope());
+
+        if (slope > params.maxSlope) {
+            return candidates;
+        }
+
+        // Relevant system(s)
+        List<SystemInfo> systems = sheet.getSystemManager().getSystemsOf(leftEnd, null);
+        systems.retainAll(sheet.getSystemManager().getSystemsOf(rightEnd, null));
+
+        for (SystemInfo system : systems) {
+            SIGraph sig = system.getSig();
+
+            // Consider the staff just below the segment
+            Staff staff = system.getStaffAtOrBelow(leftEnd);
+
+            if (staff == null) {
+                continue;
+            }
+
+            List<Inter> systemBars = sig.inters(StaffBarlineInter.class);
+
+            // Left leg (mandatory)
+            Filament leftLeg = lookupLeg(seg, true, staff);
+
+            if (leftLeg == null) {
+                continue;
+            }
+
+            // Left bar (or header)
+            StaffBarlineInter leftBar = lookupBar(seg, true, staff, systemBars);
+            final EndingBarRelation leftRel = new EndingBarRelation(LEFT, 0.5);
+
+            if (leftBar == null) {
+                // Check the special case of a staff start (with header?, with no barline?)
+                MeasureStack firstStack = system.getFirstStack();
+                Measure firstMeasure = firstStack.getMeasureAt(staff);
+
+                if (leftEnd.x >= firstMeasure.getAbscissa(RIGHT, staff)) {
+                    continue; // segment starts after end of first measure
+                }
+
+                PartBarline partLine = staff.getPart().getLeftPartBarline();
+
+                if (partLine != null) {
+                    leftBar = partLine.getStaffBarline(staff.getPart(), staff);
+                    leftRel.setOutGaps(0, 0, false);
+                }
+            } else {
+                double leftDist = scale.pixelsToFrac(Math.abs(leftBar.getCenter().x - leftEnd.x));
+                leftRel.setOutGaps(leftDist, 0, false);
+            }
+
+            // Right leg (optional)
+            Filament rightLeg = lookupLeg(seg, false, staff);
+
+            // Right bar
+            StaffBarlineInter rightBar = lookupBar(seg, false, staff, systemBars);
+
+            if (rightBar == null) {
+                continue;
+            }
+
+            final double rightDist = scale.pixelsToFrac(
+                    Math.abs(rightBar.getCenter().x - rightEnd.x));
+            final EndingBarRelation rightRel = new EndingBarRelation(RIGHT, rightDist);
+            rightRel.setOutGaps(rightDist, 0, false);
+
+            // Evaluate ending
+            GradeImpacts segImp = segment.getImpacts();
+            double straight = segImp.getGrade() / segImp.getIntrinsicRatio();
+            GradeImpacts impacts = new EndingInter.Impacts(
+                    straight,
+                    1 - (slope / params.maxSlope),
+                    (length - params.minLengthLow) / (params.minLengthHigh - params.minLengthLow),
+                    leftRel.getGrade(),
+                    rightRel.getGrade());
+
+            if (impacts.getGrade() >= EndingInter.getMinGrade()) {
+                candidates.add(
+                        new Candidate(
+                                segment,
+                                system,
+                                line,
+                                leftLeg,
+                                rightLeg,
+                                leftBar,
+                                leftRel,
+                                rightBar,
+                                rightRel,
+                                impacts));
+            }
+        }
+
+        return candidates;
+    }
+
     //--------------//
     // grabSentence //
     //--------------//
@@ -240,26 +471,9 @@ public class EndingsBuilder
 
         SystemInfo system = staff.getSystem();
         Set<Section> sections = Sections.intersectedSections(box, system.getVerticalSections());
-        Scale scale = sheet.getScale();
-        FilamentFactory<StraightFilament> factory = new FilamentFactory<>(
-                scale,
-                sheet.getFilamentIndex(),
-                VERTICAL,
-                StraightFilament.class);
-
-        // Adjust factory parameters
-        factory.setMaxThickness(
-                (int) Math.ceil(sheet.getScale().getMaxStem() * constants.stemRatio.getValue()));
-        factory.setMaxOverlapDeltaPos(constants.maxOverlapDeltaPos);
-        factory.setMaxOverlapSpace(constants.maxOverlapSpace);
-        factory.setMaxCoordGap(constants.maxCoordGap);
-
-        if (system.getId() == 1) {
-            factory.dump("EndingsBuilder factory");
-        }
 
         // Retrieve candidates
-        List<StraightFilament> filaments = factory.retrieveFilaments(sections);
+        List<StraightFilament> filaments = createLegFactory().retrieveFilaments(sections);
 
         // Purge filaments
         for (Iterator<StraightFilament> it = filaments.iterator(); it.hasNext();) {
@@ -295,141 +509,56 @@ public class EndingsBuilder
         return bestFil;
     }
 
-    //----------------//
-    // processSegment //
-    //----------------//
+    //-----------//
+    // Candidate //
+    //-----------//
     /**
-     * Check the horizontal segment for being an ending.
-     * <p>
-     * TODO: Grab text (such as '1.' or '1,2' etc) located in left corner of the ending.
-     * Perhaps force local OCR processing there (or symbol extraction/recognition)?
-     *
-     * @param segment the horizontal segment
+     * Successful evaluation of a segment as an ending within a system.
      */
-    private void processSegment (SegmentInter segment)
+    private static class Candidate
     {
-        final Scale scale = sheet.getScale();
-
-        // Check segment characteristics: length, slope, bar line alignments, legs.
-        SegmentInfo seg = segment.getInfo();
-        Point leftEnd = seg.getEnd(true);
-        Point rightEnd = seg.getEnd(false);
-
-        // Length
-        double length = seg.getXLength();
-
-        if (length < params.minLengthLow) {
-            return;
-        }
-
-        // Slope
-        Line2D line = new Line2D.Double(leftEnd, rightEnd);
-        double slope = Math.abs(LineUtil.getSlope(line) - sheet.getSkew().getSlope());
-
-        if (slope > params.maxSlope) {
-            return;
-        }
-
-        // Relevant system(s)
-        List<SystemInfo> systems = sheet.getSystemManager().getSystemsOf(leftEnd, null);
-        systems.retainAll(sheet.getSystemManager().getSystemsOf(rightEnd, null));
-
-        for (SystemInfo system : systems) {
-            SIGraph sig = system.getSig();
-
-            // Consider the staff just below the segment
-            Staff staff = system.getStaffAtOrBelow(leftEnd);
-
-            if (staff == null) {
-                continue;
-            }
-
-            List<Inter> systemBars = sig.inters(StaffBarlineInter.class);
 
-            // Left leg (mandatory)
-            Filament leftLeg = lookupLeg(seg, true, staff);
+        final SegmentInter segment;
 
-            if (leftLeg == null) {
-                continue;
-            }
-
-            // Left bar (or header)
-            StaffBarlineInter leftBar = lookupBar(seg, true, staff, systemBars);
-            final EndingBarRelation leftRel = new EndingBarRelation(LEFT, 0.5);
-
-            if (leftBar == null) {
-                // Check the special case of a staff start (with header?, with no barline?)
-                MeasureStack firstStack = system.getFirstStack();
-                Measure firstMeasure = firstStack.getMeasureAt(staff);
-
-                if (leftEnd.x >= firstMeasure.getAbscissa(RIGHT, staff)) {
-                    continue; // segment starts after end of first measure
-                }
-
-                PartBarline partLine = staff.getPart().getLeftPartBarline();
+        final SystemInfo system;
 
-                if (partLine != null) {
-                    leftBar = partLine.getStaffBarline(staff.getPart(), staff);
-                    leftRel.setOutGaps(0, 0, false);
-                }
-            } else {
-                double leftDist = scale.pixelsToFrac(Math.abs(leftBar.getCenter().x - leftEnd.x));
-                leftRel.setOutGaps(leftDist, 0, false);
-            }
+        final Line2D line;
 
-            // Right leg (optional)
-            Filament rightLeg = lookupLeg(seg, false, staff);
+        final Filament leftLeg;
 
-            // Right bar
-            StaffBarlineInter rightBar = lookupBar(seg, false, staff, systemBars);
+        final Filament rightLeg; // Optional
 
-            if (rightBar == null) {
-                continue;
-            }
+        final StaffBarlineInter leftBar; // Optional
 
-            final double rightDist = scale.pixelsToFrac(
-                    Math.abs(rightBar.getCenter().x - rightEnd.x));
-            final EndingBarRelation rightRel = new EndingBarRelation(RIGHT, rightDist);
-            rightRel.setOutGaps(rightDist, 0, false);
+        final EndingBarRelation leftRel;
 
-            // Create ending inter
-            GradeImpacts segImp = segment.getImpacts();
-            double straight = segImp.getGrade() / segImp.getIntrinsicRatio();
-            GradeImpacts impacts = new EndingInter.Impacts(
-                    straight,
-                    1 - (slope / params.maxSlope),
-                    (length - params.minLengthLow) / (params.minLengthHigh - params.minLengthLow),
-                    leftRel.getGrade(),
-                    rightRel.getGrade());
+        final StaffBarlineInter rightBar;
 
-            if (impacts.getGrade() >= EndingInter.getMinGrade()) {
-                Line2D leftLine = new Line2D.Double(
-                        leftLeg.getStartPoint(),
-                        leftLeg.getStopPoint());
-                Line2D rightLine = (rightLeg == null) ? null
-                        : new Line2D.Double(rightLeg.getStartPoint(), rightLeg.getStopPoint());
-                EndingInter endingInter = new EndingInter(
-                        segment,
-                        line,
-                        leftLine,
-                        rightLine,
-                        segment.getBounds(),
-                        impacts);
-
-                // Underlying glyph
-                endingInter.setGlyph(buildGlyph(segment, leftLeg, rightLeg));
-
-                sig.addVertex(endingInter);
-
-                if (leftBar != null) {
-                    sig.addEdge(endingInter, leftBar, leftRel);
-                }
+        final EndingBarRelation rightRel;
 
-                sig.addEdge(endingInter, rightBar, rightRel);
+        final GradeImpacts impacts;
 
-                // Ending text?
-                grabSentence(endingInter);
-            }
+        Candidate (SegmentInter segment,
+                   SystemInfo system,
+                   Line2D line,
+                   Filament leftLeg,
+                   Filament rightLeg,
+                   StaffBarlineInter leftBar,
+                   EndingBarRelation leftRel,
+                   StaffBarlineInter rightBar,
+                   EndingBarRelation rightRel,
+                   GradeImpacts impacts)
+        {
+            this.segment = segment;
+            this.system = system;
+            this.line = line;
+            this.leftLeg = leftLeg;
+            this.rightLeg = rightLeg;
+            this.leftBar = leftBar;
+            this.leftRel = leftRel;
+            this.rightBar = rightBar;
+            this.rightRel = rightRel;
+            this.impacts = impacts;
         }
     }
 
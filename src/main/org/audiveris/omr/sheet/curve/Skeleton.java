@@ -28,6 +28,7 @@ import org.audiveris.omr.constant.ConstantSet;
 import org.audiveris.omr.glyph.Glyph;
 import org.audiveris.omr.glyph.Shape;
 import org.audiveris.omr.image.ImageUtil;
+import org.audiveris.omr.image.Thinner;
 import org.audiveris.omr.sheet.PageCleaner;
 import org.audiveris.omr.sheet.Picture;
 import org.audiveris.omr.sheet.Scale;
@@ -195,6 +196,7 @@ public class Skeleton
      * <p>
      * Since this skeleton is meant for curves (slurs, wedges, endings) we can limit processing past
      * some reasonable distance from staves (both in vertical and horizontal directions).
+     * Thinning is thus performed only within these staff areas, by tiles processed in parallel.
      * <p>
      * We must keep track of erased shapes at system level.
      * <ul>
@@ -212,8 +214,13 @@ public class Skeleton
 
         ///ByteProcessor buffer = picture.getSource(Picture.SourceKey.NO_STAFF);
         ByteProcessor buffer = picture.getSource(Picture.SourceKey.BINARY);
-        buffer = (ByteProcessor) buffer.duplicate();
-        buffer.skeletonize();
+
+        if (constants.useThinner.isSet()) {
+            buffer = new Thinner(buffer, getStaffAreas(sheet)).thin();
+        } else {
+            buffer = (ByteProcessor) buffer.duplicate();
+            buffer.skeletonize();
+        }
 
         BufferedImage img = buffer.getBufferedImage();
 
@@ -471,6 +478,47 @@ public class Skeleton
         return (dir % 2) == 0;
     }
 
+    //---------------//
+    // getStaffAreas //
+    //---------------//
+    /**
+     * Report the areas around staves where curves are looked for.
+     *
+     * @param sheet the related sheet
+     * @return the staff rectangles, enlarged by maximum gaps from staff
+     */
+    private static List<Rectangle> getStaffAreas (Sheet sheet)
+    {
+        final Scale scale = sheet.getScale();
+        final int maxDx = scale.toPixels(constants.maxDxFromStaff);
+        final int maxDy = scale.toPixels(constants.maxDyFromStaff);
+        final List<Rectangle> areas = new ArrayList<>();
+
+        for (Staff staff : sheet.getStaffManager().getStaves()) {
+            Rectangle staffRect = null;
+
+            for (VerticalSide vSide : VerticalSide.values()) {
+                LineInfo line = staff.getLine(vSide);
+
+                for (HorizontalSide hSide : HorizontalSide.values()) {
+                    int x = staff.getAbscissa(hSide);
+                    int y = line.yAt(x);
+
+                    if (staffRect == null) {
+                        staffRect = new Rectangle(x, y, 0, 0);
+                    } else {
+                        staffRect.add(x, y);
+                    }
+                }
+            }
+
+            staffRect.grow(maxDx, maxDy);
+            areas.add(staffRect);
+        }
+
+        return areas;
+    }
+
     //-----------//
     // Constants //
     //-----------//
@@ -482,6 +530,10 @@ public class Skeleton
                 false,
                 "Should we store skeleton images on disk?");
 
+        private final Constant.Boolean useThinner = new Constant.Boolean(
+                false,
+                "Should we thin staff areas by tiles? (not yet validated against CURVES results)");
+
         private final Constant.Boolean useHeader = new Constant.Boolean(
                 true,
                 "Should we erase the header at staff start");
@@ -540,31 +592,9 @@ public class Skeleton
          */
         public void eraseDistantRegions ()
         {
-            final Scale scale = sheet.getScale();
-            final int maxDx = scale.toPixels(constants.maxDxFromStaff);
-            final int maxDy = scale.toPixels(constants.maxDyFromStaff);
             final Area sheetArea = new Area(new Rectangle(buffer.getWidth(), buffer.getHeight()));
 
-            for (Staff staff : sheet.getStaffManager().getStaves()) {
-                Rectangle staffRect = null;
-
-                for (VerticalSide vSide : VerticalSide.values()) {
-                    LineInfo line = staff.getLine(vSide);
-
-                    for (HorizontalSide hSide : HorizontalSide.values()) {
-                        int x = staff.getAbscissa(hSide);
-                        int y = line.yAt(x);
-
-                        if (staffRect == null) {
-                            staffRect = new Rectangle(x, y, 0, 0);
-                        } else {
-                            staffRect.add(x, y);
-                        }
-                    }
-                }
-
-                staffRect.grow(maxDx, maxDy);
-
+            for (Rectangle staffRect : getStaffAreas(sheet)) {
                 Area staffArea = new Area(staffRect);
                 sheetArea.subtract(staffArea);
             }
@@ -23,6 +23,7 @@ package org.audiveris.omr.sheet.grid;
 
 import ij.process.ByteProcessor;
 
+import org.audiveris.omr.Main;
 import org.audiveris.omr.constant.Constant;
 import org.audiveris.omr.constant.ConstantSet;
 import org.audiveris.omr.glyph.dynamic.Filament;
@@ -43,6 +44,7 @@ import org.audiveris.omr.sheet.SystemInfo;
 import org.audiveris.omr.sheet.SystemManager;
 import static org.audiveris.omr.sheet.grid.StaffPeak.Attribute.BRACE;
 import org.audiveris.omr.step.StepException;
+import org.audiveris.omr.step.StepScheduler;
 import org.audiveris.omr.util.Dumping;
 import org.audiveris.omr.util.HorizontalSide;
 import static org.audiveris.omr.util.HorizontalSide.LEFT;
@@ -73,6 +75,7 @@ import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Set;
 import java.util.SortedSet;
+import java.util.concurrent.Callable;
 import java.util.TreeSet;
 
 /**
@@ -803,14 +806,48 @@ public class PeakGraph
     //--------------//
     /**
      * Use individual staff projections to retrieve bar peaks.
+     * <p>
+     * In parallel mode, staves are analyzed independently and their peaks are then added to
+     * the graph in staff order, so that the result does not depend on parallelism.
      */
     private void findBarPeaks ()
     {
-        // Analysis staff per staff
+        if (!Main.processPartitionsInParallel()) {
+            // Analysis staff per staff
+            for (Staff staff : staffManager.getStaves()) {
+                StaffProjector projector = new StaffProjector(sheet, staff, this);
+                projectors.add(projector);
+                projector.process();
+                Graphs.addAllVertices(this, projector.getPeaks());
+            }
+
+            return;
+        }
+
         for (Staff staff : staffManager.getStaves()) {
-            StaffProjector projector = new StaffProjector(sheet, staff, this);
-            projectors.add(projector);
-            projector.process();
+            projectors.add(new StaffProjector(sheet, staff, this));
+        }
+
+        // Analysis of all staves in parallel
+        final List<Callable<Void>> tasks = new ArrayList<>();
+
+        for (final StaffProjector projector : projectors) {
+            tasks.add(new Callable<Void>()
+            {
+                @Override
+                public Void call ()
+                {
+                    projector.process();
+
+                    return null;
+                }
+            });
+        }
+
+        StepScheduler.invokeForSheet(sheet.getStub(), tasks);
+
+        // Merge in staff order
+        for (StaffProjector projector : projectors) {
             Graphs.addAllVertices(this, projector.getPeaks());
         }
     }
@@ -987,7 +987,6 @@ public class StaffProjector
             } else if (start != -1) {
                 for (StaffPeak peak : browseRange(start, stop)) {
                     peaks.add(peak);
-                    peakGraph.addVertex(peak);
 
                     // Make sure peaks do not overlap
                     x = Math.max(x, peak.getStop());
@@ -1003,7 +1002,6 @@ public class StaffProjector
 
             if (peak != null) {
                 peaks.add(peak);
-                peakGraph.addVertex(peak);
             }
         }
 
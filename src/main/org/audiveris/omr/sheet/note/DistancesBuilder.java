@@ -30,7 +30,9 @@ import org.audiveris.omr.glyph.Glyph;
 import org.audiveris.omr.glyph.GlyphGroup;
 import org.audiveris.omr.image.ChamferDistance;
 import org.audiveris.omr.image.DistanceTable;
+import org.audiveris.omr.image.EuclideanDistance;
 import org.audiveris.omr.run.Orientation;
+import org.audiveris.omr.run.RunTable;
 import org.audiveris.omr.sheet.Picture;
 import org.audiveris.omr.sheet.Sheet;
 import org.audiveris.omr.sheet.Staff;
@@ -97,8 +99,21 @@ public class DistancesBuilder
     {
         // Compute the distance-to-foreground transform image
         Picture picture = sheet.getPicture();
-        ByteProcessor buffer = picture.getSource(Picture.SourceKey.BINARY);
-        table = new ChamferDistance.Short().computeToFore(buffer);
+
+        if (constants.useEuclideanDistance.isSet()) {
+            // Seeded directly from binary runs when available
+            RunTable runTable = picture.getTable(Picture.TableKey.BINARY);
+
+            if (runTable != null) {
+                table = new EuclideanDistance().computeToFore(runTable);
+            } else {
+                ByteProcessor buffer = picture.getSource(Picture.SourceKey.BINARY);
+                table = new EuclideanDistance().computeToFore(buffer);
+            }
+        } else {
+            ByteProcessor buffer = picture.getSource(Picture.SourceKey.BINARY);
+            table = new ChamferDistance.Short().computeToFore(buffer);
+        }
 
         // "Erase" staff lines, ledgers, stems
         paintLines();
@@ -195,5 +210,9 @@ public class DistancesBuilder
         private final Constant.Boolean displayTemplates = new Constant.Boolean(
                 false,
                 "Should we display the templates tab?");
+
+        private final Constant.Boolean useEuclideanDistance = new Constant.Boolean(
+                true,
+                "Should we use exact Euclidean distances rather than chamfer distances?");
     }
 }
@@ -1050,13 +1050,51 @@ public class NoteHeadsBuilder
             }
         }
 
+        //--------------//
+        // abandonLimit //
+        //--------------//
+        /**
+         * Report the distance beyond which a template evaluation can be abandoned
+         * without impacting the choice of best location.
+         *
+         * @param first   true for the very first location tried
+         * @param bestLoc best location so far, if any
+         * @return the limit distance
+         */
+        private double abandonLimit (boolean first,
+                                     PixelDistance bestLoc)
+        {
+            if (first) {
+                return params.firstAbandonDistance;
+            }
+
+            // A location no better than bestLoc would not be kept
+            if (bestLoc != null) {
+                return Math.min(params.abandonDistance, bestLoc.d);
+            }
+
+            return params.abandonDistance;
+        }
+
         //------//
         // eval //
         //------//
+        /**
+         * Evaluate a shape template at provided location.
+         *
+         * @param shape  the shape to try
+         * @param x      pivot abscissa
+         * @param y      pivot ordinate
+         * @param anchor precise anchor
+         * @param limit  distance value beyond which evaluation can be abandoned
+         * @return the location with its distance (which is just a lower bound, not lower than
+         *         limit, if evaluation was abandoned) or null if location was skipped
+         */
         private PixelDistance eval (Shape shape,
                                     int x,
                                     int y,
-                                    Anchor anchor)
+                                    Anchor anchor,
+                                    double limit)
         {
             final ShapeDescriptor desc = catalog.getDescriptor(shape);
             final Rectangle symBox = desc.getSymbolBoundsAt(x, y, anchor);
@@ -1084,7 +1122,7 @@ public class NoteHeadsBuilder
             }
 
             // Then try (all variants for) the shape and keep the best dist
-            double dist = desc.evaluate(x, y, anchor, distances);
+            double dist = desc.evaluate(x, y, anchor, distances, limit);
 
             if (useSeeds) {
                 seedsPerf.evals++;
@@ -1260,7 +1298,12 @@ public class NoteHeadsBuilder
 
                     for (int yOffset : yOffsets) {
                         final int y = y0 + yOffset;
-                        PixelDistance loc = eval(shape, x0, y, MIDDLE_LEFT);
+                        PixelDistance loc = eval(
+                                shape,
+                                x0,
+                                y,
+                                MIDDLE_LEFT,
+                                abandonLimit(y == y0, bestLoc));
 
                         if ((loc != null) && (loc.d <= params.maxDistanceLow)) {
                             if ((bestLoc == null) || (bestLoc.d > loc.d)) {
@@ -1356,7 +1399,12 @@ public class NoteHeadsBuilder
 
                             for (int xOffset : xOffsets) {
                                 final int x = x0 + xOffset;
-                                PixelDistance loc = eval(shape, x, y, anchor);
+                                PixelDistance loc = eval(
+                                        shape,
+                                        x,
+                                        y,
+                                        anchor,
+                                        abandonLimit((x == x0) && (y == y0), bestLoc));
 
                                 if ((loc != null) && (loc.d <= params.maxDistanceLow)) {
                                     if ((bestLoc == null) || (bestLoc.d > loc.d)) {
@@ -1543,6 +1591,10 @@ public class NoteHeadsBuilder
                 false,
                 "Should we print out the class parameters?");
 
+        private final Constant.Boolean useEarlyAbandon = new Constant.Boolean(
+                true,
+                "Should we abandon template evaluations known to fail?");
+
         private final Constant.Boolean allowAttachments = new Constant.Boolean(
                 false,
                 "Should we allow staff attachments for created areas?");
@@ -1648,6 +1700,10 @@ public class NoteHeadsBuilder
 
         final double reallyBadDistance;
 
+        final double abandonDistance;
+
+        final double firstAbandonDistance;
+
         final int maxTemplateDx;
 
         final int maxOpenDy;
@@ -1669,6 +1725,17 @@ public class NoteHeadsBuilder
             maxDistanceHigh = Template.maxDistanceHigh();
             reallyBadDistance = Template.reallyBadDistance();
 
+            if (constants.useEarlyAbandon.isSet()) {
+                // Beyond maxDistanceLow, a location is not kept
+                abandonDistance = Math.nextUp(maxDistanceLow);
+
+                // For the first location, we also need to detect a really bad distance
+                firstAbandonDistance = Math.max(abandonDistance, reallyBadDistance);
+            } else {
+                abandonDistance = Double.MAX_VALUE;
+                firstAbandonDistance = Double.MAX_VALUE;
+            }
+
             maxTemplateDx = scale.toPixels(constants.maxTemplateDx);
             maxOpenDy = Math.max(1, scale.toPixels(constants.maxOpenDy));
             minBeamWidth = scale.toPixels(constants.minBeamWidth);
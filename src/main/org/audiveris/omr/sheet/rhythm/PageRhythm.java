@@ -21,6 +21,7 @@
 // </editor-fold>
 package org.audiveris.omr.sheet.rhythm;
 
+import org.audiveris.omr.Main;
 import org.audiveris.omr.math.Histogram;
 import org.audiveris.omr.math.Rational;
 import org.audiveris.omr.score.Page;
@@ -32,6 +33,7 @@ import org.audiveris.omr.sig.inter.Inter;
 import org.audiveris.omr.sig.inter.Inters;
 import org.audiveris.omr.sig.inter.RestChordInter;
 import org.audiveris.omr.sig.inter.TupletInter;
+import org.audiveris.omr.step.StepScheduler;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -40,6 +42,7 @@ import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Iterator;
 import java.util.List;
+import java.util.concurrent.Callable;
 
 /**
  * Class {@code PageRhythm} handles rhythm data on a sheet page.
@@ -63,9 +66,10 @@ import java.util.List;
  * Unfortunately, this took endless computations and led to no practical results.
  * So now we simply check the "time correctness" of each stack regarding its time slots and voices.
  * <p>
- * Processing is done system per system <b>sequentially</b> because of impact of potential
- * key-sig changes on the following systems. Hence, parallelism is NOT provided for this step.
- * Consistently, within a system, processing is done measure stack after measure stack.
+ * Time signatures and range durations are handled page-wide, <b>sequentially</b>, because of
+ * their impact on the following systems.
+ * Stack tuning, which only modifies data within its containing system, is done system per system,
+ * perhaps in parallel, while within a system processing is done measure stack after measure stack.
  * <p>
  * Time sig can be inferred from stacks actual content, but this is a chicken &amp; egg problem.
  * We check whether the page starts with a time-sig indication. If not, we'll need two passes, the
@@ -218,6 +222,7 @@ public class PageRhythm
      */
     private void processRanges ()
     {
+        final List<Rational> durations = new ArrayList<>(); // Expected duration per stack
         final Iterator<Range> it = ranges.iterator();
         Range range = it.next(); // Current range
 
@@ -240,12 +245,7 @@ public class PageRhythm
                     //                    }
                 }
 
-                try {
-                    logger.debug("\n--- Processing {} {} expDur:{}", sn, stack, range.duration);
-                    new StackTuner(stack, false).process(range.duration);
-                } catch (Exception ex) {
-                    logger.warn("Error on stack " + stack + " " + ex, ex);
-                }
+                durations.add(range.duration);
 
                 // End of range?
                 if (sn == range.stopSN) {
@@ -254,10 +254,9 @@ public class PageRhythm
                     }
                 }
             }
-
-            // Refine voices IDs (and thus display colors) across all measures of the system
-            Voices.refineSystem(system);
         }
+
+        tuneSystems(durations);
     }
 
     //--------------------------//
@@ -331,6 +330,35 @@ public class PageRhythm
         return avgGuess;
     }
 
+    //-----------------------//
+    // retrieveRangeDuration //
+    //-----------------------//
+    /**
+     * Determine the expected stack duration of the provided range, whose stacks have been
+     * raw processed.
+     *
+     * @param range the range to process
+     */
+    private void retrieveRangeDuration (Range range)
+    {
+        // If range is governed by a manual time signature, use it!
+        if ((range.ts != null) && range.ts.isManual()) {
+            range.duration = range.ts.getTimeRational().getValue();
+            logger.debug("{} manual:{}", range, range.duration);
+        } else {
+            // Use CURRENT MATERIAL of voices to determine expected duration on this range
+            Rational guess = retrieveExpectedDuration(range);
+
+            if (guess != null) {
+                range.duration = guess;
+            } else if (range.ts != null) {
+                range.duration = range.ts.getTimeRational().getValue();
+            }
+
+            logger.debug("{} guess:{}", range, guess);
+        }
+    }
+
     //------------------------//
     // retrieveRangeDurations //
     //------------------------//
@@ -343,6 +371,17 @@ public class PageRhythm
     {
         // Launch a raw processing to determine expected measure duration
         // on the range of first system & stacks before first time signature
+        if (Main.processPartitionsInParallel()) {
+            tuneSystems(null);
+
+            // A range duration depends only on the stacks of this range, now all processed
+            for (Range range : ranges) {
+                retrieveRangeDuration(range);
+            }
+
+            return;
+        }
+
         final Iterator<Range> it = ranges.iterator();
         Range range = it.next(); // Current range
 
@@ -359,22 +398,7 @@ public class PageRhythm
 
                 // End of range?
                 if (sn == range.stopSN) {
-                    // If range is governed by a manual time signature, use it!
-                    if ((range.ts != null) && range.ts.isManual()) {
-                        range.duration = range.ts.getTimeRational().getValue();
-                        logger.debug("{} manual:{}", range, range.duration);
-                    } else {
-                        // Use CURRENT MATERIAL of voices to determine expected duration on this range
-                        Rational guess = retrieveExpectedDuration(range);
-
-                        if (guess != null) {
-                            range.duration = guess;
-                        } else if (range.ts != null) {
-                            range.duration = range.ts.getTimeRational().getValue();
-                        }
-
-                        logger.debug("{} guess:{}", range, guess);
-                    }
+                    retrieveRangeDuration(range);
 
                     if (it.hasNext()) {
                         range = it.next();
@@ -410,6 +434,79 @@ public class PageRhythm
         return sn;
     }
 
+    //------------//
+    // tuneSystem //
+    //------------//
+    /**
+     * Process each stack of the provided system in turn, using StackTuner.
+     *
+     * @param system    the system to process
+     * @param firstSN   sequence number of first system stack in page
+     * @param durations expected duration for each stack in page, or null for raw processing
+     */
+    private void tuneSystem (SystemInfo system,
+                             int firstSN,
+                             List<Rational> durations)
+    {
+        int sn = firstSN;
+
+        for (MeasureStack stack : system.getStacks()) {
+            try {
+                if (durations == null) {
+                    logger.debug("\n--- Raw processing {} {} ---", sn, stack);
+                    new StackTuner(stack, true).process(null);
+                } else {
+                    final Rational duration = durations.get(sn - 1);
+                    logger.debug("\n--- Processing {} {} expDur:{}", sn, stack, duration);
+                    new StackTuner(stack, false).process(duration);
+                }
+            } catch (Exception ex) {
+                logger.warn("Error on stack " + stack + " " + ex, ex);
+            }
+
+            sn++;
+        }
+
+        if (durations != null) {
+            // Refine voices IDs (and thus display colors) across all measures of the system
+            Voices.refineSystem(system);
+        }
+    }
+
+    //-------------//
+    // tuneSystems //
+    //-------------//
+    /**
+     * Process all page stacks, system per system.
+     * <p>
+     * Since stack tuning modifies only data within the stack system, the systems can be processed
+     * in parallel with the same results as in sequence.
+     *
+     * @param durations expected duration for each stack in page, or null for raw processing
+     */
+    private void tuneSystems (final List<Rational> durations)
+    {
+        final List<Callable<Void>> tasks = new ArrayList<>();
+        int sn = 1;
+
+        for (final SystemInfo system : page.getSystems()) {
+            final int firstSN = sn;
+            sn += system.getStacks().size();
+            tasks.add(new Callable<Void>()
+            {
+                @Override
+                public Void call ()
+                {
+                    tuneSystem(system, firstSN, durations);
+
+                    return null;
+                }
+            });
+        }
+
+        StepScheduler.invokeForSheet(page.getSheet().getStub(), tasks);
+    }
+
     //-------//
     // Range //
     //-------//
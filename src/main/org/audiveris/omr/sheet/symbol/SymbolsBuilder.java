@@ -164,41 +164,20 @@ public class SymbolsBuilder
         }
     }
 
-    //---------------//
-    // evaluateGlyph //
-    //---------------//
+    //-------------//
+    // createInter //
+    //-------------//
     /**
-     * Evaluate a provided glyph and create all acceptable inter instances.
+     * Create inter for the best evaluation of a glyph, if any.
      *
-     * @param glyph the glyph to evaluate
+     * @param glyph        the evaluated glyph
+     * @param evals        its acceptable evaluations
+     * @param closestStaff the staff closest to glyph
      */
-    private void evaluateGlyph (Glyph glyph)
+    private void createInter (Glyph glyph,
+                              Evaluation[] evals,
+                              Staff closestStaff)
     {
-        if (glyph.getId() == 0) {
-            glyph = sheet.getGlyphIndex().registerOriginal(glyph);
-        }
-
-        logger.debug("evaluateGlyph on {}", glyph);
-
-        if (glyph.isVip()) {
-            logger.info("VIP evaluateGlyph on {}", glyph);
-        }
-
-        final Point center = glyph.getCenter();
-        final Staff closestStaff = system.getClosestStaff(center); // Just an indication!
-
-        if (closestStaff == null) {
-            return;
-        }
-
-        // TODO: checks should be run only AFTER both classifiers have been run
-        Evaluation[] evals = classifier.evaluate(
-                glyph,
-                system,
-                2,
-                Grades.symbolMinGrade,
-                EnumSet.of(Classifier.Condition.CHECKED));
-
         //        Evaluation[] evals2 = classifier2.evaluate(
         //                glyph,
         //                system,
@@ -229,6 +208,82 @@ public class SymbolsBuilder
         }
     }
 
+    //---------------//
+    // evaluateGlyph //
+    //---------------//
+    /**
+     * Evaluate a provided glyph and create all acceptable inter instances.
+     *
+     * @param glyph the glyph to evaluate
+     */
+    private void evaluateGlyph (Glyph glyph)
+    {
+        glyph = registerGlyph(glyph);
+
+        final Point center = glyph.getCenter();
+        final Staff closestStaff = system.getClosestStaff(center); // Just an indication!
+
+        if (closestStaff == null) {
+            return;
+        }
+
+        // TODO: checks should be run only AFTER both classifiers have been run
+        Evaluation[] evals = classifier.evaluate(
+                glyph,
+                system,
+                2,
+                Grades.symbolMinGrade,
+                EnumSet.of(Classifier.Condition.CHECKED));
+
+        createInter(glyph, evals, closestStaff);
+    }
+
+    //----------------//
+    // evaluateGlyphs //
+    //----------------//
+    /**
+     * Evaluate a batch of isolated glyphs and create all acceptable inter instances.
+     * <p>
+     * Only the classification is performed in batch.
+     * Glyph registration and inter creation are then performed glyph after glyph, exactly as
+     * {@link #evaluateGlyph(Glyph)} would do, so that glyph and inter ids are not modified.
+     *
+     * @param glyphs the glyphs to evaluate
+     */
+    private void evaluateGlyphs (List<Glyph> glyphs)
+    {
+        final List<Glyph> candidates = new ArrayList<>(glyphs.size());
+        final Staff[] staves = new Staff[glyphs.size()];
+
+        for (int i = 0; i < staves.length; i++) {
+            final Glyph glyph = glyphs.get(i);
+            staves[i] = system.getClosestStaff(glyph.getCenter()); // Just an indication!
+
+            if (staves[i] != null) {
+                candidates.add(glyph);
+            }
+        }
+
+        Evaluation[][] evals = null;
+
+        if (!candidates.isEmpty()) {
+            evals = classifier.evaluate(
+                    candidates,
+                    system,
+                    2,
+                    Grades.symbolMinGrade,
+                    EnumSet.of(Classifier.Condition.CHECKED));
+        }
+
+        for (int i = 0, k = 0; i < staves.length; i++) {
+            final Glyph glyph = registerGlyph(glyphs.get(i));
+
+            if (staves[i] != null) {
+                createInter(glyph, evals[k++], staves[i]);
+            }
+        }
+    }
+
     //------------------//
     // getSymbolsGlyphs //
     //------------------//
@@ -318,12 +373,17 @@ public class SymbolsBuilder
 
         final int interline = sheet.getInterline();
         final int maxPartCount = constants.maxPartCount.getValue();
+        final List<Glyph> isolated = new ArrayList<>(); // Consecutive isolated glyphs
 
         for (Collection<Glyph> set : sets) {
             final int setSize = set.size();
             logger.debug("set size: {}", setSize);
 
             if (setSize > 1) {
+                // Evaluate pending isolated glyphs first, to keep glyphs processing order
+                evaluateGlyphs(isolated);
+                isolated.clear();
+
                 if (setSize > maxPartCount) {
                     List<Glyph> list = new ArrayList<>(set);
                     Collections.sort(list, Glyphs.byReverseWeight);
@@ -336,14 +396,40 @@ public class SymbolsBuilder
                 subGraph = GlyphCluster.getSubGraph(set, systemGraph, true);
                 new GlyphCluster(new SymbolAdapter(subGraph), GlyphGroup.SYMBOL).decompose();
             } else {
-                // The set is just an isolated glyph, to be evaluated directly
+                // The set is just an isolated glyph, to be evaluated in batch with next ones
                 final Glyph glyph = set.iterator().next();
 
                 if (classifier.isBigEnough(glyph, interline)) {
-                    evaluateGlyph(glyph);
+                    isolated.add(glyph);
                 }
             }
         }
+
+        evaluateGlyphs(isolated);
+    }
+
+    //---------------//
+    // registerGlyph //
+    //---------------//
+    /**
+     * Make sure the provided glyph is registered in sheet glyph index.
+     *
+     * @param glyph the glyph to register
+     * @return the registered glyph
+     */
+    private Glyph registerGlyph (Glyph glyph)
+    {
+        if (glyph.getId() == 0) {
+            glyph = sheet.getGlyphIndex().registerOriginal(glyph);
+        }
+
+        logger.debug("evaluateGlyph on {}", glyph);
+
+        if (glyph.isVip()) {
+            logger.info("VIP evaluateGlyph on {}", glyph);
+        }
+
+        return glyph;
     }
 
     //-------------------//
@@ -80,6 +80,15 @@ public class BinarizationBoard
     /** Computed threshold. */
     private final LDoubleField threshold = new LDoubleField(false, "Thres.", "Threshold", format);
 
+    /** Filter in use, kept as long as its descriptor and source are not changed. */
+    private PixelFilter filter;
+
+    /** Descriptor of filter in use. */
+    private FilterDescriptor filterDesc;
+
+    /** Source of filter in use. */
+    private ByteProcessor filterSource;
+
     /**
      * Creates a new BinarizationBoard object.
      *
@@ -141,13 +150,19 @@ public class BinarizationBoard
             ByteProcessor source = sheet.getPicture().getSource(Picture.SourceKey.INITIAL);
 
             if (source != null) {
-                PixelFilter filter = desc.getFilter(source);
+                // Building a filter may be costly (integral tables), hence reuse
+                if ((filter == null) || !desc.equals(filterDesc) || (source != filterSource)) {
+                    filter = desc.getFilter(source);
+
+                    if (filter == null) {
+                        filter = new RandomFilter(
+                                source,
+                                AdaptiveDescriptor.getDefaultMeanCoeff(),
+                                AdaptiveDescriptor.getDefaultStdDevCoeff());
+                    }
 
-                if (filter == null) {
-                    filter = new RandomFilter(
-                            source,
-                            AdaptiveDescriptor.getDefaultMeanCoeff(),
-                            AdaptiveDescriptor.getDefaultStdDevCoeff());
+                    filterDesc = desc;
+                    filterSource = source;
                 }
 
                 PixelFilter.Context context = filter.getContext(rect.x, rect.y);
@@ -21,13 +21,17 @@
 // </editor-fold>
 package org.audiveris.omr.sig;
 
+import org.audiveris.omr.constant.Constant;
+import org.audiveris.omr.constant.ConstantSet;
 import org.audiveris.omr.glyph.Grades;
 import org.audiveris.omr.glyph.Shape;
+import org.audiveris.omr.sheet.Scale;
 import org.audiveris.omr.sheet.Staff;
 import org.audiveris.omr.sheet.SystemInfo;
 import org.audiveris.omr.sig.inter.AbstractInter;
 import org.audiveris.omr.sig.inter.HeadInter;
 import org.audiveris.omr.sig.inter.Inter;
+import org.audiveris.omr.sig.inter.InterEnsemble;
 import org.audiveris.omr.sig.inter.Inters;
 import org.audiveris.omr.sig.inter.Inters.ClassPredicate;
 import org.audiveris.omr.sig.inter.Inters.ClassesPredicate;
@@ -36,6 +40,7 @@ import org.audiveris.omr.sig.relation.Exclusion;
 import org.audiveris.omr.sig.relation.Exclusion.Cause;
 import org.audiveris.omr.sig.relation.Relation;
 import org.audiveris.omr.sig.relation.Support;
+import org.audiveris.omr.util.EntityGrid;
 import org.audiveris.omr.util.Navigable;
 import org.audiveris.omr.util.Predicate;
 
@@ -61,7 +66,9 @@ import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
+import java.util.PriorityQueue;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 
 import javax.xml.bind.annotation.adapters.XmlJavaTypeAdapter;
 
@@ -77,6 +84,8 @@ public class SIGraph
         implements DirectedGraph<Inter, Relation>
 {
 
+    private static final Constants constants = new Constants();
+
     private static final Logger logger = LoggerFactory.getLogger(SIGraph.class);
 
     /** Dedicated system. */
@@ -86,6 +95,12 @@ public class SIGraph
     /** Content for differed populating after unmarshalling. */
     private SigValue sigValue;
 
+    /** Spatial index on inters, built on first region query. */
+    private volatile InterGrid interGrid;
+
+    /** Exclusions being reduced, if any. */
+    private ExclusionQueue exclusionQueue;
+
     /**
      * Creates a new SIGraph object at system level.
      *
@@ -147,6 +162,12 @@ public class SIGraph
 
             // Additional actions
             inter.added();
+
+            final InterGrid grid = interGrid;
+
+            if (grid != null) {
+                grid.insert(inter);
+            }
         }
 
         return added;
@@ -177,6 +198,42 @@ public class SIGraph
         }
     }
 
+    //---------------//
+    // boundsChanged //
+    //---------------//
+    /**
+     * Notify that the bounds of the provided inter have changed, so that the spatial
+     * index used by region queries can be kept up to date.
+     *
+     * @param inter the modified inter
+     */
+    public void boundsChanged (Inter inter)
+    {
+        final InterGrid grid = interGrid;
+
+        if ((grid != null) && containsVertex(inter)) {
+            grid.update(inter);
+        }
+    }
+
+    //--------------//
+    // gradeChanged //
+    //--------------//
+    /**
+     * Notify that the grade or contextual grade of the provided inter has changed,
+     * so that exclusions being reduced, if any, can be re-prioritized.
+     *
+     * @param inter the modified inter
+     */
+    public void gradeChanged (Inter inter)
+    {
+        final ExclusionQueue queue = exclusionQueue;
+
+        if (queue != null) {
+            queue.update(inter);
+        }
+    }
+
     //------------------------//
     // computeContextualGrade //
     //------------------------//
@@ -210,7 +267,7 @@ public class SIGraph
     {
         List<Inter> found = new ArrayList<>();
 
-        for (Inter inter : vertexSet()) {
+        for (Inter inter : candidates(rect, true)) {
             final Rectangle box = inter.getBounds();
 
             if (box == null) {
@@ -237,7 +294,7 @@ public class SIGraph
     {
         List<Inter> found = new ArrayList<>();
 
-        for (Inter inter : vertexSet()) {
+        for (Inter inter : candidates(new Rectangle(point.x, point.y, 1, 1), false)) {
             Rectangle bounds = inter.getBounds();
 
             if ((bounds != null) && bounds.contains(point)) {
@@ -689,6 +746,9 @@ public class SIGraph
         for (Inter inter : inters) {
             super.addVertex(inter);
         }
+
+        // Spatial index, if any, will be rebuilt on next region query
+        interGrid = null;
     }
 
     @Override
@@ -968,7 +1028,7 @@ public class SIGraph
     {
         List<Inter> found = new ArrayList<>();
 
-        for (Inter inter : vertexSet()) {
+        for (Inter inter : candidates(box, false)) {
             if (inter.isRemoved()) {
                 continue;
             }
@@ -1041,89 +1101,124 @@ public class SIGraph
      * @return the set of vertices removed
      */
     public Set<Inter> reduceExclusions (Collection<? extends Relation> exclusions)
+    {
+        return reduceExclusions(exclusions, constants.useExclusionQueue.isSet());
+    }
+
+    //------------------//
+    // reduceExclusions //
+    //------------------//
+    /**
+     * Reduce each exclusion in the SIG.
+     *
+     * @return the set of reduced inters
+     */
+    public Set<Inter> reduceExclusions ()
+    {
+        return reduceExclusions(exclusions());
+    }
+
+    //------------------//
+    // reduceExclusions //
+    //------------------//
+    /**
+     * Reduce the provided exclusions, using either the priority queue or the linear scan
+     * to choose the next exclusion.
+     * <p>
+     * Both ways are meant to remove the same inters, in the same order.
+     *
+     * @param exclusions the collection of exclusions to process
+     * @param useQueue   true for priority queue, false for linear scan
+     * @return the set of vertices removed
+     */
+    Set<Inter> reduceExclusions (Collection<? extends Relation> exclusions,
+                                 boolean useQueue)
     {
         final Set<Inter> removed = new LinkedHashSet<>();
-        Relation bestRel;
+        final ExclusionQueue queue = useQueue ? new ExclusionQueue(exclusions) : null;
+        exclusionQueue = queue;
 
-        do {
-            // Choose exclusion with the highest source or target grade
-            double bestCP = 0;
-            bestRel = null;
+        try {
+            Relation bestRel;
 
-            for (Iterator<? extends Relation> it = exclusions.iterator(); it.hasNext();) {
-                Relation rel = it.next();
+            do {
+                // Choose exclusion with the highest source or target grade
+                if (queue != null) {
+                    bestRel = queue.poll();
 
-                if (containsEdge(rel)) {
-                    final double cp = Math.max(
-                            getEdgeSource(rel).getBestGrade(),
-                            getEdgeTarget(rel).getBestGrade());
+                    if (constants.checkExclusionQueue.isSet()) {
+                        final Relation scanRel = bestExclusion(exclusions);
 
-                    if (bestCP < cp) {
-                        bestCP = cp;
-                        bestRel = rel;
+                        if (scanRel != bestRel) {
+                            logger.warn(
+                                    "Exclusion queue chose {} rather than {}",
+                                    bestRel,
+                                    scanRel);
+                        }
                     }
                 } else {
-                    it.remove();
+                    bestRel = bestExclusion(exclusions);
                 }
-            }
 
-            // Remove the weaker branch of the selected exclusion
-            if (bestRel != null) {
-                final Inter source = getEdgeSource(bestRel);
-                final double scp = source.getBestGrade();
-                final Inter target = getEdgeTarget(bestRel);
-                final double tcp = target.getBestGrade();
-                final Inter weaker = (scp < tcp) ? source : target;
-
-                if (weaker.isVip()) {
-                    logger.info(
-                            "VIP conflict {} deleting weaker {}",
-                            bestRel.toLongString(this),
-                            weaker);
-                }
+                // Remove the weaker branch of the selected exclusion
+                if (bestRel != null) {
+                    final Inter source = getEdgeSource(bestRel);
+                    final double scp = source.getBestGrade();
+                    final Inter target = getEdgeTarget(bestRel);
+                    final double tcp = target.getBestGrade();
+                    final Inter weaker = (scp < tcp) ? source : target;
+
+                    if (weaker.isVip()) {
+                        logger.info(
+                                "VIP conflict {} deleting weaker {}",
+                                bestRel.toLongString(this),
+                                weaker);
+                    }
 
-                // Which inters were involved in some support relation with this weaker inter?
-                final Set<Inter> involved = involvedInters(getSupports(weaker));
-                involved.remove(weaker);
+                    // Which inters were involved in some support relation with this weaker inter?
+                    final Set<Inter> involved = involvedInters(getSupports(weaker));
+                    involved.remove(weaker);
 
-                final Set<Inter> weakerEnsembles = weaker.getAllEnsembles(); // Before weaker is deleted!
+                    final Set<Inter> weakerEnsembles = weaker.getAllEnsembles(); // Before deletion!
 
-                // Remove the weaker inter
-                removed.add(weaker);
-                weaker.remove();
+                    // Remove the weaker inter
+                    removed.add(weaker);
+                    weaker.remove();
 
-                // If removal of weaker has resulted in removal of an ensemble, count this ensemble
-                for (Inter ensemble : weakerEnsembles) {
-                    if (ensemble.isRemoved()) {
-                        removed.add(ensemble);
+                    // If removal of weaker has resulted in removal of an ensemble, count it
+                    for (Inter ensemble : weakerEnsembles) {
+                        if (ensemble.isRemoved()) {
+                            removed.add(ensemble);
+                        }
+                    }
+
+                    // Update contextual values for all inters that were involved with 'weaker'
+                    // (the queue gets notified of these grade modifications)
+                    for (Inter inter : involved) {
+                        computeContextualGrade(inter);
                     }
-                }
 
-                // Update contextual values for all inters that were involved with 'weaker'
-                for (Inter inter : involved) {
-                    computeContextualGrade(inter);
+                    if (queue == null) {
+                        exclusions.remove(bestRel);
+                    }
                 }
+            } while (bestRel != null);
+        } finally {
+            exclusionQueue = null;
+        }
 
-                exclusions.remove(bestRel);
+        if (queue != null) {
+            // Purge the exclusions no longer in sig, as the scan would have done
+            for (Iterator<? extends Relation> it = exclusions.iterator(); it.hasNext();) {
+                if (!containsEdge(it.next())) {
+                    it.remove();
+                }
             }
-        } while (bestRel != null);
+        }
 
         return removed;
     }
 
-    //------------------//
-    // reduceExclusions //
-    //------------------//
-    /**
-     * Reduce each exclusion in the SIG.
-     *
-     * @return the set of reduced inters
-     */
-    public Set<Inter> reduceExclusions ()
-    {
-        return reduceExclusions(exclusions());
-    }
-
     //--------------//
     // removeVertex //
     //--------------//
@@ -1142,6 +1237,12 @@ public class SIGraph
             logger.info("VIP removeVertex {}", inter);
         }
 
+        final InterGrid grid = interGrid;
+
+        if (grid != null) {
+            grid.remove(inter);
+        }
+
         return super.removeVertex(inter);
     }
 
@@ -1207,6 +1308,83 @@ public class SIGraph
         }
     }
 
+    //---------------//
+    // bestExclusion //
+    //---------------//
+    /**
+     * Scan the provided exclusions for the one with the highest source or target grade.
+     * <p>
+     * Exclusions no longer present in sig are removed from the collection on the fly.
+     *
+     * @param exclusions the collection of exclusions to scan
+     * @return the best exclusion, or null if none has a positive grade
+     */
+    private Relation bestExclusion (Collection<? extends Relation> exclusions)
+    {
+        double bestCP = 0;
+        Relation bestRel = null;
+
+        for (Iterator<? extends Relation> it = exclusions.iterator(); it.hasNext();) {
+            Relation rel = it.next();
+
+            if (containsEdge(rel)) {
+                final double cp = Math.max(
+                        getEdgeSource(rel).getBestGrade(),
+                        getEdgeTarget(rel).getBestGrade());
+
+                if (bestCP < cp) {
+                    bestCP = cp;
+                    bestRel = rel;
+                }
+            } else {
+                it.remove();
+            }
+        }
+
+        return bestRel;
+    }
+
+    //------------//
+    // candidates //
+    //------------//
+    /**
+     * Report the inters that may match a region query on the provided box.
+     * <p>
+     * Candidates are reported in vertex set order, any exact check is left to the caller.
+     *
+     * @param box       the query box
+     * @param contained true for containment, false for intersection
+     * @return the candidate inters
+     */
+    private Collection<Inter> candidates (Rectangle box,
+                                          boolean contained)
+    {
+        if (!constants.useSpatialIndex.isSet()) {
+            return vertexSet();
+        }
+
+        InterGrid grid = interGrid;
+
+        if (grid == null) {
+            synchronized (this) {
+                grid = interGrid;
+
+                if (grid == null) {
+                    final Scale scale = (system != null) ? system.getSheet().getScale() : null;
+
+                    if (scale == null) {
+                        return vertexSet();
+                    }
+
+                    grid = new InterGrid(scale.toPixels(constants.gridCellSize), vertexSet());
+                    interGrid = grid;
+                }
+            }
+        }
+
+        return grid.candidates(box, contained);
+    }
+
     //------------------------//
     // computeContextualGrade //
     //------------------------//
@@ -1328,6 +1506,308 @@ public class SIGraph
         return sb.toString();
     }
 
+    //-----------//
+    // Constants //
+    //-----------//
+    private static class Constants
+            extends ConstantSet
+    {
+
+        private final Constant.Boolean useSpatialIndex = new Constant.Boolean(
+                true,
+                "Should we use a spatial index for inters region queries?");
+
+        private final Scale.Fraction gridCellSize = new Scale.Fraction(
+                4.0,
+                "Cell size of spatial index for inters region queries");
+
+        private final Constant.Boolean useExclusionQueue = new Constant.Boolean(
+                true,
+                "Should we use a priority queue to reduce exclusions?");
+
+        private final Constant.Boolean checkExclusionQueue = new Constant.Boolean(
+                false,
+                "(Debug) Should we check each exclusion queue choice against a full scan?");
+    }
+
+    //----------------//
+    // ExclusionQueue //
+    //----------------//
+    /**
+     * Priority queue on exclusions being reduced, ordered by decreasing grade of the
+     * best exclusion inter, then by position in the initial collection of exclusions.
+     * <p>
+     * When an inter grade is modified, all exclusions involving this inter are pushed again with
+     * their new priority, and the obsolete queue entries are simply skipped when polled.
+     * Each polled entry is also checked against current grades before being returned.
+     * This gives the same choices as a full scan of the exclusions, without the full scan.
+     */
+    private class ExclusionQueue
+    {
+
+        /** Queue of exclusion entries, best first. */
+        private final PriorityQueue<Entry> queue;
+
+        /** Current (valid) entry for each exclusion still in queue. */
+        private final Map<Relation, Entry> entries = new HashMap<>();
+
+        /** Exclusions involving each inter. */
+        private final Map<Inter, List<Relation>> interExclusions = new HashMap<>();
+
+        ExclusionQueue (Collection<? extends Relation> exclusions)
+        {
+            queue = new PriorityQueue<>(Math.max(1, exclusions.size()), Entry.byPriority);
+
+            int rank = 0;
+
+            for (Relation rel : exclusions) {
+                if (containsEdge(rel) && !entries.containsKey(rel)) {
+                    push(new Entry(rel, rank++, gradeOf(rel)));
+                    exclusionsOf(getEdgeSource(rel)).add(rel);
+                    exclusionsOf(getEdgeTarget(rel)).add(rel);
+                }
+            }
+        }
+
+        /**
+         * Report the best exclusion, if any, and remove it from queue.
+         *
+         * @return the exclusion with highest positive grade, or null
+         */
+        Relation poll ()
+        {
+            Entry entry;
+
+            while ((entry = queue.poll()) != null) {
+                final Relation rel = entry.rel;
+
+                if (entries.get(rel) != entry) {
+                    continue; // Obsolete entry
+                }
+
+                if (!containsEdge(rel)) {
+                    entries.remove(rel);
+
+                    continue;
+                }
+
+                final double grade = gradeOf(rel);
+
+                if (grade != entry.grade) {
+                    push(new Entry(rel, entry.rank, grade));
+
+                    continue;
+                }
+
+                if (grade <= 0) {
+                    return null;
+                }
+
+                entries.remove(rel);
+
+                return rel;
+            }
+
+            return null;
+        }
+
+        /**
+         * Re-prioritize the exclusions that involve the provided inter.
+         *
+         * @param inter the inter whose grade has changed
+         */
+        void update (Inter inter)
+        {
+            final List<Relation> rels = interExclusions.get(inter);
+
+            if (rels != null) {
+                for (Relation rel : rels) {
+                    final Entry entry = entries.get(rel);
+
+                    if ((entry != null) && containsEdge(rel)) {
+                        final double grade = gradeOf(rel);
+
+                        if (grade != entry.grade) {
+                            push(new Entry(rel, entry.rank, grade));
+                        }
+                    }
+                }
+            }
+        }
+
+        private List<Relation> exclusionsOf (Inter inter)
+        {
+            List<Relation> rels = interExclusions.get(inter);
+
+            if (rels == null) {
+                rels = new ArrayList<>();
+                interExclusions.put(inter, rels);
+            }
+
+            return rels;
+        }
+
+        private double gradeOf (Relation rel)
+        {
+            return Math.max(getEdgeSource(rel).getBestGrade(), getEdgeTarget(rel).getBestGrade());
+        }
+
+        private void push (Entry entry)
+        {
+            entries.put(entry.rel, entry);
+            queue.add(entry);
+        }
+    }
+
+    //-----------//
+    // InterGrid //
+    //-----------//
+    /**
+     * Spatial index on the inters of a sig.
+     * <p>
+     * Inters are indexed in an {@link EntityGrid} according to their bounds.
+     * Ensembles, whose bounds evolve with their members, and inters with no bounds yet are kept
+     * aside and are always considered as candidates when their current bounds may match.
+     * <p>
+     * Each inter is given a rank, so that candidates can be reported in vertex set order.
+     */
+    private static class InterGrid
+    {
+
+        /** Inters with stable bounds. */
+        private final EntityGrid<Inter> grid;
+
+        /** Inters with evolving or unknown bounds. */
+        private final Set<Inter> volatiles = Collections.newSetFromMap(
+                new ConcurrentHashMap<Inter, Boolean>());
+
+        /** Rank of each inter, in vertex set order. */
+        private final Map<Inter, Integer> ranks = new ConcurrentHashMap<>();
+
+        /** To sort inters by rank. */
+        private final Comparator<Inter> byRank = new Comparator<Inter>()
+        {
+            @Override
+            public int compare (Inter i1,
+                                Inter i2)
+            {
+                return Integer.compare(rankOf(i1), rankOf(i2));
+            }
+        };
+
+        /** Last rank assigned. */
+        private int lastRank;
+
+        InterGrid (int cellSize,
+                   Collection<Inter> inters)
+        {
+            grid = new EntityGrid<>(cellSize);
+
+            for (Inter inter : inters) {
+                insert(inter);
+            }
+        }
+
+        List<Inter> candidates (Rectangle box,
+                                boolean contained)
+        {
+            final List<Inter> found = new ArrayList<>(
+                    contained ? grid.getContainedEntities(box)
+                            : grid.getIntersectedEntities(box));
+
+            for (Inter inter : volatiles) {
+                final Rectangle bounds = inter.getBounds();
+
+                if ((bounds == null)
+                    || (contained ? box.contains(bounds) : box.intersects(bounds))) {
+                    found.add(inter);
+                }
+            }
+
+            Collections.sort(found, byRank);
+
+            return found;
+        }
+
+        synchronized void insert (Inter inter)
+        {
+            ranks.put(inter, ++lastRank);
+            index(inter);
+        }
+
+        synchronized void remove (Inter inter)
+        {
+            grid.remove(inter);
+            volatiles.remove(inter);
+            ranks.remove(inter);
+        }
+
+        synchronized void update (Inter inter)
+        {
+            grid.remove(inter);
+            volatiles.remove(inter);
+            index(inter);
+        }
+
+        private void index (Inter inter)
+        {
+            final Rectangle bounds = inter.getBounds();
+
+            if ((inter instanceof InterEnsemble) || (bounds == null) || bounds.isEmpty()) {
+                volatiles.add(inter);
+            } else {
+                grid.insert(inter);
+            }
+        }
+
+        private int rankOf (Inter inter)
+        {
+            final Integer rank = ranks.get(inter);
+
+            return (rank != null) ? rank : Integer.MAX_VALUE;
+        }
+    }
+
+    //-------//
+    // Entry //
+    //-------//
+    /**
+     * An exclusion with its priority, as pushed in the exclusion queue.
+     */
+    private static class Entry
+    {
+
+        /** Highest grade first, then initial order. */
+        static final Comparator<Entry> byPriority = new Comparator<Entry>()
+        {
+            @Override
+            public int compare (Entry e1,
+                                Entry e2)
+            {
+                if (e1.grade != e2.grade) {
+                    return Double.compare(e2.grade, e1.grade);
+                }
+
+                return Integer.compare(e1.rank, e2.rank);
+            }
+        };
+
+        final Relation rel; // The exclusion
+
+        final int rank; // Position in initial collection of exclusions
+
+        final double grade; // Best grade of exclusion inters, when pushed
+
+        Entry (Relation rel,
+               int rank,
+               double grade)
+        {
+            this.rel = rel;
+            this.rank = rank;
+            this.grade = grade;
+        }
+    }
+
     //----------//
     // Sequence //
     //----------//
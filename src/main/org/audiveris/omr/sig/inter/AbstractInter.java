@@ -462,6 +462,10 @@ public abstract class AbstractInter
     public void setBounds (Rectangle bounds)
     {
         this.bounds = bounds;
+
+        if (sig != null) {
+            sig.boundsChanged(this);
+        }
     }
 
     //-----------//
@@ -536,6 +540,10 @@ public abstract class AbstractInter
     public void setContextualGrade (double value)
     {
         ctxGrade = value;
+
+        if (sig != null) {
+            sig.gradeChanged(this);
+        }
     }
 
     //---------------//
@@ -619,6 +627,10 @@ public abstract class AbstractInter
     public void setGrade (double grade)
     {
         this.grade = grade;
+
+        if (sig != null) {
+            sig.gradeChanged(this);
+        }
     }
 
     //------------//
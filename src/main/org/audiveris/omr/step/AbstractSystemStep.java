@@ -26,7 +26,6 @@ import org.audiveris.omr.OMR;
 import org.audiveris.omr.log.LogUtil;
 import org.audiveris.omr.sheet.Sheet;
 import org.audiveris.omr.sheet.SystemInfo;
-import org.audiveris.omr.util.OmrExecutors;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -207,7 +206,7 @@ public abstract class AbstractSystemStep<C>
             // Process all systems
             if (parallel) {
                 // In parallel
-                OmrExecutors.getLowExecutor().invokeAll(tasks);
+                StepScheduler.invokeAll(tasks);
             } else {
                 // In sequence
                 for (Callable<Void> task : tasks) {
@@ -94,14 +94,22 @@ public class BinaryStep
         logger.debug("{}", "Binarization");
 
         PixelFilter filter = desc.getFilter(initial);
-        watch.start("Binarize source");
+        RunTableFactory vertFactory = new RunTableFactory(Orientation.VERTICAL);
+        RunTable wholeVertTable;
 
-        ByteProcessor binary = filter.filteredImage();
+        if (constants.streamBinarization.isSet()) {
+            // Runs are directly emitted by the filter, with no intermediate binary image
+            watch.start("Binarize source into RunTable");
+            wholeVertTable = vertFactory.createTable(filter);
+        } else {
+            watch.start("Binarize source");
 
-        watch.start("Create binary RunTable");
+            ByteProcessor binary = filter.filteredImage();
+
+            watch.start("Create binary RunTable");
+            wholeVertTable = vertFactory.createTable(binary);
+        }
 
-        RunTableFactory vertFactory = new RunTableFactory(Orientation.VERTICAL);
-        RunTable wholeVertTable = vertFactory.createTable(binary);
         picture.setTable(Picture.TableKey.BINARY, wholeVertTable, true);
 
         // To discard image
@@ -153,5 +161,9 @@ public class BinaryStep
         private final Constant.Boolean printWatch = new Constant.Boolean(
                 false,
                 "Should we print out the stop watch?");
+
+        private final Constant.Boolean streamBinarization = new Constant.Boolean(
+                true,
+                "Should we binarize directly into the RunTable (with no binary image)?");
     }
 }
@@ -0,0 +1,790 @@
+//------------------------------------------------------------------------------------------------//
+//                                                                                                //
+//                                   S t e p S c h e d u l e r                                    //
+//                                                                                                //
+//------------------------------------------------------------------------------------------------//
+// <editor-fold defaultstate="collapsed" desc="hdr">
+//
+//  Copyright © Audiveris 2018. All rights reserved.
+//
+//  This program is free software: you can redistribute it and/or modify it under the terms of the
+//  GNU Affero General Public License as published by the Free Software Foundation, either version
+//  3 of the License, or (at your option) any later version.
+//
+//  This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+//  without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+//  See the GNU Affero General Public License for more details.
+//
+//  You should have received a copy of the GNU Affero General Public License along with this
+//  program.  If not, see <http://www.gnu.org/licenses/>.
+//------------------------------------------------------------------------------------------------//
+// </editor-fold>
+package org.audiveris.omr.step;
+
+import org.audiveris.omr.Main;
+import org.audiveris.omr.constant.Constant;
+import org.audiveris.omr.constant.ConstantSet;
+import org.audiveris.omr.log.LogUtil;
+import org.audiveris.omr.sheet.SheetStub;
+import org.audiveris.omr.util.OmrExecutors;
+
+import net.jcip.annotations.ThreadSafe;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.slf4j.MDC;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Class {@code StepScheduler} schedules the processing units of a book (sheet, step and
+ * system) onto the single work-stealing pool provided by {@link OmrExecutors#getForkJoinPool()}.
+ * <ul>
+ * <li><b>Sheet</b>: Each sheet is driven by a separate (light) thread, which waits for its steps
+ * completion.
+ * The number of sheets resident at the same time is limited by a memory budget.</li>
+ * <li><b>Step</b>: Each step of a sheet is submitted to the pool.
+ * A step waiting too long for a pool worker, or running too long, gets cancelled.
+ * Step cancellation is propagated to the system tasks of the step.</li>
+ * <li><b>System</b>: The tasks launched by a step (one per system, staff, ...) are forked within
+ * the pool, so that the step worker helps processing them, rather than blocking a thread of
+ * another pool.</li>
+ * </ul>
+ * Blocking actions, such as image loading, are run via {@link #managedBlock} so that the pool
+ * keeps its parallelism level meanwhile.
+ * <p>
+ * Per-step queue and run times are accumulated and can be printed out.
+ *
+ * @author Hervé Bitteur
+ */
+@ThreadSafe
+public class StepScheduler
+{
+
+    private static final Constants constants = new Constants();
+
+    private static final Logger logger = LoggerFactory.getLogger(StepScheduler.class);
+
+    /** Statistics per step. */
+    private static final Map<Step, Stat> stepStats = new EnumMap<>(Step.class);
+
+    /** Statistics on sheets. */
+    private static final Stat sheetStat = new Stat();
+
+    /** Step being processed by current thread, if any. */
+    private static final ThreadLocal<StepFuture> currentStep = new ThreadLocal<>();
+
+    /**
+     * Not meant to be instantiated.
+     */
+    private StepScheduler ()
+    {
+    }
+
+    //-------------------//
+    // getMaxSheetsCount //
+    //-------------------//
+    /**
+     * Report the maximum number of sheets that can be resident at the same time.
+     *
+     * @return the count of sheets allowed by the memory budget (at least 1)
+     */
+    public static int getMaxSheetsCount ()
+    {
+        final long maxMemory = Runtime.getRuntime().maxMemory() / (1024 * 1024);
+        final long budget = Math.min(constants.memoryBudget.getValue(), maxMemory);
+
+        return (int) Math.max(1, budget / constants.sheetMemory.getValue());
+    }
+
+    //-----------//
+    // invokeAll //
+    //-----------//
+    /**
+     * Run the provided fine-grained tasks (typically one per system) and wait for their
+     * completion.
+     * <p>
+     * When called from within the pool (case of a step being processed), tasks are forked and
+     * joined, the current worker taking part in their processing.
+     * Otherwise, they are submitted to the pool.
+     * <p>
+     * If the calling step gets cancelled, the tasks not yet started are skipped and the running
+     * ones are interrupted.
+     *
+     * @param <T>   task result type
+     * @param tasks the tasks to run
+     * @return the futures, in tasks order, all completed
+     * @throws InterruptedException if interrupted while waiting, or if calling step was cancelled
+     */
+    public static <T> List<Future<T>> invokeAll (Collection<? extends Callable<T>> tasks)
+            throws InterruptedException
+    {
+        final StepFuture step = currentStep.get();
+        final List<Callable<T>> units = new ArrayList<>(tasks.size());
+
+        for (Callable<T> task : tasks) {
+            units.add(new Unit<>(task, step));
+        }
+
+        if (ForkJoinTask.getPool() != OmrExecutors.getForkJoinPool()) {
+            return OmrExecutors.getForkJoinPool().invokeAll(units);
+        }
+
+        final List<Future<T>> futures = new ArrayList<>(units.size());
+
+        for (Callable<T> unit : units) {
+            futures.add(ForkJoinTask.adapt(unit).fork());
+        }
+
+        for (Future<T> future : futures) {
+            ((ForkJoinTask<T>) future).quietlyJoin();
+        }
+
+        // Joining may swallow an interruption, hence the check of step cancellation
+        if (Thread.interrupted() || ((step != null) && step.isCancelRequested())) {
+            throw new InterruptedException();
+        }
+
+        return futures;
+    }
+
+    //----------------//
+    // invokeForSheet //
+    //----------------//
+    /**
+     * Run the provided tasks of a sheet step (one per staff, system, segment, ...) and
+     * report their results.
+     * <p>
+     * If partitions are to be processed in parallel (see
+     * {@link Main#processPartitionsInParallel()}), tasks are run via
+     * {@link #invokeAll(Collection)}, each with the sheet as log context.
+     * Otherwise, they are run in sequence by the calling thread, which stops at first failure.
+     *
+     * @param <T>   task result type
+     * @param stub  the related sheet stub, for log context
+     * @param tasks the tasks to run
+     * @return the task results, in tasks order
+     * @throws ProcessingCancellationException if interrupted while waiting
+     * @throws RuntimeException                the first failure, in tasks order, if any
+     */
+    public static <T> List<T> invokeForSheet (SheetStub stub,
+                                              List<? extends Callable<T>> tasks)
+    {
+        return invokeForSheet(stub, tasks, Main.processPartitionsInParallel());
+    }
+
+    //----------------//
+    // invokeForSheet //
+    //----------------//
+    /**
+     * Run the provided tasks of a sheet step, in parallel or not.
+     *
+     * @param <T>      task result type
+     * @param stub     the related sheet stub, for log context, or null
+     * @param tasks    the tasks to run
+     * @param parallel true for parallel processing
+     * @return the task results, in tasks order
+     */
+    static <T> List<T> invokeForSheet (final SheetStub stub,
+                                       List<? extends Callable<T>> tasks,
+                                       boolean parallel)
+    {
+        final List<T> results = new ArrayList<>(tasks.size());
+
+        try {
+            if (!parallel) {
+                for (Callable<T> task : tasks) {
+                    results.add(task.call());
+                }
+
+                return results;
+            }
+
+            final List<Callable<T>> logged = new ArrayList<>(tasks.size());
+
+            for (final Callable<T> task : tasks) {
+                logged.add(new Callable<T>()
+                {
+                    @Override
+                    public T call ()
+                            throws Exception
+                    {
+                        if (stub == null) {
+                            return task.call();
+                        }
+
+                        try {
+                            LogUtil.start(stub);
+
+                            return task.call();
+                        } finally {
+                            LogUtil.stopStub();
+                        }
+                    }
+                });
+            }
+
+            for (Future<T> future : invokeAll(logged)) {
+                try {
+                    results.add(future.get());
+                } catch (ExecutionException ex) {
+                    throw toRuntime(ex.getCause());
+                }
+            }
+
+            return results;
+        } catch (InterruptedException ex) {
+            throw new ProcessingCancellationException(ex);
+        } catch (Exception ex) {
+            throw toRuntime(ex);
+        }
+    }
+
+    //--------------//
+    // invokeSheets //
+    //--------------//
+    /**
+     * Run the provided sheet tasks, with no more sheets at a time than allowed by the
+     * memory budget, and wait for their completion.
+     * <p>
+     * Each sheet task must release its sheet from memory before completing, whether it succeeds
+     * or fails, since its room is then given to the next sheet task.
+     * Sheet tasks are not run within the pool, since they mostly wait for their steps.
+     *
+     * @param <T>   task result type
+     * @param tasks the sheet tasks, in desired order
+     * @return the futures, in tasks order, all completed
+     * @throws InterruptedException if interrupted while waiting
+     */
+    public static <T> List<Future<T>> invokeSheets (Collection<? extends Callable<T>> tasks)
+            throws InterruptedException
+    {
+        final int maxSheets = getMaxSheetsCount();
+        final Semaphore permits = new Semaphore(maxSheets);
+        final List<Future<T>> futures = new ArrayList<>(tasks.size());
+        final long start = System.nanoTime();
+        logger.debug("invokeSheets count:{} maxSheets:{}", tasks.size(), maxSheets);
+
+        try {
+            for (final Callable<T> task : tasks) {
+                permits.acquire(); // Wait for room in memory
+
+                final long queue = System.nanoTime() - start;
+                futures.add(
+                        OmrExecutors.getCachedLowExecutor().submit(
+                                new Callable<T>()
+                        {
+                            @Override
+                            public T call ()
+                                    throws Exception
+                            {
+                                final long runStart = System.nanoTime();
+
+                                try {
+                                    return task.call();
+                                } finally {
+                                    permits.release();
+                                    sheetStat.record(queue, System.nanoTime() - runStart);
+                                }
+                            }
+                        }));
+            }
+
+            for (Future<T> future : futures) {
+                try {
+                    future.get();
+                } catch (ExecutionException |
+                         CancellationException ignored) {
+                    // Reported by caller
+                }
+            }
+
+            return futures;
+        } catch (InterruptedException ex) {
+            for (Future<T> future : futures) {
+                future.cancel(true);
+            }
+
+            throw ex;
+        }
+    }
+
+    //--------------//
+    // managedBlock //
+    //--------------//
+    /**
+     * Run a blocking action, such as reading a file, by the current thread.
+     * <p>
+     * If the current thread is a pool worker, the pool is told about the blocking, so that it can
+     * activate a spare worker meanwhile and thus keep its parallelism level.
+     * Actions mostly using CPU must not be run this way.
+     *
+     * @param <T>    action result type
+     * @param action the blocking action
+     * @return the action result
+     * @throws ProcessingCancellationException if interrupted
+     * @throws RuntimeException                the action failure, if any
+     */
+    public static <T> T managedBlock (Callable<T> action)
+    {
+        final Blocker<T> blocker = new Blocker<>(action);
+
+        try {
+            ForkJoinPool.managedBlock(blocker);
+        } catch (InterruptedException ex) {
+            throw new ProcessingCancellationException(ex);
+        }
+
+        return blocker.getResult();
+    }
+
+    //-----------------//
+    // printStatistics //
+    //-----------------//
+    /**
+     * Print out, if so desired, the accumulated queue and run times per step.
+     */
+    public static void printStatistics ()
+    {
+        if (!constants.printStatistics.isSet()) {
+            return;
+        }
+
+        final StringBuilder sb = new StringBuilder("Scheduling statistics (ms):");
+        sb.append(String.format("%n%-12s %6s %10s %10s", "unit", "count", "queue", "run"));
+        sb.append(sheetStat.format("SHEET"));
+
+        synchronized (stepStats) {
+            for (Map.Entry<Step, Stat> entry : stepStats.entrySet()) {
+                sb.append(entry.getValue().format(entry.getKey().name()));
+            }
+        }
+
+        logger.info("{}", sb);
+    }
+
+    //--------//
+    // submit //
+    //--------//
+    /**
+     * Submit a step task to the pool.
+     * <p>
+     * Cancelling the returned future with interruption interrupts the step task if running,
+     * as well as the system tasks it has launched via {@link #invokeAll(Collection)}.
+     *
+     * @param step the step being performed
+     * @param task the step task
+     * @return the future on step task
+     */
+    public static StepFuture submit (Step step,
+                                     Callable<Void> task)
+    {
+        final StepFuture future = new StepFuture(step, task);
+        future.task = OmrExecutors.getForkJoinPool().submit(ForkJoinTask.adapt(future));
+
+        return future;
+    }
+
+    //-----------//
+    // toRuntime //
+    //-----------//
+    private static RuntimeException toRuntime (Throwable ex)
+    {
+        if (ex instanceof Error) {
+            throw (Error) ex;
+        }
+
+        return (ex instanceof RuntimeException) ? (RuntimeException) ex : new RuntimeException(ex);
+    }
+
+    //---------//
+    // Blocker //
+    //---------//
+    /**
+     * Blocking action, as run by {@link ForkJoinPool#managedBlock}.
+     *
+     * @param <T> action result type
+     */
+    private static class Blocker<T>
+            implements ForkJoinPool.ManagedBlocker
+    {
+
+        private final Callable<T> action;
+
+        private T result;
+
+        private Exception exception;
+
+        private boolean done;
+
+        Blocker (Callable<T> action)
+        {
+            this.action = action;
+        }
+
+        @Override
+        public boolean block ()
+        {
+            try {
+                result = action.call();
+            } catch (Exception ex) {
+                exception = ex;
+            }
+
+            done = true;
+
+            return true;
+        }
+
+        @Override
+        public boolean isReleasable ()
+        {
+            return done;
+        }
+
+        T getResult ()
+        {
+            if (exception != null) {
+                throw toRuntime(exception);
+            }
+
+            return result;
+        }
+    }
+
+    //-----------//
+    // Constants //
+    //-----------//
+    private static class Constants
+            extends ConstantSet
+    {
+
+        private final Constant.Integer memoryBudget = new Constant.Integer(
+                "MB",
+                2048,
+                "Memory budget for sheets resident at the same time (bounded by max heap)");
+
+        private final Constant.Integer sheetMemory = new Constant.Integer(
+                "MB",
+                400,
+                "Estimated memory needed by one resident sheet");
+
+        private final Constant.Boolean printStatistics = new Constant.Boolean(
+                false,
+                "Should we print out scheduling statistics per step?");
+    }
+
+    //------//
+    // Stat //
+    //------//
+    /**
+     * Cumulated queue and run times for a kind of unit.
+     */
+    private static class Stat
+    {
+
+        private int count;
+
+        private long queue; // In nanoseconds
+
+        private long run; // In nanoseconds
+
+        public synchronized void record (long queue,
+                                         long run)
+        {
+            count++;
+            this.queue += queue;
+            this.run += run;
+        }
+
+        public synchronized String format (String name)
+        {
+            return String.format(
+                    "%n%-12s %6d %10d %10d",
+                    name,
+                    count,
+                    TimeUnit.NANOSECONDS.toMillis(queue),
+                    TimeUnit.NANOSECONDS.toMillis(run));
+        }
+    }
+
+    //------------//
+    // StepFuture //
+    //------------//
+    /**
+     * Future on a step task running in the pool.
+     * <p>
+     * A fork/join task cannot be interrupted by its cancellation, hence the handling of the
+     * threads running the step task and its system tasks.
+     */
+    public static class StepFuture
+            implements Callable<Void>, Future<Void>
+    {
+
+        private final Step step;
+
+        private final Callable<Void> callable;
+
+        private final long submitted = System.nanoTime();
+
+        /** Signalled when step task starts (or is cancelled). */
+        private final CountDownLatch started = new CountDownLatch(1);
+
+        /** Start time of step task. */
+        private volatile long start;
+
+        /** Underlying pool task. */
+        private volatile ForkJoinTask<Void> task;
+
+        /** Threads currently running the step task or one of its system tasks. */
+        private final List<Thread> runners = new ArrayList<>();
+
+        /** Exception raised by step, if any. */
+        private volatile Exception exception;
+
+        private boolean cancelled;
+
+        private StepFuture (Step step,
+                            Callable<Void> callable)
+        {
+            this.step = step;
+            this.callable = callable;
+        }
+
+        //----------//
+        // awaitRun //
+        //----------//
+        /**
+         * Wait for step completion, with separate timeouts for the time spent waiting for a
+         * pool worker and for the step run time.
+         * <p>
+         * On either timeout, the step is cancelled.
+         *
+         * @param queueTimeout maximum time waiting for a pool worker
+         * @param runTimeout   maximum run time
+         * @param unit         unit of timeouts
+         * @return null
+         * @throws InterruptedException if interrupted while waiting
+         * @throws ExecutionException   if step failed
+         * @throws TimeoutException     if step waited or ran for too long
+         */
+        public Void awaitRun (long queueTimeout,
+                              long runTimeout,
+                              TimeUnit unit)
+                throws InterruptedException, ExecutionException, TimeoutException
+        {
+            if (!started.await(queueTimeout, unit)) {
+                cancel(true);
+                throw new TimeoutException("Step " + step + " not started in time");
+            }
+
+            final long remaining = unit.toNanos(runTimeout) - (System.nanoTime() - start);
+
+            try {
+                return get(Math.max(0, remaining), TimeUnit.NANOSECONDS);
+            } catch (TimeoutException ex) {
+                cancel(true);
+                throw ex;
+            }
+        }
+
+        @Override
+        public Void call ()
+        {
+            start = System.nanoTime();
+            started.countDown();
+
+            synchronized (this) {
+                if (cancelled) {
+                    return null;
+                }
+            }
+
+            try {
+                new Unit<>(callable, this).call();
+            } catch (Exception ex) {
+                exception = ex;
+            } finally {
+                Thread.interrupted(); // Don't leak interruption to next pool task
+
+                final long run = System.nanoTime() - start;
+                Stat stat;
+
+                synchronized (stepStats) {
+                    stat = stepStats.get(step);
+
+                    if (stat == null) {
+                        stepStats.put(step, stat = new Stat());
+                    }
+                }
+
+                stat.record(start - submitted, run);
+            }
+
+            return null;
+        }
+
+        @Override
+        public boolean cancel (boolean mayInterruptIfRunning)
+        {
+            synchronized (this) {
+                cancelled = true;
+                started.countDown();
+
+                if (mayInterruptIfRunning) {
+                    for (Thread runner : runners) {
+                        runner.interrupt();
+                    }
+                }
+            }
+
+            return task.cancel(mayInterruptIfRunning);
+        }
+
+        @Override
+        public Void get ()
+                throws InterruptedException, ExecutionException
+        {
+            task.get();
+
+            return check();
+        }
+
+        @Override
+        public Void get (long timeout,
+                         TimeUnit unit)
+                throws InterruptedException, ExecutionException, TimeoutException
+        {
+            task.get(timeout, unit);
+
+            return check();
+        }
+
+        @Override
+        public boolean isCancelled ()
+        {
+            return task.isCancelled();
+        }
+
+        @Override
+        public boolean isDone ()
+        {
+            return task.isDone();
+        }
+
+        private Void check ()
+                throws ExecutionException
+        {
+            if (exception != null) {
+                throw new ExecutionException(exception);
+            }
+
+            return null;
+        }
+
+        /**
+         * Register current thread as running a unit of this step.
+         *
+         * @throws ProcessingCancellationException if step has been cancelled
+         */
+        private synchronized void enter ()
+        {
+            if (cancelled) {
+                throw new ProcessingCancellationException("Step " + step + " cancelled");
+            }
+
+            runners.add(Thread.currentThread());
+        }
+
+        /**
+         * Unregister current thread as running a unit of this step.
+         */
+        private synchronized void exit ()
+        {
+            runners.remove(Thread.currentThread());
+
+            if (cancelled) {
+                Thread.interrupted(); // Don't leak interruption to next pool task
+            }
+        }
+
+        private synchronized boolean isCancelRequested ()
+        {
+            return cancelled;
+        }
+    }
+
+    //------//
+    // Unit //
+    //------//
+    /**
+     * Wrapper around a unit of work, which preserves the log annotations of the running
+     * thread, since a pool worker may process units of different sheets in turn.
+     * <p>
+     * The unit is skipped if its step has been cancelled, and is interrupted if its step gets
+     * cancelled while running.
+     *
+     * @param <T> result type
+     */
+    private static class Unit<T>
+            implements Callable<T>
+    {
+
+        private final Callable<T> callable;
+
+        /** Step the unit belongs to, if any. */
+        private final StepFuture step;
+
+        Unit (Callable<T> callable,
+              StepFuture step)
+        {
+            this.callable = callable;
+            this.step = step;
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public T call ()
+                throws Exception
+        {
+            final Map<String, String> context = MDC.getCopyOfContextMap();
+            final StepFuture previous = currentStep.get();
+
+            if (step != null) {
+                step.enter();
+            }
+
+            currentStep.set(step);
+
+            try {
+                return callable.call();
+            } finally {
+                currentStep.set(previous);
+
+                if (step != null) {
+                    step.exit();
+                }
+
+                if (context != null) {
+                    MDC.setContextMap(context);
+                } else {
+                    MDC.clear();
+                }
+            }
+        }
+    }
+}
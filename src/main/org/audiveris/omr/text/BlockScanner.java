@@ -91,7 +91,8 @@ public class BlockScanner
                 OCR.LayoutMode.SINGLE_BLOCK,
                 language,
                 sheet.getScale().getInterline(),
-                sheet.getId() + "-b" + id);
+                sheet.getId() + "-b" + id,
+                sheet.getStub().getBook().getOcrCache());
     }
 
     //-----------//
@@ -53,6 +53,18 @@ public interface OCR
      */
     Set<String> getLanguages ();
 
+    /**
+     * Report a signature of the results this OCR engine gives for the provided language
+     * specification.
+     * <p>
+     * The signature changes whenever the results may change for the same image: engine version,
+     * language data or post-processing parameters.
+     *
+     * @param languageCode language specification or null
+     * @return the signature string
+     */
+    String getSignature (String languageCode);
+
     /**
      * Return OCR engine identification.
      *
@@ -0,0 +1,602 @@
+//------------------------------------------------------------------------------------------------//
+//                                                                                                //
+//                                        O c r C a c h e                                         //
+//                                                                                                //
+//------------------------------------------------------------------------------------------------//
+// <editor-fold defaultstate="collapsed" desc="hdr">
+//
+//  Copyright © Audiveris 2018. All rights reserved.
+//
+//  This program is free software: you can redistribute it and/or modify it under the terms of the
+//  GNU Affero General Public License as published by the Free Software Foundation, either version
+//  3 of the License, or (at your option) any later version.
+//
+//  This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+//  without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+//  See the GNU Affero General Public License for more details.
+//
+//  You should have received a copy of the GNU Affero General Public License along with this
+//  program.  If not, see <http://www.gnu.org/licenses/>.
+//------------------------------------------------------------------------------------------------//
+// </editor-fold>
+package org.audiveris.omr.text;
+
+import org.audiveris.omr.constant.Constant;
+import org.audiveris.omr.constant.ConstantSet;
+import org.audiveris.omr.text.OCR.LayoutMode;
+import org.audiveris.omr.util.Jaxb;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.awt.Rectangle;
+import java.awt.geom.Line2D;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBuffer;
+import java.awt.image.Raster;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import javax.xml.bind.JAXBContext;
+import javax.xml.bind.JAXBException;
+import javax.xml.bind.Unmarshaller;
+import javax.xml.bind.annotation.XmlAccessType;
+import javax.xml.bind.annotation.XmlAccessorType;
+import javax.xml.bind.annotation.XmlAttribute;
+import javax.xml.bind.annotation.XmlElement;
+import javax.xml.bind.annotation.XmlRootElement;
+import javax.xml.bind.annotation.adapters.XmlJavaTypeAdapter;
+import javax.xml.stream.XMLStreamException;
+
+import net.jcip.annotations.ThreadSafe;
+
+/**
+ * Class {@code OcrCache} keeps the raw OCR results of a book, so that an image region
+ * already scanned is not submitted again to the OCR engine, across sheets and across reruns.
+ * <p>
+ * A result is keyed by the content of the scanned image (a SHA-1 digest of its pixels),
+ * together with the OCR parameters (margin, interline, language specification and layout mode)
+ * and a digest of the OCR signature (engine version, language data files and post-processing
+ * parameters), so that results cached by another OCR installation are not reused.
+ * Its lines of text are kept with coordinates relative to the scanned image, and each
+ * {@link #get} provides brand new TextLine instances, since callers modify them.
+ * <p>
+ * The cache is stored as a separate {@value #OCR_CACHE_ENTRY} entry in book project file,
+ * its number of entries being capped, the least recently used entries being discarded first.
+ *
+ * @author Hervé Bitteur
+ */
+@ThreadSafe
+@XmlAccessorType(XmlAccessType.NONE)
+@XmlRootElement(name = "ocr-cache")
+public class OcrCache
+{
+
+    private static final Constants constants = new Constants();
+
+    private static final Logger logger = LoggerFactory.getLogger(OcrCache.class);
+
+    /** Name of the cache entry within book file. */
+    public static final String OCR_CACHE_ENTRY = "ocr-cache.xml";
+
+    /** Un/marshalling context for use with JAXB. */
+    private static volatile JAXBContext jaxbContext;
+
+    // Persistent data
+    //----------------
+    /** Cache entries, from least to most recently used. Populated only for (un)marshalling. */
+    @XmlElement(name = "entry")
+    private List<Entry> entries;
+
+    // Transient data
+    //---------------
+    /** Results by key, in access order. */
+    private final Map<String, Entry> map = new LinkedHashMap<String, Entry>(16, 0.75f, true)
+    {
+        @Override
+        protected boolean removeEldestEntry (Map.Entry<String, Entry> eldest)
+        {
+            return size() > constants.maxEntries.getValue();
+        }
+    };
+
+    /** True if cache has been modified since loaded or stored. */
+    private boolean modified;
+
+    /**
+     * Creates a new empty {@code OcrCache} object. Needed for JAXB.
+     */
+    public OcrCache ()
+    {
+    }
+
+    //-----//
+    // get //
+    //-----//
+    /**
+     * Report a copy of the lines of text cached for the provided key.
+     *
+     * @param key the result key, as computed by {@link #keyOf}
+     * @return new lines of text, relative to scanned image, or null if not cached
+     */
+    public List<TextLine> get (String key)
+    {
+        final Entry entry;
+
+        synchronized (this) {
+            entry = map.get(key);
+        }
+
+        if (entry == null) {
+            return null;
+        }
+
+        logger.debug("OCR cache hit {}", key);
+
+        return entry.toLines();
+    }
+
+    //------------//
+    // isModified //
+    //------------//
+    /**
+     * Tell whether the cache has been modified since loaded or stored.
+     *
+     * @return true if modified
+     */
+    public synchronized boolean isModified ()
+    {
+        return modified;
+    }
+
+    //---------//
+    // marshal //
+    //---------//
+    /**
+     * Store the cache into book file system.
+     *
+     * @param root root path of book file system
+     * @throws IOException        on IO error
+     * @throws JAXBException      on JAXB error
+     * @throws XMLStreamException on XML error
+     */
+    public synchronized void marshal (Path root)
+            throws IOException,
+                   JAXBException,
+                   XMLStreamException
+    {
+        final Path path = root.resolve(OCR_CACHE_ENTRY);
+        Files.deleteIfExists(path);
+
+        try {
+            entries = new ArrayList<>(map.values());
+            Jaxb.marshal(this, path, getJaxbContext());
+            modified = false;
+            logger.info("Stored {}", path);
+        } finally {
+            entries = null;
+        }
+    }
+
+    //-----//
+    // put //
+    //-----//
+    /**
+     * Cache a copy of the provided lines of text.
+     *
+     * @param key   the result key, as computed by {@link #keyOf}
+     * @param lines the lines of text, relative to scanned image
+     */
+    public void put (String key,
+                     List<TextLine> lines)
+    {
+        final Entry entry = new Entry(key, lines);
+
+        synchronized (this) {
+            map.put(key, entry);
+            modified = true;
+        }
+    }
+
+    //------//
+    // size //
+    //------//
+    /**
+     * Report the number of cached results.
+     *
+     * @return the cache size
+     */
+    public synchronized int size ()
+    {
+        return map.size();
+    }
+
+    //----------//
+    // toString //
+    //----------//
+    @Override
+    public String toString ()
+    {
+        StringBuilder sb = new StringBuilder(getClass().getSimpleName());
+        sb.append('{');
+        sb.append("entries:").append(size());
+        sb.append('}');
+
+        return sb.toString();
+    }
+
+    //----------------//
+    // afterUnmarshal //
+    //----------------//
+    /**
+     * Called after all the properties are unmarshalled for this object.
+     */
+    @SuppressWarnings("unused")
+    private void afterUnmarshal (Unmarshaller um,
+                                 Object parent)
+    {
+        if (entries != null) {
+            for (Entry entry : entries) {
+                map.put(entry.key, entry);
+            }
+
+            entries = null;
+        }
+    }
+
+    //-----------//
+    // isEnabled //
+    //-----------//
+    /**
+     * Tell whether OCR results are to be cached.
+     *
+     * @return true if cache is enabled
+     */
+    public static boolean isEnabled ()
+    {
+        return constants.useCache.isSet();
+    }
+
+    //-------//
+    // keyOf //
+    //-------//
+    /**
+     * Compute the key for the OCR of provided image with provided parameters.
+     *
+     * @param image      the image to scan
+     * @param margin     amount of white pixels added around the image
+     * @param layoutMode MULTI_BLOCK or SINGLE_BLOCK
+     * @param language   language specification
+     * @param interline  scaling interline
+     * @param signature  OCR signature for the language specification
+     * @return the result key, or null if no digest could be computed
+     * @see OCR#getSignature(String)
+     */
+    public static String keyOf (BufferedImage image,
+                                int margin,
+                                LayoutMode layoutMode,
+                                String language,
+                                int interline,
+                                String signature)
+    {
+        try {
+            final int width = image.getWidth();
+            final int height = image.getHeight();
+            final StringBuilder sb = new StringBuilder(digestOf(image));
+            sb.append('-').append(width).append('x').append(height);
+            sb.append('-').append(margin);
+            sb.append('-').append(interline);
+            sb.append('-').append(language);
+            sb.append('-').append(layoutMode);
+
+            // Signature may be long, a short digest is enough
+            final MessageDigest md = MessageDigest.getInstance("SHA-1");
+            md.update(String.valueOf(signature).getBytes(StandardCharsets.UTF_8));
+            sb.append('-').append(toHex(md.digest()).substring(0, 8));
+
+            return sb.toString();
+        } catch (NoSuchAlgorithmException ex) {
+            logger.warn("No digest for OCR cache " + ex, ex);
+
+            return null;
+        }
+    }
+
+    //-----------//
+    // unmarshal //
+    //-----------//
+    /**
+     * Load the cache from book file system.
+     *
+     * @param root root path of book file system
+     * @return the cache loaded, or null if there is no cache entry or if it could not be read
+     */
+    public static OcrCache unmarshal (Path root)
+    {
+        final Path path = root.resolve(OCR_CACHE_ENTRY);
+
+        if (!Files.exists(path)) {
+            return null;
+        }
+
+        try {
+            logger.debug("OcrCache unmarshalling {}", path);
+
+            OcrCache cache = (OcrCache) Jaxb.unmarshal(path, getJaxbContext());
+            logger.info("Unmarshalled {}", cache);
+
+            return cache;
+        } catch (IOException |
+                 JAXBException ex) {
+            logger.warn("Error unmarshalling OcrCache " + ex, ex);
+
+            return null;
+        }
+    }
+
+    //----------//
+    // digestOf //
+    //----------//
+    /**
+     * Compute the SHA-1 digest of image pixels, row by row.
+     *
+     * @param image the provided image
+     * @return the hexadecimal digest
+     * @throws NoSuchAlgorithmException if SHA-1 is not available
+     */
+    private static String digestOf (BufferedImage image)
+            throws NoSuchAlgorithmException
+    {
+        final MessageDigest md = MessageDigest.getInstance("SHA-1");
+        final int width = image.getWidth();
+        final int height = image.getHeight();
+        final Raster raster = image.getRaster();
+
+        if ((raster.getTransferType() == DataBuffer.TYPE_BYTE) && (raster.getNumBands() == 1)) {
+            // Gray or binary image: one byte per pixel
+            final byte[] row = new byte[width];
+
+            for (int y = 0; y < height; y++) {
+                raster.getDataElements(0, y, width, 1, row);
+                md.update(row);
+            }
+        } else {
+            // Any other image: one ARGB int per pixel
+            final int[] row = new int[width];
+            final ByteBuffer buffer = ByteBuffer.allocate(4 * width);
+
+            for (int y = 0; y < height; y++) {
+                image.getRGB(0, y, width, 1, row, 0, width);
+                buffer.asIntBuffer().put(row);
+                md.update(buffer.array());
+            }
+        }
+
+        return toHex(md.digest());
+    }
+
+    //----------------//
+    // getJaxbContext //
+    //----------------//
+    private static JAXBContext getJaxbContext ()
+            throws JAXBException
+    {
+        // Lazy creation
+        if (jaxbContext == null) {
+            jaxbContext = JAXBContext.newInstance(OcrCache.class);
+        }
+
+        return jaxbContext;
+    }
+
+    //-------//
+    // toHex //
+    //-------//
+    private static String toHex (byte[] bytes)
+    {
+        final StringBuilder sb = new StringBuilder();
+
+        for (byte b : bytes) {
+            sb.append(String.format("%02x", b & 0xFF));
+        }
+
+        return sb.toString();
+    }
+
+    //-----------//
+    // CharValue //
+    //-----------//
+    /**
+     * Cached data of a char.
+     */
+    @XmlAccessorType(XmlAccessType.NONE)
+    private static class CharValue
+    {
+
+        @XmlAttribute(name = "value")
+        private String value;
+
+        @XmlElement(name = "bounds")
+        @XmlJavaTypeAdapter(Jaxb.RectangleAdapter.class)
+        private Rectangle bounds;
+
+        CharValue ()
+        {
+        }
+
+        CharValue (TextChar ch)
+        {
+            value = ch.getValue();
+            bounds = ch.getBounds();
+        }
+    }
+
+    //-----------//
+    // Constants //
+    //-----------//
+    private static class Constants
+            extends ConstantSet
+    {
+
+        private final Constant.Boolean useCache = new Constant.Boolean(
+                true,
+                "Should OCR results be cached in book?");
+
+        private final Constant.Integer maxEntries = new Constant.Integer(
+                "entries",
+                10000,
+                "Maximum number of OCR results cached in book");
+    }
+
+    //-------//
+    // Entry //
+    //-------//
+    /**
+     * Cached result of one OCR scan.
+     */
+    @XmlAccessorType(XmlAccessType.NONE)
+    private static class Entry
+    {
+
+        @XmlAttribute(name = "key")
+        private String key;
+
+        @XmlElement(name = "line")
+        private final List<LineValue> lines = new ArrayList<>();
+
+        Entry ()
+        {
+        }
+
+        Entry (String key,
+               List<TextLine> lines)
+        {
+            this.key = key;
+
+            for (TextLine line : lines) {
+                this.lines.add(new LineValue(line));
+            }
+        }
+
+        /**
+         * Build brand new lines from cached data.
+         *
+         * @return the new lines
+         */
+        List<TextLine> toLines ()
+        {
+            final List<TextLine> textLines = new ArrayList<>(lines.size());
+
+            for (LineValue lineValue : lines) {
+                final TextLine line = new TextLine();
+
+                for (WordValue wv : lineValue.words) {
+                    final Line2D baseline = (wv.baseline != null)
+                            ? new Line2D.Double(wv.baseline.getP1(), wv.baseline.getP2()) : null;
+                    final TextWord word = new TextWord(
+                            new Rectangle(wv.bounds),
+                            wv.value,
+                            baseline,
+                            wv.confidence,
+                            wv.fontInfo,
+                            line);
+
+                    for (CharValue cv : wv.chars) {
+                        word.addChar(new TextChar(new Rectangle(cv.bounds), cv.value));
+                    }
+
+                    line.appendWord(word);
+                }
+
+                textLines.add(line);
+            }
+
+            return textLines;
+        }
+    }
+
+    //-----------//
+    // LineValue //
+    //-----------//
+    /**
+     * Cached data of a line.
+     */
+    @XmlAccessorType(XmlAccessType.NONE)
+    private static class LineValue
+    {
+
+        @XmlElement(name = "word")
+        private final List<WordValue> words = new ArrayList<>();
+
+        LineValue ()
+        {
+        }
+
+        LineValue (TextLine line)
+        {
+            for (TextWord word : line.getWords()) {
+                words.add(new WordValue(word));
+            }
+        }
+    }
+
+    //-----------//
+    // WordValue //
+    //-----------//
+    /**
+     * Cached data of a word.
+     */
+    @XmlAccessorType(XmlAccessType.NONE)
+    private static class WordValue
+    {
+
+        @XmlAttribute(name = "value")
+        private String value;
+
+        @XmlAttribute(name = "confidence")
+        private Double confidence;
+
+        @XmlAttribute(name = "font")
+        @XmlJavaTypeAdapter(FontInfo.Adapter.class)
+        private FontInfo fontInfo;
+
+        @XmlElement(name = "bounds")
+        @XmlJavaTypeAdapter(Jaxb.RectangleAdapter.class)
+        private Rectangle bounds;
+
+        @XmlElement(name = "baseline")
+        @XmlJavaTypeAdapter(Jaxb.Line2DAdapter.class)
+        private Line2D baseline;
+
+        @XmlElement(name = "char")
+        private final List<CharValue> chars = new ArrayList<>();
+
+        WordValue ()
+        {
+        }
+
+        WordValue (TextWord word)
+        {
+            value = word.getValue();
+            confidence = word.getConfidence();
+            fontInfo = word.getFontInfo();
+            bounds = word.getBounds();
+
+            final Line2D line = word.getBaseline();
+            baseline = (line != null) ? new Line2D.Double(line.getP1(), line.getP2()) : null;
+
+            for (TextChar ch : word.getChars()) {
+                chars.add(new CharValue(ch));
+            }
+        }
+    }
+}
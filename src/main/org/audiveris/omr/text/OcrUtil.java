@@ -64,6 +64,9 @@ public abstract class OcrUtil
     //------//
     /**
      * Scan the provided image for lines of text.
+     * <p>
+     * If a cache is provided, a result already cached for the same image content, the same
+     * parameters and the same OCR signature is reused without calling the OCR engine.
      *
      * @param image      the provided image
      * @param margin     amount of white pixels added around the image (can be zero)
@@ -71,6 +74,7 @@ public abstract class OcrUtil
      * @param language   language specification
      * @param interline  scaling interline
      * @param label      some label meant for debugging
+     * @param cache      the OCR cache of containing book, or null
      * @return the raw lines of text found, with coordinates relative to image origin
      */
     public static List<TextLine> scan (BufferedImage image,
@@ -78,8 +82,29 @@ public abstract class OcrUtil
                                        LayoutMode layoutMode,
                                        String language,
                                        int interline,
-                                       String label)
+                                       String label,
+                                       OcrCache cache)
     {
+        String key = null;
+
+        if ((cache != null) && OcrCache.isEnabled()) {
+            key = OcrCache.keyOf(
+                    image,
+                    margin,
+                    layoutMode,
+                    language,
+                    interline,
+                    ocr.getSignature(language));
+
+            if (key != null) {
+                final List<TextLine> cachedLines = cache.get(key);
+
+                if (cachedLines != null) {
+                    return cachedLines;
+                }
+            }
+        }
+
         final int width = image.getWidth();
         final int height = image.getHeight();
         final Point origin = new Point(0, 0);
@@ -105,6 +130,18 @@ public abstract class OcrUtil
             bi = image;
         }
 
-        return ocr.recognize(interline, bi, origin, language, layoutMode, label);
+        final List<TextLine> lines = ocr.recognize(
+                interline,
+                bi,
+                origin,
+                language,
+                layoutMode,
+                label);
+
+        if ((key != null) && (lines != null)) {
+            cache.put(key, lines);
+        }
+
+        return lines;
     }
 }
@@ -141,7 +141,8 @@ public class SheetScanner
                     OCR.LayoutMode.MULTI_BLOCK,
                     language,
                     sheet.getScale().getInterline(),
-                    sheet.getId());
+                    sheet.getId(),
+                    sheet.getStub().getBook().getOcrCache());
         } finally {
             if (constants.printWatch.isSet()) {
                 watch.print();
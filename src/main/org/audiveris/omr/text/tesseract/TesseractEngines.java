@@ -0,0 +1,190 @@
+//------------------------------------------------------------------------------------------------//
+//                                                                                                //
+//                                T e s s e r a c t E n g i n e s                                 //
+//                                                                                                //
+//------------------------------------------------------------------------------------------------//
+// <editor-fold defaultstate="collapsed" desc="hdr">
+//
+//  Copyright © Audiveris 2018. All rights reserved.
+//
+//  This program is free software: you can redistribute it and/or modify it under the terms of the
+//  GNU Affero General Public License as published by the Free Software Foundation, either version
+//  3 of the License, or (at your option) any later version.
+//
+//  This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+//  without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+//  See the GNU Affero General Public License for more details.
+//
+//  You should have received a copy of the GNU Affero General Public License along with this
+//  program.  If not, see <http://www.gnu.org/licenses/>.
+//------------------------------------------------------------------------------------------------//
+// </editor-fold>
+package org.audiveris.omr.text.tesseract;
+
+import org.audiveris.omr.step.StepScheduler;
+
+import org.bytedeco.javacpp.tesseract.TessBaseAPI;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+
+import net.jcip.annotations.ThreadSafe;
+
+/**
+ * Class {@code TesseractEngines} keeps Tesseract engines initialized, so that language data
+ * is not re-loaded for every OCR order.
+ * <p>
+ * A Tesseract API is not thread-safe, hence each thread gets its own engines, one per language
+ * specification, initialized on first use and then kept warm.
+ * Engines whose owning thread has terminated are ended when a new engine gets initialized,
+ * the remaining ones live until application exit.
+ *
+ * @author Hervé Bitteur
+ */
+@ThreadSafe
+public class TesseractEngines
+{
+
+    private static final Logger logger = LoggerFactory.getLogger(TesseractEngines.class);
+
+    /** All engines initialized so far. */
+    private final List<Engine> allEngines = new ArrayList<>();
+
+    /** Engines of current thread, by language specification. */
+    private final ThreadLocal<Map<String, TessBaseAPI>> threadEngines
+            = new ThreadLocal<Map<String, TessBaseAPI>>()
+    {
+        @Override
+        protected Map<String, TessBaseAPI> initialValue ()
+        {
+            return new HashMap<>();
+        }
+    };
+
+    /**
+     * Creates a new {@code TesseractEngines} object.
+     */
+    public TesseractEngines ()
+    {
+    }
+
+    //-----------//
+    // getEngine //
+    //-----------//
+    /**
+     * Report the engine of current thread for the provided language specification,
+     * initialized if needed.
+     * <p>
+     * The engine must be used by current thread only, and must be cleared after each use.
+     *
+     * @param ocrFolder folder of Tesseract data
+     * @param lang      language specification
+     * @return the engine ready to use, or null if it could not be initialized
+     */
+    public TessBaseAPI getEngine (Path ocrFolder,
+                                  String lang)
+    {
+        final Map<String, TessBaseAPI> map = threadEngines.get();
+        TessBaseAPI api = map.get(lang);
+
+        if (api == null) {
+            final long start = System.currentTimeMillis();
+            api = new TessBaseAPI();
+
+            if (!init(api, ocrFolder, lang)) {
+                logger.warn("Could not initialize Tesseract with lang {}", lang);
+                api.End();
+
+                return null;
+            }
+
+            logger.debug(
+                    "Tesseract engine for {} initialized in {} ms",
+                    lang,
+                    System.currentTimeMillis() - start);
+            map.put(lang, api);
+            register(new Engine(Thread.currentThread(), api));
+        }
+
+        return api;
+    }
+
+    //------//
+    // init //
+    //------//
+    /**
+     * Initialize the provided API with the provided language specification.
+     * <p>
+     * Initialization mostly reads language data files, hence it is run as a managed block of
+     * the step pool.
+     *
+     * @param api       the API to initialize
+     * @param ocrFolder folder of Tesseract data
+     * @param lang      language specification
+     * @return true if OK
+     */
+    public static boolean init (final TessBaseAPI api,
+                                final Path ocrFolder,
+                                final String lang)
+    {
+        return StepScheduler.managedBlock(new Callable<Boolean>()
+        {
+            @Override
+            public Boolean call ()
+            {
+                return api.Init(ocrFolder.toString(), lang) == 0;
+            }
+        });
+    }
+
+    //----------//
+    // register //
+    //----------//
+    /**
+     * Register a new engine, and end the engines of terminated threads.
+     *
+     * @param engine the new engine
+     */
+    private synchronized void register (Engine engine)
+    {
+        for (Iterator<Engine> it = allEngines.iterator(); it.hasNext();) {
+            final Engine e = it.next();
+
+            if (!e.owner.isAlive()) {
+                e.api.End();
+                it.remove();
+            }
+        }
+
+        allEngines.add(engine);
+    }
+
+    //--------//
+    // Engine //
+    //--------//
+    /**
+     * An engine, with its owning thread.
+     */
+    private static class Engine
+    {
+
+        final Thread owner;
+
+        final TessBaseAPI api;
+
+        Engine (Thread owner,
+                TessBaseAPI api)
+        {
+            this.owner = owner;
+            this.api = api;
+        }
+    }
+}
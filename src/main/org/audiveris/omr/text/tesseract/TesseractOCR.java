@@ -49,6 +49,8 @@ import java.util.Collections;
 import java.util.List;
 import java.util.Set;
 import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.atomic.AtomicInteger;
 
 /**
@@ -66,6 +68,11 @@ public class TesseractOCR
 
     private static final Logger logger = LoggerFactory.getLogger(TesseractOCR.class);
 
+    /** Range of resolution values accepted by Tesseract. */
+    private static final int MIN_RESOLUTION = 70;
+
+    private static final int MAX_RESOLUTION = 2400;
+
     /** Latin encoder, to check character validity. (not used yet) */
     private static final CharsetEncoder encoder = Charset.forName("iso-8859-1").newEncoder();
 
@@ -82,6 +89,12 @@ public class TesseractOCR
     /** To assign a serial number to each image processing order. */
     private final AtomicInteger serial = new AtomicInteger(0);
 
+    /** Initialized engines, kept across orders. */
+    private final TesseractEngines engines = new TesseractEngines();
+
+    /** Signatures computed so far, per language specification. */
+    private final ConcurrentMap<String, String> signatures = new ConcurrentHashMap<>();
+
     /**
      * Creates the TesseractOCR singleton.
      */
@@ -142,6 +155,30 @@ public class TesseractOCR
         return OCR_FOLDER;
     }
 
+    //--------------//
+    // getSignature //
+    //--------------//
+    /**
+     * {@inheritDoc}
+     * <p>
+     * The signature gathers Tesseract version, the size and modification time of each
+     * traineddata file involved, and the post-processing parameters.
+     * It is computed once per language specification.
+     */
+    @Override
+    public String getSignature (String languageCode)
+    {
+        final String spec = String.valueOf(languageCode);
+        String signature = signatures.get(spec);
+
+        if (signature == null) {
+            signature = computeSignature(languageCode);
+            signatures.putIfAbsent(spec, signature);
+        }
+
+        return signature;
+    }
+
     //----------//
     // identify //
     //----------//
@@ -188,10 +225,12 @@ public class TesseractOCR
                     constants.keepImages.isSet(),
                     languageCode,
                     getMode(layoutMode),
+                    getResolution(interline),
                     bufferedImage);
 
             // Process the order
-            List<TextLine> lines = order.process();
+            final TesseractEngines pool = constants.poolEngines.isSet() ? engines : null;
+            List<TextLine> lines = order.process(pool);
 
             // Post-processing
             if (lines != null) {
@@ -236,6 +275,41 @@ public class TesseractOCR
         }
     }
 
+    //------------------//
+    // computeSignature //
+    //------------------//
+    private String computeSignature (String languageCode)
+    {
+        final StringBuilder sb = new StringBuilder(identify());
+        sb.append(" maxDashWidth:").append(constants.maxDashWidth.getValue());
+
+        final Path ocrFolder = getOcrFolder();
+
+        if ((ocrFolder != null) && (languageCode != null)) {
+            Path tessdata = ocrFolder.resolve("tessdata");
+
+            if (!Files.isDirectory(tessdata)) {
+                tessdata = ocrFolder; // Folder may directly be the tessdata folder
+            }
+
+            for (String lang : languageCode.split("\\+")) {
+                final Path file = tessdata.resolve(lang + ".traineddata");
+                sb.append(' ').append(lang);
+
+                try {
+                    sb.append(':').append(Files.size(file));
+                    sb.append(':').append(Files.getLastModifiedTime(file).toMillis());
+                } catch (IOException ex) {
+                    sb.append(":none");
+                }
+            }
+        }
+
+        logger.debug("OCR signature for {}: {}", languageCode, sb);
+
+        return sb.toString();
+    }
+
     //---------------//
     // findOcrFolder //
     //---------------//
@@ -305,6 +379,26 @@ public class TesseractOCR
         }
     }
 
+    //---------------//
+    // getResolution //
+    //---------------//
+    /**
+     * Derive image resolution from sheet scale, since image DPI metadata is seldom reliable.
+     * <p>
+     * Without resolution, Tesseract falls back to a default value far below typical scans,
+     * which skews its estimation of text size.
+     *
+     * @param interline sheet interline value
+     * @return image resolution, in pixels per inch
+     */
+    private int getResolution (int interline)
+    {
+        final int ppi = (int) Math.rint(
+                (300.0 * interline) / constants.interlineAt300Dpi.getValue());
+
+        return Math.max(MIN_RESOLUTION, Math.min(MAX_RESOLUTION, ppi));
+    }
+
     //------------------//
     // scanOcrLocations //
     //------------------//
@@ -360,8 +454,17 @@ public class TesseractOCR
                 false,
                 "Should we keep the images sent to Tesseract?");
 
+        private final Constant.Boolean poolEngines = new Constant.Boolean(
+                true,
+                "Should we keep Tesseract engines initialized across OCR orders?");
+
         private final Scale.Fraction maxDashWidth = new Scale.Fraction(
                 1.0,
                 "Maximum width for a dash character");
+
+        private final Constant.Integer interlineAt300Dpi = new Constant.Integer(
+                "Pixels",
+                20,
+                "Typical interline in a 300 DPI image, to derive resolution given to Tesseract");
     }
 }
@@ -29,21 +29,21 @@ import org.audiveris.omr.text.TextLine;
 import org.audiveris.omr.text.TextWord;
 
 import org.bytedeco.javacpp.*;
-import static org.bytedeco.javacpp.lept.*;
 import static org.bytedeco.javacpp.tesseract.*;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.awt.Graphics2D;
 import java.awt.Rectangle;
 import java.awt.geom.Line2D;
 import java.awt.geom.Rectangle2D;
 import java.awt.image.BufferedImage;
-import java.io.ByteArrayOutputStream;
-import java.io.FileOutputStream;
+import java.awt.image.ComponentSampleModel;
+import java.awt.image.DataBufferByte;
+import java.awt.image.WritableRaster;
 import java.io.IOException;
 import java.io.UnsupportedEncodingException;
-import java.nio.ByteBuffer;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.ArrayList;
@@ -51,13 +51,13 @@ import java.util.Collections;
 import java.util.List;
 
 import javax.imageio.ImageIO;
-import javax.imageio.ImageWriter;
 import javax.imageio.spi.IIORegistry;
-import javax.imageio.stream.ImageOutputStream;
 
 /**
  * Class {@code TesseractOrder} carries a processing order submitted to Tesseract OCR
  * program.
+ * <p>
+ * Image 8-bit gray pixels are handed directly to Tesseract engine.
  *
  * @author Hervé Bitteur
  */
@@ -95,11 +95,23 @@ public class TesseractOrder
     /** Desired handling of layout. */
     private final int segMode;
 
-    /** The dedicated API. */
+    /** Image resolution, in pixels per inch. */
+    private final int resolution;
+
+    /** Gray pixels of image being processed, one byte per pixel, row after row. */
+    private final byte[] pixels;
+
+    /** Width of image being processed. */
+    private final int width;
+
+    /** Height of image being processed. */
+    private final int height;
+
+    /** The API in use. */
     private TessBaseAPI api;
 
-    /** The image being processed. */
-    private final PIX image;
+    /** Is the API taken from a pool of engines?. */
+    private boolean pooled;
 
     //----------------//
     // TesseractOrder //
@@ -112,16 +124,17 @@ public class TesseractOrder
      * @param keepImage     True to keep a disk copy of the image
      * @param lang          The language specification
      * @param segMode       The desired page segmentation mode
+     * @param resolution    The image resolution, in pixels per inch
      * @param bufferedImage The image to process
      * @throws UnsatisfiedLinkError When bridge to C++ could not be loaded
-     * @throws IOException          When temporary Tiff buffer failed
-     * @throws RuntimeException     When PIX image failed
+     * @throws IOException          When disk copy of image failed
      */
     public TesseractOrder (String label,
                            int serial,
                            boolean keepImage,
                            String lang,
                            int segMode,
+                           int resolution,
                            BufferedImage bufferedImage)
             throws UnsatisfiedLinkError,
                    IOException
@@ -131,15 +144,15 @@ public class TesseractOrder
         this.keepImage = keepImage;
         this.lang = lang;
         this.segMode = segMode;
+        this.resolution = resolution;
 
-        // Build a PIX from the image provided
-        ByteBuffer buf = toTiffBuffer(bufferedImage);
-        buf.position(0);
-        image = pixReadMemTiff(buf, buf.capacity(), 0);
+        width = bufferedImage.getWidth();
+        height = bufferedImage.getHeight();
+        pixels = toGrayPixels(bufferedImage);
 
-        if (image == null) {
-            logger.warn("Invalid image {}", label);
-            throw new RuntimeException("Invalid image");
+        // Should we keep a local copy of this image on disk?
+        if (keepImage) {
+            storeImage(bufferedImage);
         }
     }
 
@@ -147,29 +160,42 @@ public class TesseractOrder
     // process //
     //---------//
     /**
-     * Actually allocate a Tesseract API and recognize the image.
+     * Actually get a Tesseract API and recognize the image.
      *
+     * @param engines pool of initialized engines, or null to allocate a dedicated API
      * @return the sequence of lines found
      */
-    public List<TextLine> process ()
+    public List<TextLine> process (TesseractEngines engines)
     {
         if (!OcrUtil.getOcr().isAvailable()) {
             return Collections.EMPTY_LIST;
         }
 
         try {
+            final long start = System.currentTimeMillis();
             final Path ocrFolder = TesseractOCR.getInstance().getOcrFolder();
-            api = new TessBaseAPI();
+            pooled = engines != null;
 
-            // Init API with proper language
-            if (api.Init(ocrFolder.toString(), lang) != 0) {
-                logger.warn("Could not initialize Tesseract with lang {}", lang);
+            if (pooled) {
+                api = engines.getEngine(ocrFolder, lang);
 
-                return finish(null);
+                if (api == null) {
+                    return null;
+                }
+            } else {
+                api = new TessBaseAPI();
+
+                // Init API with proper language
+                if (!TesseractEngines.init(api, ocrFolder, lang)) {
+                    logger.warn("Could not initialize Tesseract with lang {}", lang);
+
+                    return finish(null);
+                }
             }
 
-            // Set API image
-            api.SetImage(image);
+            // Set API image, as 8-bit gray pixels, with its resolution
+            api.SetImage(pixels, width, height, 1, width);
+            api.SetSourceResolution(resolution);
 
             // Perform layout analysis according to segmentation mode
             api.SetPageSegMode(segMode);
@@ -185,7 +211,16 @@ public class TesseractOrder
             }
 
             // Extract lines
-            return finish(getLines());
+            final List<TextLine> lines = finish(getLines());
+            logger.debug(
+                    "{} OCR order #{} {}x{} in {} ms",
+                    label,
+                    serial,
+                    width,
+                    height,
+                    System.currentTimeMillis() - start);
+
+            return lines;
         } catch (UnsatisfiedLinkError ex) {
             if (!userWarned) {
                 logger.warn("Could not link Tesseract engine", ex);
@@ -208,12 +243,12 @@ public class TesseractOrder
      */
     private List<TextLine> finish (List<TextLine> lines)
     {
-        if (image != null) {
-            pixDestroy(image);
-        }
-
         if (api != null) {
-            api.End();
+            if (pooled) {
+                api.Clear(); // Keep engine initialized for next order
+            } else {
+                api.End();
+            }
         }
 
         return lines;
@@ -392,53 +427,65 @@ public class TesseractOrder
         }
     }
 
-    //--------------//
-    // toTiffBuffer //
-    //--------------//
+    //------------//
+    // storeImage //
+    //------------//
     /**
-     * Convert the given image into a TIFF-formatted ByteBuffer for passing it directly
-     * to Tesseract.
-     * <p>
-     * A copy of the tiff buffer can be saved on disk, if so desired.
+     * Keep a TIFF copy of the image on disk.
      *
      * @param image the input image
-     * @return a buffer in TIFF format
      */
-    private ByteBuffer toTiffBuffer (BufferedImage image)
+    private void storeImage (BufferedImage image)
             throws IOException
     {
-        ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        String name = String.format("%03d-", serial) + ((label != null) ? label : "");
+        Path path = WellKnowns.TEMP_FOLDER.resolve(name + ".tif");
 
-        try (ImageOutputStream ios = ImageIO.createImageOutputStream(baos)) {
-            ImageWriter writer = ImageIO.getImageWritersByFormatName("tiff").next();
-            writer.setOutput(ios);
-            writer.write(image);
-        } catch (IOException ex) {
-            logger.warn("Could not write image", ex);
+        // Make sure the TEMP directory exists
+        if (!Files.exists(WellKnowns.TEMP_FOLDER)) {
+            Files.createDirectories(WellKnowns.TEMP_FOLDER);
         }
 
-        ByteBuffer buf = ByteBuffer.allocate(baos.size());
-        byte[] bytes = baos.toByteArray();
-        buf.put(bytes);
-
-        // Should we keep a local copy of this buffer on disk?
-        if (keepImage) {
-            String name = String.format("%03d-", serial) + ((label != null) ? label : "");
-            Path path = WellKnowns.TEMP_FOLDER.resolve(name + ".tif");
-
-            // Make sure the TEMP directory exists
-            if (!Files.exists(WellKnowns.TEMP_FOLDER)) {
-                Files.createDirectories(WellKnowns.TEMP_FOLDER);
-            }
+        try {
+            ImageIO.write(image, "tiff", path.toFile());
+        } catch (IOException ex) {
+            logger.warn("Could not write to {}", path, ex);
+        }
+    }
 
-            try (FileOutputStream fos = new FileOutputStream(path.toFile())) {
-                fos.write(bytes);
-            } catch (IOException ex) {
-                logger.warn("Could not write to {}", path, ex);
-            }
+    //--------------//
+    // toGrayPixels //
+    //--------------//
+    /**
+     * Report the 8-bit gray pixels of the given image, row after row.
+     * <p>
+     * The pixels of a plain TYPE_BYTE_GRAY image are used as they are, any other image is first
+     * drawn into such a gray image.
+     *
+     * @param image the input image
+     * @return the gray pixels, one byte per pixel
+     */
+    private static byte[] toGrayPixels (BufferedImage image)
+    {
+        final int w = image.getWidth();
+        final int h = image.getHeight();
+        final WritableRaster raster = image.getRaster();
+
+        if ((image.getType() == BufferedImage.TYPE_BYTE_GRAY)
+            && (raster.getSampleModelTranslateX() == 0)
+            && (raster.getSampleModelTranslateY() == 0)
+            && (raster.getDataBuffer().getOffset() == 0)
+            && (raster.getSampleModel() instanceof ComponentSampleModel)
+            && (((ComponentSampleModel) raster.getSampleModel()).getScanlineStride() == w)) {
+            return ((DataBufferByte) raster.getDataBuffer()).getData();
         }
 
-        return buf;
+        final BufferedImage gray = new BufferedImage(w, h, BufferedImage.TYPE_BYTE_GRAY);
+        final Graphics2D g = gray.createGraphics();
+        g.drawImage(image, 0, 0, null);
+        g.dispose();
+
+        return ((DataBufferByte) gray.getRaster().getDataBuffer()).getData();
     }
 
     /**
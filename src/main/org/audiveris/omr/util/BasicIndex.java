@@ -82,6 +82,9 @@ public class BasicIndex<E extends Entity>
     /** Selection service, if any. */
     protected EntityService<E> entityService;
 
+    /** Spatial index on entities, if any. */
+    protected EntityGrid<E> grid;
+
     /** List of IDs for declared VIP entities. */
     private List<Integer> vipIds;
 
@@ -113,6 +116,10 @@ public class BasicIndex<E extends Entity>
     @Override
     public List<E> getContainedEntities (Rectangle rectangle)
     {
+        if (grid != null) {
+            return grid.getContainedEntities(rectangle);
+        }
+
         return Entities.containedEntities(iterator(), rectangle);
     }
 
@@ -122,6 +129,10 @@ public class BasicIndex<E extends Entity>
     @Override
     public List<E> getContainingEntities (Point point)
     {
+        if (grid != null) {
+            return grid.getContainingEntities(point);
+        }
+
         return Entities.containingEntities(iterator(), point);
     }
 
@@ -232,6 +243,30 @@ public class BasicIndex<E extends Entity>
         this.lastId.set(lastId);
     }
 
+    //---------//
+    // setGrid //
+    //---------//
+    /**
+     * Plug a spatial index, to speed up region queries.
+     * <p>
+     * This is meant only for entities whose bounds do not change while they are registered.
+     * The grid is populated with the entities already present in this index.
+     *
+     * @param grid the spatial index to use, or null for plain linear scans
+     */
+    public void setGrid (EntityGrid<E> grid)
+    {
+        this.grid = grid;
+
+        if (grid != null) {
+            grid.clear();
+
+            for (E entity : entities.values()) {
+                grid.insert(entity);
+            }
+        }
+    }
+
     //---------//
     // getName //
     //---------//
@@ -260,6 +295,10 @@ public class BasicIndex<E extends Entity>
 
         entities.put(id, entity);
 
+        if (grid != null) {
+            grid.insert(entity);
+        }
+
         if (isVipId(id)) {
             entity.setVip(true);
             logger.info("VIP insert {}", entity);
@@ -300,6 +339,10 @@ public class BasicIndex<E extends Entity>
 
         entities.put(id, entity);
 
+        if (grid != null) {
+            grid.insert(entity);
+        }
+
         if (isVipId(id)) {
             entity.setVip(true);
             logger.info("VIP registered {}", entity);
@@ -315,6 +358,10 @@ public class BasicIndex<E extends Entity>
     public void remove (E entity)
     {
         entities.remove(entity.getId());
+
+        if (grid != null) {
+            grid.remove(entity);
+        }
     }
 
     //-------//
@@ -325,6 +372,10 @@ public class BasicIndex<E extends Entity>
     {
         lastId.set(0);
         entities.clear();
+
+        if (grid != null) {
+            grid.clear();
+        }
     }
 
     //-----------//
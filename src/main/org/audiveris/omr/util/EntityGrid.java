@@ -0,0 +1,407 @@
+//------------------------------------------------------------------------------------------------//
+//                                                                                                //
+//                                      E n t i t y G r i d                                       //
+//                                                                                                //
+//------------------------------------------------------------------------------------------------//
+// <editor-fold defaultstate="collapsed" desc="hdr">
+//
+//  Copyright © Audiveris 2018. All rights reserved.
+//
+//  This program is free software: you can redistribute it and/or modify it under the terms of the
+//  GNU Affero General Public License as published by the Free Software Foundation, either version
+//  3 of the License, or (at your option) any later version.
+//
+//  This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+//  without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+//  See the GNU Affero General Public License for more details.
+//
+//  You should have received a copy of the GNU Affero General Public License along with this
+//  program.  If not, see <http://www.gnu.org/licenses/>.
+//------------------------------------------------------------------------------------------------//
+// </editor-fold>
+package org.audiveris.omr.util;
+
+import java.awt.Point;
+import java.awt.Rectangle;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Class {@code EntityGrid} is a spatial index on entities, based on a uniform grid of
+ * square cells.
+ * <p>
+ * Each entity is referenced by every cell its bounds intersect, so that a rectangle or point
+ * query only has to browse the entities of the few cells involved rather than the whole
+ * population.
+ * <p>
+ * The bounds of an entity are read when it is inserted and are supposed not to change until it is
+ * removed from the grid.
+ * This is the case for a {@link org.audiveris.omr.glyph.Glyph} for example.
+ * <p>
+ * Query results are sorted by entity ID, exactly like a linear scan on a {@link BasicIndex}.
+ * Modifications are serialized, while queries can run concurrently without locking.
+ *
+ * @param <E> precise type for indexed entities
+ * @author Hervé Bitteur
+ */
+public class EntityGrid<E extends Entity>
+{
+
+    /** Cell side length, in pixels. */
+    private final int cellSize;
+
+    /** Non-empty cells, indexed by cell key. Each cell maps entity ID to entity. */
+    private final ConcurrentMap<Long, ConcurrentMap<Integer, E>> cells = new ConcurrentHashMap<>();
+
+    /** Bounds of each indexed entity, as read at insertion time. */
+    private final ConcurrentMap<Integer, Rectangle> boundsMap = new ConcurrentHashMap<>();
+
+    /**
+     * Creates a new {@code EntityGrid} object.
+     *
+     * @param cellSize cell side length, in pixels
+     */
+    public EntityGrid (int cellSize)
+    {
+        if (cellSize <= 0) {
+            throw new IllegalArgumentException("Illegal grid cell size " + cellSize);
+        }
+
+        this.cellSize = cellSize;
+    }
+
+    //-------//
+    // clear //
+    //-------//
+    /**
+     * Remove all entities from the grid.
+     */
+    public synchronized void clear ()
+    {
+        cells.clear();
+        boundsMap.clear();
+    }
+
+    //-------------//
+    // getCellSize //
+    //-------------//
+    /**
+     * Report the cell side length.
+     *
+     * @return cell size, in pixels
+     */
+    public int getCellSize ()
+    {
+        return cellSize;
+    }
+
+    //----------------------//
+    // getContainedEntities //
+    //----------------------//
+    /**
+     * Report all entities whose bounds are contained in the provided rectangle.
+     *
+     * @param rect the containing rectangle
+     * @return the entities found, sorted by ID, perhaps empty but not null
+     * @see Entities#containedEntities(java.util.Iterator, java.awt.Rectangle)
+     */
+    public List<E> getContainedEntities (Rectangle rect)
+    {
+        return collect(rect, true);
+    }
+
+    //-----------------------//
+    // getContainingEntities //
+    //-----------------------//
+    /**
+     * Report all entities that contain the provided point.
+     *
+     * @param point the provided point
+     * @return the entities found, sorted by ID, perhaps empty but not null
+     * @see Entities#containingEntities(java.util.Iterator, java.awt.Point)
+     */
+    public List<E> getContainingEntities (Point point)
+    {
+        final Map<Integer, E> cell = cells.get(keyOf(cellOf(point.x), cellOf(point.y)));
+
+        if (cell == null) {
+            return Collections.emptyList();
+        }
+
+        final List<E> found = new ArrayList<>();
+
+        for (E entity : cell.values()) {
+            if (entity.contains(point)) {
+                found.add(entity);
+            }
+        }
+
+        return sorted(found);
+    }
+
+    //------------------------//
+    // getIntersectedEntities //
+    //------------------------//
+    /**
+     * Report all entities whose bounds intersect the provided rectangle.
+     *
+     * @param rect the intersecting rectangle
+     * @return the entities found, sorted by ID, perhaps empty but not null
+     */
+    public List<E> getIntersectedEntities (Rectangle rect)
+    {
+        return collect(rect, false);
+    }
+
+    //--------//
+    // insert //
+    //--------//
+    /**
+     * Insert an entity into the grid.
+     * An entity with no ID or no bounds is ignored.
+     *
+     * @param entity the entity to insert
+     */
+    public synchronized void insert (E entity)
+    {
+        final int id = entity.getId();
+        final Rectangle bounds = entity.getBounds();
+
+        if ((id == 0) || (bounds == null) || bounds.isEmpty()) {
+            return;
+        }
+
+        final Rectangle old = boundsMap.put(id, new Rectangle(bounds));
+
+        if (old != null) {
+            unlink(id, old);
+        }
+
+        for (int row = cellOf(bounds.y), rowMax = cellOf((bounds.y + bounds.height) - 1);
+                row <= rowMax; row++) {
+            for (int col = cellOf(bounds.x), colMax = cellOf((bounds.x + bounds.width) - 1);
+                    col <= colMax; col++) {
+                final long key = keyOf(col, row);
+                ConcurrentMap<Integer, E> cell = cells.get(key);
+
+                if (cell == null) {
+                    cell = new ConcurrentHashMap<>();
+                    cells.put(key, cell);
+                }
+
+                cell.put(id, entity);
+            }
+        }
+    }
+
+    //--------//
+    // remove //
+    //--------//
+    /**
+     * Remove an entity from the grid.
+     *
+     * @param entity the entity to remove
+     */
+    public synchronized void remove (E entity)
+    {
+        final int id = entity.getId();
+        final Rectangle bounds = boundsMap.remove(id);
+
+        if (bounds != null) {
+            unlink(id, bounds);
+        }
+    }
+
+    //------//
+    // size //
+    //------//
+    /**
+     * Report the number of entities indexed.
+     *
+     * @return the number of entities
+     */
+    public int size ()
+    {
+        return boundsMap.size();
+    }
+
+    //----------//
+    // toString //
+    //----------//
+    @Override
+    public String toString ()
+    {
+        StringBuilder sb = new StringBuilder(getClass().getSimpleName());
+        sb.append("{");
+        sb.append("cellSize:").append(cellSize);
+        sb.append(" cells:").append(cells.size());
+        sb.append(" entities:").append(boundsMap.size());
+        sb.append("}");
+
+        return sb.toString();
+    }
+
+    //--------//
+    // cellOf //
+    //--------//
+    private int cellOf (int coord)
+    {
+        // Floor division, since a query rectangle may lie partly outside the image
+        return (coord >= 0) ? (coord / cellSize) : (((coord + 1) / cellSize) - 1);
+    }
+
+    //---------//
+    // collect //
+    //---------//
+    /**
+     * Collect the entities whose bounds are contained in (or intersect) the provided
+     * rectangle.
+     *
+     * @param rect      the query rectangle
+     * @param contained true for containment, false for intersection
+     * @return the entities found, sorted by ID
+     */
+    private List<E> collect (Rectangle rect,
+                             boolean contained)
+    {
+        if (rect.isEmpty() || cells.isEmpty()) {
+            return Collections.emptyList();
+        }
+
+        final int colMin = cellOf(rect.x);
+        final int colMax = cellOf((rect.x + rect.width) - 1);
+        final int rowMin = cellOf(rect.y);
+        final int rowMax = cellOf((rect.y + rect.height) - 1);
+        final long cellCount = ((long) (colMax - colMin + 1)) * (rowMax - rowMin + 1);
+        final List<E> found = new ArrayList<>();
+
+        if (cellCount <= cells.size()) {
+            for (int row = rowMin; row <= rowMax; row++) {
+                for (int col = colMin; col <= colMax; col++) {
+                    final Map<Integer, E> cell = cells.get(keyOf(col, row));
+
+                    if (cell != null) {
+                        collectCell(cell, col, row, colMin, rowMin, rect, contained, found);
+                    }
+                }
+            }
+        } else {
+            // Large rectangle: browse the non-empty cells instead
+            for (Entry<Long, ConcurrentMap<Integer, E>> entry : cells.entrySet()) {
+                final long key = entry.getKey();
+                final int col = colOf(key);
+                final int row = rowOf(key);
+
+                if ((col >= colMin) && (col <= colMax) && (row >= rowMin) && (row <= rowMax)) {
+                    collectCell(entry.getValue(), col, row, colMin, rowMin, rect, contained, found);
+                }
+            }
+        }
+
+        return sorted(found);
+    }
+
+    //-------------//
+    // collectCell //
+    //-------------//
+    /**
+     * Collect the matching entities of a cell.
+     * <p>
+     * An entity may be referenced by several cells of the query range, it is reported only by the
+     * first of them, that is the cell at range top left corner or at entity top left corner.
+     */
+    private void collectCell (Map<Integer, E> cell,
+                              int col,
+                              int row,
+                              int colMin,
+                              int rowMin,
+                              Rectangle rect,
+                              boolean contained,
+                              List<E> found)
+    {
+        for (Entry<Integer, E> entry : cell.entrySet()) {
+            final Rectangle box = boundsMap.get(entry.getKey());
+
+            if ((box != null)
+                && (Math.max(colMin, cellOf(box.x)) == col)
+                && (Math.max(rowMin, cellOf(box.y)) == row)) {
+                final E entity = entry.getValue();
+                final Rectangle bounds = entity.getBounds();
+
+                if (bounds != null) {
+                    if (contained ? rect.contains(bounds) : rect.intersects(bounds)) {
+                        found.add(entity);
+                    }
+                }
+            }
+        }
+    }
+
+    //-------//
+    // colOf //
+    //-------//
+    private static int colOf (long key)
+    {
+        return (int) key;
+    }
+
+    //-------//
+    // keyOf //
+    //-------//
+    private static long keyOf (int col,
+                               int row)
+    {
+        return (((long) row) << 32) | (col & 0xFFFFFFFFL);
+    }
+
+    //-------//
+    // rowOf //
+    //-------//
+    private static int rowOf (long key)
+    {
+        return (int) (key >> 32);
+    }
+
+    //--------//
+    // sorted //
+    //--------//
+    private List<E> sorted (List<E> found)
+    {
+        if (found.isEmpty()) {
+            return Collections.emptyList();
+        }
+
+        Collections.sort(found, Entities.byId);
+
+        return found;
+    }
+
+    //--------//
+    // unlink //
+    //--------//
+    private void unlink (int id,
+                         Rectangle bounds)
+    {
+        for (int row = cellOf(bounds.y), rowMax = cellOf((bounds.y + bounds.height) - 1);
+                row <= rowMax; row++) {
+            for (int col = cellOf(bounds.x), colMax = cellOf((bounds.x + bounds.width) - 1);
+                    col <= colMax; col++) {
+                final long key = keyOf(col, row);
+                final Map<Integer, E> cell = cells.get(key);
+
+                if (cell != null) {
+                    cell.remove(id);
+
+                    if (cell.isEmpty()) {
+                        cells.remove(key);
+                    }
+                }
+            }
+        }
+    }
+}
@@ -33,6 +33,8 @@ import java.util.Arrays;
 import java.util.Collection;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
 import java.util.concurrent.ThreadFactory;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
@@ -44,6 +46,8 @@ import java.util.concurrent.atomic.AtomicInteger;
  * <li>lowExecutor: a fixed nb (#cpu+1) of threads with low priority</li>
  * <li>highExecutor: a fixed nb (#cpu+1) of threads with high priority</li>
  * <li>cachedLowExecutor: a varying nb of threads with low priority</li>
+ * <li>forkJoinPool: a work-stealing pool (#cpu) of threads with low priority, meant for sheet
+ * steps, their system tasks and fine-grained recursive tasks</li>
  * </ul>
  *
  * @author Hervé Bitteur
@@ -68,8 +72,14 @@ public class OmrExecutors
 
     private static final Pool cachedLows = new CachedLows();
 
+    private static final Pool forkJoins = new ForkJoins();
+
     /** To handle all the pools as a whole. */
-    private static final Collection<Pool> allPools = Arrays.asList(cachedLows, lows, highs);
+    private static final Collection<Pool> allPools = Arrays.asList(
+            cachedLows,
+            lows,
+            highs,
+            forkJoins);
 
     /** To prevent parallel creation of pools when closing. */
     private static volatile boolean creationAllowed = true;
@@ -103,6 +113,19 @@ public class OmrExecutors
         return cachedLows.getPool();
     }
 
+    //-----------------//
+    // getForkJoinPool //
+    //-----------------//
+    /**
+     * Return the (single) work-stealing pool, meant for recursive fork/join tasks.
+     *
+     * @return the fork/join pool, allocated if needed
+     */
+    public static ForkJoinPool getForkJoinPool ()
+    {
+        return (ForkJoinPool) forkJoins.getPool();
+    }
+
     //-----------------//
     // getHighExecutor //
     //-----------------//
@@ -413,6 +436,47 @@ public class OmrExecutors
         }
     }
 
+    //-----------//
+    // ForkJoins //
+    //-----------//
+    /** Work-stealing pool for fork/join tasks. */
+    private static class ForkJoins
+            extends Pool
+    {
+
+        @Override
+        public String getName ()
+        {
+            return "forkJoin";
+        }
+
+        @Override
+        protected ExecutorService createPool ()
+        {
+            final AtomicInteger threadNumber = new AtomicInteger(0);
+            final ForkJoinPool.ForkJoinWorkerThreadFactory factory
+                    = new ForkJoinPool.ForkJoinWorkerThreadFactory()
+            {
+                @Override
+                public ForkJoinWorkerThread newThread (ForkJoinPool pool)
+                {
+                    final ForkJoinWorkerThread t = ForkJoinPool.defaultForkJoinWorkerThreadFactory
+                            .newThread(pool);
+                    t.setName(getName() + "-thread-" + threadNumber.incrementAndGet());
+                    t.setPriority(Thread.MIN_PRIORITY);
+
+                    return t;
+                }
+            };
+
+            return new ForkJoinPool(
+                    defaultParallelism.getValue() ? cpuCount : 1,
+                    factory,
+                    null,
+                    false);
+        }
+    }
+
     //-------//
     // Highs //
     //-------//
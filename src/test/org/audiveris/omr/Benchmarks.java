@@ -0,0 +1,108 @@
+//------------------------------------------------------------------------------------------------//
+//                                                                                                //
+//                                      B e n c h m a r k s                                       //
+//                                                                                                //
+//------------------------------------------------------------------------------------------------//
+// <editor-fold defaultstate="collapsed" desc="hdr">
+//
+//  Copyright © Audiveris 2018. All rights reserved.
+//
+//  This program is free software: you can redistribute it and/or modify it under the terms of the
+//  GNU Affero General Public License as published by the Free Software Foundation, either version
+//  3 of the License, or (at your option) any later version.
+//
+//  This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+//  without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+//  See the GNU Affero General Public License for more details.
+//
+//  You should have received a copy of the GNU Affero General Public License along with this
+//  program.  If not, see <http://www.gnu.org/licenses/>.
+//------------------------------------------------------------------------------------------------//
+// </editor-fold>
+package org.audiveris.omr;
+
+import ij.process.ByteProcessor;
+
+import org.audiveris.omr.image.IntegralFilter;
+import org.audiveris.omr.image.PixelFilter;
+import org.audiveris.omr.image.VerticalFilter;
+import org.audiveris.omr.run.Orientation;
+import org.audiveris.omr.run.RunTable;
+import org.audiveris.omr.run.RunTableFactory;
+import org.audiveris.omr.run.SampleImages;
+import org.audiveris.omr.util.StopWatch;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Class {@code Benchmarks} is a manual runner of performance benchmarks, kept out of the
+ * unit tests suite.
+ * <p>
+ * Each benchmark is selected by its name on the command line (all benchmarks if no name is
+ * provided) and works on page-sized synthetic images.
+ * A large heap is needed, say -Xmx2g.
+ *
+ * @author Hervé Bitteur
+ */
+public class Benchmarks
+{
+    //~ Static fields/initializers -----------------------------------------------------------------
+
+    /** Width of a 600 DPI A4 scan. */
+    private static final int WIDTH = 4960;
+
+    /** Height of a 600 DPI A4 scan. */
+    private static final int HEIGHT = 7016;
+
+    //~ Constructors -------------------------------------------------------------------------------
+
+    private Benchmarks ()
+    {
+    }
+
+    //~ Methods ------------------------------------------------------------------------------------
+    public static void main (String... args)
+    {
+        final List<String> names = Arrays.asList(args);
+
+        if (names.isEmpty() || names.contains("binary")) {
+            binary();
+        }
+    }
+
+    //--------//
+    // binary //
+    //--------//
+    /**
+     * BINARY processing: gray source binarized into a vertical RunTable.
+     */
+    private static void binary ()
+    {
+        final double meanCoeff = 0.7;
+        final double stdDevCoeff = 0.9;
+        final ByteProcessor gray = SampleImages.createGrayImage(WIDTH, HEIGHT, new Random(4321));
+        final RunTableFactory factory = new RunTableFactory(Orientation.VERTICAL);
+        final StopWatch watch = new StopWatch("BINARY " + WIDTH + "x" + HEIGHT);
+
+        watch.start("VerticalFilter image + table");
+
+        PixelFilter filter = new VerticalFilter(gray, meanCoeff, stdDevCoeff);
+        final RunTable expected = factory.createTable(filter.filteredImage());
+
+        watch.start("IntegralFilter image + table");
+        filter = new IntegralFilter(gray, meanCoeff, stdDevCoeff);
+
+        final RunTable result = factory.createTable(filter.filteredImage());
+
+        watch.start("IntegralFilter streamed table");
+        filter = new IntegralFilter(gray, meanCoeff, stdDevCoeff);
+
+        final RunTable streamed = factory.createTable(filter);
+
+        watch.print();
+        System.out.println("Same image table: " + expected.equals(result));
+        System.out.println("Same streamed table: " + expected.equals(streamed));
+    }
+}
@@ -0,0 +1,151 @@
+//------------------------------------------------------------------------------------------------//
+//                                                                                                //
+//                             E v a l u a t i o n C a c h e T e s t                              //
+//                                                                                                //
+//------------------------------------------------------------------------------------------------//
+// <editor-fold defaultstate="collapsed" desc="hdr">
+//
+//  Copyright © Audiveris 2018. All rights reserved.
+//
+//  This program is free software: you can redistribute it and/or modify it under the terms of the
+//  GNU Affero General Public License as published by the Free Software Foundation, either version
+//  3 of the License, or (at your option) any later version.
+//
+//  This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+//  without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+//  See the GNU Affero General Public License for more details.
+//
+//  You should have received a copy of the GNU Affero General Public License along with this
+//  program.  If not, see <http://www.gnu.org/licenses/>.
+//------------------------------------------------------------------------------------------------//
+// </editor-fold>
+package org.audiveris.omr.classifier;
+
+import org.audiveris.omr.glyph.Glyph;
+import org.audiveris.omr.glyph.Shape;
+import org.audiveris.omr.run.Orientation;
+import org.audiveris.omr.run.Run;
+import org.audiveris.omr.run.RunTable;
+
+import static org.junit.Assert.*;
+import org.junit.Test;
+
+/**
+ * Class {@code EvaluationCacheTest} checks lookup, copy and eviction in
+ * {@link EvaluationCache}.
+ *
+ * @author Hervé Bitteur
+ */
+public class EvaluationCacheTest
+{
+    //~ Constructors -------------------------------------------------------------------------------
+    /**
+     * Creates a new {@code EvaluationCacheTest} object.
+     */
+    public EvaluationCacheTest ()
+    {
+    }
+
+    //~ Methods ------------------------------------------------------------------------------------
+    /**
+     * Check that identical pixels are found, wherever the glyph is located.
+     */
+    @Test
+    public void testLookup ()
+    {
+        System.out.println("\n+++ lookup");
+
+        final EvaluationCache cache = new EvaluationCache(10);
+        final Glyph glyph = new Glyph(10, 20, createTable(3));
+        final Glyph twin = new Glyph(100, 200, createTable(3));
+        final Glyph other = new Glyph(10, 20, createTable(4));
+
+        assertNull(cache.get(glyph, 20));
+        cache.put(glyph, 20, createEvaluations());
+
+        assertNotNull(cache.get(glyph, 20));
+        assertNotNull(cache.get(twin, 20));
+        assertNull(cache.get(twin, 21));
+        assertNull(cache.get(other, 20));
+        assertEquals(2, cache.getHits());
+        assertEquals(3, cache.getMisses());
+
+        cache.clear();
+        assertNull(cache.get(glyph, 20));
+        assertEquals(0, cache.size());
+        assertEquals(0, cache.getHits());
+        assertEquals(1, cache.getMisses());
+    }
+
+    /**
+     * Check that modifying returned evaluations does not modify the cache.
+     */
+    @Test
+    public void testCopy ()
+    {
+        System.out.println("\n+++ copy");
+
+        final EvaluationCache cache = new EvaluationCache(10);
+        final Glyph glyph = new Glyph(0, 0, createTable(5));
+        cache.put(glyph, 20, createEvaluations());
+
+        final Evaluation[] evals = cache.get(glyph, 20);
+        evals[0].shape = Shape.WHOLE_REST;
+        evals[0].grade = 0;
+
+        final Evaluation[] again = cache.get(glyph, 20);
+        assertEquals(Shape.NOISE, again[0].shape);
+        assertEquals(0.9, again[0].grade, 0);
+    }
+
+    /**
+     * Check that least recently used entries are evicted first.
+     */
+    @Test
+    public void testEviction ()
+    {
+        System.out.println("\n+++ eviction");
+
+        final EvaluationCache cache = new EvaluationCache(2);
+        final Glyph g1 = new Glyph(0, 0, createTable(1));
+        final Glyph g2 = new Glyph(0, 0, createTable(2));
+        final Glyph g3 = new Glyph(0, 0, createTable(3));
+
+        cache.put(g1, 20, createEvaluations());
+        cache.put(g2, 20, createEvaluations());
+        assertNotNull(cache.get(g1, 20)); // g2 is now the eldest
+        cache.put(g3, 20, createEvaluations());
+
+        assertEquals(2, cache.size());
+        assertNotNull(cache.get(g1, 20));
+        assertNull(cache.get(g2, 20));
+        assertNotNull(cache.get(g3, 20));
+    }
+
+    //-------------------//
+    // createEvaluations //
+    //-------------------//
+    private Evaluation[] createEvaluations ()
+    {
+        return new Evaluation[]{
+            new Evaluation(Shape.NOISE, 0.9),
+            new Evaluation(Shape.CLUTTER, 0.1)};
+    }
+
+    //-------------//
+    // createTable //
+    //-------------//
+    /**
+     * A vertical table, with one column of increasing length per column.
+     */
+    private RunTable createTable (int width)
+    {
+        final RunTable table = new RunTable(Orientation.VERTICAL, width, width);
+
+        for (int x = 0; x < width; x++) {
+            table.addRun(x, new Run(0, x + 1));
+        }
+
+        return table;
+    }
+}
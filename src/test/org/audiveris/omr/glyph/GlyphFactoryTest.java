@@ -7,12 +7,19 @@ package org.audiveris.omr.glyph;
 
 import static org.audiveris.omr.run.Orientation.HORIZONTAL;
 
+import org.audiveris.omr.run.Orientation;
 import org.audiveris.omr.run.Run;
 import org.audiveris.omr.run.RunTable;
+import org.audiveris.omr.run.RunTableFactory;
+import org.audiveris.omr.run.SampleImages;
 
+import static org.junit.Assert.*;
 import org.junit.Test;
 
 import java.awt.Dimension;
+import java.awt.Point;
+import java.util.List;
+import java.util.Random;
 
 /**
  *
@@ -42,7 +49,54 @@ public class GlyphFactoryTest
         System.out.println("createGlyphs");
 
         RunTable runTable = createHorizontalInstance();
-        GlyphFactory.buildGlyphs(runTable, null);
+        List<Glyph> glyphs = GlyphFactory.buildGlyphs(runTable, null);
+        assertEquals(3, glyphs.size());
+    }
+
+    /**
+     * Check that labeling gives the same glyphs as legacy run marking.
+     */
+    @Test
+    public void testLabeler ()
+    {
+        System.out.println("\n+++ labeler");
+
+        checkSameGlyphs(createHorizontalInstance(), new Point(0, 0));
+
+        final Random random = new Random(21);
+        // Last size gives more than minParallelRuns, hence exercises parallel labeling
+        final int[][] sizes = new int[][]{
+            {1, 1}, {1, 50}, {50, 1}, {37, 23}, {300, 200}, {600, 800}};
+
+        for (Orientation orientation : Orientation.values()) {
+            final RunTableFactory factory = new RunTableFactory(orientation);
+
+            for (int[] size : sizes) {
+                final RunTable table = factory.createTable(
+                        SampleImages.createBinaryImage(size[0], size[1], random));
+                checkSameGlyphs(table, new Point(5, 7));
+            }
+        }
+    }
+
+    //-----------------//
+    // checkSameGlyphs //
+    //-----------------//
+    private void checkSameGlyphs (RunTable table,
+                                  Point offset)
+    {
+        final List<Glyph> expected = GlyphFactory.buildGlyphs(table, offset, null, false);
+        final List<Glyph> result = GlyphFactory.buildGlyphs(table, offset, null, true);
+        final String msg = table.toString();
+        assertEquals(msg, expected.size(), result.size());
+
+        for (int i = 0; i < expected.size(); i++) {
+            final Glyph exp = expected.get(i);
+            final Glyph res = result.get(i);
+            assertEquals(msg + " left#" + i, exp.getLeft(), res.getLeft());
+            assertEquals(msg + " top#" + i, exp.getTop(), res.getTop());
+            assertEquals(msg + " table#" + i, exp.getRunTable(), res.getRunTable());
+        }
     }
 
     //--------------------------//
@@ -0,0 +1,140 @@
+//------------------------------------------------------------------------------------------------//
+//                                                                                                //
+//                                      G l y p h s T e s t                                       //
+//                                                                                                //
+//------------------------------------------------------------------------------------------------//
+// <editor-fold defaultstate="collapsed" desc="hdr">
+//
+//  Copyright © Audiveris 2018. All rights reserved.
+//
+//  This program is free software: you can redistribute it and/or modify it under the terms of the
+//  GNU Affero General Public License as published by the Free Software Foundation, either version
+//  3 of the License, or (at your option) any later version.
+//
+//  This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+//  without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+//  See the GNU Affero General Public License for more details.
+//
+//  You should have received a copy of the GNU Affero General Public License along with this
+//  program.  If not, see <http://www.gnu.org/licenses/>.
+//------------------------------------------------------------------------------------------------//
+// </editor-fold>
+package org.audiveris.omr.glyph;
+
+import ij.process.ByteProcessor;
+
+import org.audiveris.omr.run.Orientation;
+import org.audiveris.omr.run.RunTable;
+import org.audiveris.omr.run.RunTableFactory;
+
+import org.jgrapht.graph.SimpleGraph;
+
+import static org.junit.Assert.*;
+import org.junit.Test;
+
+import java.awt.Rectangle;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Class {@code GlyphsTest} checks that the sweep of glyphs in {@link Glyphs#buildLinks}
+ * finds the same links as a brute-force comparison of all glyph pairs.
+ *
+ * @author Hervé Bitteur
+ */
+public class GlyphsTest
+{
+    //~ Static fields/initializers -----------------------------------------------------------------
+
+    private static final double MAX_GAP = 3.5;
+
+    //~ Constructors -------------------------------------------------------------------------------
+    /**
+     * Creates a new {@code GlyphsTest} object.
+     */
+    public GlyphsTest ()
+    {
+    }
+
+    //~ Methods ------------------------------------------------------------------------------------
+    /**
+     * Check links against brute force.
+     */
+    @Test
+    public void testBuildLinks ()
+    {
+        System.out.println("\n+++ buildLinks");
+
+        final List<Glyph> glyphs = createGlyphs(400, 300, new Random(31));
+        final SimpleGraph<Glyph, GlyphLink> graph = Glyphs.buildLinks(glyphs, MAX_GAP);
+        final int gapInt = (int) Math.ceil(MAX_GAP);
+        int linkCount = 0;
+
+        // Brute force on all pairs, in the same abscissa order
+        Collections.sort(glyphs, Glyphs.byAbscissa);
+
+        for (int i = 0; i < glyphs.size(); i++) {
+            final Glyph glyph = glyphs.get(i);
+            final Rectangle fatBox = glyph.getBounds();
+            fatBox.grow(gapInt, gapInt);
+
+            final GlyphDistances glyphDistances = new GlyphDistances(glyph, fatBox);
+
+            for (Glyph other : glyphs.subList(i + 1, glyphs.size())) {
+                final GlyphLink link = graph.getEdge(glyph, other);
+
+                if (!fatBox.intersects(other.getBounds())) {
+                    assertNull(link);
+
+                    continue;
+                }
+
+                final double dist = glyphDistances.distanceTo(other);
+
+                if (dist <= MAX_GAP) {
+                    assertNotNull(link);
+                    assertEquals(dist, ((GlyphLink.Nearby) link).getDistance(), 0);
+                    linkCount++;
+                } else {
+                    assertNull(link);
+                }
+            }
+        }
+
+        System.out.println("glyphs: " + glyphs.size() + " links: " + linkCount);
+        assertEquals(linkCount, graph.edgeSet().size());
+    }
+
+    //--------------//
+    // createGlyphs //
+    //--------------//
+    /**
+     * Glyphs from a binary image of small random blobs.
+     */
+    private List<Glyph> createGlyphs (int width,
+                                      int height,
+                                      Random random)
+    {
+        final ByteProcessor img = new ByteProcessor(width, height);
+        img.setValue(255);
+        img.fill();
+
+        for (int k = (width * height) / 150; k > 0; k--) {
+            final int x = random.nextInt(width);
+            final int y = random.nextInt(height);
+            final int w = 1 + random.nextInt(6);
+            final int h = 1 + random.nextInt(6);
+
+            for (int iy = y; iy < Math.min(height, y + h); iy++) {
+                for (int ix = x; ix < Math.min(width, x + w); ix++) {
+                    img.set(ix, iy, 0);
+                }
+            }
+        }
+
+        final RunTable table = new RunTableFactory(Orientation.VERTICAL).createTable(img);
+
+        return GlyphFactory.buildGlyphs(table, null);
+    }
+}
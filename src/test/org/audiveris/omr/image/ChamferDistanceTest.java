@@ -24,9 +24,15 @@ package org.audiveris.omr.image;
 import ij.process.ByteProcessor;
 
 import org.audiveris.omr.math.TableUtil;
+import org.audiveris.omr.run.Orientation;
+import org.audiveris.omr.run.RunTable;
+import org.audiveris.omr.run.RunTableFactory;
 
+import static org.junit.Assert.*;
 import org.junit.Test;
 
+import java.util.Random;
+
 /**
  *
  * @author Hervé Bitteur
@@ -63,6 +69,133 @@ public class ChamferDistanceTest
         TableUtil.dump("Distances to back:", toBack);
     }
 
+    /**
+     * Check Euclidean distances against brute force, and the value semantics shared with
+     * chamfer distances: VALUE_TARGET exactly on reference pixels, positive elsewhere.
+     */
+    @Test
+    public void testEuclidean ()
+    {
+        System.out.println("\n+++ Euclidean compute");
+
+        final ByteProcessor[] inputs = new ByteProcessor[]{
+            createImage(), createRandomImage(100, 70, 50)};
+
+        for (ByteProcessor input : inputs) {
+            final EuclideanDistance instance = new EuclideanDistance();
+            final ChamferDistance chamfer = new ChamferDistance.Short();
+
+            checkEuclidean(input, true, instance.computeToFore(input));
+            checkEuclidean(input, false, instance.computeToBack(input));
+            checkSemantics(chamfer.computeToFore(input), instance.computeToFore(input));
+            checkSemantics(chamfer.computeToBack(input), instance.computeToBack(input));
+        }
+
+        Table toFore = new EuclideanDistance().computeToFore(createImage());
+        TableUtil.dump("Euclidean distances to fore:", toFore);
+    }
+
+    /**
+     * Check that distances seeded from vertical runs are the same as from the pixel buffer.
+     */
+    @Test
+    public void testEuclideanFromRuns ()
+    {
+        System.out.println("\n+++ Euclidean computeToFore from runs");
+
+        final ByteProcessor input = createRandomImage(300, 200, 30);
+        final EuclideanDistance instance = new EuclideanDistance();
+        final DistanceTable expected = instance.computeToFore(input);
+
+        for (Orientation orientation : Orientation.values()) {
+            RunTable runTable = new RunTableFactory(orientation).createTable(input);
+            assertTableEquals(expected, instance.computeToFore(runTable));
+        }
+
+        // No foreground at all
+        final ByteProcessor blank = new ByteProcessor(50, 40);
+        blank.setValue(255);
+        blank.fill();
+
+        final DistanceTable none = instance.computeToFore(
+                new RunTableFactory(Orientation.VERTICAL).createTable(blank));
+
+        for (int i = (50 * 40) - 1; i >= 0; i--) {
+            assertEquals(ChamferDistance.VALUE_UNKNOWN, none.getValue(i));
+        }
+    }
+
+    //-------------------//
+    // assertTableEquals //
+    //-------------------//
+    private void assertTableEquals (DistanceTable expected,
+                                    DistanceTable actual)
+    {
+        assertEquals(expected.getWidth(), actual.getWidth());
+        assertEquals(expected.getHeight(), actual.getHeight());
+
+        for (int i = (expected.getWidth() * expected.getHeight()) - 1; i >= 0; i--) {
+            assertEquals(expected.getValue(i), actual.getValue(i));
+        }
+    }
+
+    //----------------//
+    // checkEuclidean //
+    //----------------//
+    /**
+     * Check each distance against the brute force distance to nearest reference pixel.
+     */
+    private void checkEuclidean (ByteProcessor input,
+                                 boolean toFore,
+                                 DistanceTable table)
+    {
+        final int width = input.getWidth();
+        final int height = input.getHeight();
+        final int normalizer = table.getNormalizer();
+
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                int best = Integer.MAX_VALUE;
+
+                for (int ry = 0; ry < height; ry++) {
+                    for (int rx = 0; rx < width; rx++) {
+                        if ((input.get(rx, ry) == 0) == toFore) {
+                            final int d2 = ((rx - x) * (rx - x)) + ((ry - y) * (ry - y));
+                            best = Math.min(best, d2);
+                        }
+                    }
+                }
+
+                final int expected = (best == Integer.MAX_VALUE) ? ChamferDistance.VALUE_UNKNOWN
+                        : (int) Math.round(normalizer * Math.sqrt(best));
+                assertEquals("x:" + x + " y:" + y, expected, table.getValue(x, y));
+            }
+        }
+    }
+
+    //----------------//
+    // checkSemantics //
+    //----------------//
+    /**
+     * Check that both tables agree on reference, non-reference and unknown pixels, and
+     * that chamfer distance differs from Euclidean distance by no more than chamfer error.
+     */
+    private void checkSemantics (DistanceTable chamfer,
+                                 DistanceTable euclidean)
+    {
+        for (int i = (chamfer.getWidth() * chamfer.getHeight()) - 1; i >= 0; i--) {
+            final int c = chamfer.getValue(i);
+            final int e = euclidean.getValue(i);
+
+            if ((c == ChamferDistance.VALUE_TARGET) || (c == ChamferDistance.VALUE_UNKNOWN)) {
+                assertEquals(c, e);
+            } else {
+                assertTrue(e > 0);
+                assertTrue(Math.abs(e - c) <= (1 + (c / 8)));
+            }
+        }
+    }
+
     private ByteProcessor createImage ()
     {
         String[] rows = new String[]{
@@ -108,4 +241,28 @@ public class ChamferDistanceTest
 
         return img;
     }
+
+    //-------------------//
+    // createRandomImage //
+    //-------------------//
+    /**
+     * Build an image with random foreground pixels.
+     *
+     * @param ratio average count of pixels per foreground pixel
+     */
+    private ByteProcessor createRandomImage (int width,
+                                             int height,
+                                             int ratio)
+    {
+        final ByteProcessor img = new ByteProcessor(width, height);
+        final Random random = new Random(width * height);
+
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                img.set(x, y, (random.nextInt(ratio) == 0) ? 0 : 255);
+            }
+        }
+
+        return img;
+    }
 }
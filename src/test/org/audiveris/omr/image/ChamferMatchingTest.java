@@ -26,6 +26,7 @@ import ij.process.ByteProcessor;
 import org.audiveris.omr.glyph.Shape;
 import org.audiveris.omr.math.TableUtil;
 
+import static org.junit.Assert.*;
 import org.junit.Test;
 
 import java.util.Collections;
@@ -118,6 +119,43 @@ public class ChamferMatchingTest
         printBest(locs);
     }
 
+    /**
+     * Check that template matching gives the same results on Euclidean distances as on
+     * chamfer distances, since templates only discriminate reference, non-reference and
+     * unknown locations.
+     */
+    @Test
+    public void testMatchEuclidean ()
+    {
+        System.out.println("\n+++ match on Euclidean distances");
+
+        ByteProcessor image = createImage(imageRows);
+        DistanceTable chamfer = new ChamferDistance.Short().computeToFore(image);
+        DistanceTable euclidean = new EuclideanDistance().computeToFore(image);
+        TableUtil.dump("Euclidean distances:", euclidean);
+
+        for (Shape shape : new Shape[]{Shape.NOTEHEAD_BLACK, Shape.NOTEHEAD_VOID}) {
+            Template template = TemplateFactory.getInstance().getCatalog(56).getTemplate(shape);
+
+            for (int y = -template.getHeight(); y < image.getHeight(); y++) {
+                for (int x = -template.getWidth(); x < image.getWidth(); x++) {
+                    assertEquals(
+                            template.evaluate(x, y, null, chamfer),
+                            template.evaluate(x, y, null, euclidean),
+                            0);
+                }
+            }
+
+            List<PixelDistance> chamferLocs = new DistanceMatching(chamfer).matchAll(
+                    template,
+                    Double.MAX_VALUE);
+            List<PixelDistance> euclideanLocs = new DistanceMatching(euclidean).matchAll(
+                    template,
+                    Double.MAX_VALUE);
+            assertEquals(chamferLocs.size(), euclideanLocs.size());
+        }
+    }
+
     private ByteProcessor createImage (String[] rows)
     {
         final int width = rows[0].length();
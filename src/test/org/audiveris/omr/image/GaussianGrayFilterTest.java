@@ -0,0 +1,161 @@
+//------------------------------------------------------------------------------------------------//
+//                                                                                                //
+//                          G a u s s i a n G r a y F i l t e r T e s t                           //
+//                                                                                                //
+//------------------------------------------------------------------------------------------------//
+// <editor-fold defaultstate="collapsed" desc="hdr">
+//
+//  Copyright © Audiveris 2018. All rights reserved.
+//
+//  This program is free software: you can redistribute it and/or modify it under the terms of the
+//  GNU Affero General Public License as published by the Free Software Foundation, either version
+//  3 of the License, or (at your option) any later version.
+//
+//  This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+//  without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+//  See the GNU Affero General Public License for more details.
+//
+//  You should have received a copy of the GNU Affero General Public License along with this
+//  program.  If not, see <http://www.gnu.org/licenses/>.
+//------------------------------------------------------------------------------------------------//
+// </editor-fold>
+package org.audiveris.omr.image;
+
+import ij.process.ByteProcessor;
+
+import static org.junit.Assert.*;
+import org.junit.Test;
+
+import java.awt.image.Kernel;
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * Class {@code GaussianGrayFilterTest} checks that the separable banded Gaussian filter
+ * gives the same pixels as the legacy convolve-and-transpose implementation.
+ *
+ * @author Hervé Bitteur
+ */
+public class GaussianGrayFilterTest
+{
+    //~ Constructors -------------------------------------------------------------------------------
+
+    /**
+     * Creates a new {@code GaussianGrayFilterTest} object.
+     */
+    public GaussianGrayFilterTest ()
+    {
+    }
+
+    //~ Methods ------------------------------------------------------------------------------------
+    /**
+     * Check filter against legacy implementation, on several radii and sizes.
+     */
+    @Test
+    public void testFilter ()
+    {
+        System.out.println("\n+++ filter");
+
+        final Random random = new Random(5);
+        final int[][] sizes = new int[][]{{1, 1}, {2, 5}, {7, 3}, {50, 40}, {301, 157}};
+        final float[] radii = new float[]{1, 1.5f, 2, 3};
+
+        for (float radius : radii) {
+            final GaussianGrayFilter instance = new GaussianGrayFilter(radius);
+
+            for (int[] size : sizes) {
+                final ByteProcessor input = createRandomImage(size[0], size[1], random);
+                final ByteProcessor expected = legacyFilter(input, radius);
+                final ByteProcessor result = instance.filter(input);
+                assertEquals(
+                        "radius:" + radius + " size:" + size[0] + "x" + size[1],
+                        Arrays.toString((byte[]) expected.getPixels()),
+                        Arrays.toString((byte[]) result.getPixels()));
+            }
+        }
+    }
+
+    //----------------------//
+    // convolveAndTranspose //
+    //----------------------//
+    private void convolveAndTranspose (Kernel kernel,
+                                       byte[] inPixels,
+                                       byte[] outPixels,
+                                       int width,
+                                       int height)
+    {
+        float[] matrix = kernel.getKernelData(null);
+        int cols = kernel.getWidth();
+        int cols2 = cols / 2;
+
+        for (int y = 0; y < height; y++) {
+            int index = y;
+            int ioffset = y * width;
+
+            for (int x = 0; x < width; x++) {
+                float p = 0;
+                int moffset = cols2;
+
+                for (int col = -cols2; col <= cols2; col++) {
+                    float f = matrix[moffset + col];
+
+                    if (f != 0) {
+                        int ix = x + col;
+
+                        if (ix < 0) {
+                            ix = 0;
+                        } else if (ix >= width) {
+                            ix = width - 1;
+                        }
+
+                        int pix = inPixels[ioffset + ix] & 0xff;
+                        p += (f * pix);
+                    }
+                }
+
+                int ip = Math.max(0, Math.min(255, (int) (p + 0.5)));
+                outPixels[index] = (byte) ip;
+                index += height;
+            }
+        }
+    }
+
+    //-------------------//
+    // createRandomImage //
+    //-------------------//
+    private ByteProcessor createRandomImage (int width,
+                                             int height,
+                                             Random random)
+    {
+        final ByteProcessor img = new ByteProcessor(width, height);
+
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                img.set(x, y, random.nextInt(256));
+            }
+        }
+
+        return img;
+    }
+
+    //--------------//
+    // legacyFilter //
+    //--------------//
+    /**
+     * Legacy implementation: two convolve and transpose passes.
+     */
+    private ByteProcessor legacyFilter (ByteProcessor input,
+                                        float radius)
+    {
+        final Kernel kernel = GaussianGrayFilter.makeKernel(radius);
+        final int width = input.getWidth();
+        final int height = input.getHeight();
+        final byte[] inPixels = ((byte[]) input.getPixels()).clone();
+        final byte[] outPixels = new byte[width * height];
+
+        convolveAndTranspose(kernel, inPixels, outPixels, width, height);
+        convolveAndTranspose(kernel, outPixels, inPixels, height, width);
+
+        return new ByteProcessor(width, height, inPixels, null);
+    }
+}
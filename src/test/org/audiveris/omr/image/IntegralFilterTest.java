@@ -0,0 +1,124 @@
+//------------------------------------------------------------------------------------------------//
+//                                                                                                //
+//                              I n t e g r a l F i l t e r T e s t                               //
+//                                                                                                //
+//------------------------------------------------------------------------------------------------//
+// <editor-fold defaultstate="collapsed" desc="hdr">
+//
+//  Copyright © Audiveris 2018. All rights reserved.
+//
+//  This program is free software: you can redistribute it and/or modify it under the terms of the
+//  GNU Affero General Public License as published by the Free Software Foundation, either version
+//  3 of the License, or (at your option) any later version.
+//
+//  This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+//  without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+//  See the GNU Affero General Public License for more details.
+//
+//  You should have received a copy of the GNU Affero General Public License along with this
+//  program.  If not, see <http://www.gnu.org/licenses/>.
+//------------------------------------------------------------------------------------------------//
+// </editor-fold>
+package org.audiveris.omr.image;
+
+import ij.process.ByteProcessor;
+
+import org.audiveris.omr.run.SampleImages;
+
+import static org.junit.Assert.*;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * Class {@code IntegralFilterTest} checks that {@link IntegralFilter} binarizes exactly
+ * as {@link VerticalFilter}, and reports exactly the same context.
+ *
+ * @author Hervé Bitteur
+ */
+public class IntegralFilterTest
+{
+    //~ Static fields/initializers -----------------------------------------------------------------
+
+    private static final double MEAN_COEFF = 0.7;
+
+    private static final double STD_DEV_COEFF = 0.9;
+
+    //~ Constructors -------------------------------------------------------------------------------
+    /**
+     * Creates a new {@code IntegralFilterTest} object.
+     */
+    public IntegralFilterTest ()
+    {
+    }
+
+    //~ Methods ------------------------------------------------------------------------------------
+    /**
+     * Test of getContext method, of class IntegralFilter.
+     */
+    @Test
+    public void testGetContext ()
+    {
+        System.out.println("\n+++ getContext");
+
+        final ByteProcessor gray = createGraySource(120, 90);
+        final IntegralFilter instance = new IntegralFilter(gray, MEAN_COEFF, STD_DEV_COEFF);
+        final AdaptiveFilter[] references = new AdaptiveFilter[]{
+            new RandomFilter(gray, MEAN_COEFF, STD_DEV_COEFF),
+            new VerticalFilter(gray, MEAN_COEFF, STD_DEV_COEFF)};
+        final int[][] points = new int[][]{{110, 2}, {0, 0}, {119, 89}, {60, 45}, {3, 80}};
+
+        for (int[] point : points) {
+            final int x = point[0];
+            final int y = point[1];
+            final AdaptiveFilter.AdaptiveContext ctx = (AdaptiveFilter.AdaptiveContext) instance
+                    .getContext(x, y);
+
+            // Context threshold is the one used for binarization
+            assertEquals(instance.isFore(x, y), gray.get(x, y) <= ctx.threshold);
+
+            for (AdaptiveFilter reference : references) {
+                AdaptiveFilter.AdaptiveContext ref = (AdaptiveFilter.AdaptiveContext) reference
+                        .getContext(x, y);
+                assertEquals(ref.mean, ctx.mean, 0);
+                assertEquals(ref.standardDeviation, ctx.standardDeviation, 0);
+                assertEquals(ref.threshold, ctx.threshold, 0);
+            }
+        }
+    }
+
+    /**
+     * Test of filteredImage method, of class IntegralFilter.
+     */
+    @Test
+    public void testFilteredImage ()
+    {
+        System.out.println("\n+++ filteredImage");
+
+        final ByteProcessor gray = createGraySource(500, 400);
+        final ByteProcessor expected = new VerticalFilter(gray, MEAN_COEFF, STD_DEV_COEFF)
+                .filteredImage();
+        final IntegralFilter instance = new IntegralFilter(gray, MEAN_COEFF, STD_DEV_COEFF);
+        final byte[] buffer = new byte[500 * 400];
+        final ByteProcessor result = instance.filteredImage(buffer);
+
+        assertSame(buffer, result.getPixels());
+        assertTrue(Arrays.equals((byte[]) expected.getPixels(), (byte[]) result.getPixels()));
+
+        for (int y = 0; y < 400; y += 7) {
+            for (int x = 0; x < 500; x += 3) {
+                assertEquals(expected.get(x, y) == 0, instance.isFore(x, y));
+            }
+        }
+    }
+
+    //------------------//
+    // createGraySource //
+    //------------------//
+    private ByteProcessor createGraySource (int width,
+                                            int height)
+    {
+        return SampleImages.createGrayImage(width, height, new Random(4321));
+    }
+}
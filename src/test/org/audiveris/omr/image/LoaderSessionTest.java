@@ -0,0 +1,235 @@
+//------------------------------------------------------------------------------------------------//
+//                                                                                                //
+//                               L o a d e r S e s s i o n T e s t                                //
+//                                                                                                //
+//------------------------------------------------------------------------------------------------//
+// <editor-fold defaultstate="collapsed" desc="hdr">
+//
+//  Copyright © Audiveris 2018. All rights reserved.
+//
+//  This program is free software: you can redistribute it and/or modify it under the terms of the
+//  GNU Affero General Public License as published by the Free Software Foundation, either version
+//  3 of the License, or (at your option) any later version.
+//
+//  This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+//  without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+//  See the GNU Affero General Public License for more details.
+//
+//  You should have received a copy of the GNU Affero General Public License along with this
+//  program.  If not, see <http://www.gnu.org/licenses/>.
+//------------------------------------------------------------------------------------------------//
+// </editor-fold>
+package org.audiveris.omr.image;
+
+import static org.junit.Assert.*;
+import org.junit.Test;
+
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.nio.file.Paths;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Class {@code LoaderSessionTest} checks loader reuse, image prefetch and disposal in a
+ * {@link LoaderSession}.
+ *
+ * @author Hervé Bitteur
+ */
+public class LoaderSessionTest
+{
+    //~ Constructors -------------------------------------------------------------------------------
+
+    /**
+     * Creates a new {@code LoaderSessionTest} object.
+     */
+    public LoaderSessionTest ()
+    {
+    }
+
+    //~ Methods ------------------------------------------------------------------------------------
+    /**
+     * Check that disposal releases the loader, and that a later call re-opens input file.
+     */
+    @Test
+    public void testDispose ()
+            throws Exception
+    {
+        System.out.println("\n+++ dispose");
+
+        final TestSession session = new TestSession(true);
+        assertNotNull(session.getImage(1, 0));
+
+        final TestLoader first = session.lastLoader;
+        session.dispose();
+        assertTrue(first.disposed.await(10, TimeUnit.SECONDS));
+
+        assertNotNull(session.getImage(1, 0));
+        assertEquals(2, session.opens.get());
+        assertNotSame(first, session.lastLoader);
+        assertEquals(1, session.lastLoader.decodings.get());
+    }
+
+    /**
+     * Check that the prefetched image is the one handed out, and is decoded only once.
+     */
+    @Test
+    public void testPrefetch ()
+            throws Exception
+    {
+        System.out.println("\n+++ prefetch");
+
+        final TestSession session = new TestSession(true);
+        assertNotNull(session.getImage(1, 2));
+
+        final TestLoader loader = session.lastLoader;
+        assertTrue(loader.decoded[2].await(10, TimeUnit.SECONDS));
+
+        final BufferedImage prefetched = loader.images[2];
+        assertSame(prefetched, session.getImage(2, 0));
+        assertEquals(2, loader.decodings.get());
+        assertEquals(1, session.opens.get());
+    }
+
+    /**
+     * Check that the same loader is used for all images of the input file.
+     */
+    @Test
+    public void testReuse ()
+            throws Exception
+    {
+        System.out.println("\n+++ reuse");
+
+        final TestSession session = new TestSession(true);
+        assertEquals(TestLoader.COUNT, session.getImageCount());
+
+        for (int id = 1; id <= TestLoader.COUNT; id++) {
+            assertNotNull(session.getImage(id, 0));
+        }
+
+        assertEquals(TestLoader.COUNT, session.getImageCount());
+        assertEquals(1, session.opens.get());
+        assertEquals(TestLoader.COUNT, session.lastLoader.decodings.get());
+        session.dispose();
+    }
+
+    /**
+     * Check that an unsupported input file is retried after session disposal.
+     */
+    @Test
+    public void testUnsupported ()
+            throws Exception
+    {
+        System.out.println("\n+++ unsupported");
+
+        final TestSession session = new TestSession(false);
+        assertEquals(0, session.getImageCount());
+        assertNull(session.getImage(1, 0));
+
+        session.supported = true;
+        assertEquals(0, session.getImageCount()); // Still known as unsupported
+        assertEquals(1, session.opens.get());
+
+        session.dispose();
+        assertEquals(TestLoader.COUNT, session.getImageCount());
+        assertEquals(2, session.opens.get());
+        session.dispose();
+    }
+
+    //~ Inner Classes ------------------------------------------------------------------------------
+    //------------//
+    // TestLoader //
+    //------------//
+    /**
+     * A fake loader, which records image decodings and disposal.
+     */
+    private static class TestLoader
+            implements ImageLoading.Loader
+    {
+        //~ Static fields/initializers -------------------------------------------------------------
+
+        static final int COUNT = 3;
+
+        //~ Instance fields ------------------------------------------------------------------------
+        final AtomicInteger decodings = new AtomicInteger();
+
+        final BufferedImage[] images = new BufferedImage[COUNT + 1];
+
+        final CountDownLatch[] decoded = new CountDownLatch[COUNT + 1];
+
+        final CountDownLatch disposed = new CountDownLatch(1);
+
+        //~ Constructors ---------------------------------------------------------------------------
+        TestLoader ()
+        {
+            for (int id = 1; id <= COUNT; id++) {
+                decoded[id] = new CountDownLatch(1);
+            }
+        }
+
+        //~ Methods --------------------------------------------------------------------------------
+        @Override
+        public void dispose ()
+        {
+            disposed.countDown();
+        }
+
+        @Override
+        public BufferedImage getImage (int id)
+                throws IOException
+        {
+            decodings.incrementAndGet();
+            images[id] = new BufferedImage(10 * id, 10, BufferedImage.TYPE_BYTE_GRAY);
+            decoded[id].countDown();
+
+            return images[id];
+        }
+
+        @Override
+        public int getImageCount ()
+        {
+            return COUNT;
+        }
+    }
+
+    //-------------//
+    // TestSession //
+    //-------------//
+    /**
+     * A session on fake loaders.
+     */
+    private static class TestSession
+            extends LoaderSession
+    {
+        //~ Instance fields ------------------------------------------------------------------------
+
+        final AtomicInteger opens = new AtomicInteger();
+
+        volatile boolean supported;
+
+        volatile TestLoader lastLoader;
+
+        //~ Constructors ---------------------------------------------------------------------------
+        TestSession (boolean supported)
+        {
+            super(Paths.get("test.pdf"));
+            this.supported = supported;
+        }
+
+        //~ Methods --------------------------------------------------------------------------------
+        @Override
+        protected ImageLoading.Loader openLoader ()
+        {
+            opens.incrementAndGet();
+
+            if (!supported) {
+                return null;
+            }
+
+            lastLoader = new TestLoader();
+
+            return lastLoader;
+        }
+    }
+}
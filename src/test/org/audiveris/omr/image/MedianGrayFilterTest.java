@@ -21,12 +21,17 @@
 // </editor-fold>
 package org.audiveris.omr.image;
 
+import ij.process.ByteProcessor;
+
+import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.fail;
 import org.junit.Test;
 
 import java.awt.image.BufferedImage;
 import java.awt.image.Raster;
 import java.awt.image.WritableRaster;
+import java.util.Arrays;
+import java.util.Random;
 
 /**
  * Class {@code MedianGrayFilterTest}
@@ -121,6 +126,33 @@ public class MedianGrayFilterTest
         }
     }
 
+    /**
+     * Check sliding median against brute force, including image borders and images
+     * smaller than the window.
+     */
+    @Test
+    public void testProcess_sliding ()
+    {
+        System.out.println("\nprocess_sliding");
+
+        final Random random = new Random(7);
+        final int[][] sizes = new int[][]{{1, 1}, {3, 2}, {6, 9}, {40, 30}, {257, 131}};
+
+        for (int radius = 1; radius <= 4; radius++) {
+            final MedianGrayFilter instance = new MedianGrayFilter(radius);
+
+            for (int[] size : sizes) {
+                final ByteProcessor input = createRandomImage(size[0], size[1], random);
+                final ByteProcessor expected = bruteForce(input, radius);
+                final ByteProcessor result = instance.filter(input);
+                assertEquals(
+                        "radius:" + radius + " size:" + size[0] + "x" + size[1],
+                        Arrays.toString((byte[]) expected.getPixels()),
+                        Arrays.toString((byte[]) result.getPixels()));
+            }
+        }
+    }
+
     //    @Test
     public void testProcess_white_1 ()
     {
@@ -163,6 +195,46 @@ public class MedianGrayFilterTest
         return true;
     }
 
+    /**
+     * Reference implementation, with a full window scan for every pixel.
+     */
+    private ByteProcessor bruteForce (ByteProcessor input,
+                                      int radius)
+    {
+        final int width = input.getWidth();
+        final int height = input.getHeight();
+        final ByteProcessor output = new ByteProcessor(width, height);
+        final int[] histogram = new int[256];
+
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                int rad = Math.min(Math.min(radius, Math.min(x, y)),
+                                   Math.min(width - 1 - x, height - 1 - y));
+                Arrays.fill(histogram, 0);
+
+                for (int i = x - rad; i <= (x + rad); i++) {
+                    for (int j = y - rad; j <= (y + rad); j++) {
+                        histogram[input.get(i, j)]++;
+                    }
+                }
+
+                final int side = (2 * rad) + 1;
+                final int medianCount = ((side * side) + 1) / 2;
+                int median = 255;
+                int sum = 0;
+
+                while (sum < medianCount) {
+                    sum += histogram[median];
+                    median--;
+                }
+
+                output.set(x, y, median + 1);
+            }
+        }
+
+        return output;
+    }
+
     private BufferedImage createBlackImage ()
     {
         final BufferedImage img = new BufferedImage(width, height, BufferedImage.TYPE_BYTE_GRAY);
@@ -199,6 +271,25 @@ public class MedianGrayFilterTest
         return img;
     }
 
+    /**
+     * Gray image, with a few distinct values to get ties, and some noise.
+     */
+    private ByteProcessor createRandomImage (int width,
+                                             int height,
+                                             Random random)
+    {
+        final ByteProcessor img = new ByteProcessor(width, height);
+
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                img.set(x, y, (random.nextInt(4) == 0) ? random.nextInt(256)
+                        : (64 * random.nextInt(4)));
+            }
+        }
+
+        return img;
+    }
+
     private BufferedImage createWhiteImage (int width,
                                             int height)
     {
@@ -0,0 +1,167 @@
+//------------------------------------------------------------------------------------------------//
+//                                                                                                //
+//                      S e g m e n t M o r p h o P r o c e s s o r T e s t                       //
+//                                                                                                //
+//------------------------------------------------------------------------------------------------//
+// <editor-fold defaultstate="collapsed" desc="hdr">
+//
+//  Copyright © Audiveris 2018. All rights reserved.
+//
+//  This program is free software: you can redistribute it and/or modify it under the terms of the
+//  GNU Affero General Public License as published by the Free Software Foundation, either version
+//  3 of the License, or (at your option) any later version.
+//
+//  This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+//  without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+//  See the GNU Affero General Public License for more details.
+//
+//  You should have received a copy of the GNU Affero General Public License along with this
+//  program.  If not, see <http://www.gnu.org/licenses/>.
+//------------------------------------------------------------------------------------------------//
+// </editor-fold>
+package org.audiveris.omr.image;
+
+import ij.process.ByteProcessor;
+
+import org.audiveris.omr.run.Orientation;
+import org.audiveris.omr.run.RunTable;
+import org.audiveris.omr.run.RunTableFactory;
+
+import static org.junit.Assert.*;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * Class {@code SegmentMorphoProcessorTest} checks that segment-based morphology gives
+ * the same pixels as {@link MorphoProcessor}, and compares their timing.
+ *
+ * @author Hervé Bitteur
+ */
+public class SegmentMorphoProcessorTest
+{
+    //~ Static fields/initializers -----------------------------------------------------------------
+
+    private static final int[] OFFSET = {0, 0};
+
+    //~ Constructors -------------------------------------------------------------------------------
+    /**
+     * Creates a new {@code SegmentMorphoProcessorTest} object.
+     */
+    public SegmentMorphoProcessorTest ()
+    {
+    }
+
+    //~ Methods ------------------------------------------------------------------------------------
+    /**
+     * Check all operations against MorphoProcessor, with disks of various radii.
+     */
+    @Test
+    public void testOperations ()
+    {
+        System.out.println("\n+++ operations");
+
+        final Random random = new Random(11);
+        final float[] radii = new float[]{0.5f, 1, 1.5f, 2.5f, 4, 6.5f};
+        final int[][] sizes = new int[][]{{1, 1}, {4, 3}, {23, 17}, {120, 150}};
+
+        for (float radius : radii) {
+            final StructureElement se = new StructureElement(0, 1, radius, OFFSET);
+            final MorphoProcessor legacy = new MorphoProcessor(se);
+            final SegmentMorphoProcessor instance = new SegmentMorphoProcessor(se);
+
+            for (int[] size : sizes) {
+                final ByteProcessor input = createRandomImage(size[0], size[1], random);
+                final String msg = " radius:" + radius + " size:" + size[0] + "x" + size[1];
+
+                ByteProcessor expected = (ByteProcessor) input.duplicate();
+                ByteProcessor result = (ByteProcessor) input.duplicate();
+                legacy.dilate(expected);
+                instance.dilate(result);
+                assertPixelsEqual("dilate" + msg, expected, result);
+
+                expected = (ByteProcessor) input.duplicate();
+                result = (ByteProcessor) input.duplicate();
+                legacy.erode(expected);
+                instance.erode(result);
+                assertPixelsEqual("erode" + msg, expected, result);
+
+                expected = (ByteProcessor) input.duplicate();
+                result = (ByteProcessor) input.duplicate();
+                legacy.open(expected);
+                instance.open(result);
+                assertPixelsEqual("open" + msg, expected, result);
+
+                expected = (ByteProcessor) input.duplicate();
+                result = (ByteProcessor) input.duplicate();
+                legacy.close(expected);
+                instance.close(result);
+                assertPixelsEqual("close" + msg, expected, result);
+            }
+        }
+    }
+
+    /**
+     * Check run table operations against buffer operations.
+     */
+    @Test
+    public void testRunTable ()
+    {
+        System.out.println("\n+++ run table");
+
+        final ByteProcessor input = createRandomImage(90, 70, new Random(13));
+        input.threshold(128);
+
+        final StructureElement se = new StructureElement(0, 1, 2.5f, OFFSET);
+        final SegmentMorphoProcessor instance = new SegmentMorphoProcessor(se);
+
+        for (Orientation orientation : Orientation.values()) {
+            final RunTableFactory factory = new RunTableFactory(orientation);
+            final RunTable table = factory.createTable(input);
+
+            ByteProcessor buffer = (ByteProcessor) input.duplicate();
+            instance.close(buffer);
+            assertEquals(factory.createTable(buffer), instance.close(table));
+
+            buffer = (ByteProcessor) input.duplicate();
+            instance.open(buffer);
+            assertEquals(factory.createTable(buffer), instance.open(table));
+        }
+    }
+
+    //-------------------//
+    // assertPixelsEqual //
+    //-------------------//
+    private void assertPixelsEqual (String msg,
+                                    ByteProcessor expected,
+                                    ByteProcessor result)
+    {
+        assertEquals(
+                msg,
+                Arrays.toString((byte[]) expected.getPixels()),
+                Arrays.toString((byte[]) result.getPixels()));
+    }
+
+    //-------------------//
+    // createRandomImage //
+    //-------------------//
+    /**
+     * Gray image, with dark blobs on a light background.
+     */
+    private ByteProcessor createRandomImage (int width,
+                                             int height,
+                                             Random random)
+    {
+        final ByteProcessor img = new ByteProcessor(width, height);
+
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                final boolean dark = (((x / 7) + (y / 5)) % 3) == 0;
+                img.set(x, y, dark ? random.nextInt(100) : (150 + random.nextInt(106)));
+            }
+        }
+
+        return img;
+    }
+}
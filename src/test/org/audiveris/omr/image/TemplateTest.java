@@ -0,0 +1,299 @@
+//------------------------------------------------------------------------------------------------//
+//                                                                                                //
+//                                    T e m p l a t e T e s t                                     //
+//                                                                                                //
+//------------------------------------------------------------------------------------------------//
+// <editor-fold defaultstate="collapsed" desc="hdr">
+//
+//  Copyright © Audiveris 2018. All rights reserved.
+//
+//  This program is free software: you can redistribute it and/or modify it under the terms of the
+//  GNU Affero General Public License as published by the Free Software Foundation, either version
+//  3 of the License, or (at your option) any later version.
+//
+//  This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+//  without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+//  See the GNU Affero General Public License for more details.
+//
+//  You should have received a copy of the GNU Affero General Public License along with this
+//  program.  If not, see <http://www.gnu.org/licenses/>.
+//------------------------------------------------------------------------------------------------//
+// </editor-fold>
+package org.audiveris.omr.image;
+
+import org.audiveris.omr.glyph.Shape;
+import org.audiveris.omr.util.StopWatch;
+
+import static org.junit.Assert.*;
+import org.junit.Test;
+
+import java.awt.Rectangle;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Class {@code TemplateTest} checks the compiled evaluation of {@link Template} against
+ * a plain evaluation on key points, and compares their timing.
+ *
+ * @author Hervé Bitteur
+ */
+public class TemplateTest
+{
+    //~ Static fields/initializers -----------------------------------------------------------------
+
+    /** Typical head template dimension at 300 DPI. */
+    private static final int TPL_WIDTH = 27;
+
+    private static final int TPL_HEIGHT = 23;
+
+    private static final int WIDTH = 1000;
+
+    private static final int HEIGHT = 400;
+
+    //~ Constructors -------------------------------------------------------------------------------
+    /**
+     * Creates a new {@code TemplateTest} object.
+     */
+    public TemplateTest ()
+    {
+    }
+
+    //~ Methods ------------------------------------------------------------------------------------
+    /**
+     * Check early abandon gives either the exact distance or a lower bound beyond limit.
+     */
+    @Test
+    public void testEarlyAbandon ()
+    {
+        System.out.println("\n+++ evaluate with limit");
+
+        final Random random = new Random(2);
+        final Template template = createTemplate(random);
+        final DistanceTable distances = createDistances(random);
+        int abandons = 0;
+
+        for (int i = 0; i < 20000; i++) {
+            final int x = random.nextInt(WIDTH + TPL_WIDTH) - TPL_WIDTH;
+            final int y = random.nextInt(HEIGHT + TPL_HEIGHT) - TPL_HEIGHT;
+            final double limit = random.nextDouble();
+            final double expected = plainEvaluate(template, x, y, distances);
+            final double dist = template.evaluate(x, y, null, distances, limit);
+
+            if (expected < limit) {
+                assertEquals(expected, dist, 0);
+            } else if (dist != expected) {
+                assertTrue(dist >= limit);
+                assertTrue(dist <= expected);
+                abandons++;
+            }
+        }
+
+        System.out.println("abandons: " + abandons);
+    }
+
+    /**
+     * Check compiled evaluations against plain evaluations, and time them.
+     */
+    @Test
+    public void testEvaluate ()
+    {
+        System.out.println("\n+++ evaluate");
+
+        final Random random = new Random(1);
+        final Template template = createTemplate(random);
+        final DistanceTable distances = createDistances(random);
+
+        // Locations partly out of image are included
+        for (int y = -TPL_HEIGHT; y < (HEIGHT + 2); y += 3) {
+            for (int x = -TPL_WIDTH; x < (WIDTH + 2); x += 7) {
+                assertEquals(
+                        plainEvaluate(template, x, y, distances),
+                        template.evaluate(x, y, null, distances),
+                        0);
+                assertEquals(
+                        plainEvaluateHole(template, x, y, distances),
+                        template.evaluateHole(x, y, null, distances),
+                        0);
+            }
+        }
+
+        // A view cannot be accessed directly
+        final DistanceTable view = ((DistanceTable.Short) distances).getView(new Rectangle(10, 10, 200, 100));
+
+        for (int y = 0; y < 80; y++) {
+            for (int x = 0; x < 180; x++) {
+                assertEquals(
+                        plainEvaluate(template, x, y, view),
+                        template.evaluate(x, y, null, view),
+                        0);
+            }
+        }
+
+        // Timing
+        final int xMax = WIDTH - TPL_WIDTH;
+        final int yMax = HEIGHT - TPL_HEIGHT;
+        final StopWatch watch = new StopWatch("Template evaluations " + (xMax * yMax));
+        double sum = 0;
+
+        for (int loop = 0; loop < 2; loop++) {
+            watch.start("plain #" + loop);
+
+            for (int y = 0; y < yMax; y++) {
+                for (int x = 0; x < xMax; x++) {
+                    sum += plainEvaluate(template, x, y, distances);
+                }
+            }
+
+            watch.start("compiled #" + loop);
+
+            for (int y = 0; y < yMax; y++) {
+                for (int x = 0; x < xMax; x++) {
+                    sum -= template.evaluate(x, y, null, distances);
+                }
+            }
+
+            watch.start("compiled with limit #" + loop);
+
+            for (int y = 0; y < yMax; y++) {
+                for (int x = 0; x < xMax; x++) {
+                    template.evaluate(x, y, null, distances, Template.maxDistanceLow());
+                }
+            }
+        }
+
+        watch.print();
+        assertEquals(0, sum, 1e-6);
+    }
+
+    //-----------------//
+    // createDistances //
+    //-----------------//
+    /**
+     * Build a distance table, with mostly background, some foreground and some unknown
+     * locations.
+     */
+    private DistanceTable createDistances (Random random)
+    {
+        final DistanceTable table = new DistanceTable.Short(WIDTH, HEIGHT, 1);
+
+        for (int y = 0; y < HEIGHT; y++) {
+            for (int x = 0; x < WIDTH; x++) {
+                final int r = random.nextInt(100);
+                final int val = (r < 5) ? ChamferDistance.VALUE_UNKNOWN
+                        : ((r < 35) ? 0 : (1 + random.nextInt(5)));
+                table.setValue(x, y, val);
+            }
+        }
+
+        return table;
+    }
+
+    //----------------//
+    // createTemplate //
+    //----------------//
+    /**
+     * Build a head-like template: foreground ring, interior hole, exterior background.
+     */
+    private Template createTemplate (Random random)
+    {
+        final List<PixelDistance> keyPoints = new ArrayList<>();
+        final double cx = TPL_WIDTH / 2.0;
+        final double cy = TPL_HEIGHT / 2.0;
+
+        for (int y = 0; y < TPL_HEIGHT; y++) {
+            for (int x = 0; x < TPL_WIDTH; x++) {
+                final double dx = (x - cx) / (TPL_WIDTH / 2.5);
+                final double dy = (y - cy) / (TPL_HEIGHT / 2.5);
+                final double r = Math.hypot(dx, dy);
+
+                if (r < 0.5) {
+                    keyPoints.add(new PixelDistance(x, y, -1)); // Hole
+                } else if (r < 1) {
+                    keyPoints.add(new PixelDistance(x, y, 0)); // Foreground
+                } else if (random.nextInt(3) == 0) {
+                    keyPoints.add(new PixelDistance(x, y, 1 + random.nextInt(3))); // Background
+                }
+            }
+        }
+
+        return new Template(
+                Shape.NOTEHEAD_VOID,
+                0,
+                null,
+                TPL_WIDTH,
+                TPL_HEIGHT,
+                keyPoints,
+                new Rectangle(0, 0, TPL_WIDTH, TPL_HEIGHT));
+    }
+
+    //---------------//
+    // plainEvaluate //
+    //---------------//
+    /**
+     * Evaluation performed directly on key points, with all weights equal to 1.
+     */
+    private double plainEvaluate (Template template,
+                                  int x,
+                                  int y,
+                                  DistanceTable distances)
+    {
+        double weights = 0;
+        double total = 0;
+
+        for (PixelDistance pix : template.getKeyPoints()) {
+            final int nx = x + pix.x;
+            final int ny = y + pix.y;
+
+            if ((nx >= 0) && (nx < distances.getWidth()) && (ny >= 0)
+                && (ny < distances.getHeight())) {
+                final int actualDist = distances.getValue(nx, ny);
+
+                if (actualDist != ChamferDistance.VALUE_UNKNOWN) {
+                    final double expected = (pix.d == 0) ? 0 : 1;
+                    final double actual = (actualDist == 0) ? 0 : 1;
+                    total += Math.abs(actual - expected);
+                    weights += 1;
+                }
+            }
+        }
+
+        if (weights == 0) {
+            return Double.MAX_VALUE;
+        }
+
+        return total / weights;
+    }
+
+    //-------------------//
+    // plainEvaluateHole //
+    //-------------------//
+    private double plainEvaluateHole (Template template,
+                                      int x,
+                                      int y,
+                                      DistanceTable distances)
+    {
+        int expectedHoles = 0;
+        int actualHoles = 0;
+
+        for (PixelDistance pix : template.getKeyPoints()) {
+            final int nx = x + pix.x;
+            final int ny = y + pix.y;
+
+            if ((pix.d < 0) && (nx >= 0) && (nx < distances.getWidth()) && (ny >= 0)
+                && (ny < distances.getHeight())) {
+                final int actualDist = distances.getValue(nx, ny);
+
+                if (actualDist != ChamferDistance.VALUE_UNKNOWN) {
+                    expectedHoles++;
+
+                    if (actualDist != 0) {
+                        actualHoles++;
+                    }
+                }
+            }
+        }
+
+        return (expectedHoles == 0) ? 0 : ((double) actualHoles / expectedHoles);
+    }
+}
@@ -0,0 +1,257 @@
+//------------------------------------------------------------------------------------------------//
+//                                                                                                //
+//                                     T h i n n e r T e s t                                      //
+//                                                                                                //
+//------------------------------------------------------------------------------------------------//
+// <editor-fold defaultstate="collapsed" desc="hdr">
+//
+//  Copyright © Audiveris 2018. All rights reserved.
+//
+//  This program is free software: you can redistribute it and/or modify it under the terms of the
+//  GNU Affero General Public License as published by the Free Software Foundation, either version
+//  3 of the License, or (at your option) any later version.
+//
+//  This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+//  without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+//  See the GNU Affero General Public License for more details.
+//
+//  You should have received a copy of the GNU Affero General Public License along with this
+//  program.  If not, see <http://www.gnu.org/licenses/>.
+//------------------------------------------------------------------------------------------------//
+// </editor-fold>
+package org.audiveris.omr.image;
+
+import ij.process.ByteProcessor;
+
+import static org.junit.Assert.*;
+import org.junit.Test;
+
+import java.awt.Rectangle;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * Class {@code ThinnerTest} checks that tiled thinning has no seam effect and preserves
+ * topology, and compares its timing with ImageJ skeletonization.
+ *
+ * @author Hervé Bitteur
+ */
+public class ThinnerTest
+{
+    //~ Constructors -------------------------------------------------------------------------------
+    /**
+     * Creates a new {@code ThinnerTest} object.
+     */
+    public ThinnerTest ()
+    {
+    }
+
+    //~ Methods ------------------------------------------------------------------------------------
+    /**
+     * Check that pixels outside processed areas are left as background.
+     */
+    @Test
+    public void testAreas ()
+    {
+        System.out.println("\n+++ areas");
+
+        final ByteProcessor source = createSource(300, 200, new Random(3));
+        final Rectangle area = new Rectangle(40, 30, 150, 100);
+        final ByteProcessor skeleton = new Thinner(source, Arrays.asList(area), 64, false).thin();
+
+        for (int y = 0; y < skeleton.getHeight(); y++) {
+            for (int x = 0; x < skeleton.getWidth(); x++) {
+                if (!area.contains(x, y)) {
+                    assertEquals("x:" + x + " y:" + y, 255, skeleton.get(x, y));
+                }
+            }
+        }
+    }
+
+    /**
+     * Check that the result does not depend on tiles nor on parallelism.
+     */
+    @Test
+    public void testSeams ()
+    {
+        System.out.println("\n+++ seams");
+
+        final ByteProcessor source = createSource(457, 311, new Random(5));
+        final byte[] expected = (byte[]) new Thinner(source, null, 10000, false).thin().getPixels();
+
+        for (int tileSize : new int[]{3, 7, 16, 64}) {
+            for (boolean parallel : new boolean[]{false, true}) {
+                final ByteProcessor skeleton = new Thinner(source, null, tileSize, parallel).thin();
+                assertArrayEquals(
+                        "tile:" + tileSize + " parallel:" + parallel,
+                        expected,
+                        (byte[]) skeleton.getPixels());
+            }
+        }
+    }
+
+    /**
+     * Check that skeletons are thin, included in source and of same topology.
+     */
+    @Test
+    public void testTopology ()
+    {
+        System.out.println("\n+++ topology");
+
+        for (int seed = 1; seed <= 5; seed++) {
+            final ByteProcessor source = createSource(
+                    150 + (37 * seed),
+                    120 + (29 * seed),
+                    new Random(seed));
+            final ByteProcessor skeleton = new Thinner(source, null, 32, true).thin();
+            final String msg = "seed:" + seed;
+
+            for (int y = 0; y < source.getHeight(); y++) {
+                for (int x = 0; x < source.getWidth(); x++) {
+                    if (skeleton.get(x, y) == 0) {
+                        assertEquals(msg, 0, source.get(x, y));
+
+                        // No 2x2 foreground square
+                        if ((x > 0) && (y > 0)) {
+                            assertFalse(
+                                    msg + " x:" + x + " y:" + y,
+                                    (skeleton.get(x - 1, y) == 0) && (skeleton.get(x, y - 1) == 0)
+                                    && (skeleton.get(x - 1, y - 1) == 0));
+                        }
+                    }
+                }
+            }
+
+            assertEquals(
+                    msg + " fore",
+                    countComponents(source, true),
+                    countComponents(skeleton, true));
+            assertEquals(
+                    msg + " back",
+                    countComponents(source, false),
+                    countComponents(skeleton, false));
+        }
+
+        // A bar becomes a line, almost as long
+        final ByteProcessor bar = new ByteProcessor(20, 50);
+        bar.setValue(255);
+        bar.fill();
+        bar.setValue(0);
+        bar.setRoi(new Rectangle(5, 5, 4, 40));
+        bar.fill();
+        bar.resetRoi();
+
+        final ByteProcessor skeleton = new Thinner(bar, null).thin();
+        int count = 0;
+
+        for (int y = 0; y < bar.getHeight(); y++) {
+            for (int x = 0; x < bar.getWidth(); x++) {
+                if (skeleton.get(x, y) == 0) {
+                    count++;
+                }
+            }
+        }
+
+        assertTrue("bar skeleton:" + count, (count >= 35) && (count <= 40));
+    }
+
+    //-----------------//
+    // countComponents //
+    //-----------------//
+    /**
+     * Count the connected components, 8-connected for foreground, 4-connected for background.
+     */
+    private int countComponents (ByteProcessor img,
+                                 boolean fore)
+    {
+        final int width = img.getWidth();
+        final int height = img.getHeight();
+        final boolean[] visited = new boolean[width * height];
+        final ArrayDeque<Integer> queue = new ArrayDeque<>();
+        int count = 0;
+
+        for (int start = 0; start < visited.length; start++) {
+            if (visited[start] || ((img.get(start % width, start / width) == 0) != fore)) {
+                continue;
+            }
+
+            count++;
+            visited[start] = true;
+            queue.add(start);
+
+            while (!queue.isEmpty()) {
+                final int p = queue.poll();
+
+                for (int dy = -1; dy <= 1; dy++) {
+                    for (int dx = -1; dx <= 1; dx++) {
+                        if (((dx == 0) && (dy == 0)) || (!fore && (dx != 0) && (dy != 0))) {
+                            continue;
+                        }
+
+                        final int x = (p % width) + dx;
+                        final int y = (p / width) + dy;
+
+                        if ((x >= 0) && (y >= 0) && (x < width) && (y < height)) {
+                            final int q = (y * width) + x;
+
+                            if (!visited[q] && ((img.get(x, y) == 0) == fore)) {
+                                visited[q] = true;
+                                queue.add(q);
+                            }
+                        }
+                    }
+                }
+            }
+        }
+
+        return count;
+    }
+
+    //--------------//
+    // createSource //
+    //--------------//
+    /**
+     * Build a binary source with random blobs, staff-like lines and stem-like bars,
+     * within a white frame.
+     */
+    private ByteProcessor createSource (int width,
+                                        int height,
+                                        Random random)
+    {
+        final ByteProcessor source = new ByteProcessor(width, height);
+        source.setValue(255);
+        source.fill();
+
+        // Random blobs
+        for (int k = (width * height) / 400; k > 0; k--) {
+            final int cx = random.nextInt(width);
+            final int cy = random.nextInt(height);
+            final int rx = 1 + random.nextInt(12);
+            final int ry = 1 + random.nextInt(12);
+
+            for (int y = Math.max(0, cy - ry); y < Math.min(height, cy + ry); y++) {
+                for (int x = Math.max(0, cx - rx); x < Math.min(width, cx + rx); x++) {
+                    final double dx = (x - cx) / (double) rx;
+                    final double dy = (y - cy) / (double) ry;
+
+                    if (((dx * dx) + (dy * dy)) <= 1) {
+                        source.set(x, y, 0);
+                    }
+                }
+            }
+        }
+
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                if ((x < 2) || (y < 2) || (x >= (width - 2)) || (y >= (height - 2))) {
+                    source.set(x, y, 255); // White frame
+                } else if (((y % 20) < 3) || ((x % 97) < 2)) {
+                    source.set(x, y, 0); // Staff-like lines, stem-like bars
+                }
+            }
+        }
+
+        return source;
+    }
+}
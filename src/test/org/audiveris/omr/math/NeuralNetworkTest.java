@@ -0,0 +1,196 @@
+//------------------------------------------------------------------------------------------------//
+//                                                                                                //
+//                               N e u r a l N e t w o r k T e s t                                //
+//                                                                                                //
+//------------------------------------------------------------------------------------------------//
+// <editor-fold defaultstate="collapsed" desc="hdr">
+//
+//  Copyright © Audiveris 2018. All rights reserved.
+//
+//  This program is free software: you can redistribute it and/or modify it under the terms of the
+//  GNU Affero General Public License as published by the Free Software Foundation, either version
+//  3 of the License, or (at your option) any later version.
+//
+//  This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+//  without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+//  See the GNU Affero General Public License for more details.
+//
+//  You should have received a copy of the GNU Affero General Public License along with this
+//  program.  If not, see <http://www.gnu.org/licenses/>.
+//------------------------------------------------------------------------------------------------//
+// </editor-fold>
+package org.audiveris.omr.math;
+
+import static org.junit.Assert.*;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * Class {@code NeuralNetworkTest} checks that batch inference gives the same outputs
+ * as vector inference, and compares their timing.
+ *
+ * @author Hervé Bitteur
+ */
+public class NeuralNetworkTest
+{
+    //~ Static fields/initializers -----------------------------------------------------------------
+
+    /** Typical sizes of BasicClassifier network. */
+    private static final int INPUT_SIZE = 109;
+
+    private static final int SHAPE_COUNT = 200;
+
+    //~ Constructors -------------------------------------------------------------------------------
+    /**
+     * Creates a new {@code NeuralNetworkTest} object.
+     */
+    public NeuralNetworkTest ()
+    {
+    }
+
+    //~ Methods ------------------------------------------------------------------------------------
+    /**
+     * Check batch outputs against vector outputs, with buffers larger than batch.
+     */
+    @Test
+    public void testRunBatch ()
+    {
+        System.out.println("\n+++ run batch");
+
+        final NeuralNetwork network = createNetwork();
+        final double[][] inputs = createInputs(37, new Random(41));
+        final double[][] outputs = network.run(
+                inputs,
+                new double[50][SHAPE_COUNT],
+                new double[50][SHAPE_COUNT]);
+
+        for (int i = 0; i < inputs.length; i++) {
+            final double[] expected = network.run(inputs[i], null, null);
+            assertArrayEquals("row " + i, expected, outputs[i], 0);
+        }
+    }
+
+    /**
+     * Check that mini-batch training learns, and is reproducible under a fixed seed.
+     */
+    @Test
+    public void testTrainMiniBatch ()
+    {
+        System.out.println("\n+++ train mini-batch");
+
+        final int inputSize = 6;
+        final int outputSize = 3;
+        final Random random = new Random(47);
+        final double[][] inputs = new double[500][inputSize];
+        final double[][] desired = new double[500][outputSize];
+
+        // Desired class is the index of max among the first 3 inputs
+        for (int ip = 0; ip < inputs.length; ip++) {
+            int best = 0;
+
+            for (int i = 0; i < inputSize; i++) {
+                inputs[ip][i] = random.nextGaussian();
+
+                if ((i < outputSize) && (inputs[ip][i] > inputs[ip][best])) {
+                    best = i;
+                }
+            }
+
+            desired[ip][best] = 1;
+        }
+
+        final double[][] trainIns = Arrays.copyOfRange(inputs, 0, 400);
+        final double[][] trainOuts = Arrays.copyOfRange(desired, 0, 400);
+        final double[][] testIns = Arrays.copyOfRange(inputs, 400, 500);
+        final double[][] testOuts = Arrays.copyOfRange(desired, 400, 500);
+
+        final NeuralNetwork net1 = new NeuralNetwork(
+                inputSize,
+                10,
+                outputSize,
+                0.5,
+                59,
+                new String[inputSize],
+                new String[outputSize],
+                0.5,
+                0.2,
+                100);
+        final NeuralNetwork net2 = new NeuralNetwork(
+                inputSize,
+                10,
+                outputSize,
+                0.5,
+                59,
+                new String[inputSize],
+                new String[outputSize],
+                0.5,
+                0.2,
+                100);
+        final double before = meanSquaredError(net1, testIns, testOuts);
+        net1.trainMiniBatch(trainIns, trainOuts, testIns, testOuts, 32, 0.5, 10, 53, null, 1);
+        net2.trainMiniBatch(trainIns, trainOuts, testIns, testOuts, 32, 0.5, 10, 53, null, 1);
+
+        final double after = meanSquaredError(net1, testIns, testOuts);
+        System.out.println("mse before: " + before + " after: " + after);
+        assertTrue(after < before);
+
+        for (double[] input : testIns) {
+            assertArrayEquals(net1.run(input, null, null), net2.run(input, null, null), 0);
+        }
+    }
+
+    //------------------//
+    // meanSquaredError //
+    //------------------//
+    private double meanSquaredError (NeuralNetwork network,
+                                     double[][] inputs,
+                                     double[][] desired)
+    {
+        double mse = 0;
+
+        for (int ip = 0; ip < inputs.length; ip++) {
+            final double[] outs = network.run(inputs[ip], null, null);
+
+            for (int o = 0; o < outs.length; o++) {
+                final double dif = desired[ip][o] - outs[o];
+                mse += (dif * dif);
+            }
+        }
+
+        return mse / inputs.length;
+    }
+
+    //--------------//
+    // createInputs //
+    //--------------//
+    private double[][] createInputs (int count,
+                                     Random random)
+    {
+        final double[][] inputs = new double[count][INPUT_SIZE];
+
+        for (double[] input : inputs) {
+            for (int i = 0; i < INPUT_SIZE; i++) {
+                input[i] = random.nextGaussian();
+            }
+        }
+
+        return inputs;
+    }
+
+    //---------------//
+    // createNetwork //
+    //---------------//
+    private NeuralNetwork createNetwork ()
+    {
+        return new NeuralNetwork(
+                INPUT_SIZE,
+                SHAPE_COUNT,
+                SHAPE_COUNT,
+                0.5,
+                61,
+                new String[INPUT_SIZE],
+                new String[SHAPE_COUNT]);
+    }
+}
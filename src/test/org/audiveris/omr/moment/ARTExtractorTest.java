@@ -4,12 +4,30 @@
  */
 package org.audiveris.omr.moment;
 
+import org.audiveris.omr.glyph.Shape;
+import org.audiveris.omr.glyph.ShapeSet;
+import org.audiveris.omr.glyph.SymbolSample;
+import org.audiveris.omr.math.PointsCollector;
 import org.audiveris.omr.moments.ARTMoments;
+import org.audiveris.omr.moments.AbstractExtractor;
 import org.audiveris.omr.moments.BasicARTExtractor;
 import org.audiveris.omr.moments.BasicARTMoments;
+import org.audiveris.omr.moments.BasicLUT;
+import org.audiveris.omr.moments.LUT;
+import org.audiveris.omr.run.Orientation;
+import org.audiveris.omr.run.RunTable;
+import org.audiveris.omr.run.RunTableFactory;
+import org.audiveris.omr.ui.symbol.ShapeSymbol;
+import org.audiveris.omr.ui.symbol.Symbols;
 
+import static org.audiveris.omr.moments.ARTMoments.*;
+import static org.junit.Assert.*;
 import org.junit.*;
 
+import java.awt.image.WritableRaster;
+import java.util.ArrayList;
+import java.util.List;
+
 /**
  * Unit test for (Basic) ARTExtractor.
  *
@@ -18,8 +36,12 @@ import org.junit.*;
 public class ARTExtractorTest
         extends MomentsExtractorTest<ARTMoments>
 {
-    //~ Constructors -------------------------------------------------------------------------------
+    //~ Static fields/initializers -----------------------------------------------------------------
 
+    /** Max difference allowed with legacy moments. */
+    private static final double TOLERANCE = 1e-4;
+
+    //~ Constructors -------------------------------------------------------------------------------
     /**
      * Creates a new ARTExtractorTest object.
      */
@@ -37,4 +59,189 @@ public class ARTExtractorTest
     {
         super.testAllShapes(new BasicARTExtractor(), BasicARTMoments.class);
     }
+
+    /**
+     * Check point-based and run-based moments against legacy LUT moments.
+     */
+    @Test
+    public void testLegacyMoments ()
+    {
+        System.out.println("\n+++ legacy moments");
+
+        final RunTableFactory factory = new RunTableFactory(Orientation.HORIZONTAL);
+
+        for (RunTable table : createPopulation()) {
+            final PointsCollector collector = collect(table);
+            final ARTMoments expected = new BasicARTMoments();
+            final LegacyExtractor legacy = new LegacyExtractor();
+            legacy.setDescriptor(expected);
+            legacy.extract(collector.getXValues(), collector.getYValues(), collector.getSize());
+
+            final BasicARTExtractor extractor = new BasicARTExtractor();
+            final ARTMoments points = new BasicARTMoments();
+            extractor.setDescriptor(points);
+            extractor.extract(collector.getXValues(), collector.getYValues(), collector.getSize());
+            checkMoments(table + " points", expected, points);
+
+            final ARTMoments runs = new BasicARTMoments();
+            extractor.setDescriptor(runs);
+            extractor.extract(table);
+            checkMoments(table + " runs", expected, runs);
+
+            final RunTable hTable = factory.createTable(table.getBuffer());
+            final ARTMoments hRuns = new BasicARTMoments();
+            extractor.setDescriptor(hRuns);
+            extractor.extract(hTable);
+            checkMoments(hTable + " runs", expected, hRuns);
+        }
+    }
+
+    //--------------//
+    // checkMoments //
+    //--------------//
+    private void checkMoments (String msg,
+                               ARTMoments expected,
+                               ARTMoments result)
+    {
+        for (int p = 0; p < ANGULAR; p++) {
+            for (int r = 0; r < RADIAL; r++) {
+                assertEquals(
+                        msg + " p:" + p + " r:" + r,
+                        expected.getMoment(p, r),
+                        result.getMoment(p, r),
+                        TOLERANCE);
+            }
+        }
+    }
+
+    //---------//
+    // collect //
+    //---------//
+    private PointsCollector collect (RunTable table)
+    {
+        final PointsCollector collector = new PointsCollector(null, table.getWeight());
+        table.cumulate(collector, null);
+
+        return collector;
+    }
+
+    //------------------//
+    // createPopulation //
+    //------------------//
+    /**
+     * Symbol glyphs, for all physical shapes, at small, typical and large interline values.
+     */
+    private List<RunTable> createPopulation ()
+    {
+        final List<RunTable> tables = new ArrayList<RunTable>();
+
+        for (int interline : new int[]{10, 20, 30}) {
+            for (Shape shape : ShapeSet.allPhysicalShapes) {
+                ShapeSymbol symbol = Symbols.getSymbol(shape);
+
+                // If no plain symbol, use the decorated symbol as plan B
+                if (symbol == null) {
+                    symbol = Symbols.getSymbol(shape, true);
+                }
+
+                if (symbol != null) {
+                    final RunTable table = SymbolSample.create(shape, symbol, interline)
+                            .getRunTable();
+
+                    if (table.getWeight() > 0) {
+                        tables.add(table);
+                    }
+                }
+            }
+        }
+
+        return tables;
+    }
+
+    //~ Inner Classes ------------------------------------------------------------------------------
+    //-----------------//
+    // LegacyExtractor //
+    //-----------------//
+    /**
+     * Former extraction, based on one interpolated LUT per basis function.
+     */
+    private static class LegacyExtractor
+            extends AbstractExtractor<ARTMoments>
+    {
+        //~ Static fields/initializers -------------------------------------------------------------
+
+        private static final int LUT_RADIUS = 50;
+
+        private static final LUT[][] realLuts = new LUT[ANGULAR][RADIAL];
+
+        private static final LUT[][] imagLuts = new LUT[ANGULAR][RADIAL];
+
+        static {
+            for (int p = 0; p < ANGULAR; p++) {
+                for (int r = 0; r < RADIAL; r++) {
+                    realLuts[p][r] = new BasicLUT(LUT_RADIUS);
+                    imagLuts[p][r] = new BasicLUT(LUT_RADIUS);
+                }
+            }
+
+            final int lutSize = realLuts[0][0].getSize();
+
+            for (int x = 0; x < lutSize; x++) {
+                double tx = (x - LUT_RADIUS) / (double) LUT_RADIUS;
+
+                for (int y = 0; y < lutSize; y++) {
+                    double ty = (y - LUT_RADIUS) / (double) LUT_RADIUS;
+                    double rad = Math.hypot(tx, ty);
+
+                    if (rad < 1) {
+                        double angle = Math.atan2(ty, tx);
+
+                        for (int p = 0; p < ANGULAR; p++) {
+                            for (int r = 0; r < RADIAL; r++) {
+                                double temp = Math.cos(rad * Math.PI * r);
+                                realLuts[p][r].assign(x, y, temp * Math.cos(angle * p));
+                                imagLuts[p][r].assign(x, y, temp * Math.sin(angle * p));
+                            }
+                        }
+                    }
+                }
+            }
+        }
+
+        //~ Methods --------------------------------------------------------------------------------
+        @Override
+        public void reconstruct (WritableRaster raster)
+        {
+        }
+
+        @Override
+        protected void extractMoments ()
+        {
+            final LUT anyLut = realLuts[0][0];
+            final double[][] coeffReal = new double[ANGULAR][RADIAL];
+            final double[][] coeffImag = new double[ANGULAR][RADIAL];
+
+            for (int i = 0; i < mass; i++) {
+                double lx = (((xx[i] - center.getX()) * LUT_RADIUS) / radius) + LUT_RADIUS;
+                double ly = (((yy[i] - center.getY()) * LUT_RADIUS) / radius) + LUT_RADIUS;
+
+                if (anyLut.contains(lx, ly)) {
+                    for (int p = 0; p < ANGULAR; p++) {
+                        for (int r = 0; r < RADIAL; r++) {
+                            coeffReal[p][r] += realLuts[p][r].interpolate(lx, ly);
+                            coeffImag[p][r] -= imagLuts[p][r].interpolate(lx, ly);
+                        }
+                    }
+                }
+            }
+
+            for (int p = 0; p < ANGULAR; p++) {
+                for (int r = 0; r < RADIAL; r++) {
+                    double real = coeffReal[p][r] / mass;
+                    double imag = coeffImag[p][r] / mass;
+                    descriptor.setMoment(p, r, Math.hypot(imag, real));
+                }
+            }
+        }
+    }
 }
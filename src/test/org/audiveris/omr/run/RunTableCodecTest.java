@@ -0,0 +1,228 @@
+//------------------------------------------------------------------------------------------------//
+//                                                                                                //
+//                               R u n T a b l e C o d e c T e s t                                //
+//                                                                                                //
+//------------------------------------------------------------------------------------------------//
+// <editor-fold defaultstate="collapsed" desc="hdr">
+//
+//  Copyright © Audiveris 2018. All rights reserved.
+//
+//  This program is free software: you can redistribute it and/or modify it under the terms of the
+//  GNU Affero General Public License as published by the Free Software Foundation, either version
+//  3 of the License, or (at your option) any later version.
+//
+//  This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+//  without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+//  See the GNU Affero General Public License for more details.
+//
+//  You should have received a copy of the GNU Affero General Public License along with this
+//  program.  If not, see <http://www.gnu.org/licenses/>.
+//------------------------------------------------------------------------------------------------//
+// </editor-fold>
+package org.audiveris.omr.run;
+
+import static org.audiveris.omr.run.Orientation.HORIZONTAL;
+import static org.audiveris.omr.run.Orientation.VERTICAL;
+import org.audiveris.omr.util.BaseTestCase;
+import org.audiveris.omr.util.StopWatch;
+
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+
+/**
+ * Class {@code RunTableCodecTest} tests the binary format of RunTable.
+ *
+ * @author Hervé Bitteur
+ */
+public class RunTableCodecTest
+        extends BaseTestCase
+{
+    //~ Static fields/initializers -----------------------------------------------------------------
+
+    private static final File dir = new File("data/temp");
+
+    //~ Methods ------------------------------------------------------------------------------------
+    @Test
+    public void testCorruptHeader ()
+            throws IOException
+    {
+        RunTable table = createRandomInstance(VERTICAL, 30, 20);
+        ByteArrayOutputStream bos = new ByteArrayOutputStream();
+        RunTableCodec.write(table, bos);
+
+        final byte[] bytes = bos.toByteArray();
+
+        // Invalid orientation ordinal
+        ByteBuffer buffer = ByteBuffer.wrap(bytes.clone());
+        buffer.putInt(8, 7);
+        assertCorrupt(buffer);
+
+        // Sequence count inconsistent with dimension
+        buffer = ByteBuffer.wrap(bytes.clone());
+        buffer.putInt(20, 1000000);
+        assertCorrupt(buffer);
+
+        // Truncated within header, offsets and data
+        assertCorrupt(ByteBuffer.wrap(bytes, 0, 10).slice());
+        assertCorrupt(ByteBuffer.wrap(bytes, 0, 40).slice());
+        assertCorrupt(ByteBuffer.wrap(bytes, 0, bytes.length - 1).slice());
+    }
+
+    @Test
+    public void testLazyReader ()
+            throws IOException
+    {
+        RunTable table = createRandomInstance(VERTICAL, 300, 200);
+        ByteArrayOutputStream bos = new ByteArrayOutputStream();
+        RunTableCodec.write(table, bos);
+
+        RunTableCodec.Reader reader = new RunTableCodec.Reader(ByteBuffer.wrap(bos.toByteArray()));
+        assertEquals(VERTICAL, reader.getOrientation());
+        assertEquals(300, reader.getWidth());
+        assertEquals(200, reader.getHeight());
+        assertEquals(300, reader.getSize());
+
+        // Random access to individual sequences
+        for (int i = reader.getSize() - 1; i >= 0; i -= 7) {
+            assertEquals(table.getSequence(i), reader.getSequence(i));
+            assertSame(reader.getSequence(i), reader.getSequence(i));
+        }
+
+        assertEquals(table, reader.getTable());
+    }
+
+    @Test
+    public void testLazyRunTable ()
+            throws IOException
+    {
+        RunTable table = createRandomInstance(HORIZONTAL, 400, 300);
+        ByteArrayOutputStream bos = new ByteArrayOutputStream();
+        RunTableCodec.write(table, bos);
+
+        // Very small cache, to exercise eviction
+        LazyRunTable lazy = new LazyRunTable(
+                new RunTableCodec.Reader(ByteBuffer.wrap(bos.toByteArray())),
+                4);
+
+        for (int y = 0; y < 300; y += 3) {
+            for (int x = 0; x < 400; x += 5) {
+                assertEquals(table.get(x, y), lazy.get(x, y));
+            }
+        }
+
+        assertEquals(table.getWeight(), lazy.getWeight());
+        assertEquals(table, lazy);
+        assertEquals(table, lazy.copy());
+
+        try {
+            lazy.addRun(0, 0, 1);
+            fail("LazyRunTable should be read-only");
+        } catch (UnsupportedOperationException expected) {
+        }
+    }
+
+    @Test
+    public void testRoundTrip ()
+            throws Exception
+    {
+        dir.mkdirs();
+
+        for (Orientation orientation : Orientation.values()) {
+            RunTable table = createRandomInstance(orientation, 2480, 3508);
+            Path binPath = new File(dir, "runtable-" + orientation + ".bin").toPath();
+            Path xmlPath = new File(dir, "runtable-" + orientation + ".xml").toPath();
+            Files.deleteIfExists(binPath);
+            Files.deleteIfExists(xmlPath);
+
+            StopWatch watch = new StopWatch("RunTable " + orientation);
+            watch.start("XML marshal");
+            table.marshal(xmlPath);
+            watch.start("binary write");
+            RunTableCodec.write(table, binPath);
+            watch.start("XML load");
+
+            RunTable xmlTable = RunTableCodec.load(xmlPath);
+            watch.start("binary load");
+
+            RunTable binTable = RunTableCodec.load(binPath);
+            watch.print();
+
+            System.out.println(
+                    "XML size: " + Files.size(xmlPath) + " binary size: " + Files.size(binPath));
+            assertEquals(table, xmlTable);
+            assertEquals(table, binTable);
+        }
+    }
+
+    @Test
+    public void testSmallTable ()
+            throws IOException
+    {
+        RunTable table = new RunTable(HORIZONTAL, 10, 5);
+        table.addRun(0, new Run(1, 2));
+        table.addRun(0, new Run(5, 3));
+        table.addRun(1, new Run(0, 1));
+        table.addRun(1, new Run(4, 2));
+
+        // Leave sequence empty at index 2
+        table.addRun(3, new Run(0, 10));
+        table.addRun(4, new Run(9, 1));
+
+        ByteArrayOutputStream bos = new ByteArrayOutputStream();
+        RunTableCodec.write(table, bos);
+
+        RunTable newTable = new RunTableCodec.Reader(ByteBuffer.wrap(bos.toByteArray()))
+                .getTable();
+        assertEquals(table.dumpOf(), newTable.dumpOf());
+        assertEquals(table, newTable);
+        assertTrue(newTable.isSequenceEmpty(2));
+    }
+
+    //---------------//
+    // assertCorrupt //
+    //---------------//
+    private void assertCorrupt (ByteBuffer buffer)
+    {
+        try {
+            new RunTableCodec.Reader(buffer);
+            fail("IOException expected");
+        } catch (IOException expected) {
+            System.out.println("Expected: " + expected);
+        }
+    }
+
+    //----------------------//
+    // createRandomInstance //
+    //----------------------//
+    private RunTable createRandomInstance (Orientation orientation,
+                                           int width,
+                                           int height)
+    {
+        final RunTable table = new RunTable(orientation, width, height);
+        final Random random = new Random(2018);
+        final int length = orientation.isVertical() ? height : width;
+
+        for (int i = 0; i < table.getSize(); i++) {
+            if (random.nextInt(10) == 0) {
+                continue; // Empty sequence
+            }
+
+            int start = random.nextInt(5);
+
+            while (start < length) {
+                int runLength = Math.min(length - start, 1 + random.nextInt(300));
+                table.addRun(i, start, runLength);
+                start += (runLength + 1 + random.nextInt(200));
+            }
+        }
+
+        return table;
+    }
+}
@@ -0,0 +1,251 @@
+//------------------------------------------------------------------------------------------------//
+//                                                                                                //
+//                             R u n T a b l e F a c t o r y T e s t                              //
+//                                                                                                //
+//------------------------------------------------------------------------------------------------//
+// <editor-fold defaultstate="collapsed" desc="hdr">
+//
+//  Copyright © Audiveris 2018. All rights reserved.
+//
+//  This program is free software: you can redistribute it and/or modify it under the terms of the
+//  GNU Affero General Public License as published by the Free Software Foundation, either version
+//  3 of the License, or (at your option) any later version.
+//
+//  This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+//  without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+//  See the GNU Affero General Public License for more details.
+//
+//  You should have received a copy of the GNU Affero General Public License along with this
+//  program.  If not, see <http://www.gnu.org/licenses/>.
+//------------------------------------------------------------------------------------------------//
+// </editor-fold>
+package org.audiveris.omr.run;
+
+import ij.process.ByteProcessor;
+
+import org.audiveris.omr.image.GlobalFilter;
+import org.audiveris.omr.image.IntegralFilter;
+import org.audiveris.omr.image.PixelFilter;
+import org.audiveris.omr.image.RandomFilter;
+import org.audiveris.omr.image.VerticalFilter;
+import org.audiveris.omr.util.StopWatch;
+
+import static org.junit.Assert.*;
+import org.junit.Test;
+
+import java.awt.Rectangle;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Class {@code RunTableFactoryTest} checks that the band-based (RLE) run retrieval
+ * gives the same tables as the legacy row-based retrieval, and compares their timing.
+ *
+ * @author Hervé Bitteur
+ */
+public class RunTableFactoryTest
+{
+    //~ Static fields/initializers -----------------------------------------------------------------
+
+    /** Typical dimension of a 300 DPI A4 scan. */
+    private static final int WIDTH = 2480;
+
+    private static final int HEIGHT = 3508;
+
+    private static final int LOOPS = 5;
+
+    //~ Constructors -------------------------------------------------------------------------------
+    /**
+     * Creates a new {@code RunTableFactoryTest} object.
+     */
+    public RunTableFactoryTest ()
+    {
+    }
+
+    //~ Methods ------------------------------------------------------------------------------------
+    /**
+     * Check and time horizontal tables.
+     */
+    @Test
+    public void testCreateTableHorizontal ()
+    {
+        System.out.println("\n+++ createTable HORIZONTAL");
+        checkAndTime(Orientation.HORIZONTAL);
+    }
+
+    /**
+     * Check and time vertical tables.
+     */
+    @Test
+    public void testCreateTableVertical ()
+    {
+        System.out.println("\n+++ createTable VERTICAL");
+        checkAndTime(Orientation.VERTICAL);
+    }
+
+    /**
+     * Check retrieval on a small ROI with a length filter.
+     */
+    @Test
+    public void testFilteredRoi ()
+    {
+        System.out.println("\n+++ createTable with filter and ROI");
+
+        final ByteProcessor source = SampleImages.createBinaryImage(200, 150, new Random(12345));
+        final Rectangle roi = new Rectangle(13, 7, 150, 111);
+        final RunTableFactory.Filter filter = new RunTableFactory.LengthFilter(3);
+
+        for (Orientation orientation : Orientation.values()) {
+            RunTable expected = createLegacyTable(orientation, filter, source, roi);
+            RunTable result = new RunTableFactory(orientation, filter).createTable(source, roi);
+            assertEquals(expected, result);
+        }
+    }
+
+    /**
+     * Check that streamed binarization gives the same table as the binary image.
+     */
+    @Test
+    public void testCreateTableFromFilter ()
+    {
+        System.out.println("\n+++ createTable from PixelFilter");
+
+        final ByteProcessor gray = createGraySource(300, 200);
+        final RunTableFactory factory = new RunTableFactory(Orientation.VERTICAL);
+        final PixelFilter[] filters = new PixelFilter[]{
+            new GlobalFilter(gray, 140),
+            new IntegralFilter(gray, 0.7, 0.2),
+            new RandomFilter(gray, 0.7, 0.2),
+            new VerticalFilter(gray, 0.7, 0.2)};
+
+        for (PixelFilter filter : filters) {
+            RunTable expected = factory.createTable(filter.filteredImage());
+
+            if (filter instanceof VerticalFilter) {
+                // A sliding filter cannot move backward
+                filter = new VerticalFilter(gray, 0.7, 0.2);
+            }
+
+            RunTable result = factory.createTable(filter);
+            assertEquals(filter.getClass().getSimpleName(), expected, result);
+        }
+    }
+
+    //--------------//
+    // checkAndTime //
+    //--------------//
+    private void checkAndTime (Orientation orientation)
+    {
+        final ByteProcessor source = SampleImages.createBinaryImage(
+                WIDTH,
+                HEIGHT,
+                new Random(12345));
+        final Rectangle roi = new Rectangle(0, 0, WIDTH, HEIGHT);
+        final RunTableFactory factory = new RunTableFactory(orientation);
+
+        // Warm up & check
+        RunTable expected = createLegacyTable(orientation, null, source, roi);
+        RunTable result = factory.createTable(source);
+        assertEquals(expected, result);
+
+        StopWatch watch = new StopWatch("createTable " + orientation);
+
+        watch.start("legacy row-based x" + LOOPS);
+
+        for (int i = 0; i < LOOPS; i++) {
+            createLegacyTable(orientation, null, source, roi);
+        }
+
+        watch.start("band-based RLE x" + LOOPS);
+
+        for (int i = 0; i < LOOPS; i++) {
+            factory.createTable(source);
+        }
+
+        watch.print();
+    }
+
+    //-------------------//
+    // createLegacyTable //
+    //-------------------//
+    /**
+     * Build the table through the legacy Adapter interface (one list of runs per position).
+     * <p>
+     * The adapter is thread-safe, so that legacy retrieval gets parallelized as well and the
+     * timing comparison is fair.
+     */
+    private RunTable createLegacyTable (final Orientation orientation,
+                                        final RunTableFactory.Filter filter,
+                                        final ByteProcessor source,
+                                        final Rectangle roi)
+    {
+        final RunTable table = new RunTable(orientation, roi.width, roi.height);
+        final boolean vertical = orientation.isVertical();
+        new RunsRetriever(
+                orientation,
+                new RunsRetriever.Adapter()
+        {
+            @Override
+            public void endPosition (int pos,
+                                     List<Run> runs)
+            {
+                table.setSequence(pos - (vertical ? roi.x : roi.y), runs);
+            }
+
+            @Override
+            public boolean foreRun (int coord,
+                                    int pos,
+                                    int length)
+            {
+                if (filter == null) {
+                    return true;
+                }
+
+                return vertical ? filter.check(pos, coord - length, length)
+                        : filter.check(coord - length, pos, length);
+            }
+
+            @Override
+            public boolean isFore (int coord,
+                                   int pos)
+            {
+                return (vertical ? source.get(pos, coord) : source.get(coord, pos)) == 0;
+            }
+
+            @Override
+            public boolean isThreadSafe ()
+            {
+                return true; // Like real callers: plain source reading, one sequence per position
+            }
+        }).retrieveRuns(roi);
+
+        return table;
+    }
+
+    //------------------//
+    // createGraySource //
+    //------------------//
+    /**
+     * Build a gray source with a horizontal gradient and darker random spots.
+     */
+    private ByteProcessor createGraySource (int width,
+                                            int height)
+    {
+        final ByteProcessor source = new ByteProcessor(width, height);
+        final Random random = new Random(6789);
+
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                int val = 150 + ((100 * x) / width);
+
+                if (((y % 25) < 2) || (random.nextInt(10) == 0)) {
+                    val -= (60 + random.nextInt(60));
+                }
+
+                source.set(x, y, val);
+            }
+        }
+
+        return source;
+    }
+}
@@ -0,0 +1,107 @@
+//------------------------------------------------------------------------------------------------//
+//                                                                                                //
+//                                    S a m p l e I m a g e s                                     //
+//                                                                                                //
+//------------------------------------------------------------------------------------------------//
+// <editor-fold defaultstate="collapsed" desc="hdr">
+//
+//  Copyright © Audiveris 2018. All rights reserved.
+//
+//  This program is free software: you can redistribute it and/or modify it under the terms of the
+//  GNU Affero General Public License as published by the Free Software Foundation, either version
+//  3 of the License, or (at your option) any later version.
+//
+//  This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+//  without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+//  See the GNU Affero General Public License for more details.
+//
+//  You should have received a copy of the GNU Affero General Public License along with this
+//  program.  If not, see <http://www.gnu.org/licenses/>.
+//------------------------------------------------------------------------------------------------//
+// </editor-fold>
+package org.audiveris.omr.run;
+
+import ij.process.ByteProcessor;
+
+import java.util.Random;
+
+/**
+ * Class {@code SampleImages} provides synthetic images shared by tests and benchmarks.
+ *
+ * @author Hervé Bitteur
+ */
+public abstract class SampleImages
+{
+    //~ Constructors -------------------------------------------------------------------------------
+
+    private SampleImages ()
+    {
+    }
+
+    //~ Methods ------------------------------------------------------------------------------------
+    //-------------------//
+    // createBinaryImage //
+    //-------------------//
+    /**
+     * Build a binary image with staff-like lines, stem-like bars and random blobs.
+     *
+     * @param width  image width
+     * @param height image height
+     * @param random source of noise
+     * @return the binary image, foreground being 0 and background 255
+     */
+    public static ByteProcessor createBinaryImage (int width,
+                                                   int height,
+                                                   Random random)
+    {
+        final ByteProcessor img = new ByteProcessor(width, height);
+        img.setValue(255);
+        img.fill();
+
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                boolean fore = ((y % 20) < 3) // Staff-like lines
+                               || ((x % 97) < 2) // Stem-like bars
+                               || (random.nextInt(16) == 0); // Noise
+
+                if (fore) {
+                    img.set(x, y, 0);
+                }
+            }
+        }
+
+        return img;
+    }
+
+    //-----------------//
+    // createGrayImage //
+    //-----------------//
+    /**
+     * Build a gray image with uneven lighting, staff-like lines, stem-like bars and random spots.
+     *
+     * @param width  image width
+     * @param height image height
+     * @param random source of noise
+     * @return the gray image
+     */
+    public static ByteProcessor createGrayImage (int width,
+                                                 int height,
+                                                 Random random)
+    {
+        final ByteProcessor img = new ByteProcessor(width, height);
+
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                int val = 140 + ((80 * (x + y)) / (width + height)) + random.nextInt(20);
+
+                if (((y % 40) < 4) || ((x % 150) < 3) || (random.nextInt(30) == 0)) {
+                    val -= (80 + random.nextInt(50));
+                }
+
+                img.set(x, y, val);
+            }
+        }
+
+        return img;
+    }
+}
@@ -0,0 +1,209 @@
+/*
+ * Copyright © Audiveris 2018. All rights reserved.
+ * This software is released under the GNU General Public License.
+ * Goto http://kenai.com/projects/audiveris to report bugs or suggestions.
+ */
+package org.audiveris.omr.sheet;
+
+import org.audiveris.omr.util.ZipFileSystem;
+
+import static org.junit.Assert.*;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileSystem;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.locks.Lock;
+
+/**
+ * Class {@code BookStorageTest} checks concurrent reads through the shared view and
+ * their consistency with a committed write.
+ *
+ * @author Hervé Bitteur
+ */
+public class BookStorageTest
+{
+    //~ Static fields/initializers -----------------------------------------------------------------
+
+    private static final int SHEETS = 8;
+
+    //~ Instance fields ----------------------------------------------------------------------------
+
+    private Path bookPath;
+
+    private BookStorage storage;
+
+    //~ Constructors -------------------------------------------------------------------------------
+    /**
+     * Creates a new {@code BookStorageTest} object.
+     */
+    public BookStorageTest ()
+    {
+    }
+
+    //~ Methods ------------------------------------------------------------------------------------
+    @Before
+    public void setUp ()
+            throws Exception
+    {
+        bookPath = Files.createTempDirectory("storage").resolve("book.omr");
+        storage = new BookStorage();
+
+        final Path root = ZipFileSystem.create(bookPath);
+
+        for (int i = 1; i <= SHEETS; i++) {
+            writeContent(root, i, "sheet " + i);
+        }
+
+        root.getFileSystem().close();
+    }
+
+    @After
+    public void tearDown ()
+            throws Exception
+    {
+        storage.dispose();
+        Files.deleteIfExists(bookPath);
+        Files.deleteIfExists(bookPath.getParent());
+    }
+
+    /**
+     * Check that a committed write is seen by next readers.
+     */
+    @Test
+    public void testCommit ()
+            throws Exception
+    {
+        System.out.println("\n+++ commit");
+
+        assertEquals("sheet 3", read(3));
+
+        final Lock lock = storage.getWriteLock();
+        lock.lock();
+
+        try {
+            final Path root = ZipFileSystem.open(bookPath);
+            writeContent(root, 3, "sheet 3 modified");
+
+            // Not yet committed
+            assertEquals("sheet 3", read(3));
+
+            storage.closeReadView();
+            root.getFileSystem().close();
+        } finally {
+            lock.unlock();
+        }
+
+        assertEquals("sheet 3 modified", read(3));
+        assertEquals("sheet 4", read(4));
+    }
+
+    /**
+     * Check that concurrent readers share one file system and read proper contents.
+     */
+    @Test
+    public void testConcurrentReads ()
+            throws Exception
+    {
+        System.out.println("\n+++ concurrent reads");
+
+        final ExecutorService executor = Executors.newFixedThreadPool(4);
+        final List<Future<FileSystem>> futures = new ArrayList<Future<FileSystem>>();
+
+        try {
+            for (int loop = 0; loop < 10; loop++) {
+                for (int i = 1; i <= SHEETS; i++) {
+                    final int number = i;
+                    futures.add(
+                            executor.submit(
+                                    new Callable<FileSystem>()
+                            {
+                                @Override
+                                public FileSystem call ()
+                                        throws Exception
+                                {
+                                    final Lock lock = storage.getReadLock();
+                                    lock.lock();
+
+                                    try {
+                                        final Path folder = folderOf(number);
+                                        assertEquals("sheet " + number, readContent(folder));
+
+                                        return folder.getFileSystem();
+                                    } finally {
+                                        lock.unlock();
+                                    }
+                                }
+                            }));
+                }
+            }
+
+            final FileSystem fileSystem = futures.get(0).get();
+
+            for (Future<FileSystem> future : futures) {
+                assertSame(fileSystem, future.get());
+            }
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    //----------//
+    // folderOf //
+    //----------//
+    private Path folderOf (int number)
+            throws Exception
+    {
+        return storage.getReadRoot(bookPath).resolve(Sheet.INTERNALS_RADIX + number);
+    }
+
+    //------//
+    // read //
+    //------//
+    private String read (int number)
+            throws Exception
+    {
+        final Lock lock = storage.getReadLock();
+        lock.lock();
+
+        try {
+            return readContent(folderOf(number));
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    //-------------//
+    // readContent //
+    //-------------//
+    private String readContent (Path folder)
+            throws Exception
+    {
+        return new String(Files.readAllBytes(folder.resolve("data.txt")), StandardCharsets.UTF_8);
+    }
+
+    //--------------//
+    // writeContent //
+    //--------------//
+    private void writeContent (Path root,
+                               int number,
+                               String content)
+            throws Exception
+    {
+        final Path folder = root.resolve(Sheet.INTERNALS_RADIX + number);
+        Files.createDirectories(folder);
+
+        final Path file = folder.resolve("data.txt");
+        Files.deleteIfExists(file);
+        Files.write(file, content.getBytes(StandardCharsets.UTF_8));
+    }
+}
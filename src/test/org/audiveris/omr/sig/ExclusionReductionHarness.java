@@ -0,0 +1,162 @@
+//------------------------------------------------------------------------------------------------//
+//                                                                                                //
+//                       E x c l u s i o n R e d u c t i o n H a r n e s s                        //
+//                                                                                                //
+//------------------------------------------------------------------------------------------------//
+// <editor-fold defaultstate="collapsed" desc="hdr">
+//
+//  Copyright © Audiveris 2018. All rights reserved.
+//
+//  This program is free software: you can redistribute it and/or modify it under the terms of the
+//  GNU Affero General Public License as published by the Free Software Foundation, either version
+//  3 of the License, or (at your option) any later version.
+//
+//  This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+//  without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+//  See the GNU Affero General Public License for more details.
+//
+//  You should have received a copy of the GNU Affero General Public License along with this
+//  program.  If not, see <http://www.gnu.org/licenses/>.
+//------------------------------------------------------------------------------------------------//
+// </editor-fold>
+package org.audiveris.omr.sig;
+
+import org.audiveris.omr.OMR;
+import org.audiveris.omr.sheet.Book;
+import org.audiveris.omr.sheet.BookManager;
+import org.audiveris.omr.sheet.SheetStub;
+import org.audiveris.omr.sheet.SystemInfo;
+import org.audiveris.omr.sig.inter.Inter;
+import org.audiveris.omr.step.Step;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Class {@code ExclusionReductionHarness} is a manual regression harness which checks, on
+ * sample books, that the priority queue and the former linear scan of
+ * {@link SIGraph#reduceExclusions(java.util.Collection)} remove the same inters, in the same
+ * order.
+ * <p>
+ * Each sample input is processed up to the steps which precede the reduction of exclusions
+ * (STEMS before REDUCTION, SYMBOLS before LINKS) and stored at that point.
+ * The stored book is then loaded twice, once per reducer, and the exclusions of each system
+ * SIG are reduced.
+ * The sequences of removed inter IDs are compared system per system.
+ * <p>
+ * Arguments are the input files to process, all images of data/examples by default.
+ * Exit status is 1 if any difference was found.
+ *
+ * @author Hervé Bitteur
+ */
+public class ExclusionReductionHarness
+{
+    //~ Static fields/initializers -----------------------------------------------------------------
+
+    /** Steps after which exclusions are reduced. */
+    private static final Step[] STEPS = new Step[]{Step.STEMS, Step.SYMBOLS};
+
+    //~ Constructors -------------------------------------------------------------------------------
+
+    private ExclusionReductionHarness ()
+    {
+    }
+
+    //~ Methods ------------------------------------------------------------------------------------
+    public static void main (String... args)
+            throws Exception
+    {
+        OMR.engine = BookManager.getInstance();
+
+        final List<Path> inputs = new ArrayList<>();
+
+        if (args.length > 0) {
+            for (String arg : args) {
+                inputs.add(Paths.get(arg));
+            }
+        } else {
+            for (File file : new File("data/examples").listFiles()) {
+                inputs.add(file.toPath());
+            }
+        }
+
+        final Path dir = Files.createTempDirectory("exclusions");
+        int differences = 0;
+
+        for (Path input : inputs) {
+            final Book book = OMR.engine.loadInput(input);
+            book.createStubs(null);
+
+            for (Step step : STEPS) {
+                if (!book.reachBookStep(step, false, null)) {
+                    System.out.println(input + " could not reach " + step);
+
+                    break;
+                }
+
+                final Path saved = dir.resolve(book.getRadix() + "-" + step + OMR.BOOK_EXTENSION);
+                book.store(saved, false);
+
+                final List<List<Integer>> queued = reduce(saved, true);
+                final List<List<Integer>> scanned = reduce(saved, false);
+
+                for (int i = 0; i < Math.max(queued.size(), scanned.size()); i++) {
+                    final List<Integer> q = (i < queued.size()) ? queued.get(i) : null;
+                    final List<Integer> s = (i < scanned.size()) ? scanned.get(i) : null;
+
+                    if ((q == null) || !q.equals(s)) {
+                        differences++;
+                        System.out.println(
+                                input + " after " + step + " system#" + (i + 1) + " queue:" + q
+                                + " scan:" + s);
+                    }
+                }
+
+                System.out.println(input + " after " + step + " systems:" + queued.size());
+            }
+
+            book.close();
+        }
+
+        System.out.println("Differences: " + differences);
+        System.exit((differences == 0) ? 0 : 1);
+    }
+
+    //--------//
+    // reduce //
+    //--------//
+    /**
+     * Load the stored book and reduce the exclusions of every system.
+     *
+     * @param bookPath path to stored book
+     * @param useQueue true for priority queue, false for linear scan
+     * @return for each system of the book, the IDs of removed inters in removal order
+     */
+    private static List<List<Integer>> reduce (Path bookPath,
+                                               boolean useQueue)
+    {
+        final List<List<Integer>> result = new ArrayList<>();
+        final Book book = Book.loadBook(bookPath);
+
+        for (SheetStub stub : book.getStubs()) {
+            for (SystemInfo system : stub.getSheet().getSystems()) {
+                final SIGraph sig = system.getSig();
+                final List<Integer> ids = new ArrayList<>();
+
+                for (Inter inter : sig.reduceExclusions(sig.exclusions(), useQueue)) {
+                    ids.add(inter.getId());
+                }
+
+                result.add(ids);
+            }
+        }
+
+        book.close();
+
+        return result;
+    }
+}
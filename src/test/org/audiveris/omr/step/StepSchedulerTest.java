@@ -0,0 +1,451 @@
+//------------------------------------------------------------------------------------------------//
+//                                                                                                //
+//                               S t e p S c h e d u l e r T e s t                                //
+//                                                                                                //
+//------------------------------------------------------------------------------------------------//
+// <editor-fold defaultstate="collapsed" desc="hdr">
+//
+//  Copyright © Audiveris 2018. All rights reserved.
+//
+//  This program is free software: you can redistribute it and/or modify it under the terms of the
+//  GNU Affero General Public License as published by the Free Software Foundation, either version
+//  3 of the License, or (at your option) any later version.
+//
+//  This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+//  without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+//  See the GNU Affero General Public License for more details.
+//
+//  You should have received a copy of the GNU Affero General Public License along with this
+//  program.  If not, see <http://www.gnu.org/licenses/>.
+//------------------------------------------------------------------------------------------------//
+// </editor-fold>
+package org.audiveris.omr.step;
+
+import org.audiveris.omr.util.OmrExecutors;
+
+import static org.junit.Assert.*;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Class {@code StepSchedulerTest} checks the scheduling of sheet, step and system units.
+ *
+ * @author Hervé Bitteur
+ */
+public class StepSchedulerTest
+{
+    //~ Constructors -------------------------------------------------------------------------------
+
+    /**
+     * Creates a new {@code StepSchedulerTest} object.
+     */
+    public StepSchedulerTest ()
+    {
+    }
+
+    //~ Methods ------------------------------------------------------------------------------------
+    /**
+     * Check that a step can be interrupted through its future.
+     */
+    @Test
+    public void testCancel ()
+            throws Exception
+    {
+        System.out.println("\n+++ cancel");
+
+        final CountDownLatch interrupted = new CountDownLatch(1);
+        final Future<Void> future = StepScheduler.submit(
+                Step.LOAD,
+                new Callable<Void>()
+        {
+            @Override
+            public Void call ()
+            {
+                try {
+                    Thread.sleep(60000);
+                } catch (InterruptedException ex) {
+                    interrupted.countDown();
+                }
+
+                return null;
+            }
+        });
+
+        try {
+            future.get(200, TimeUnit.MILLISECONDS);
+            fail("Timeout expected");
+        } catch (TimeoutException expected) {
+            future.cancel(true);
+        }
+
+        assertTrue(interrupted.await(10, TimeUnit.SECONDS));
+    }
+
+    /**
+     * Check that cancelling a step while it waits for its system tasks skips the tasks not
+     * yet started and interrupts the running ones.
+     */
+    @Test
+    public void testCancelInvokeAll ()
+            throws Exception
+    {
+        System.out.println("\n+++ cancelInvokeAll");
+
+        final int count = (4 * OmrExecutors.getForkJoinPool().getParallelism()) + 4;
+        final CountDownLatch inside = new CountDownLatch(1);
+        final CountDownLatch finished = new CountDownLatch(1);
+        final AtomicInteger started = new AtomicInteger();
+        final AtomicInteger interrupted = new AtomicInteger();
+        final AtomicBoolean cancelled = new AtomicBoolean();
+        final List<Callable<Void>> tasks = new ArrayList<>();
+
+        for (int i = 0; i < count; i++) {
+            tasks.add(new Callable<Void>()
+            {
+                @Override
+                public Void call ()
+                {
+                    started.incrementAndGet();
+                    inside.countDown();
+
+                    try {
+                        Thread.sleep(60000);
+                    } catch (InterruptedException ex) {
+                        interrupted.incrementAndGet();
+                    }
+
+                    return null;
+                }
+            });
+        }
+
+        final Future<Void> future = StepScheduler.submit(
+                Step.SYMBOLS,
+                new Callable<Void>()
+        {
+            @Override
+            public Void call ()
+            {
+                try {
+                    StepScheduler.invokeAll(tasks);
+                } catch (InterruptedException ex) {
+                    cancelled.set(true);
+                } finally {
+                    finished.countDown();
+                }
+
+                return null;
+            }
+        });
+
+        assertTrue(inside.await(10, TimeUnit.SECONDS));
+        future.cancel(true);
+        assertTrue(finished.await(10, TimeUnit.SECONDS));
+
+        System.out.println("count:" + count + " started:" + started.get());
+        assertTrue(cancelled.get());
+        assertTrue(started.get() < count);
+        assertEquals(started.get(), interrupted.get());
+    }
+
+    /**
+     * Check that system tasks launched from a step all complete, in order, even when one
+     * of them fails.
+     */
+    @Test
+    public void testInvokeAll ()
+            throws Exception
+    {
+        System.out.println("\n+++ invokeAll");
+
+        final FutureTask<Integer> failures = new FutureTask<>(
+                new Callable<Integer>()
+        {
+            @Override
+            public Integer call ()
+                    throws Exception
+            {
+                final List<Callable<Integer>> tasks = new ArrayList<>();
+
+                for (int i = 0; i < 20; i++) {
+                    final int index = i;
+                    tasks.add(new Callable<Integer>()
+                    {
+                        @Override
+                        public Integer call ()
+                        {
+                            if (index == 7) {
+                                throw new IllegalStateException("system failure");
+                            }
+
+                            return index;
+                        }
+                    });
+                }
+
+                final List<Future<Integer>> futures = StepScheduler.invokeAll(tasks);
+                int count = 0;
+
+                for (int i = 0; i < futures.size(); i++) {
+                    try {
+                        assertEquals(i, futures.get(i).get().intValue());
+                    } catch (ExecutionException ex) {
+                        count++;
+                    }
+                }
+
+                return count;
+            }
+        });
+
+        StepScheduler.submit(
+                Step.GRID,
+                new Callable<Void>()
+        {
+            @Override
+            public Void call ()
+            {
+                failures.run();
+
+                return null;
+            }
+        }).get();
+
+        assertEquals(1, failures.get().intValue());
+    }
+
+    /**
+     * Check that sheet tasks give the same results, and the same first failure, whether they
+     * are run in parallel or in sequence.
+     */
+    @Test
+    public void testInvokeForSheet ()
+            throws Exception
+    {
+        System.out.println("\n+++ invokeForSheet");
+
+        for (boolean parallel : new boolean[]{false, true}) {
+            final List<Integer> results = StepScheduler.invokeForSheet(
+                    null,
+                    createTasks(50, -1),
+                    parallel);
+            assertEquals(50, results.size());
+
+            for (int i = 0; i < results.size(); i++) {
+                assertEquals(i * i, results.get(i).intValue());
+            }
+
+            try {
+                StepScheduler.invokeForSheet(null, createTasks(50, 17), parallel);
+                fail("Exception expected");
+            } catch (IllegalStateException expected) {
+                // Across threads, fork-join may rethrow a copy, with original as cause
+                assertTrue(expected.getMessage().endsWith("failure 17"));
+            }
+        }
+    }
+
+    /**
+     * Check that sheets resident at the same time never exceed the allowed count.
+     */
+    @Test
+    public void testInvokeSheets ()
+            throws Exception
+    {
+        System.out.println("\n+++ invokeSheets");
+
+        final int maxSheets = StepScheduler.getMaxSheetsCount();
+        final AtomicInteger current = new AtomicInteger();
+        final AtomicInteger highest = new AtomicInteger();
+        final List<Callable<Boolean>> tasks = new ArrayList<>();
+
+        for (int i = 0; i < (3 * maxSheets) + 1; i++) {
+            tasks.add(new Callable<Boolean>()
+            {
+                @Override
+                public Boolean call ()
+                        throws Exception
+                {
+                    final int count = current.incrementAndGet();
+
+                    synchronized (highest) {
+                        highest.set(Math.max(highest.get(), count));
+                    }
+
+                    Thread.sleep(20);
+                    current.decrementAndGet();
+
+                    return true;
+                }
+            });
+        }
+
+        final List<Future<Boolean>> futures = StepScheduler.invokeSheets(tasks);
+        assertEquals(tasks.size(), futures.size());
+
+        for (Future<Boolean> future : futures) {
+            assertTrue(future.isDone());
+            assertTrue(future.get());
+        }
+
+        System.out.println("maxSheets:" + maxSheets + " highest:" + highest.get());
+        assertTrue(highest.get() <= maxSheets);
+    }
+
+    /**
+     * Check that a step waiting too long for a pool worker is cancelled and never run.
+     */
+    @Test
+    public void testQueueTimeOut ()
+            throws Exception
+    {
+        System.out.println("\n+++ queueTimeOut");
+
+        final int workers = OmrExecutors.getForkJoinPool().getParallelism();
+        final CountDownLatch busy = new CountDownLatch(workers);
+
+        // Keep all pool workers busy for a while
+        for (int i = 0; i < workers; i++) {
+            StepScheduler.submit(
+                    Step.LOAD,
+                    new Callable<Void>()
+            {
+                @Override
+                public Void call ()
+                        throws Exception
+                {
+                    busy.countDown();
+                    Thread.sleep(1000);
+
+                    return null;
+                }
+            });
+        }
+
+        assertTrue(busy.await(10, TimeUnit.SECONDS));
+
+        final AtomicBoolean ran = new AtomicBoolean();
+        final StepScheduler.StepFuture future = StepScheduler.submit(
+                Step.GRID,
+                new Callable<Void>()
+        {
+            @Override
+            public Void call ()
+                    throws Exception
+            {
+                ran.set(true);
+
+                return null;
+            }
+        });
+
+        try {
+            future.awaitRun(100, 500, TimeUnit.MILLISECONDS);
+            fail("Queue timeout expected");
+        } catch (TimeoutException expected) {
+        }
+
+        assertTrue(future.isCancelled());
+        Thread.sleep(1500);
+        assertFalse(ran.get());
+    }
+
+    /**
+     * Check that the step timeout applies to run time, not to time spent waiting for a
+     * pool worker.
+     */
+    @Test
+    public void testRunTimeOut ()
+            throws Exception
+    {
+        System.out.println("\n+++ runTimeOut");
+
+        final int workers = OmrExecutors.getForkJoinPool().getParallelism();
+        final CountDownLatch busy = new CountDownLatch(workers);
+
+        // Keep all pool workers busy for a while
+        for (int i = 0; i < workers; i++) {
+            StepScheduler.submit(
+                    Step.LOAD,
+                    new Callable<Void>()
+            {
+                @Override
+                public Void call ()
+                        throws Exception
+                {
+                    busy.countDown();
+                    Thread.sleep(1000);
+
+                    return null;
+                }
+            });
+        }
+
+        assertTrue(busy.await(10, TimeUnit.SECONDS));
+
+        final long start = System.nanoTime();
+        StepScheduler.submit(
+                Step.GRID,
+                new Callable<Void>()
+        {
+            @Override
+            public Void call ()
+                    throws Exception
+            {
+                Thread.sleep(50);
+
+                return null;
+            }
+        }).awaitRun(10_000, 500, TimeUnit.MILLISECONDS);
+
+        final long elapsed = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+        System.out.println("elapsed:" + elapsed);
+        assertTrue(elapsed > 500);
+    }
+
+    //-------------//
+    // createTasks //
+    //-------------//
+    /**
+     * Create tasks that return the square of their index, and fail from the provided
+     * index on.
+     *
+     * @param count     number of tasks
+     * @param failIndex index of first failing task, or -1 for no failure
+     * @return the tasks
+     */
+    private List<Callable<Integer>> createTasks (int count,
+                                                 final int failIndex)
+    {
+        final List<Callable<Integer>> tasks = new ArrayList<>();
+
+        for (int i = 0; i < count; i++) {
+            final int index = i;
+            tasks.add(new Callable<Integer>()
+            {
+                @Override
+                public Integer call ()
+                {
+                    if ((failIndex != -1) && (index >= failIndex)) {
+                        throw new IllegalStateException("failure " + index);
+                    }
+
+                    return index * index;
+                }
+            });
+        }
+
+        return tasks;
+    }
+}
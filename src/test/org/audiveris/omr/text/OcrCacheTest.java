@@ -0,0 +1,203 @@
+//------------------------------------------------------------------------------------------------//
+//                                                                                                //
+//                                    O c r C a c h e T e s t                                     //
+//                                                                                                //
+//------------------------------------------------------------------------------------------------//
+// <editor-fold defaultstate="collapsed" desc="hdr">
+//
+//  Copyright © Audiveris 2018. All rights reserved.
+//
+//  This program is free software: you can redistribute it and/or modify it under the terms of the
+//  GNU Affero General Public License as published by the Free Software Foundation, either version
+//  3 of the License, or (at your option) any later version.
+//
+//  This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+//  without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+//  See the GNU Affero General Public License for more details.
+//
+//  You should have received a copy of the GNU Affero General Public License along with this
+//  program.  If not, see <http://www.gnu.org/licenses/>.
+//------------------------------------------------------------------------------------------------//
+// </editor-fold>
+package org.audiveris.omr.text;
+
+import org.audiveris.omr.text.OCR.LayoutMode;
+
+import static org.junit.Assert.*;
+import org.junit.Test;
+
+import java.awt.Rectangle;
+import java.awt.geom.Line2D;
+import java.awt.image.BufferedImage;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Class {@code OcrCacheTest} checks OCR cache keys, copies and storage.
+ *
+ * @author Hervé Bitteur
+ */
+public class OcrCacheTest
+{
+    //~ Constructors -------------------------------------------------------------------------------
+
+    /**
+     * Creates a new {@code OcrCacheTest} object.
+     */
+    public OcrCacheTest ()
+    {
+    }
+
+    //~ Methods ------------------------------------------------------------------------------------
+    /**
+     * Check that cached lines are copies, kept safe from caller modifications.
+     */
+    @Test
+    public void testCopies ()
+    {
+        System.out.println("\n+++ copies");
+
+        final OcrCache cache = new OcrCache();
+        final List<TextLine> lines = createLines();
+        cache.put("k", lines);
+        lines.get(0).translate(100, 200);
+
+        final List<TextLine> first = cache.get("k");
+        checkLines(first);
+        first.get(0).translate(100, 200);
+        first.get(0).getWords().get(0).getChars().get(0).setValue("X");
+
+        checkLines(cache.get("k"));
+        assertNull(cache.get("other"));
+    }
+
+    /**
+     * Check that keys depend on image content, OCR parameters and OCR signature only.
+     */
+    @Test
+    public void testKey ()
+    {
+        System.out.println("\n+++ key");
+
+        final String key = keyOf(createImage(), LayoutMode.SINGLE_BLOCK);
+        assertEquals(key, keyOf(createImage(), LayoutMode.SINGLE_BLOCK));
+        assertFalse(key.equals(keyOf(createImage(), LayoutMode.MULTI_BLOCK)));
+
+        final BufferedImage other = createImage();
+        other.getRaster().setSample(3, 4, 0, 0);
+        assertFalse(key.equals(keyOf(other, LayoutMode.SINGLE_BLOCK)));
+
+        // Engine upgrade or new language data
+        final String upgraded = OcrCache.keyOf(
+                createImage(),
+                10,
+                LayoutMode.SINGLE_BLOCK,
+                "eng",
+                20,
+                "v2");
+        assertFalse(key.equals(upgraded));
+    }
+
+    /**
+     * Check cache storage and reload.
+     *
+     * @throws Exception if anything goes wrong
+     */
+    @Test
+    public void testStore ()
+            throws Exception
+    {
+        System.out.println("\n+++ store");
+
+        final Path root = Files.createTempDirectory("ocr-cache");
+
+        try {
+            final OcrCache cache = new OcrCache();
+            cache.put("k", createLines());
+            assertTrue(cache.isModified());
+            cache.marshal(root);
+            assertFalse(cache.isModified());
+
+            final OcrCache loaded = OcrCache.unmarshal(root);
+            assertNotNull(loaded);
+            assertEquals(1, loaded.size());
+            assertFalse(loaded.isModified());
+            checkLines(loaded.get("k"));
+        } finally {
+            Files.deleteIfExists(root.resolve(OcrCache.OCR_CACHE_ENTRY));
+            Files.delete(root);
+        }
+    }
+
+    //------------//
+    // checkLines //
+    //------------//
+    private void checkLines (List<TextLine> lines)
+    {
+        assertEquals(1, lines.size());
+
+        final TextWord word = lines.get(0).getWords().get(0);
+        assertEquals("Allegro", word.getValue());
+        assertEquals(new Rectangle(10, 20, 70, 15), word.getBounds());
+        assertEquals(0.9, word.getConfidence(), 1e-6);
+        assertEquals(32.0, word.getBaseline().getY1(), 1e-6);
+        assertEquals(7, word.getChars().size());
+        assertEquals("A", word.getChars().get(0).getValue());
+        assertEquals(new Rectangle(10, 20, 10, 12), word.getChars().get(0).getBounds());
+    }
+
+    //-------------//
+    // createImage //
+    //-------------//
+    private BufferedImage createImage ()
+    {
+        final BufferedImage image = new BufferedImage(40, 30, BufferedImage.TYPE_BYTE_GRAY);
+
+        for (int y = 0; y < image.getHeight(); y++) {
+            for (int x = 0; x < image.getWidth(); x++) {
+                image.getRaster().setSample(x, y, 0, (((x / 5) + y) % 3 == 0) ? 0 : 255);
+            }
+        }
+
+        return image;
+    }
+
+    //-------------//
+    // createLines //
+    //-------------//
+    private List<TextLine> createLines ()
+    {
+        final TextLine line = new TextLine();
+        final String value = "Allegro";
+        final TextWord word = new TextWord(
+                new Rectangle(10, 20, 70, 15),
+                value,
+                new Line2D.Double(10, 32, 80, 32),
+                0.9,
+                FontInfo.DEFAULT,
+                line);
+
+        for (int i = 0; i < value.length(); i++) {
+            final Rectangle bounds = new Rectangle(10 * (i + 1), 20, 10, 12);
+            word.addChar(new TextChar(bounds, value.substring(i, i + 1)));
+        }
+
+        line.appendWord(word);
+
+        final List<TextLine> lines = new ArrayList<>();
+        lines.add(line);
+
+        return lines;
+    }
+
+    //-------//
+    // keyOf //
+    //-------//
+    private String keyOf (BufferedImage image,
+                          LayoutMode layoutMode)
+    {
+        return OcrCache.keyOf(image, 10, layoutMode, "eng", 20, "v1");
+    }
+}
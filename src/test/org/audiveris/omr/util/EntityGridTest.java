@@ -0,0 +1,275 @@
+//------------------------------------------------------------------------------------------------//
+//                                                                                                //
+//                                  E n t i t y G r i d T e s t                                   //
+//                                                                                                //
+//------------------------------------------------------------------------------------------------//
+// <editor-fold defaultstate="collapsed" desc="hdr">
+//
+//  Copyright © Audiveris 2018. All rights reserved.
+//
+//  This program is free software: you can redistribute it and/or modify it under the terms of the
+//  GNU Affero General Public License as published by the Free Software Foundation, either version
+//  3 of the License, or (at your option) any later version.
+//
+//  This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+//  without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+//  See the GNU Affero General Public License for more details.
+//
+//  You should have received a copy of the GNU Affero General Public License along with this
+//  program.  If not, see <http://www.gnu.org/licenses/>.
+//------------------------------------------------------------------------------------------------//
+// </editor-fold>
+package org.audiveris.omr.util;
+
+import ij.process.ByteProcessor;
+
+import org.audiveris.omr.glyph.Glyph;
+import org.audiveris.omr.glyph.GlyphFactory;
+import org.audiveris.omr.run.Orientation;
+import org.audiveris.omr.run.RunTable;
+import org.audiveris.omr.run.RunTableFactory;
+
+import static org.junit.Assert.*;
+import org.junit.Test;
+
+import java.awt.Point;
+import java.awt.Rectangle;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Class {@code EntityGridTest} checks that region queries on a {@link BasicIndex} give the
+ * same results with or without a spatial {@link EntityGrid}, and compares their timing on
+ * the glyph population of a synthetic page.
+ *
+ * @author Hervé Bitteur
+ */
+public class EntityGridTest
+{
+    //~ Static fields/initializers -----------------------------------------------------------------
+
+    /** Typical dimension of a 300 DPI A4 scan. */
+    private static final int WIDTH = 2480;
+
+    private static final int HEIGHT = 3508;
+
+    /** Number of symbol-like blobs on page. */
+    private static final int BLOBS = 20000;
+
+    /** Number of queries of each kind. */
+    private static final int QUERIES = 2000;
+
+    //~ Constructors -------------------------------------------------------------------------------
+    /**
+     * Creates a new {@code EntityGridTest} object.
+     */
+    public EntityGridTest ()
+    {
+    }
+
+    //~ Methods ------------------------------------------------------------------------------------
+    /**
+     * Check insertion, removal and reset on a tiny population.
+     */
+    @Test
+    public void testInsertRemove ()
+    {
+        System.out.println("\n+++ insert / remove");
+
+        final List<Glyph> glyphs = buildGlyphs(200, 150, 30, new Random(123));
+        final BasicIndex<Glyph> plain = new BasicIndex<>(new AtomicInteger(0));
+        final BasicIndex<Glyph> gridded = new BasicIndex<>(new AtomicInteger(0));
+        gridded.setGrid(new EntityGrid<Glyph>(16));
+
+        for (Glyph glyph : glyphs) {
+            plain.register(glyph);
+            gridded.insert(glyph);
+        }
+
+        final Rectangle all = new Rectangle(0, 0, 200, 150);
+        assertEquals(glyphs.size(), gridded.getContainedEntities(all).size());
+
+        // Remove every other glyph
+        for (int i = 0; i < glyphs.size(); i += 2) {
+            plain.remove(glyphs.get(i));
+            gridded.remove(glyphs.get(i));
+        }
+
+        assertEquals(plain.getContainedEntities(all), gridded.getContainedEntities(all));
+        assertEquals(gridded.getContainedEntities(all).size(), gridded.grid.size());
+
+        // Queries partly outside the image
+        final Rectangle outside = new Rectangle(-50, -50, 120, 100);
+        assertEquals(plain.getContainedEntities(outside), gridded.getContainedEntities(outside));
+        assertTrue(gridded.getContainingEntities(new Point(-3, -7)).isEmpty());
+
+        gridded.reset();
+        assertTrue(gridded.getContainedEntities(all).isEmpty());
+        assertEquals(0, gridded.grid.size());
+    }
+
+    /**
+     * Check intersection queries against a linear scan.
+     */
+    @Test
+    public void testIntersected ()
+    {
+        System.out.println("\n+++ intersected");
+
+        final Random random = new Random(789);
+        final List<Glyph> glyphs = buildGlyphs(600, 400, 300, random);
+        final EntityGrid<Glyph> grid = new EntityGrid<>(32);
+
+        for (int i = 0; i < glyphs.size(); i++) {
+            glyphs.get(i).setId(i + 1);
+            grid.insert(glyphs.get(i));
+        }
+
+        for (int i = 0; i < 500; i++) {
+            final int w = 1 + random.nextInt(150);
+            final int h = 1 + random.nextInt(150);
+            final Rectangle rect = new Rectangle(
+                    random.nextInt(600) - 50,
+                    random.nextInt(400) - 50,
+                    w,
+                    h);
+            final List<Glyph> expected = new ArrayList<>();
+
+            for (Glyph glyph : glyphs) {
+                if (rect.intersects(glyph.getBounds())) {
+                    expected.add(glyph);
+                }
+            }
+
+            assertEquals(expected, grid.getIntersectedEntities(rect));
+        }
+    }
+
+    /**
+     * Check and time rectangle and point queries on a page population.
+     */
+    @Test
+    public void testQueries ()
+    {
+        System.out.println("\n+++ region queries");
+
+        final Random random = new Random(4567);
+        final List<Glyph> glyphs = buildGlyphs(WIDTH, HEIGHT, BLOBS, random);
+        System.out.println("glyphs: " + glyphs.size());
+
+        final BasicIndex<Glyph> plain = new BasicIndex<>(new AtomicInteger(0));
+        final BasicIndex<Glyph> gridded = new BasicIndex<>(new AtomicInteger(0));
+
+        for (Glyph glyph : glyphs) {
+            plain.register(glyph);
+        }
+
+        gridded.setGrid(new EntityGrid<Glyph>(64));
+
+        for (Glyph glyph : glyphs) {
+            gridded.insert(glyph);
+        }
+
+        final List<Rectangle> rects = new ArrayList<>();
+        final List<Point> points = new ArrayList<>();
+
+        for (int i = 0; i < QUERIES; i++) {
+            final int w = 20 + random.nextInt(300);
+            final int h = 20 + random.nextInt(300);
+            rects.add(new Rectangle(random.nextInt(WIDTH - w), random.nextInt(HEIGHT - h), w, h));
+            points.add(new Point(random.nextInt(WIDTH), random.nextInt(HEIGHT)));
+        }
+
+        // Whole page, for good measure
+        rects.add(new Rectangle(0, 0, WIDTH, HEIGHT));
+
+        // Check
+        int contained = 0;
+        int containing = 0;
+
+        for (Rectangle rect : rects) {
+            List<Glyph> expected = plain.getContainedEntities(rect);
+            assertEquals(expected, gridded.getContainedEntities(rect));
+            contained += expected.size();
+        }
+
+        for (Point point : points) {
+            List<Glyph> expected = plain.getContainingEntities(point);
+            assertEquals(expected, gridded.getContainingEntities(point));
+            containing += expected.size();
+        }
+
+        System.out.println("contained: " + contained + " containing: " + containing);
+
+        // Time
+        final StopWatch watch = new StopWatch("Region queries on " + glyphs.size() + " glyphs");
+        watch.start("linear contained");
+
+        for (Rectangle rect : rects) {
+            plain.getContainedEntities(rect);
+        }
+
+        watch.start("grid contained");
+
+        for (Rectangle rect : rects) {
+            gridded.getContainedEntities(rect);
+        }
+
+        watch.start("linear containing");
+
+        for (Point point : points) {
+            plain.getContainingEntities(point);
+        }
+
+        watch.start("grid containing");
+
+        for (Point point : points) {
+            gridded.getContainingEntities(point);
+        }
+
+        watch.print();
+    }
+
+    //-------------//
+    // buildGlyphs //
+    //-------------//
+    /**
+     * Build the glyphs of a synthetic page, made of random symbol-like blobs plus a few
+     * long horizontal and vertical lines which span many grid cells.
+     */
+    private List<Glyph> buildGlyphs (int width,
+                                     int height,
+                                     int blobs,
+                                     Random random)
+    {
+        final ByteProcessor source = new ByteProcessor(width, height);
+        source.setValue(255);
+        source.fill();
+        source.setValue(0);
+
+        for (int i = 0; i < blobs; i++) {
+            final int w = 2 + random.nextInt(Math.min(24, width / 4));
+            final int h = 2 + random.nextInt(Math.min(24, height / 4));
+            source.setRoi(random.nextInt(width - w), random.nextInt(height - h), w, h);
+            source.fill();
+        }
+
+        for (int i = 0; i < 5; i++) {
+            final int y = random.nextInt(height - 2);
+            source.setRoi(width / 10, y, (8 * width) / 10, 2);
+            source.fill();
+
+            final int x = random.nextInt(width - 2);
+            source.setRoi(x, height / 10, 2, (8 * height) / 10);
+            source.fill();
+        }
+
+        source.resetRoi();
+
+        final RunTable table = new RunTableFactory(Orientation.HORIZONTAL).createTable(source);
+
+        return GlyphFactory.buildGlyphs(table, null);
+    }
+}